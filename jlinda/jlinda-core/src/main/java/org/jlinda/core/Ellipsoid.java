@@ -125,6 +125,24 @@ public class Ellipsoid {
                 (Nph - e2 * N) * FastMath.sin(phi));
     }
 
+    /**
+     * Allocation-free variant of {@link #ell2xyz(double, double, double)}, writing to xyz[offset..offset+2].
+     */
+    public static void ell2xyz(final double phi, final double lambda, final double height,
+                               final double[] xyz, final int offset) throws IllegalArgumentException {
+
+        if (phi > Math.PI || phi < -Math.PI || lambda > Math.PI || lambda < -Math.PI) {
+            throw new IllegalArgumentException("Ellipsoid.ell2xyz : input values for phi/lambda have to be in radians!");
+        }
+
+        final double N = computeEllipsoidNormal(phi);
+        final double Nph = N + height;
+        final double A = Nph * FastMath.cos(phi);
+        xyz[offset] = A * FastMath.cos(lambda);
+        xyz[offset + 1] = A * FastMath.sin(lambda);
+        xyz[offset + 2] = (Nph - e2 * N) * FastMath.sin(phi);
+    }
+
     public static Point ell2xyz(final GeoPoint geoPoint, final double height) {
         return ell2xyz(geoPoint.lat * DTOR, geoPoint.lon * DTOR, height);
     }
@@ -400,6 +400,276 @@ public final class Orbit {
     }
 
 
+    /*--- Primitive geometry API ---
+     *
+     * Allocation-free counterparts of the Point based methods above for per-pixel use (eg, DEM radar coding).
+     * Outputs go to caller supplied arrays and the iterative solvers take an initial value, so callers can
+     * seed them with the solution of the neighbouring point and converge in one or two iterations.
+     */
+
+    /**
+     * Initial azimuth time used by the Point based solvers: the scene centre.
+     */
+    public double getInitialAzimuthTime(final SLCImage slcimage) {
+        return slcimage.line2ta(0.5 * slcimage.getApproxRadarCentreOriginal().y);
+    }
+
+    /**
+     * Evaluate satellite position, velocity and acceleration with one fused polynomial evaluation.
+     *
+     * @param azTime azimuth time
+     * @param state  output: x, y, z, xDot, yDot, zDot, xDotDot, yDotDot, zDotDot
+     */
+    public void getXYZAndDerivatives(final double azTime, final double[] state) {
+
+        // normalize time
+        final double t = (azTime - time[numStateVectors / 2]) / 10.0;
+
+        final int degree = coeff_X.length - 1;
+        double px = coeff_X[degree], py = coeff_Y[degree], pz = coeff_Z[degree];
+        double vx = 0, vy = 0, vz = 0;
+        double ax = 0, ay = 0, az = 0;
+        for (int i = degree - 1; i >= 0; --i) {
+            ax = ax * t + 2 * vx;
+            ay = ay * t + 2 * vy;
+            az = az * t + 2 * vz;
+            vx = vx * t + px;
+            vy = vy * t + py;
+            vz = vz * t + pz;
+            px = px * t + coeff_X[i];
+            py = py * t + coeff_Y[i];
+            pz = pz * t + coeff_Z[i];
+        }
+
+        state[0] = px;
+        state[1] = py;
+        state[2] = pz;
+        state[3] = vx / 10.0;
+        state[4] = vy / 10.0;
+        state[5] = vz / 10.0;
+        state[6] = ax / 100.0;
+        state[7] = ay / 100.0;
+        state[8] = az / 100.0;
+    }
+
+    /**
+     * Zero-Doppler azimuth time and range time of a point, primitive variant of {@link #xyz2t(Point, double)}.
+     *
+     * @param x             point on ellipsoid, X
+     * @param y             point on ellipsoid, Y
+     * @param z             point on ellipsoid, Z
+     * @param azTimeInitial initial azimuth time, eg, the solution of the previous point
+     * @param rgAzTime      output: range time, azimuth time
+     */
+    public void xyz2t(final double x, final double y, final double z, final double azTimeInitial,
+                      final double[] rgAzTime) {
+
+        final double t0 = time[numStateVectors / 2];
+        final int degree = coeff_X.length - 1;
+
+        double timeAzimuth = azTimeInitial;
+        double px = 0, py = 0, pz = 0;
+
+        int iter;
+        double solution = 0;
+        for (iter = 0; iter <= MAXITER; ++iter) {
+
+            // fused evaluation of position, velocity and acceleration (normalized time)
+            final double t = (timeAzimuth - t0) / 10.0;
+            px = coeff_X[degree];
+            py = coeff_Y[degree];
+            pz = coeff_Z[degree];
+            double vx = 0, vy = 0, vz = 0;
+            double ax = 0, ay = 0, az = 0;
+            for (int i = degree - 1; i >= 0; --i) {
+                ax = ax * t + 2 * vx;
+                ay = ay * t + 2 * vy;
+                az = az * t + 2 * vz;
+                vx = vx * t + px;
+                vy = vy * t + py;
+                vz = vz * t + pz;
+                px = px * t + coeff_X[i];
+                py = py * t + coeff_Y[i];
+                pz = pz * t + coeff_Z[i];
+            }
+            vx /= 10.0;
+            vy /= 10.0;
+            vz /= 10.0;
+            ax /= 100.0;
+            ay /= 100.0;
+            az /= 100.0;
+
+            final double dx = x - px;
+            final double dy = y - py;
+            final double dz = z - pz;
+
+            // update solution
+            final double doppler = vx * dx + vy * dy + vz * dz;
+            final double dopplerDt = ax * dx + ay * dy + az * dz - vx * vx - vy * vy - vz * vz;
+            solution = -doppler / dopplerDt;
+            timeAzimuth += solution;
+
+            if (Math.abs(solution) < CRITERTIM) {
+                break;
+            }
+        }
+
+        // Check number of iterations
+        if (iter >= MAXITER) {
+            logger.warning("x,y,z -> line, pix: maximum iterations ( {"+MAXITER+"} ) reached. ");
+            logger.warning("Criterium (s): {"+CRITERTIM+"} dta (s)= {"+solution+"}");
+        }
+
+        // Compute range time at the final azimuth time
+        final double t = (timeAzimuth - t0) / 10.0;
+        px = PolyUtils.polyVal1D(t, coeff_X);
+        py = PolyUtils.polyVal1D(t, coeff_Y);
+        pz = PolyUtils.polyVal1D(t, coeff_Z);
+        final double dx = x - px;
+        final double dy = y - py;
+        final double dz = z - pz;
+
+        rgAzTime[0] = Math.sqrt(dx * dx + dy * dy + dz * dz) / SOL;
+        rgAzTime[1] = timeAzimuth;
+    }
+
+    /**
+     * Row-wise batch variant of {@link #xyz2t(double, double, double, double, double[])}. The points of a row are
+     * nearly evenly spaced, so every point is seeded with the azimuth time extrapolated from its two predecessors
+     * and converges in one or two iterations.
+     *
+     * @param xyz           packed points, x, y, z per point
+     * @param numPoints     number of points
+     * @param azTimeInitial initial azimuth time for the first point
+     * @param rgTime        output range times
+     * @param azTime        output azimuth times
+     */
+    public void xyz2t(final double[] xyz, final int numPoints, final double azTimeInitial,
+                      final double[] rgTime, final double[] azTime) {
+
+        final double[] rgAzTime = new double[2];
+        double timeAzimuth = azTimeInitial;
+        for (int i = 0; i < numPoints; i++) {
+            xyz2t(xyz[3 * i], xyz[3 * i + 1], xyz[3 * i + 2], timeAzimuth, rgAzTime);
+            rgTime[i] = rgAzTime[0];
+            azTime[i] = rgAzTime[1];
+            timeAzimuth = i > 0 ? 2 * azTime[i] - azTime[i - 1] : azTime[i];
+        }
+    }
+
+    /**
+     * Point on the ellipsoid (raised by height) for given azimuth and range time, primitive variant of
+     * {@link #lph2xyz(double, double, double, Point)}.
+     *
+     * @param azTime azimuth time
+     * @param rgTime range time
+     * @param height height above ellipsoid
+     * @param xyz    input: initial value, eg, the solution of the previous point; output: the solution
+     * @param offset offset of the point in xyz
+     */
+    public void lph2xyz(final double azTime, final double rgTime, final double height,
+                        final double[] xyz, final int offset) {
+
+        final double t = (azTime - time[numStateVectors / 2]) / 10.0;
+        final int degree = coeff_X.length - 1;
+
+        // fused evaluation of position and velocity
+        double sx = coeff_X[degree], sy = coeff_Y[degree], sz = coeff_Z[degree];
+        double vx = 0, vy = 0, vz = 0;
+        for (int i = degree - 1; i >= 0; --i) {
+            vx = vx * t + sx;
+            vy = vy * t + sy;
+            vz = vz * t + sz;
+            sx = sx * t + coeff_X[i];
+            sy = sy * t + coeff_Y[i];
+            sz = sz * t + coeff_Z[i];
+        }
+        vx /= 10.0;
+        vy /= 10.0;
+        vz /= 10.0;
+
+        final double rangeSqr = (SOL * rgTime) * (SOL * rgTime);
+        final double invAh2 = 1.0 / ((ell_a + height) * (ell_a + height));
+        final double invBh2 = 1.0 / ((ell_b + height) * (ell_b + height));
+
+        double px = xyz[offset];
+        double py = xyz[offset + 1];
+        double pz = xyz[offset + 2];
+
+        // iterate for the solution
+        for (int iter = 0; iter <= MAXITER; iter++) {
+
+            final double dx = px - sx;
+            final double dy = py - sy;
+            final double dz = pz - sz;
+
+            // equations
+            final double b0 = -(vx * dx + vy * dy + vz * dz);
+            final double b1 = -(dx * dx + dy * dy + dz * dz - rangeSqr);
+            final double b2 = -((px * px + py * py) * invAh2 + pz * pz * invBh2 - 1.0);
+
+            // partials
+            final double a00 = vx, a01 = vy, a02 = vz;
+            final double a10 = 2 * dx, a11 = 2 * dy, a12 = 2 * dz;
+            final double a20 = 2 * px * invAh2, a21 = 2 * py * invAh2, a22 = 2 * pz * invBh2;
+
+            // solve 3x3 system by LU decomposition, see LinearAlgebraUtils.solve33
+            final double L10 = a10 / a00;
+            final double L20 = a20 / a00;
+            final double U11 = a11 - L10 * a01;
+            final double L21 = (a21 - (a01 * L20)) / U11;
+            final double U12 = a12 - L10 * a02;
+            final double U22 = a22 - L20 * a02 - L21 * U12;
+
+            final double c1 = b1 - b0 * L10;
+            final double c2 = b2 - b0 * L20 - c1 * L21;
+
+            final double sol2 = c2 / U22;
+            final double sol1 = (c1 - U12 * sol2) / U11;
+            final double sol0 = (b0 - a01 * sol1 - a02 * sol2) / a00;
+
+            // update solution
+            px += sol0;
+            py += sol1;
+            pz += sol2;
+
+            // check convergence
+            if (Math.abs(sol0) < CRITERPOS && Math.abs(sol1) < CRITERPOS && Math.abs(sol2) < CRITERPOS) {
+                break;
+            }
+        }
+
+        xyz[offset] = px;
+        xyz[offset + 1] = py;
+        xyz[offset + 2] = pz;
+    }
+
+    /**
+     * Row-wise batch variant of {@link #lph2xyz(double, double, double, double[], int)}. Every point is seeded
+     * with the solution extrapolated from its two predecessors, the first point with the initial value found
+     * in xyz and the second with the solution of the first.
+     *
+     * @param azTime    azimuth times
+     * @param rgTime    range times
+     * @param height    heights above ellipsoid
+     * @param numPoints number of points
+     * @param xyz       packed output points, x, y, z per point
+     */
+    public void lph2xyz(final double[] azTime, final double[] rgTime, final double[] height, final int numPoints,
+                        final double[] xyz) {
+
+        for (int i = 0; i < numPoints; i++) {
+            if (i > 1) {
+                for (int k = 3 * i; k < 3 * i + 3; k++) {
+                    xyz[k] = 2 * xyz[k - 3] - xyz[k - 6];
+                }
+            } else if (i > 0) {
+                System.arraycopy(xyz, 0, xyz, 3, 3);
+            }
+            lph2xyz(azTime[i], rgTime[i], height[i], xyz, 3 * i);
+        }
+    }
+
     public Point xyz2lp(final Point pointOnEllips, final SLCImage slcimage) {
 
         // Compute tazi, tran
@@ -4,7 +4,6 @@ import gnu.trove.list.array.TDoubleArrayList;
 import gnu.trove.list.array.TIntArrayList;
 import org.apache.commons.math3.util.FastMath;
 import org.ejml.data.DenseMatrix64F;
-import org.ejml.data.RowD1Matrix64F;
 import org.ejml.factory.LinearSolver;
 import org.ejml.factory.LinearSolverFactory;
 import org.ejml.ops.CommonOps;
@@ -23,6 +22,7 @@ import org.perf4j.StopWatch;
 
 import javax.media.jai.WarpPolynomial;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -323,13 +323,57 @@ public class CPM {
         DenseMatrix64F rhsP = null;
 
         // normalize master coordinates for stability -- only master!
-        TDoubleArrayList yMasterNorm = new TDoubleArrayList();
-        TDoubleArrayList xMasterNorm = new TDoubleArrayList();
-        for (int i = 0; i < yMaster.size(); i++) {
-            yMasterNorm.add(PolyUtils.normalize2(yMaster.getQuick(i), normWin.linelo, normWin.linehi));
-            xMasterNorm.add(PolyUtils.normalize2(xMaster.getQuick(i), normWin.pixlo, normWin.pixhi));
+        final double[] yMasterNorm = new double[numObservations];
+        final double[] xMasterNorm = new double[numObservations];
+        for (int i = 0; i < numObservations; i++) {
+            yMasterNorm[i] = PolyUtils.normalize2(yMaster.getQuick(i), normWin.linelo, normWin.linehi);
+            xMasterNorm[i] = PolyUtils.normalize2(xMaster.getQuick(i), normWin.pixlo, normWin.pixhi);
+        }
+
+        // design matrix rows, removed together with their observations
+        final List<double[]> designRows = new ArrayList<>(
+                Arrays.asList(SystemOfEquations.constructDesignMatrix_loop(yMasterNorm, xMasterNorm, cpmDegree)));
+
+        /** weights: normalized to a mean of one to avoid influence on estimated var.factor */
+        final TDoubleArrayList weights = new TDoubleArrayList(numObservations);
+        boolean normalizeWeights = false;
+        switch (cpmWeight) {
+            case "linear":
+                logger.info("Using sqrt(coherence) as weights");
+                weights.addAll(coherence);
+                normalizeWeights = true;
+                break;
+            case "quadratic":
+                logger.info("Using coherence as weights.");
+                for (int i = 0; i < numObservations; i++) {
+                    weights.add(coherence.getQuick(i) * coherence.getQuick(i));
+                }
+                normalizeWeights = true;
+                break;
+            case "bamler":
+                // TODO: see Bamler papers IGARSS 2000 and 2004
+                logger.warning("Bamler weighting method NOT IMPLEMENTED, falling back to None.");
+                weights.fill(0, numObservations, 1);
+                break;
+            case "none":
+                logger.info("No weighting.");
+                weights.fill(0, numObservations, 1);
+                break;
+            default:
+                weights.fill(0, numObservations, 1);
+                break;
         }
 
+        /** normal equations with unnormalized weights: updated when an outlier is removed, not rebuilt */
+        final DenseMatrix64F N_sum = new DenseMatrix64F(numUnknowns, numUnknowns);
+        final DenseMatrix64F rhsL_sum = new DenseMatrix64F(numUnknowns, 1);
+        final DenseMatrix64F rhsP_sum = new DenseMatrix64F(numUnknowns, 1);
+        double weightSum = 0;
+        for (int i = 0; i < numObservations; i++) {
+            addObservation(designRows.get(i), weights.getQuick(i), yOffset.getQuick(i), xOffset.getQuick(i),
+                           N_sum, rhsL_sum, rhsP_sum);
+            weightSum += weights.getQuick(i);
+        }
 
         // helper variables
         int winL;
@@ -350,9 +394,16 @@ public class CPM {
             /** Remove identified outlier from previous estimation */
             if (numIterations != 0) {
                 logger.info("Removing observation {}, idxList {},  from observation vector."+ index.getQuick(maxWSum_idx)+ maxWSum_idx);
+
+                // take its contribution out of the normal equations
+                final double weight = weights.getQuick(maxWSum_idx);
+                addObservation(designRows.get(maxWSum_idx), -weight, yOffset.getQuick(maxWSum_idx),
+                               xOffset.getQuick(maxWSum_idx), N_sum, rhsL_sum, rhsP_sum);
+                weightSum -= weight;
+
                 index.removeAt(maxWSum_idx);
-                yMasterNorm.removeAt(maxWSum_idx);
-                xMasterNorm.removeAt(maxWSum_idx);
+                designRows.remove(maxWSum_idx);
+                weights.removeAt(maxWSum_idx);
                 yOffset.removeAt(maxWSum_idx);
                 xOffset.removeAt(maxWSum_idx);
 
@@ -365,12 +416,6 @@ public class CPM {
 
                 // also take care of slave pins
                 slaveGCPList.remove(maxWSum_idx);
-
-//                if (demRefinement) {
-//                    ySlaveGeometry.removeAt(maxWSum_idx);
-//                    xSlaveGeometry.removeAt(maxWSum_idx);
-//                }
-
             }
 
             /** Check redundancy */
@@ -380,76 +425,22 @@ public class CPM {
                 throw new ArithmeticException("coregpm: Number of windows > threshold is smaller than parameters solved for.");
             }
 
-            // work with normalized values
-            DenseMatrix64F A = new DenseMatrix64F(SystemOfEquations.constructDesignMatrix_loop(yMasterNorm.toArray(), xMasterNorm.toArray(), cpmDegree));
-
-            logger.info("TIME FOR SETUP of SYSTEM : {}"+ stopWatch.lap("setup"));
-
-            RowD1Matrix64F Qy_1; // vector
-            double meanValue;
-            switch (cpmWeight) {
-                case "linear":
-                    logger.info("Using sqrt(coherence) as weights");
-                    Qy_1 = DenseMatrix64F.wrap(numObservations, 1, coherence.toArray());
-                    // Normalize weights to avoid influence on estimated var.factor
-                    logger.info("Normalizing covariance matrix for LS estimation");
-                    meanValue = CommonOps.elementSum(Qy_1) / numObservations;
-                    CommonOps.divide(meanValue, Qy_1); // normalize vector
-                    break;
-                case "quadratic":
-                    logger.info("Using coherence as weights.");
-                    Qy_1 = DenseMatrix64F.wrap(numObservations, 1, coherence.toArray());
-                    CommonOps.elementMult(Qy_1, Qy_1);
-                    // Normalize weights to avoid influence on estimated var.factor
-                    meanValue = CommonOps.elementSum(Qy_1) / numObservations;
-                    logger.info("Normalizing covariance matrix for LS estimation.");
-                    CommonOps.divide(meanValue, Qy_1); // normalize vector
-                    break;
-                case "bamler":
-                    // TODO: see Bamler papers IGARSS 2000 and 2004
-                    logger.warning("Bamler weighting method NOT IMPLEMENTED, falling back to None.");
-                    Qy_1 = onesEJML(numObservations);
-                    break;
-                case "none":
-                    logger.info("No weighting.");
-                    Qy_1 = onesEJML(numObservations);
-                    break;
-                default:
-                    Qy_1 = onesEJML(numObservations);
-                    break;
-            }
-
-            logger.info("TIME FOR SETUP of VC diag matrix: {}"+ stopWatch.lap("diag VC matrix"));
-
-            /** tempMatrix_1 matrices */
-            final DenseMatrix64F yL_matrix = DenseMatrix64F.wrap(numObservations, 1, yOffset.toArray());
-            final DenseMatrix64F yP_matrix = DenseMatrix64F.wrap(numObservations, 1, xOffset.toArray());
-            logger.info("TIME FOR SETUP of TEMP MATRICES: {}"+ stopWatch.lap("Temp matrices"));
+            final double weightScale = normalizeWeights ? numObservations / weightSum : 1.0;
 
             /** normal matrix */
-            final DenseMatrix64F N = new DenseMatrix64F(numUnknowns, numUnknowns); // = A_transpose.mmul(Qy_1_diag.mmul(A));
-
-    /*
-                // fork/join parallel implementation
-                RowD1Matrix64F result = A.copy();
-                DiagXMat dd = new DiagXMat(Qy_1, A, 0, A.numRows, result);
-                ForkJoinPool pool = new ForkJoinPool();
-                pool.invoke(dd);
-                CommonOps.multAddTransA(A, dd.result, N);
-    */
-
-            CommonOps.multAddTransA(A, diagxmat(Qy_1, A), N);
+            final DenseMatrix64F N = N_sum.copy(); // = A_transpose.mmul(Qy_1_diag.mmul(A));
+            CommonOps.scale(weightScale, N);
             DenseMatrix64F Qx_hat = N.copy();
 
             logger.info("TIME FOR SETUP of NORMAL MATRIX: {}"+ stopWatch.lap("Normal matrix"));
 
             /** right hand sides */
             // azimuth
-            rhsL = new DenseMatrix64F(numUnknowns, 1);// A_transpose.mmul(Qy_1_diag.mmul(yL_matrix));
-            CommonOps.multAddTransA(1d, A, diagxmat(Qy_1, yL_matrix), rhsL);
+            rhsL = rhsL_sum.copy(); // A_transpose.mmul(Qy_1_diag.mmul(yL_matrix));
+            CommonOps.scale(weightScale, rhsL);
             // range
-            rhsP = new DenseMatrix64F(numUnknowns, 1); // A_transpose.mmul(Qy_1_diag.mmul(yP_matrix));
-            CommonOps.multAddTransA(1d, A, diagxmat(Qy_1, yP_matrix), rhsP);
+            rhsP = rhsP_sum.copy(); // A_transpose.mmul(Qy_1_diag.mmul(yP_matrix));
+            CommonOps.scale(weightScale, rhsP);
             logger.info("TIME FOR SETUP of RightHand Side: {}"+ stopWatch.lap("Right-hand-side"));
 
             LinearSolver<DenseMatrix64F> solver = LinearSolverFactory.leastSquares(100, 100);
@@ -484,25 +475,31 @@ public class CPM {
             logger.info("Max Deviation: {}"+ maxDeviation);
             logger.info("System Quality: {}"+ solver.quality());
 
-            /** some other stuff if the scale is okay */
-            DenseMatrix64F Qe_hat = new DenseMatrix64F(numObservations, numObservations);
-            DenseMatrix64F tempMatrix_2 = new DenseMatrix64F(numObservations, numUnknowns);
-
-            CommonOps.mult(A, Qx_hat, tempMatrix_2);
-            CommonOps.multTransB(-1, tempMatrix_2, A, Qe_hat);
-            scaleInputDiag(Qe_hat, Qy_1);
-
-            // solution: Azimuth
-            DenseMatrix64F yL_hat = new DenseMatrix64F(numObservations, 1);
+            /** residuals and the diagonal of their covariance: Qe_hat = inv(Qy_1) - A * Qx_hat * A' */
+            final DenseMatrix64F Qy_1 = new DenseMatrix64F(numObservations, 1);
+            final DenseMatrix64F Qe_hat = new DenseMatrix64F(numObservations, 1);
             eL_hat = new DenseMatrix64F(numObservations, 1);
-            CommonOps.mult(A, rhsL, yL_hat);
-            CommonOps.sub(yL_matrix, yL_hat, eL_hat);
-
-            // solution: Range
-            DenseMatrix64F yP_hat = new DenseMatrix64F(numObservations, 1);
             eP_hat = new DenseMatrix64F(numObservations, 1);
-            CommonOps.mult(A, rhsP, yP_hat);
-            CommonOps.sub(yP_matrix, yP_hat, eP_hat);
+
+            for (int i = 0; i < numObservations; i++) {
+                final double[] a = designRows.get(i);
+                double yL_hat = 0;
+                double yP_hat = 0;
+                double aQxa = 0;
+                for (int j = 0; j < numUnknowns; j++) {
+                    yL_hat += a[j] * rhsL.get(j);
+                    yP_hat += a[j] * rhsP.get(j);
+                    double qxa = 0;
+                    for (int k = 0; k < numUnknowns; k++) {
+                        qxa += Qx_hat.unsafe_get(j, k) * a[k];
+                    }
+                    aQxa += a[j] * qxa;
+                }
+                Qy_1.set(i, weights.getQuick(i) * weightScale);
+                Qe_hat.set(i, 1 / Qy_1.get(i) - aQxa);
+                eL_hat.set(i, yOffset.getQuick(i) - yL_hat);
+                eP_hat.set(i, xOffset.getQuick(i) - yP_hat);
+            }
 
             logger.info("TIME FOR DATA preparation for TESTING: {}"+ stopWatch.lap("Testing Setup"));
 
@@ -531,8 +528,8 @@ public class CPM {
             DenseMatrix64F wTest_P = new DenseMatrix64F(numObservations, 1);
 
             for (int i = 0; i < numObservations; i++) {
-                wTest_L.set(i, eL_hat.get(i) / (Math.sqrt(Qe_hat.get(i, i)) * SIGMA_L));
-                wTest_P.set(i, eP_hat.get(i) / (Math.sqrt(Qe_hat.get(i, i)) * SIGMA_P));
+                wTest_L.set(i, eL_hat.get(i) / (Math.sqrt(Qe_hat.get(i)) * SIGMA_L));
+                wTest_P.set(i, eP_hat.get(i) / (Math.sqrt(Qe_hat.get(i)) * SIGMA_P));
             }
 
             /** find maxima's */
@@ -607,6 +604,22 @@ public class CPM {
 
     }
 
+    /**
+     * Add the contribution of one observation to the normal equations, or remove it with a negative weight.
+     */
+    static void addObservation(final double[] a, final double weight, final double yL, final double yP,
+                               final DenseMatrix64F N, final DenseMatrix64F rhsL, final DenseMatrix64F rhsP) {
+        final int n = a.length;
+        for (int j = 0; j < n; j++) {
+            final double wa = weight * a[j];
+            for (int k = 0; k < n; k++) {
+                N.unsafe_set(j, k, N.unsafe_get(j, k) + wa * a[k]);
+            }
+            rhsL.unsafe_set(j, 0, rhsL.unsafe_get(j, 0) + wa * yL);
+            rhsP.unsafe_set(j, 0, rhsP.unsafe_get(j, 0) + wa * yP);
+        }
+    }
+
     public void wrapJaiWarpPolynomial() {
 
         logger.info("Start JAI wrapper");
@@ -0,0 +1,204 @@
+package org.jlinda.core.coregistration;
+
+import java.awt.Rectangle;
+
+/**
+ * Resampling of complex (I/Q) data through a polynomial warp with a separable interpolation kernel.
+ * <p>
+ * This is the native counterpart of the JAI "warp" operation with an {@link javax.media.jai.InterpolationTable}
+ * built from a {@link LUT}: the same pixel-centre convention, kernel padding, subsample selection and background
+ * handling are used. The warp polynomial is collapsed to a polynomial in x once per target row and evaluated with
+ * Horner's scheme, and the kernel weights and source indices of every target pixel are shared by I and Q, so both
+ * channels are resampled in a single pass over primitive arrays.
+ * </p>
+ * <p>
+ * Coefficients follow the ordering of {@link javax.media.jai.WarpPolynomial}:
+ * 1, x, y, x^2, xy, y^2, x^3, x^2y, xy^2, y^3, ...
+ * </p>
+ */
+public final class ComplexResampler {
+
+    private final float[] kernel;      // subsample positions x kernel length
+    private final int kernelLength;
+    private final int numSubsamples;
+    private final int padding;
+
+    /**
+     * @param lut interpolation look-up table, {@link LUT#constructLUT()} must have been called
+     */
+    public ComplexResampler(final LUT lut) {
+        this(lut.getKernelAsArray(), lut.getKernelLength());
+    }
+
+    /**
+     * @param kernel       kernel weights, kernelLength weights per subsample position
+     * @param kernelLength number of kernel points
+     */
+    public ComplexResampler(final double[] kernel, final int kernelLength) {
+        this.kernelLength = kernelLength;
+        this.numSubsamples = kernel.length / kernelLength;
+        this.padding = kernelLength / 2 - 1;
+        // the JAI table holds float weights
+        this.kernel = new float[kernel.length];
+        for (int i = 0; i < kernel.length; i++) {
+            this.kernel[i] = (float) kernel[i];
+        }
+    }
+
+    public int getKernelLength() {
+        return kernelLength;
+    }
+
+    /**
+     * Map the pixels of a target rectangle to source positions.
+     *
+     * @param xCoef warp polynomial coefficients for the source x
+     * @param yCoef warp polynomial coefficients for the source y
+     * @param x0    first target pixel
+     * @param y0    first target line
+     * @param w     target width
+     * @param h     target height
+     * @param srcX  output source x, w * h values
+     * @param srcY  output source y, w * h values
+     */
+    public static void warpRect(final double[] xCoef, final double[] yCoef,
+                                final int x0, final int y0, final int w, final int h,
+                                final double[] srcX, final double[] srcY) {
+
+        final int degree = getDegree(xCoef.length);
+        final double[] xRow = new double[degree + 1];
+        final double[] yRow = new double[degree + 1];
+
+        int k = 0;
+        for (int y = y0; y < y0 + h; y++) {
+            final double yc = y + 0.5;
+            collapse(xCoef, degree, yc, xRow);
+            collapse(yCoef, degree, yc, yRow);
+
+            for (int x = x0; x < x0 + w; x++) {
+                final double xc = x + 0.5;
+                double sx = xRow[degree];
+                double sy = yRow[degree];
+                for (int i = degree - 1; i >= 0; i--) {
+                    sx = sx * xc + xRow[i];
+                    sy = sy * xc + yRow[i];
+                }
+                srcX[k] = sx - 0.5;
+                srcY[k] = sy - 0.5;
+                ++k;
+            }
+        }
+    }
+
+    /**
+     * Collapse a bivariate polynomial at a fixed y to the coefficients of a polynomial in x.
+     */
+    private static void collapse(final double[] coef, final int degree, final double y, final double[] row) {
+        for (int i = 0; i <= degree; i++) {
+            // terms x^i * y^j for j = 0 .. degree - i, coefficient index (i+j)(i+j+1)/2 + j
+            double c = 0.0;
+            for (int j = degree - i; j >= 0; j--) {
+                final int n = i + j;
+                c = c * y + coef[n * (n + 1) / 2 + j];
+            }
+            row[i] = c;
+        }
+    }
+
+    private static int getDegree(final int numCoefficients) {
+        int degree = 0;
+        while ((degree + 1) * (degree + 2) / 2 < numCoefficients) {
+            ++degree;
+        }
+        if ((degree + 1) * (degree + 2) / 2 != numCoefficients) {
+            throw new IllegalArgumentException("Invalid number of warp coefficients " + numCoefficients);
+        }
+        return degree;
+    }
+
+    /**
+     * Get the source rectangle needed to resample the given source positions, clipped to the source image.
+     *
+     * @return the rectangle, empty if no position can be resampled
+     */
+    public Rectangle getSourceRectangle(final double[] srcX, final double[] srcY, final int n,
+                                        final int srcWidth, final int srcHeight) {
+        final int rightPadding = kernelLength - padding - 1;
+        int xMin = Integer.MAX_VALUE, yMin = Integer.MAX_VALUE;
+        int xMax = Integer.MIN_VALUE, yMax = Integer.MIN_VALUE;
+        for (int k = 0; k < n; k++) {
+            final int xi = (int) Math.floor(srcX[k]);
+            final int yi = (int) Math.floor(srcY[k]);
+            if (xi < xMin) xMin = xi;
+            if (xi > xMax) xMax = xi;
+            if (yi < yMin) yMin = yi;
+            if (yi > yMax) yMax = yi;
+        }
+        xMin = Math.max(xMin - padding, 0);
+        yMin = Math.max(yMin - padding, 0);
+        xMax = Math.min(xMax + rightPadding, srcWidth - 1);
+        yMax = Math.min(yMax + rightPadding, srcHeight - 1);
+        if (xMax < xMin || yMax < yMin) {
+            return new Rectangle(0, 0, 0, 0);
+        }
+        return new Rectangle(xMin, yMin, xMax - xMin + 1, yMax - yMin + 1);
+    }
+
+    /**
+     * Resample I and Q at the given source positions. Positions whose kernel support is not entirely inside the
+     * source image are set to zero, like the JAI background value.
+     *
+     * @param srcI      source I samples of the source rectangle, row major
+     * @param srcQ      source Q samples of the source rectangle, row major
+     * @param srcRect   the source rectangle, see {@link #getSourceRectangle}
+     * @param srcWidth  width of the source image
+     * @param srcHeight height of the source image
+     * @param srcX      source x positions
+     * @param srcY      source y positions
+     * @param n         number of positions
+     * @param trgI      output I
+     * @param trgQ      output Q
+     */
+    public void resample(final float[] srcI, final float[] srcQ, final Rectangle srcRect,
+                         final int srcWidth, final int srcHeight,
+                         final double[] srcX, final double[] srcY, final int n,
+                         final float[] trgI, final float[] trgQ) {
+
+        final int rightPadding = kernelLength - padding - 1;
+        final int minX = padding, maxX = srcWidth - rightPadding;
+        final int minY = padding, maxY = srcHeight - rightPadding;
+        final int stride = srcRect.width;
+
+        for (int k = 0; k < n; k++) {
+            final double sx = srcX[k];
+            final double sy = srcY[k];
+            final int xint = (int) Math.floor(sx);
+            final int yint = (int) Math.floor(sy);
+            if (xint < minX || xint >= maxX || yint < minY || yint >= maxY) {
+                trgI[k] = 0.0f;
+                trgQ[k] = 0.0f;
+                continue;
+            }
+
+            final int xOffset = ((int) ((sx - xint) * numSubsamples)) * kernelLength;
+            final int yOffset = ((int) ((sy - yint) * numSubsamples)) * kernelLength;
+
+            int row = (yint - padding - srcRect.y) * stride + (xint - padding - srcRect.x);
+            double sumI = 0.0, sumQ = 0.0;
+            for (int j = 0; j < kernelLength; j++) {
+                double rowI = 0.0, rowQ = 0.0;
+                for (int i = 0; i < kernelLength; i++) {
+                    final float kw = kernel[xOffset + i];
+                    rowI += kw * srcI[row + i];
+                    rowQ += kw * srcQ[row + i];
+                }
+                final float kv = kernel[yOffset + j];
+                sumI += kv * rowI;
+                sumQ += kv * rowQ;
+                row += stride;
+            }
+            trgI[k] = (float) sumI;
+            trgQ[k] = (float) sumQ;
+        }
+    }
+}
@@ -12,12 +12,36 @@ import org.jlinda.core.utils.MathUtils;
 import org.jlinda.core.utils.SarUtils;
 import org.jlinda.core.utils.SpectralUtils;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 public class CoregistrationUtils {
 
     static Logger logger = SystemUtils.LOG;
 
+    private static final Map<Long, ComplexDoubleMatrix> normBlocks = new ConcurrentHashMap<>();
+
+    /**
+     * Conjugated spectrum of a block of ones of size [L, P] centred in a [2L, 2P] matrix, used to compute the
+     * norms of all shifts. It only depends on the window size, so it is computed once and then only read.
+     */
+    private static ComplexDoubleMatrix getNormBlock(final int L, final int P) {
+        final Long key = ((long) L << 32) | P;
+        ComplexDoubleMatrix block = normBlocks.get(key);
+        if (block == null) {
+            logger.info("crosscorrelate:computing block of size [" + 2 * L + ", " + 2 * P + "]");
+            block = new ComplexDoubleMatrix(2 * L, 2 * P);
+            for (int l = L / 2; l < L / 2 + L; ++l)
+                for (int p = P / 2; p < P / 2 + P; ++p)
+                    block.put(l, p, new ComplexDouble(1, 0));
+            SpectralUtils.fft2D_inplace(block);
+            block.conji();
+            normBlocks.put(key, block);
+        }
+        return block;
+    }
+
 
     public static double crossCorrelateFFT(double[] offset,
                                            ComplexDoubleMatrix master, ComplexDoubleMatrix mask,
@@ -106,17 +130,8 @@ public class CoregistrationUtils {
             }
         }
 
-        // allocate block for reuse
-        ComplexDoubleMatrix BLOCK = new ComplexDoubleMatrix(0, 0);
-        if (BLOCK.rows != twoL || BLOCK.columns != twoP) {
-            logger.info("crosscorrelate:changing static block to size [" + twoL + ", " + twoP + "]");
-            BLOCK.resize(twoL, twoP);
-            for (l = halfL; l < halfL + L; ++l)
-                for (p = halfP; p < halfP + P; ++p)
-                    BLOCK.put(l, p, new ComplexDouble(1, 0));
-            SpectralUtils.fft2D_inplace(BLOCK);
-            BLOCK.conji();// static variable: keep this for re-use
-        }
+        // spectrum of the window block, shared by all calls with the same window size
+        final ComplexDoubleMatrix BLOCK = getNormBlock(L, P);
 
         // Compute the cross-products, i.e., the norms for each shift ---
         // Master2(0,0):Master2(N,N) for shifts = -N/2:N/2
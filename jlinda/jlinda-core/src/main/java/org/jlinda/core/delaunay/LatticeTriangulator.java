@@ -0,0 +1,127 @@
+package org.jlinda.core.delaunay;
+
+/**
+ * Triangulator for points that come from a regular lattice, eg, a radar-coded DEM.
+ * <p>
+ * The coordinates are packed in primitive arrays indexed by <code>line * pixels + pixel</code> of the
+ * lattice and the result is written as packed <code>int</code> vertex indices, three per triangle.
+ * Every lattice cell is split along its shorter diagonal, which is the Delaunay choice for a convex
+ * quadrilateral, so no global point location or edge flipping is needed: the triangulation is O(n).
+ * </p>
+ * <p>
+ * Scratch buffers are kept per thread, so calls from concurrent tile computations do not allocate
+ * once the buffers have grown to the tile size.
+ * </p>
+ */
+public final class LatticeTriangulator {
+
+    private static final ThreadLocal<int[]> scratchTriangles = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[0];
+        }
+    };
+
+    private LatticeTriangulator() {
+    }
+
+    /**
+     * Get the triangle index buffer of the calling thread, large enough to hold all triangles of a lattice.
+     *
+     * @param lines  number of lattice lines
+     * @param pixels number of lattice pixels
+     * @return scratch buffer owned by the calling thread
+     */
+    public static int[] getTriangleBuffer(final int lines, final int pixels) {
+        final int capacity = maxTriangles(lines, pixels) * 3;
+        int[] buffer = scratchTriangles.get();
+        if (buffer.length < capacity) {
+            buffer = new int[capacity];
+            scratchTriangles.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * @return maximum number of triangles for a lattice of the given size
+     */
+    public static int maxTriangles(final int lines, final int pixels) {
+        if (lines < 2 || pixels < 2) {
+            return 0;
+        }
+        return 2 * (lines - 1) * (pixels - 1);
+    }
+
+    /**
+     * Triangulate lattice points.
+     *
+     * @param x         packed x coordinates (line direction)
+     * @param y         packed y coordinates (pixel direction)
+     * @param lines     number of lattice lines
+     * @param pixels    number of lattice pixels
+     * @param xyRatio   scaling of y used for the choice of the diagonal
+     * @param nodata    value of invalid coordinates, such points are not triangulated
+     * @param triangles output vertex indices, three per triangle, see {@link #getTriangleBuffer(int, int)}
+     * @return number of triangles
+     */
+    public static int triangulate(final double[] x, final double[] y, final int lines, final int pixels,
+                                  final double xyRatio, final double nodata, final int[] triangles) {
+
+        int n = 0;
+        for (int l = 0; l < lines - 1; l++) {
+            final int row = l * pixels;
+            for (int p = 0; p < pixels - 1; p++) {
+
+                // cell corners: a - b
+                //               |   |
+                //               c - d
+                final int a = row + p;
+                final int b = a + 1;
+                final int c = a + pixels;
+                final int d = c + 1;
+
+                final boolean aValid = isValid(x, y, a, nodata);
+                final boolean bValid = isValid(x, y, b, nodata);
+                final boolean cValid = isValid(x, y, c, nodata);
+                final boolean dValid = isValid(x, y, d, nodata);
+
+                if (aValid && bValid && cValid && dValid) {
+                    if (squaredDistance(x, y, a, d, xyRatio) <= squaredDistance(x, y, b, c, xyRatio)) {
+                        n = add(triangles, n, a, b, d);
+                        n = add(triangles, n, a, d, c);
+                    } else {
+                        n = add(triangles, n, a, b, c);
+                        n = add(triangles, n, b, d, c);
+                    }
+                } else if (bValid && cValid && dValid && !aValid) {
+                    n = add(triangles, n, b, d, c);
+                } else if (aValid && cValid && dValid && !bValid) {
+                    n = add(triangles, n, a, d, c);
+                } else if (aValid && bValid && dValid && !cValid) {
+                    n = add(triangles, n, a, b, d);
+                } else if (aValid && bValid && cValid) {
+                    n = add(triangles, n, a, b, c);
+                }
+            }
+        }
+        return n / 3;
+    }
+
+    private static boolean isValid(final double[] x, final double[] y, final int i, final double nodata) {
+        return x[i] != nodata && y[i] != nodata && !Double.isNaN(x[i]) && !Double.isNaN(y[i]);
+    }
+
+    private static double squaredDistance(final double[] x, final double[] y, final int i, final int j,
+                                          final double xyRatio) {
+        final double dx = x[i] - x[j];
+        final double dy = (y[i] - y[j]) * xyRatio;
+        return dx * dx + dy * dy;
+    }
+
+    private static int add(final int[] triangles, final int n, final int v0, final int v1, final int v2) {
+        triangles[n] = v0;
+        triangles[n + 1] = v1;
+        triangles[n + 2] = v2;
+        return n + 3;
+    }
+}
@@ -3,12 +3,9 @@ package org.jlinda.core.filtering;
 import org.jblas.ComplexDouble;
 import org.jblas.ComplexDoubleMatrix;
 import org.jblas.DoubleMatrix;
-import org.jlinda.core.Window;
 import org.jlinda.core.utils.LinearAlgebraUtils;
-import org.jlinda.core.utils.SarUtils;
 import org.jlinda.core.utils.SpectralUtils;
 
-import static org.jblas.MatrixFunctions.powi;
 import static org.jlinda.core.utils.MathUtils.isEven;
 
 public class PhaseFilter {
@@ -108,6 +105,18 @@ public class PhaseFilter {
             }
         }
 
+        // buffers and kernel spectrum reused by all blocks
+        final SpectralBlock block = new SpectralBlock(blockSize);
+        final double[] amplitude = new double[blockSize * blockSize];
+        SpectralBlock smoothBlock = null;
+        double[] kernelSpectrum = null;
+        if (method.contains("convolution")) {
+            kernelSpectrum = SpectralBlock.toInterleaved(kernel2d);
+        } else if (doSmooth) {
+            smoothBlock = new SpectralBlock(blockSize);
+            kernelSpectrum = SpectralBlock.toInterleaved(kernel2d.conj());
+        }
+
 
         // loop until all blocks finished
         while (!lastBlock_Y && !lastBlock_X) {
@@ -140,36 +149,31 @@ public class PhaseFilter {
                     outBlockPix_x0 = outBlockPix_xN - (outPix_xN - outPix_x0 + 1) + 1;
                 }
 
-                // define windows read/write data
-                Window winData = new Window(inData_y0, inData_yN, dataPix_x0, dataPix_xN);
-                Window winBlock = new Window(block_y0, block_yN, outBlockPix_x0, outBlockPix_xN);
-                Window winFiltered = new Window(outData_y0, outLin_yN, outPix_x0, outPix_xN);
-
                 // pull block of data from inData
-                ComplexDoubleMatrix block = new ComplexDoubleMatrix((int) winData.lines(), (int) winData.pixels());
-                LinearAlgebraUtils.setdata(block, data, winData);
+                block.setData(data, inData_y0, dataPix_x0);
 
                 // get spectrum + filter + ifft
-                SpectralUtils.fft2D_inplace(block);
+                block.forward();
 
                 if (method.contains("convolution")) {
 
-                    LinearAlgebraUtils.dotmult_inplace(block, kernel2d); // the filter...
+                    block.multiplyComplex(kernelSpectrum); // the filter...
 
                 } else if (method.contains("goldstein")) {
 
-                    DoubleMatrix amplitude = SarUtils.magnitude(block);
+                    block.getMagnitude(amplitude);
                     if (doSmooth) {
-                        amplitude = smooth(amplitude, kernel2d);
+                        smooth(amplitude, smoothBlock, kernelSpectrum);
                     }
                     goldsteinThresholding(block, amplitude);
 
                 }
 
-                SpectralUtils.invfft2D_inplace(block);
+                block.inverse(true);
 
                 // set correct part that is filtered in output matrix
-                LinearAlgebraUtils.setdata(outData, winFiltered, block, winBlock);
+                block.getData(outData, outData_y0, outPix_x0, block_y0, outBlockPix_x0,
+                        outLin_yN - outData_y0 + 1, outPix_xN - outPix_x0 + 1);
 
                 // checks for loop in X
                 if (lastBlock_X) {
@@ -236,14 +240,18 @@ public class PhaseFilter {
         return kernel2dOut;
     }
 
-    private void goldsteinThresholding(ComplexDoubleMatrix block, DoubleMatrix amplitude) {
+    private void goldsteinThresholding(SpectralBlock block, double[] amplitude) {
 
-        double maxAmplitude = amplitude.max();
+        double maxAmplitude = Double.NEGATIVE_INFINITY;
+        for (double a : amplitude) {
+            maxAmplitude = Math.max(maxAmplitude, a);
+        }
 
         if (maxAmplitude > GOLDSTEIN_THRESHOLD) { // how reliable this threshold is?
-            amplitude.divi(maxAmplitude);
-            powi(amplitude, goldsteinAlpha);
-            LinearAlgebraUtils.dotmult_inplace(block, new ComplexDoubleMatrix(amplitude));
+            for (int i = 0; i < amplitude.length; i++) {
+                amplitude[i] = Math.pow(amplitude[i] / maxAmplitude, goldsteinAlpha);
+            }
+            block.multiply(amplitude);
         } else {
 //            PhaseFilterUtils.logger.warning("no filtering, maxAmplitude < " + goldsteinThreshold + ", are zeros in this data block?");
         }
@@ -257,12 +265,12 @@ public class PhaseFilter {
      * implementation as convolution with FFT's
      * input: KERNEL is the FFT of the kernel (block)
      */
-    private DoubleMatrix smooth(final DoubleMatrix inData, final ComplexDoubleMatrix kernel2d) {
-        ComplexDoubleMatrix outData = new ComplexDoubleMatrix(inData);      // or define fft(R4)
-        SpectralUtils.fft2D_inplace(outData);                               // or define fft(R4)
-        LinearAlgebraUtils.dotmult_inplace(outData, kernel2d.conj());
-        SpectralUtils.invfft2D_inplace(outData);         // convolution, but still complex...
-        return outData.real();                           // you know it is real only...
+    private static void smooth(final double[] inData, final SpectralBlock block, final double[] conjKernel2d) {
+        block.setReal(inData);                           // or define fft(R4)
+        block.forward();                                 // or define fft(R4)
+        block.multiplyComplex(conjKernel2d);
+        block.inverse(true);                             // convolution, but still complex...
+        block.getReal(inData);                           // you know it is real only...
     }
 
 
@@ -0,0 +1,199 @@
+package org.jlinda.core.filtering;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import org.jblas.ComplexDoubleMatrix;
+import org.jlinda.core.utils.SpectralUtils;
+
+/**
+ * Square block of complex samples for block-wise spectral filtering.
+ * <p/>
+ * The samples are interleaved (real, imaginary) in row-major order, so a block is filled, transformed, filtered
+ * and read back without allocating. The 2D FFT is done as row FFTs followed by column FFTs with the 1D plan cached
+ * for the calling thread; it does not start threads of its own, as the callers already run one tile per thread.
+ * <p/>
+ * A block is not thread safe, use one per tile or per thread.
+ */
+public final class SpectralBlock {
+
+    private final int size;
+    private final double[] data;
+    private final double[] column;
+
+    public SpectralBlock(final int size) {
+        this.size = size;
+        this.data = new double[2 * size * size];
+        this.column = new double[2 * size];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the interleaved samples, (real, imaginary) of element (r, c) at 2 * (r * size + c)
+     */
+    public double[] getData() {
+        return data;
+    }
+
+    /**
+     * Copy a block from a matrix.
+     *
+     * @param matrix The source matrix.
+     * @param row0   The first row of the block in the matrix.
+     * @param col0   The first column of the block in the matrix.
+     */
+    public void setData(final ComplexDoubleMatrix matrix, final int row0, final int col0) {
+        // jblas stores the matrix interleaved in column-major order
+        final double[] src = matrix.data;
+        final int rows = matrix.rows;
+        for (int r = 0; r < size; r++) {
+            int k = 2 * r * size;
+            int s = 2 * ((row0 + r) + col0 * rows);
+            for (int c = 0; c < size; c++, k += 2, s += 2 * rows) {
+                data[k] = src[s];
+                data[k + 1] = src[s + 1];
+            }
+        }
+    }
+
+    /**
+     * Copy a part of the block into a matrix.
+     *
+     * @param matrix  The target matrix.
+     * @param row0    The first target row in the matrix.
+     * @param col0    The first target column in the matrix.
+     * @param blockR0 The first row to copy from the block.
+     * @param blockC0 The first column to copy from the block.
+     * @param rows    The number of rows to copy.
+     * @param cols    The number of columns to copy.
+     */
+    public void getData(final ComplexDoubleMatrix matrix, final int row0, final int col0,
+                        final int blockR0, final int blockC0, final int rows, final int cols) {
+        final double[] dst = matrix.data;
+        final int matrixRows = matrix.rows;
+        for (int r = 0; r < rows; r++) {
+            int k = 2 * ((blockR0 + r) * size + blockC0);
+            int d = 2 * ((row0 + r) + col0 * matrixRows);
+            for (int c = 0; c < cols; c++, k += 2, d += 2 * matrixRows) {
+                dst[d] = data[k];
+                dst[d + 1] = data[k + 1];
+            }
+        }
+    }
+
+    /**
+     * In-place forward 2D FFT, rows first.
+     */
+    public void forward() {
+        final DoubleFFT_1D fft = SpectralUtils.getPlan1D(size);
+        for (int r = 0; r < size; r++) {
+            fft.complexForward(data, 2 * r * size);
+        }
+        for (int c = 0; c < size; c++) {
+            getColumn(c);
+            fft.complexForward(column);
+            setColumn(c);
+        }
+    }
+
+    /**
+     * In-place inverse 2D FFT, columns first.
+     *
+     * @param scale If true the result is scaled by 1 / (size * size).
+     */
+    public void inverse(final boolean scale) {
+        final DoubleFFT_1D fft = SpectralUtils.getPlan1D(size);
+        for (int c = 0; c < size; c++) {
+            getColumn(c);
+            fft.complexInverse(column, scale);
+            setColumn(c);
+        }
+        for (int r = 0; r < size; r++) {
+            fft.complexInverse(data, 2 * r * size, scale);
+        }
+    }
+
+    /**
+     * Compute the magnitude of each element.
+     *
+     * @param magnitude The magnitudes, in row-major order.
+     */
+    public void getMagnitude(final double[] magnitude) {
+        for (int k = 0, i = 0; k < magnitude.length; k++, i += 2) {
+            magnitude[k] = Math.sqrt(data[i] * data[i] + data[i + 1] * data[i + 1]);
+        }
+    }
+
+    /**
+     * Set the block to a real valued array.
+     *
+     * @param values The values, in row-major order.
+     */
+    public void setReal(final double[] values) {
+        for (int k = 0, i = 0; k < values.length; k++, i += 2) {
+            data[i] = values[k];
+            data[i + 1] = 0.0;
+        }
+    }
+
+    /**
+     * Get the real part of each element.
+     *
+     * @param values The real parts, in row-major order.
+     */
+    public void getReal(final double[] values) {
+        for (int k = 0, i = 0; k < values.length; k++, i += 2) {
+            values[k] = data[i];
+        }
+    }
+
+    /**
+     * Multiply each element by a real factor.
+     *
+     * @param factors The factors, in row-major order.
+     */
+    public void multiply(final double[] factors) {
+        for (int k = 0, i = 0; k < factors.length; k++, i += 2) {
+            data[i] *= factors[k];
+            data[i + 1] *= factors[k];
+        }
+    }
+
+    /**
+     * Multiply each element by a complex factor.
+     *
+     * @param factors The factors, interleaved in row-major order like the block.
+     */
+    public void multiplyComplex(final double[] factors) {
+        for (int i = 0; i < data.length; i += 2) {
+            final double re = data[i];
+            final double im = data[i + 1];
+            data[i] = re * factors[i] - im * factors[i + 1];
+            data[i + 1] = re * factors[i + 1] + im * factors[i];
+        }
+    }
+
+    /**
+     * Convert a matrix of the block size to interleaved row-major order, e.g. for {@link #multiplyComplex}.
+     */
+    public static double[] toInterleaved(final ComplexDoubleMatrix matrix) {
+        final SpectralBlock block = new SpectralBlock(matrix.rows);
+        block.setData(matrix, 0, 0);
+        return block.data;
+    }
+
+    private void getColumn(final int c) {
+        for (int r = 0, k = 2 * c, i = 0; r < size; r++, k += 2 * size, i += 2) {
+            column[i] = data[k];
+            column[i + 1] = data[k + 1];
+        }
+    }
+
+    private void setColumn(final int c) {
+        for (int r = 0, k = 2 * c, i = 0; r < size; r++, k += 2 * size, i += 2) {
+            data[k] = column[i];
+            data[k + 1] = column[i + 1];
+        }
+    }
+}
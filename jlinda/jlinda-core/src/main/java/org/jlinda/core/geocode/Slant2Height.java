@@ -5,7 +5,6 @@ import org.esa.snap.util.SystemUtils;
 import org.jblas.DoubleMatrix;
 import org.jblas.Solve;
 import org.jlinda.core.Orbit;
-import org.jlinda.core.Point;
 import org.jlinda.core.SLCImage;
 import org.jlinda.core.Window;
 import org.jlinda.core.utils.MathUtils;
@@ -152,28 +151,7 @@ public class Slant2Height {
 
         // Compute reference refPhase in N points for height (numheight)
         logger.fine("S2H: schwabisch: STEP1: compute reference refPhase for nHeights.");
-        DoubleMatrix refPhaseZero = new DoubleMatrix(nPoints);
-        for (int heightIdx = 0; heightIdx < nHeights; heightIdx++) {
-
-            int height = heightIdx * heightStep;
-
-            DoubleMatrix refPhase = new DoubleMatrix(nPoints); // pseudo-observation
-
-            // Compute delta r for all points
-            for (int i = 0; i < nPoints; i++) {
-                double phase = computeReferencePhase((double) positionArray[i][0], (double) positionArray[i][1], height, master, slave, masterOrbit, slaveOrbit);
-                refPhase.put(i, phase);
-            }
-
-            // store refPhase at h = 0
-            if (height == 0) {
-                refPhaseZero = refPhase;
-            }
-
-            //  Subtract ref. refPhase at h=0 for all point
-            //  this is the same as adding reference refPhase for all in uint
-            refPhaseMatrix.putColumn(heightIdx, refPhase.sub(refPhaseZero));
-        }
+        computeReferencePhases(positionArray, heightStep, refPhaseMatrix);
 
         /** ----------------------------------------------------------------------------*/
         /** -- STEP 2 : compute alpha coefficients of polynomials for these points -----*/
@@ -292,45 +270,37 @@ public class Slant2Height {
         double firstPixel = (double) (tileWindow.pixlo) + (mlFacP - 1.) / 2.;
 
         // ant axis of pixel coordinates ______
-        DoubleMatrix p_axis = new DoubleMatrix(mlPixels, 1);
-        for (int i = 0; i < tileWindow.pixels(); i++) {
-            p_axis.put(i, 0, firstPixel + i * mlFacP);
+        final double[] p_axis = new double[mlPixels];
+        for (int i = 0; i < mlPixels; i++) {
+            p_axis[i] = PolyUtils.normalize2(firstPixel + i * mlFacP, minP, maxP);
         }
-        normalize(p_axis, minP, maxP);
 
         // ant axis for azimuth coordinates ______
-        DoubleMatrix l_axis = new DoubleMatrix(mlLines, 1);
-        for (int k = 0; k < tileWindow.lines(); k++) {
-            l_axis.put(k, 0, firstLine + k * mlFacL);
+        final double[] l_axis = new double[mlLines];
+        for (int k = 0; k < mlLines; k++) {
+            l_axis[k] = PolyUtils.normalize2(firstLine + k * mlFacL, minL, maxL);
         }
-        normalize(l_axis, minL, maxL);
 
-        // ---> Lookup table because not known in advance what degree1D is
-        DoubleMatrix[] pntALPHA = new DoubleMatrix[TEN];
+        // ---> alpha_k(l,p) on the grid for each coefficient of the 1D polynomial
+        final int numCoeffs = PolyUtils.numberOfCoefficients(degree2D);
+        final double[] beta = new double[numCoeffs];
+        final double[][][] pntALPHA = new double[degree1D + 1][][];
         for (int k = 0; k <= degree1D; k++) {
-            DoubleMatrix beta = new DoubleMatrix(PolyUtils.numberOfCoefficients(degree2D), 1);
-            for (int l = 0; l < PolyUtils.numberOfCoefficients(degree2D); l++) {
-                beta.put(l, 0, rhs.get(l, k)); // solution stored in rhs
+            for (int l = 0; l < numCoeffs; l++) {
+                beta[l] = rhs.get(l, k); // solution stored in rhs
             }
             pntALPHA[k] = PolyUtils.polyval(l_axis, p_axis, beta, degree2D);
         }
 
-        // Evaluate h=f(l,p,phi) for all points in grid in BUFFER
-        double[] coeffThisPoint = new double[degree1D + 1]; //DoubleMatrix(degree1D + 1, 1);
-
+        // Evaluate h=f(l,p,phi) for all points in grid in BUFFER, phases not unwrapped (NaN) stay NaN
         for (int line = 0; line < mlLines; line++) {
             for (int pixel = 0; pixel < mlPixels; pixel++) {
-                // Check if unwrapped ok, else compute h
-                if (tile.get(line, pixel) != Double.NaN) // else leave NaN
-                {
-                    for (int k = 0; k < degree1D + 1; k++) {
-                        coeffThisPoint[k] = pntALPHA[k].get(line, pixel);
-                    }
-                    double data = tile.get(line, pixel);
-                    double x = PolyUtils.normalize2(data, minPhi, maxPhi);
-                    double value = PolyUtils.polyVal1D(x, coeffThisPoint);
-                    tile.put(line, pixel, value);
+                final double x = PolyUtils.normalize2(tile.get(line, pixel), minPhi, maxPhi);
+                double value = 0.0;
+                for (int k = degree1D; k >= 0; --k) {
+                    value = value * x + pntALPHA[k][line][pixel];
                 }
+                tile.put(line, pixel, value);
             }
         }
 
@@ -368,28 +338,7 @@ public class Slant2Height {
 
         // Compute reference refPhase in N points for height (numheight)
         logger.fine("S2H: schwabisch: STEP1: compute reference refPhase for nHeights.");
-        DoubleMatrix refPhaseZero = new DoubleMatrix(nPoints);
-        for (int heightIdx = 0; heightIdx < nHeights; heightIdx++) {
-
-            int height = heightIdx * heightStep;
-
-            DoubleMatrix refPhase = new DoubleMatrix(nPoints); // pseudo-observation
-
-            // Compute delta r for all points
-            for (int i = 0; i < nPoints; i++) {
-                double phase = computeReferencePhase((double) positionArray[i][0], (double) positionArray[i][1], height, master, slave, masterOrbit, slaveOrbit);
-                refPhase.put(i, phase);
-            }
-
-            // store refPhase at h = 0
-            if (height == 0) {
-                refPhaseZero = refPhase;
-            }
-
-            //  Subtract ref. refPhase at h=0 for all point
-            //  this is the same as adding reference refPhase for all in uint
-            refPhaseMatrix.putColumn(heightIdx, refPhase.sub(refPhaseZero));
-        }
+        computeReferencePhases(positionArray, heightStep, refPhaseMatrix);
 
         /** ----------------------------------------------------------------------------*/
         /** -- STEP 2 : compute alpha coefficients of polynomials for these points -----*/
@@ -563,37 +512,60 @@ public class Slant2Height {
 */
 
 
-    private double computeReferencePhase(Point p, SLCImage master, SLCImage slave, Orbit masterOrbit, Orbit slaveOrbit) throws Exception {
-        double line = p.y;
-        double pixel = p.x;
-        double height = p.z;
+    /**
+     * Reference phase of the points for each height, minus the reference phase at height 0.
+     * <p/>
+     * The points are radar-coded with the primitive orbit API for increasing heights. Every solution seeds the
+     * next one, so the solvers converge in one or two iterations, and each point starts from the height 0
+     * solution of its predecessor.
+     *
+     * @param positionArray  line, pixel of the points
+     * @param heightStep     height difference between the reference surfaces
+     * @param refPhaseMatrix output: reference phase per point (row) and height (column)
+     */
+    private void computeReferencePhases(final int[][] positionArray, final int heightStep,
+                                        final DoubleMatrix refPhaseMatrix) {
 
-        if (height == Double.NaN)
-            height = 0;
+        final double masterMin4piCDivLam = (-4. * PI * SOL) / master.getRadarWavelength();
+        final double slaveMin4piCDivLam = (-4. * PI * SOL) / slave.getRadarWavelength();
 
-        return computeReferencePhase(p.y, p.x, p.z, master, slave, masterOrbit, slaveOrbit);
-    }
+        final double[] xyz = master.getApproxXYZCentreOriginal().toArray();
+        final double[] xyzZero = new double[3];
+        final double[] slaveTime = new double[2];
+        double slaveAzTimeInit = slaveOrbit.getInitialAzimuthTime(slave);
+        double slaveAzTimeZero = slaveAzTimeInit;
 
-    private double computeReferencePhase(final double line, final double pixel, final double height,
-                                         final SLCImage master, final SLCImage slave,
-                                         final Orbit masterOrbit, final Orbit slaveOrbit) throws Exception {
+        for (int i = 0; i < nPoints; i++) {
+            final double mTimeAzimuth = master.line2ta(positionArray[i][0]);
+            final double mTimeRange = master.pix2tr(positionArray[i][1]);
 
-        double mTimeRange = master.pix2tr(pixel);
+            double refPhaseZero = 0;
+            for (int heightIdx = 0; heightIdx < nHeights; heightIdx++) {
+                final int height = heightIdx * heightStep;
 
-        // Compute xyz of point P on ELLIPS for this line,pixel
-        Point xyzMaster = masterOrbit.lph2xyz(line, pixel, height, master);
+                // Compute xyz of point P on ELLIPS for this line,pixel
+                masterOrbit.lph2xyz(mTimeAzimuth, mTimeRange, height, xyz, 0);
 
-        // Compute xyz of slave satelite in orbit_slave from P
-        Point timeSlave = slaveOrbit.xyz2t(xyzMaster, slave);
+                // Compute xyz of slave satelite in orbit_slave from P
+                slaveOrbit.xyz2t(xyz[0], xyz[1], xyz[2], slaveAzTimeInit, slaveTime);
+                slaveAzTimeInit = slaveTime[1];
 
-        return mTimeRange * ((-4. * PI * SOL) / master.getRadarWavelength()) - timeSlave.x * ((-4. * PI * SOL) / slave.getRadarWavelength());
-    }
+                final double refPhase = mTimeRange * masterMin4piCDivLam - slaveTime[0] * slaveMin4piCDivLam;
 
-    private double computeReferencePhase(final double line, final double pixel,
-                                         final SLCImage master, final SLCImage slave,
-                                         final Orbit masterOrbit, final Orbit slaveOrbit) throws Exception {
+                //  Subtract ref. refPhase at h=0 for all point
+                //  this is the same as adding reference refPhase for all in uint
+                if (heightIdx == 0) {
+                    refPhaseZero = refPhase;
+                    System.arraycopy(xyz, 0, xyzZero, 0, 3);
+                    slaveAzTimeZero = slaveAzTimeInit;
+                }
+                refPhaseMatrix.put(i, heightIdx, refPhase - refPhaseZero);
+            }
 
-        return computeReferencePhase(line, pixel, 0d, master, slave, masterOrbit, slaveOrbit);
+            // the next point starts from the height 0 solution of this one
+            System.arraycopy(xyzZero, 0, xyz, 0, 3);
+            slaveAzTimeInit = slaveAzTimeZero;
+        }
     }
 
     private void normalize(final DoubleMatrix data, final double min, final double max) {
@@ -112,88 +112,78 @@ public class TopoPhase {
         double masterMin4piCDivLam = (-4 * Math.PI * Constants.SOL) / masterMeta.getRadarWavelength();
         double slaveMin4piCDivLam = (-4 * Math.PI * Constants.SOL) / slaveMeta.getRadarWavelength();
 
-        double phi, lambda, height, line, pix, ref_phase;
-
         final double upperLeftPhi = dem.lat0 - dem.indexPhi0DEM * dem.latitudeDelta;
         final double upperLeftLambda = dem.lon0 + dem.indexLambda0DEM * dem.longitudeDelta;
 
-        Point pointOnDem;
-        Point slaveTime;
-
-        phi = upperLeftPhi;
+        // row buffers for the primitive orbit API
+        final double[] demXYZ = new double[3 * nCols];
+        final double[] flatXYZ = new double[3];
+        final double[] masterRgTime = new double[nCols];
+        final double[] masterAzTime = new double[nCols];
+        final double[] slaveTime = new double[2];
+        final double[] flatEarthTime = new double[2];
+
+        // solvers are seeded with the solution of the neighbouring point, the slave one shifted by the
+        // change of master azimuth time since that point
+        double masterAzTimeInit = masterOrbit.getInitialAzimuthTime(masterMeta);
+        double slaveAzTimeInit = slaveOrbit.getInitialAzimuthTime(slaveMeta);
+        double lastMasterAzTime = Double.NaN;
+
+        double phi = upperLeftPhi;
         for (int i = 0; i < nRows; i++) {
 
-//            if ((i % 100) == 0) {
-//                logger.info("Radarcoding DEM line: " + i + " (" + Math.floor(.5 + (100. * (double) i / (double) (nRows))) + "%");
-//            }
-
-            lambda = upperLeftLambda;
-            double[] heightArray = dem.data[i];
+            final double[] heightArray = dem.data[i];
 
+            double lambda = upperLeftLambda;
             for (int j = 0; j < nCols; j++) {
+                final double height = heightArray[j] != dem.noDataValue ? heightArray[j] : 0;
+                Ellipsoid.ell2xyz(phi, lambda, height, demXYZ, 3 * j);
+                lambda += dem.longitudeDelta;
+            }
 
-                height = heightArray[j];
-
-                if (height != dem.noDataValue) {
+            masterOrbit.xyz2t(demXYZ, nCols, masterAzTimeInit, masterRgTime, masterAzTime);
+            masterAzTimeInit = masterAzTime[0];
 
-                    double[] phi_lam_height = {phi, lambda, height};
-                    Point sarPoint = masterOrbit.ell2lp(phi_lam_height, masterMeta);
+            for (int j = 0; j < nCols; j++) {
 
-                    line = sarPoint.y;
-                    pix = sarPoint.x;
+                final double line = masterMeta.ta2line(masterAzTime[j]);
+                final double pix = masterMeta.tr2pix(masterRgTime[j]);
 
-                    demRadarCode_y[i][j] = line;
-                    demRadarCode_x[i][j] = pix;
+                demRadarCode_y[i][j] = line;
+                demRadarCode_x[i][j] = pix;
 
-                    pointOnDem = Ellipsoid.ell2xyz(phi_lam_height);
-                    slaveTime = slaveOrbit.xyz2t(pointOnDem, slaveMeta);
-/*
-                if (outH2PH == true) {
-
-                    // compute h2ph factor
-                    Point masterSatPos = masterOrbit.getXYZ(masterTime.y);
-                    Point slaveSatpOS = slaveOrbit.getXYZ(slaveTime.y);
-                    double B = masterSatPos.distance(slaveSatpOS);
-                    double Bpar = Constants.SOL * (masterTime.x - masterTime.y);
-                    Point rangeDistToMaster = masterSatPos.min(pointOnDem);
-                    Point rangeDistToSlave = slaveSatpOS.min(pointOnDem);
-                    // double thetaMaster = masterSatPos.angle(rangeDistToMaster);  // look angle - not needed
-                    double thetaMaster = pointOnDem.angle(rangeDistToMaster); // incidence angle
-                    double thetaSlave = pointOnDem.angle(rangeDistToSlave); // incidence angle slave
-                    double Bperp = (thetaMaster > thetaSlave) ? // sign ok
-                            Math.sqrt(MathUtils.sqr(B) - MathUtils.sqr(Bpar))
-                            : -Math.sqrt(MathUtils.sqr(B) - MathUtils.sqr(Bpar));
-
-                    h2phArray[i][j] = Bperp / (masterTime.x * Constants.SOL * Math.sin(thetaMaster));
+                if (heightArray[j] == dem.noDataValue) {
+                    demRadarCode_phase[i][j] = 0;
+                    continue;
                 }
-*/
-                    // do not include flat earth phase
-                    if (onlyTopoRefPhase) {
-                        Point masterXYZPos = masterOrbit.lp2xyz(line, pix, masterMeta);
-                        Point flatEarthTime = slaveOrbit.xyz2t(masterXYZPos, slaveMeta);
-                        ref_phase = slaveMin4piCDivLam * (flatEarthTime.x - slaveTime.x);
-                    } else {
-                        // include flatearth, ref.pha = phi_topo+phi_flatearth
-                        ref_phase = masterMin4piCDivLam * masterMeta.pix2tr(pix)
-                                - slaveMin4piCDivLam * slaveTime.x;
-                    }
-
-                    demRadarCode_phase[i][j] = ref_phase;
 
+                final double x = demXYZ[3 * j];
+                final double y = demXYZ[3 * j + 1];
+                final double z = demXYZ[3 * j + 2];
+                if (!Double.isNaN(lastMasterAzTime)) {
+                    slaveAzTimeInit += masterAzTime[j] - lastMasterAzTime;
+                }
+                slaveOrbit.xyz2t(x, y, z, slaveAzTimeInit, slaveTime);
+                slaveAzTimeInit = slaveTime[1];
+                lastMasterAzTime = masterAzTime[j];
+
+                final double ref_phase;
+                // do not include flat earth phase
+                if (onlyTopoRefPhase) {
+                    // the point on the DEM is a close initial value for its flat earth counterpart
+                    flatXYZ[0] = x;
+                    flatXYZ[1] = y;
+                    flatXYZ[2] = z;
+                    masterOrbit.lph2xyz(masterMeta.line2ta(line), masterMeta.pix2tr(pix), 0, flatXYZ, 0);
+                    slaveOrbit.xyz2t(flatXYZ[0], flatXYZ[1], flatXYZ[2], slaveTime[1], flatEarthTime);
+                    ref_phase = slaveMin4piCDivLam * (flatEarthTime[0] - slaveTime[0]);
                 } else {
-
-                    double[] phi_lam_height = {phi, lambda, 0};
-                    Point sarPoint = masterOrbit.ell2lp(phi_lam_height, masterMeta);
-
-                    line = sarPoint.y;
-                    pix = sarPoint.x;
-
-                    demRadarCode_y[i][j] = line;
-                    demRadarCode_x[i][j] = pix;
-                    demRadarCode_phase[i][j] = 0;
+                    // include flatearth, ref.pha = phi_topo+phi_flatearth
+                    ref_phase = masterMin4piCDivLam * masterMeta.pix2tr(pix)
+                            - slaveMin4piCDivLam * slaveTime[0];
                 }
 
-                lambda += dem.longitudeDelta;
+                demRadarCode_phase[i][j] = ref_phase;
             }
             phi -= dem.latitudeDelta;
         }
@@ -264,8 +254,27 @@ public class TopoPhase {
         int mlAz = masterMeta.getMlAz();
         int mlRg = masterMeta.getMlRg();
         int offset = 0;
-        demPhase = TriangleUtils.gridDataLinear(demRadarCode_y, demRadarCode_x, demRadarCode_phase,
+
+        // the radar-coded DEM is a regular lattice: grid it with the packed lattice triangulator
+        final double[] line = new double[nRows * nCols];
+        final double[] pixel = new double[nRows * nCols];
+        final double[] phase = new double[nRows * nCols];
+        for (int i = 0; i < nRows; i++) {
+            System.arraycopy(demRadarCode_y[i], 0, line, i * nCols, nCols);
+            System.arraycopy(demRadarCode_x[i], 0, pixel, i * nCols, nCols);
+            System.arraycopy(demRadarCode_phase[i], 0, phase, i * nCols, nCols);
+        }
+
+        final int nLines = (int) tileWindow.lines();
+        final int nPixels = (int) tileWindow.pixels();
+        final double[] griddedPhase = new double[nLines * nPixels];
+        TriangleUtils.gridDataLinear(line, pixel, nRows, nCols, new double[][]{phase}, new double[][]{griddedPhase},
                 tileWindow, rngAzRatio, mlAz, mlRg, dem.noDataValue, offset);
+
+        demPhase = new double[nLines][nPixels];
+        for (int i = 0; i < nLines; i++) {
+            System.arraycopy(griddedPhase, i * nPixels, demPhase[i], 0, nPixels);
+        }
     }
 
 }
@@ -6,12 +6,67 @@ import org.esa.snap.util.SystemUtils;
 import org.jblas.ComplexDoubleMatrix;
 import org.jblas.DoubleMatrix;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 
 public class SpectralUtils {
 
     static Logger logger = SystemUtils.LOG;
 
+    // JTransforms plans hold work buffers, so they are cached per thread rather than shared. Only the most recently
+    // used sizes are kept, the threads of the GPF tile scheduler live as long as the application.
+    private static final int MAX_CACHED_PLANS = 8;
+
+    private static final ThreadLocal<Map<Integer, DoubleFFT_1D>> fft1DPlans = new ThreadLocal<Map<Integer, DoubleFFT_1D>>() {
+        @Override
+        protected Map<Integer, DoubleFFT_1D> initialValue() {
+            return new PlanCache<>();
+        }
+    };
+    private static final ThreadLocal<Map<Long, DoubleFFT_2D>> fft2DPlans = new ThreadLocal<Map<Long, DoubleFFT_2D>>() {
+        @Override
+        protected Map<Long, DoubleFFT_2D> initialValue() {
+            return new PlanCache<>();
+        }
+    };
+
+    private static class PlanCache<K, V> extends LinkedHashMap<K, V> {
+
+        private PlanCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+            return size() > MAX_CACHED_PLANS;
+        }
+    }
+
+    /**
+     * Get the 1D FFT plan of the given length cached for the calling thread.
+     */
+    public static DoubleFFT_1D getPlan1D(final int length) {
+        final Map<Integer, DoubleFFT_1D> plans = fft1DPlans.get();
+        DoubleFFT_1D plan = plans.get(length);
+        if (plan == null) {
+            plan = new DoubleFFT_1D(length);
+            plans.put(length, plan);
+        }
+        return plan;
+    }
+
+    private static DoubleFFT_2D getPlan2D(final int rows, final int columns) {
+        final Map<Long, DoubleFFT_2D> plans = fft2DPlans.get();
+        final Long key = ((long) rows << 32) | columns;
+        DoubleFFT_2D plan = plans.get(key);
+        if (plan == null) {
+            plan = new DoubleFFT_2D(rows, columns);
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
     private static void fftTransform1D_inplace(ComplexDoubleMatrix vector, int fftLength, int direction) {
         switch (direction) {
             case 1:
@@ -26,23 +81,23 @@ public class SpectralUtils {
     }
 
     public static void fft1D_inplace(ComplexDoubleMatrix vector, final int fftLength) {
-        DoubleFFT_1D fft = new DoubleFFT_1D(fftLength);
+        DoubleFFT_1D fft = getPlan1D(fftLength);
         fft.complexForward(vector.data);
     }
 
     public static void invfft1D_inplace(ComplexDoubleMatrix vector, final int fftLength) {
-        DoubleFFT_1D fft = new DoubleFFT_1D(fftLength);
+        DoubleFFT_1D fft = getPlan1D(fftLength);
         fft.complexInverse(vector.data, true);
     }
 
     public static ComplexDoubleMatrix fft1D(ComplexDoubleMatrix vector, final int fftLength) {
-        DoubleFFT_1D fft = new DoubleFFT_1D(fftLength);
+        DoubleFFT_1D fft = getPlan1D(fftLength);
         fft.complexForward(vector.data);
         return vector;
     }
 
     public static ComplexDoubleMatrix invfft1D(ComplexDoubleMatrix vector, final int fftLength) {
-        DoubleFFT_1D fft = new DoubleFFT_1D(fftLength);
+        DoubleFFT_1D fft = getPlan1D(fftLength);
         fft.complexInverse(vector.data, true);
         return vector;
     }
@@ -101,7 +156,7 @@ public class SpectralUtils {
 
     public static void fft2D_inplace(ComplexDoubleMatrix A) {
         ComplexDoubleMatrix aTemp = A.transpose();
-        DoubleFFT_2D fft2d = new DoubleFFT_2D(aTemp.rows, aTemp.columns);
+        DoubleFFT_2D fft2d = getPlan2D(aTemp.rows, aTemp.columns);
 //        fft2d.complexForward(A.data);
         fft2d.complexForward(aTemp.data);
         A.data = aTemp.transpose().data;
@@ -114,12 +169,12 @@ public class SpectralUtils {
     }
 
     public static void fft2D_inplace(DoubleMatrix A) {
-        DoubleFFT_2D fft2d = new DoubleFFT_2D(A.rows, A.columns);
+        DoubleFFT_2D fft2d = getPlan2D(A.rows, A.columns);
         fft2d.realForwardFull(A.data);
     }
 
     public static void invfft2D_inplace(ComplexDoubleMatrix A) {
-        DoubleFFT_2D fft2d = new DoubleFFT_2D(A.rows, A.columns);
+        DoubleFFT_2D fft2d = getPlan2D(A.rows, A.columns);
 //        fft2d.complexInverse(A.data, true);
         ComplexDoubleMatrix aTemp = A.transpose();
         fft2d.complexInverse(aTemp.data, true);
@@ -6,6 +6,7 @@ import com.vividsolutions.jts.geom.GeometryFactory;
 import org.esa.snap.util.SystemUtils;
 import org.jlinda.core.Window;
 import org.jlinda.core.delaunay.FastDelaunayTriangulator;
+import org.jlinda.core.delaunay.LatticeTriangulator;
 import org.jlinda.core.delaunay.Triangle;
 import org.jlinda.core.delaunay.TriangulationException;
 
@@ -203,6 +204,210 @@ public class TriangleUtils {
         return griddedData;
     }
 
+    /**
+     * Linear interpolation of data sampled on a regular lattice (eg, a radar-coded DEM) onto the grid of a window.
+     * Works on packed primitive arrays and triangulates with {@link LatticeTriangulator}.
+     *
+     * @param x_in   packed line coordinates of the lattice points, indexed by line * pixels + pixel
+     * @param y_in   packed pixel coordinates of the lattice points
+     * @param lines  number of lattice lines
+     * @param pixels number of lattice pixels
+     * @param z_in   packed lattice values, one array per z level
+     * @param z_out  packed output grids of window.lines() x window.pixels(), one array per z level;
+     *               grid points not covered by any triangle are left untouched
+     * @return false if no triangle could be formed
+     */
+    public static boolean gridDataLinear(final double[] x_in, final double[] y_in, final int lines, final int pixels,
+                                         final double[][] z_in, final double[][] z_out,
+                                         final Window window, final double xyRatio, final int xScale,
+                                         final int yScale, final double nodata, final int offset) {
+
+        final int[] triangles = LatticeTriangulator.getTriangleBuffer(lines, pixels);
+        final int numTriangles = LatticeTriangulator.triangulate(x_in, y_in, lines, pixels, xyRatio, nodata, triangles);
+        if (numTriangles == 0) {
+            return false;
+        }
+
+        final int zLoops = z_in.length;
+        final int ny = (int) window.pixels();
+        final TriangleRaster raster = new TriangleRaster(window, xScale, yScale, offset);
+
+        for (int t = 0; t < numTriangles; t++) {
+            final int vA = triangles[3 * t];
+            final int vB = triangles[3 * t + 1];
+            final int vC = triangles[3 * t + 2];
+
+            if (!raster.setTriangle(x_in[vA], y_in[vA], x_in[vB], y_in[vB], x_in[vC], y_in[vC])) {
+                continue;
+            }
+
+            for (int i = raster.iMin; i <= raster.iMax; i++) {
+                if (!raster.setRow(i)) {
+                    continue;
+                }
+                for (int zLoop = 0; zLoop < zLoops; zLoop++) {
+                    final double[] z = z_in[zLoop];
+                    final double[] out = z_out[zLoop];
+                    final double zA = z[vA];
+                    final double zkj = z[vB] - zA;
+                    final double zlj = z[vC] - zA;
+                    for (int j = raster.jMin; j <= raster.jMax; j++) {
+                        final double yp = raster.y_min + j * raster.yScale + raster.offset;
+                        out[i * ny + j] = zA + raster.weightB(yp) * zkj + raster.weightC(yp) * zlj;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Locate the grid points of a window in the lattice triangulation. For every grid point the lattice indices
+     * of the three vertices of the containing triangle and the barycentric weights of the second and third vertex
+     * are stored, so several data sets can later be interpolated with a gather.
+     *
+     * @param vertices output, three lattice indices per grid point, -1 if the point is not covered
+     * @param weights  output, two weights per grid point
+     * @return false if no triangle could be formed
+     */
+    public static boolean gridDataWeights(final double[] x_in, final double[] y_in, final int lines, final int pixels,
+                                          final Window window, final double xyRatio, final int xScale,
+                                          final int yScale, final double nodata, final int offset,
+                                          final int[] vertices, final double[] weights) {
+
+        final int[] triangles = LatticeTriangulator.getTriangleBuffer(lines, pixels);
+        final int numTriangles = LatticeTriangulator.triangulate(x_in, y_in, lines, pixels, xyRatio, nodata, triangles);
+        java.util.Arrays.fill(vertices, -1);
+        if (numTriangles == 0) {
+            return false;
+        }
+
+        final int ny = (int) window.pixels();
+        final TriangleRaster raster = new TriangleRaster(window, xScale, yScale, offset);
+
+        for (int t = 0; t < numTriangles; t++) {
+            final int vA = triangles[3 * t];
+            final int vB = triangles[3 * t + 1];
+            final int vC = triangles[3 * t + 2];
+
+            if (!raster.setTriangle(x_in[vA], y_in[vA], x_in[vB], y_in[vB], x_in[vC], y_in[vC])) {
+                continue;
+            }
+
+            for (int i = raster.iMin; i <= raster.iMax; i++) {
+                if (!raster.setRow(i)) {
+                    continue;
+                }
+                for (int j = raster.jMin; j <= raster.jMax; j++) {
+                    final double yp = raster.y_min + j * raster.yScale + raster.offset;
+                    final int k = i * ny + j;
+                    vertices[3 * k] = vA;
+                    vertices[3 * k + 1] = vB;
+                    vertices[3 * k + 2] = vC;
+                    weights[2 * k] = raster.weightB(yp);
+                    weights[2 * k + 1] = raster.weightC(yp);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scanline rasterizer of a triangle onto the grid of a window. For every grid row crossed by the triangle the
+     * covered pixel interval is solved directly from the barycentric constraints, so no per-pixel
+     * point-in-triangle test is needed.
+     */
+    private static final class TriangleRaster {
+
+        private static final double EPS = 1e-9;
+
+        final double x_min, y_min, xScale, yScale, offset;
+        final int nx, ny;
+
+        // current triangle
+        double vx0, vy0, xkj, ykj, xlj, ylj, f;
+        int iMin, iMax;
+
+        // current row: w = alpha + beta * yp
+        double alphaB, betaB, alphaC, betaC;
+        double lo, hi;
+        int jMin, jMax;
+
+        TriangleRaster(final Window window, final double xScale, final double yScale, final double offset) {
+            this.x_min = window.linelo;
+            this.y_min = window.pixlo;
+            this.xScale = xScale;
+            this.yScale = yScale;
+            this.offset = offset;
+            this.nx = (int) window.lines();
+            this.ny = (int) window.pixels();
+        }
+
+        boolean setTriangle(final double x0, final double y0, final double x1, final double y1,
+                            final double x2, final double y2) {
+            vx0 = x0;
+            vy0 = y0;
+            xkj = x1 - x0;
+            ykj = y1 - y0;
+            xlj = x2 - x0;
+            ylj = y2 - y0;
+
+            final double det = xkj * ylj - ykj * xlj;
+            if (det == 0.0) {
+                return false;
+            }
+            f = 1.0 / det;
+
+            final double xLo = Math.min(Math.min(x0, x1), x2);
+            final double xHi = Math.max(Math.max(x0, x1), x2);
+            iMin = Math.max((int) Math.ceil((xLo - x_min - offset) / xScale), 0);
+            iMax = Math.min((int) Math.floor((xHi - x_min - offset) / xScale), nx - 1);
+            return iMin <= iMax;
+        }
+
+        boolean setRow(final int i) {
+            final double dx = x_min + i * xScale + offset - vx0;
+
+            alphaB = f * (dx * ylj + vy0 * xlj);
+            betaB = -f * xlj;
+            alphaC = -f * (xkj * vy0 + ykj * dx);
+            betaC = f * xkj;
+            final double alphaA = 1.0 - alphaB - alphaC;
+            final double betaA = -betaB - betaC;
+
+            lo = Double.NEGATIVE_INFINITY;
+            hi = Double.POSITIVE_INFINITY;
+
+            // each weight must be non-negative: alpha + beta * yp >= 0
+            if (!clip(alphaA, betaA) || !clip(alphaB, betaB) || !clip(alphaC, betaC) || lo > hi) {
+                return false;
+            }
+
+            jMin = Math.max((int) Math.ceil((lo - y_min - offset) / yScale), 0);
+            jMax = Math.min((int) Math.floor((hi - y_min - offset) / yScale), ny - 1);
+            return jMin <= jMax;
+        }
+
+        private boolean clip(final double alpha, final double beta) {
+            if (beta > 0) {
+                lo = Math.max(lo, (-EPS - alpha) / beta);
+            } else if (beta < 0) {
+                hi = Math.min(hi, (-EPS - alpha) / beta);
+            } else if (alpha < -EPS) {
+                return false;
+            }
+            return true;
+        }
+
+        double weightB(final double yp) {
+            return alphaB + betaB * yp;
+        }
+
+        double weightC(final double yp) {
+            return alphaC + betaC * yp;
+        }
+    }
+
     private static boolean pointInTriangle(double[] xt, double[] yt, double x, double y) {
         int iRet0 = ((xt[2] - xt[0]) * (y - yt[0])) > ((x - xt[0]) * (yt[2] - yt[0])) ? 1 : -1;
         int iRet1 = ((xt[0] - xt[1]) * (y - yt[1])) > ((x - xt[1]) * (yt[0] - yt[1])) ? 1 : -1;
@@ -207,6 +207,66 @@ public class OrbitTest {
         Assert.assertArrayEquals(pixelXYZ_EXPECTED.toArray(), xyz_ACTUAL.toArray(), eps_03);
     }
 
+    @Test
+    public void testGetXYZAndDerivatives() throws Exception {
+        final double[] state = new double[9];
+        orbit_ACTUAL.getXYZAndDerivatives(pixelTime_EXPECTED.y, state);
+        Assert.assertArrayEquals(satellitePos_EXPECTED.toArray(), new double[]{state[0], state[1], state[2]}, eps_06);
+        Assert.assertArrayEquals(satelliteVel_EXPECTED.toArray(), new double[]{state[3], state[4], state[5]}, eps_06);
+        Assert.assertArrayEquals(satelliteAcc_EXPECTED.toArray(), new double[]{state[6], state[7], state[8]}, eps_06);
+    }
+
+    @Test
+    public void testXyz2t_Primitive() throws Exception {
+        final double[] rgAzTime = new double[2];
+
+        // cold start from scene centre
+        orbit_ACTUAL.xyz2t(pixelXYZ_EXPECTED.x, pixelXYZ_EXPECTED.y, pixelXYZ_EXPECTED.z,
+                orbit_ACTUAL.getInitialAzimuthTime(slcimage), rgAzTime);
+        Assert.assertEquals(pixelTime_EXPECTED.x, rgAzTime[0], eps_06);
+        Assert.assertEquals(pixelTime_EXPECTED.y, rgAzTime[1], eps_06);
+
+        // warm start from a neighbouring solution
+        orbit_ACTUAL.xyz2t(pixelXYZ_EXPECTED.x, pixelXYZ_EXPECTED.y, pixelXYZ_EXPECTED.z,
+                pixelTime_EXPECTED.y + 0.001, rgAzTime);
+        Assert.assertEquals(pixelTime_EXPECTED.x, rgAzTime[0], eps_06);
+        Assert.assertEquals(pixelTime_EXPECTED.y, rgAzTime[1], eps_06);
+    }
+
+    @Test
+    public void testXyz2t_Row() throws Exception {
+        // a row of points across range, each seeded with the extrapolated solution of its predecessors
+        final int numPoints = 16;
+        final double[] xyz = new double[3 * numPoints];
+        for (int i = 0; i < numPoints; i++) {
+            final Point p = orbit_ACTUAL.lp2xyz(pixel_EXPECTED.y, pixel_EXPECTED.x + 10 * i, slcimage);
+            xyz[3 * i] = p.x;
+            xyz[3 * i + 1] = p.y;
+            xyz[3 * i + 2] = p.z;
+        }
+
+        final double[] rgTime = new double[numPoints];
+        final double[] azTime = new double[numPoints];
+        orbit_ACTUAL.xyz2t(xyz, numPoints, orbit_ACTUAL.getInitialAzimuthTime(slcimage), rgTime, azTime);
+
+        final double[] rgAzTime = new double[2];
+        for (int i = 0; i < numPoints; i++) {
+            orbit_ACTUAL.xyz2t(xyz[3 * i], xyz[3 * i + 1], xyz[3 * i + 2],
+                    orbit_ACTUAL.getInitialAzimuthTime(slcimage), rgAzTime);
+            Assert.assertEquals(rgAzTime[0], rgTime[i], eps_06);
+            Assert.assertEquals(rgAzTime[1], azTime[i], eps_06);
+        }
+    }
+
+    @Test
+    public void testLph2xyz_Primitive() throws Exception {
+        final Point xyz_EXPECTED = orbit_ACTUAL.lph2xyz(pixel_EXPECTED.y, pixel_EXPECTED.x, 0, slcimage);
+
+        final double[] xyz = slcimage.getApproxXYZCentreOriginal().toArray();
+        orbit_ACTUAL.lph2xyz(slcimage.line2ta(pixel_EXPECTED.y), slcimage.pix2tr(pixel_EXPECTED.x), 0, xyz, 0);
+        Assert.assertArrayEquals(xyz_EXPECTED.toArray(), xyz, eps_03);
+    }
+
     @Test
     public void testPointByReference_lp2xyz() throws Exception {
         Point t1 = orbit_ACTUAL.lp2xyz(1, 1, slcimage);
@@ -0,0 +1,200 @@
+package org.jlinda.core.coregistration;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.factory.LinearSolver;
+import org.ejml.factory.LinearSolverFactory;
+import org.jlinda.core.coregistration.estimation.SystemOfEquations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class CPMTest {
+
+    private static final double DELTA = 1e-9;
+
+    private static final int DEGREE = 2;
+    private static final int NUM_OBSERVATIONS = 40;
+    private static final int[] OUTLIERS = {7, 21, 33};
+
+    private final double[][] A;
+    private final double[] weights = new double[NUM_OBSERVATIONS];
+    private final double[] yL = new double[NUM_OBSERVATIONS];
+    private final double[] yP = new double[NUM_OBSERVATIONS];
+
+    public CPMTest() {
+        // offsets of a second degree polynomial of the normalized master coordinates, with noise and outliers
+        final Random random = new Random(11);
+        final double[] line = new double[NUM_OBSERVATIONS];
+        final double[] pixel = new double[NUM_OBSERVATIONS];
+        for (int i = 0; i < NUM_OBSERVATIONS; i++) {
+            line[i] = 4 * random.nextDouble() - 2;
+            pixel[i] = 4 * random.nextDouble() - 2;
+        }
+        A = SystemOfEquations.constructDesignMatrix_loop(line, pixel, DEGREE);
+
+        final double[] coefL = {1.5, 0.2, -0.3, 0.01, 0.02, -0.03};
+        final double[] coefP = {-2.5, 0.1, 0.4, -0.02, 0.01, 0.05};
+        for (int i = 0; i < NUM_OBSERVATIONS; i++) {
+            weights[i] = 0.3 + 0.7 * random.nextDouble();
+            for (int j = 0; j < coefL.length; j++) {
+                yL[i] += coefL[j] * A[i][j];
+                yP[i] += coefP[j] * A[i][j];
+            }
+            yL[i] += 0.01 * random.nextGaussian();
+            yP[i] += 0.01 * random.nextGaussian();
+        }
+        for (int i = 0; i < OUTLIERS.length; i++) {
+            yL[OUTLIERS[i]] += 5 - i;
+            yP[OUTLIERS[i]] -= 3 - i;
+        }
+    }
+
+    /**
+     * Weighted least squares solution over the given observations: A is scaled by the square root of the weights
+     * and solved directly, without normal equations.
+     */
+    private double[][] solveFull(final List<Integer> observations) {
+        final int n = observations.size();
+        final int numUnknowns = A[0].length;
+        final DenseMatrix64F sqrtWA = new DenseMatrix64F(n, numUnknowns);
+        final DenseMatrix64F sqrtWyL = new DenseMatrix64F(n, 1);
+        final DenseMatrix64F sqrtWyP = new DenseMatrix64F(n, 1);
+        for (int r = 0; r < n; r++) {
+            final int i = observations.get(r);
+            final double sqrtW = Math.sqrt(weights[i]);
+            for (int j = 0; j < numUnknowns; j++) {
+                sqrtWA.set(r, j, sqrtW * A[i][j]);
+            }
+            sqrtWyL.set(r, 0, sqrtW * yL[i]);
+            sqrtWyP.set(r, 0, sqrtW * yP[i]);
+        }
+
+        final LinearSolver<DenseMatrix64F> solver = LinearSolverFactory.leastSquares(n, numUnknowns);
+        Assert.assertTrue(solver.setA(sqrtWA));
+        final DenseMatrix64F xL = new DenseMatrix64F(numUnknowns, 1);
+        final DenseMatrix64F xP = new DenseMatrix64F(numUnknowns, 1);
+        solver.solve(sqrtWyL, xL);
+        solver.solve(sqrtWyP, xP);
+        return new double[][]{xL.getData(), xP.getData()};
+    }
+
+    private static double[] solveNormal(final DenseMatrix64F N, final DenseMatrix64F rhs) {
+        final LinearSolver<DenseMatrix64F> solver = LinearSolverFactory.leastSquares(N.numRows, N.numCols);
+        Assert.assertTrue(solver.setA(N.copy()));
+        final DenseMatrix64F x = new DenseMatrix64F(N.numRows, 1);
+        solver.solve(rhs, x);
+        return x.getData();
+    }
+
+    private static double evaluate(final double[] a, final double[] x) {
+        double y = 0;
+        for (int j = 0; j < a.length; j++) {
+            y += a[j] * x[j];
+        }
+        return y;
+    }
+
+    @Test
+    public void testAddObservation() {
+        final int numUnknowns = A[0].length;
+        final DenseMatrix64F N = new DenseMatrix64F(numUnknowns, numUnknowns);
+        final DenseMatrix64F rhsL = new DenseMatrix64F(numUnknowns, 1);
+        final DenseMatrix64F rhsP = new DenseMatrix64F(numUnknowns, 1);
+        for (int i = 0; i < NUM_OBSERVATIONS; i++) {
+            CPM.addObservation(A[i], weights[i], yL[i], yP[i], N, rhsL, rhsP);
+        }
+
+        // N = A' * W * A and rhs = A' * W * y
+        for (int j = 0; j < numUnknowns; j++) {
+            double rL = 0, rP = 0;
+            for (int k = 0; k < numUnknowns; k++) {
+                double n = 0;
+                for (int i = 0; i < NUM_OBSERVATIONS; i++) {
+                    n += A[i][j] * weights[i] * A[i][k];
+                }
+                Assert.assertEquals(n, N.get(j, k), DELTA);
+            }
+            for (int i = 0; i < NUM_OBSERVATIONS; i++) {
+                rL += A[i][j] * weights[i] * yL[i];
+                rP += A[i][j] * weights[i] * yP[i];
+            }
+            Assert.assertEquals(rL, rhsL.get(j), DELTA);
+            Assert.assertEquals(rP, rhsP.get(j), DELTA);
+        }
+
+        // removing an observation with a negative weight gives the equations without it
+        final DenseMatrix64F N_removed = N.copy();
+        CPM.addObservation(A[3], -weights[3], yL[3], yP[3], N_removed, rhsL, rhsP);
+        final DenseMatrix64F N_without = new DenseMatrix64F(numUnknowns, numUnknowns);
+        final DenseMatrix64F rhsL_without = new DenseMatrix64F(numUnknowns, 1);
+        final DenseMatrix64F rhsP_without = new DenseMatrix64F(numUnknowns, 1);
+        for (int i = 0; i < NUM_OBSERVATIONS; i++) {
+            if (i != 3) {
+                CPM.addObservation(A[i], weights[i], yL[i], yP[i], N_without, rhsL_without, rhsP_without);
+            }
+        }
+        for (int j = 0; j < numUnknowns; j++) {
+            for (int k = 0; k < numUnknowns; k++) {
+                Assert.assertEquals(N_without.get(j, k), N_removed.get(j, k), DELTA);
+            }
+            Assert.assertEquals(rhsL_without.get(j), rhsL.get(j), DELTA);
+            Assert.assertEquals(rhsP_without.get(j), rhsP.get(j), DELTA);
+        }
+    }
+
+    @Test
+    public void testOutlierRemoval() {
+        // the estimation loop of CPM: solve, then take the observation with the largest residual out of the
+        // normal equations, compared in each iteration with the least squares solution over the remaining ones
+        final int numUnknowns = A[0].length;
+        final DenseMatrix64F N = new DenseMatrix64F(numUnknowns, numUnknowns);
+        final DenseMatrix64F rhsL = new DenseMatrix64F(numUnknowns, 1);
+        final DenseMatrix64F rhsP = new DenseMatrix64F(numUnknowns, 1);
+        final List<Integer> observations = new ArrayList<>();
+        for (int i = 0; i < NUM_OBSERVATIONS; i++) {
+            CPM.addObservation(A[i], weights[i], yL[i], yP[i], N, rhsL, rhsP);
+            observations.add(i);
+        }
+
+        final List<Integer> removed = new ArrayList<>();
+        for (int iteration = 0; iteration <= OUTLIERS.length; iteration++) {
+            final double[] xL = solveNormal(N, rhsL);
+            final double[] xP = solveNormal(N, rhsP);
+
+            final double[][] expected = solveFull(observations);
+            for (int j = 0; j < numUnknowns; j++) {
+                Assert.assertEquals(expected[0][j], xL[j], DELTA);
+                Assert.assertEquals(expected[1][j], xP[j], DELTA);
+            }
+
+            if (iteration == OUTLIERS.length) {
+                break;
+            }
+
+            int maxIdx = -1;
+            double maxResidual = 0;
+            for (int r = 0; r < observations.size(); r++) {
+                final int i = observations.get(r);
+                final double residual = Math.abs(yL[i] - evaluate(A[i], xL)) + Math.abs(yP[i] - evaluate(A[i], xP));
+                if (residual > maxResidual) {
+                    maxResidual = residual;
+                    maxIdx = r;
+                }
+            }
+            final int i = observations.remove(maxIdx);
+            CPM.addObservation(A[i], -weights[i], yL[i], yP[i], N, rhsL, rhsP);
+            removed.add(i);
+        }
+
+        final int[] removedIndices = new int[removed.size()];
+        for (int r = 0; r < removedIndices.length; r++) {
+            removedIndices[r] = removed.get(r);
+        }
+        Arrays.sort(removedIndices);
+        Assert.assertArrayEquals(OUTLIERS, removedIndices);
+    }
+}
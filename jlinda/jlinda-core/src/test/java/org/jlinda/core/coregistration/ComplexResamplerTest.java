@@ -0,0 +1,94 @@
+package org.jlinda.core.coregistration;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+
+public class ComplexResamplerTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testWarpRect() {
+        // x' = 1 + 2x + 3y + 0.1x^2 + 0.2xy + 0.3y^2, y' = -1 + 0.5x + y - 0.01x^2 + 0.02xy - 0.03y^2
+        final double[] xCoef = {1, 2, 3, 0.1, 0.2, 0.3};
+        final double[] yCoef = {-1, 0.5, 1, -0.01, 0.02, -0.03};
+
+        final int x0 = 10, y0 = 20, w = 7, h = 5;
+        final double[] srcX = new double[w * h];
+        final double[] srcY = new double[w * h];
+        ComplexResampler.warpRect(xCoef, yCoef, x0, y0, w, h, srcX, srcY);
+
+        int k = 0;
+        for (int y = y0; y < y0 + h; y++) {
+            for (int x = x0; x < x0 + w; x++) {
+                final double xc = x + 0.5, yc = y + 0.5;
+                final double ex = xCoef[0] + xCoef[1] * xc + xCoef[2] * yc + xCoef[3] * xc * xc +
+                        xCoef[4] * xc * yc + xCoef[5] * yc * yc - 0.5;
+                final double ey = yCoef[0] + yCoef[1] * xc + yCoef[2] * yc + yCoef[3] * xc * xc +
+                        yCoef[4] * xc * yc + yCoef[5] * yc * yc - 0.5;
+                Assert.assertEquals(ex, srcX[k], DELTA);
+                Assert.assertEquals(ey, srcY[k], DELTA);
+                ++k;
+            }
+        }
+    }
+
+    @Test
+    public void testResampleShift() {
+        // 4 point kernel, padding 1: the weight of the tap at the integer position is 1 for every subsample
+        final int kernelLength = 4;
+        final int numSubsamples = 128;
+        final double[] kernel = new double[numSubsamples * kernelLength];
+        for (int i = 0; i < numSubsamples; i++) {
+            kernel[i * kernelLength + 1] = 1.0;
+        }
+        final ComplexResampler resampler = new ComplexResampler(kernel, kernelLength);
+
+        final int srcWidth = 20, srcHeight = 15;
+        final float[] srcI = new float[srcWidth * srcHeight];
+        final float[] srcQ = new float[srcWidth * srcHeight];
+        for (int i = 0; i < srcI.length; i++) {
+            srcI[i] = i;
+            srcQ[i] = -2 * i;
+        }
+
+        // shift by (+3, -2) pixels
+        final double[] xCoef = {3, 1, 0};
+        final double[] yCoef = {-2, 0, 1};
+        final int w = srcWidth, h = srcHeight, n = w * h;
+        final double[] srcX = new double[n];
+        final double[] srcY = new double[n];
+        ComplexResampler.warpRect(xCoef, yCoef, 0, 0, w, h, srcX, srcY);
+
+        final Rectangle srcRect = resampler.getSourceRectangle(srcX, srcY, n, srcWidth, srcHeight);
+        final float[] fullI = new float[srcRect.width * srcRect.height];
+        final float[] fullQ = new float[srcRect.width * srcRect.height];
+        for (int y = 0; y < srcRect.height; y++) {
+            for (int x = 0; x < srcRect.width; x++) {
+                fullI[y * srcRect.width + x] = srcI[(y + srcRect.y) * srcWidth + x + srcRect.x];
+                fullQ[y * srcRect.width + x] = srcQ[(y + srcRect.y) * srcWidth + x + srcRect.x];
+            }
+        }
+
+        final float[] trgI = new float[n];
+        final float[] trgQ = new float[n];
+        resampler.resample(fullI, fullQ, srcRect, srcWidth, srcHeight, srcX, srcY, n, trgI, trgQ);
+
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                final int sx = x + 3, sy = y - 2;
+                final int k = y * w + x;
+                // support of the kernel is [s - 1, s + 2]
+                if (sx - 1 < 0 || sx + 2 >= srcWidth || sy - 1 < 0 || sy + 2 >= srcHeight) {
+                    Assert.assertEquals(0.0f, trgI[k], 0.0f);
+                    Assert.assertEquals(0.0f, trgQ[k], 0.0f);
+                } else {
+                    Assert.assertEquals(srcI[sy * srcWidth + sx], trgI[k], 0.0f);
+                    Assert.assertEquals(srcQ[sy * srcWidth + sx], trgQ[k], 0.0f);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.jlinda.core.filtering;
+
+import org.jblas.ComplexDoubleMatrix;
+import org.jlinda.core.utils.SpectralUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class SpectralBlockTest {
+
+    private static final double DELTA = 1e-10;
+
+    private static ComplexDoubleMatrix randomMatrix(final int rows, final int columns) {
+        final Random random = new Random(42);
+        final ComplexDoubleMatrix matrix = new ComplexDoubleMatrix(rows, columns);
+        for (int i = 0; i < matrix.data.length; i++) {
+            matrix.data[i] = random.nextGaussian();
+        }
+        return matrix;
+    }
+
+    @Test
+    public void testForwardMatchesFFT2D() throws Exception {
+        final int size = 16;
+        final ComplexDoubleMatrix matrix = randomMatrix(size, size);
+
+        final SpectralBlock block = new SpectralBlock(size);
+        block.setData(matrix, 0, 0);
+        block.forward();
+
+        final ComplexDoubleMatrix expected = SpectralUtils.fft2D(matrix);
+        Assert.assertArrayEquals(SpectralBlock.toInterleaved(expected), block.getData(), DELTA);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final int size = 8;
+        final ComplexDoubleMatrix matrix = randomMatrix(20, 15);
+
+        final SpectralBlock block = new SpectralBlock(size);
+        block.setData(matrix, 5, 3);
+        block.forward();
+        block.inverse(true);
+
+        // write the inner part of the block back to another position
+        final ComplexDoubleMatrix out = new ComplexDoubleMatrix(20, 15);
+        block.getData(out, 10, 6, 2, 1, 4, 5);
+        for (int r = 0; r < 4; r++) {
+            for (int c = 0; c < 5; c++) {
+                Assert.assertEquals(matrix.get(5 + 2 + r, 3 + 1 + c).real(), out.get(10 + r, 6 + c).real(), DELTA);
+                Assert.assertEquals(matrix.get(5 + 2 + r, 3 + 1 + c).imag(), out.get(10 + r, 6 + c).imag(), DELTA);
+            }
+        }
+    }
+}
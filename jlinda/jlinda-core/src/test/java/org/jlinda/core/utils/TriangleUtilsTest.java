@@ -65,4 +65,55 @@ public class TriangleUtilsTest {
 
     }
 
+    @Test
+    public void testGridDataLinearLattice() throws Exception {
+
+        final double DELTA_10 = 1e-10;
+        final int nRows = 40;
+        final int nCols = 50;
+        final Window tileWin = new Window(5, 34, 10, 69);
+        final int nLines = (int) tileWin.lines();
+        final int nPixels = (int) tileWin.pixels();
+
+        // smoothly distorted lattice carrying a plane, which linear interpolation must reproduce exactly
+        final double[] line = new double[nRows * nCols];
+        final double[] pixel = new double[nRows * nCols];
+        final double[] z = new double[nRows * nCols];
+        for (int i = 0; i < nRows; i++) {
+            for (int j = 0; j < nCols; j++) {
+                final int k = i * nCols + j;
+                line[k] = 1.2 * i + 0.1 * j + 0.001 * i * i;
+                pixel[k] = -0.2 * i + 1.7 * j + 0.3 * Math.sin(0.1 * j);
+                z[k] = plane(line[k], pixel[k]);
+            }
+        }
+
+        final double[] grd_ACTUAL = new double[nLines * nPixels];
+        Assert.assertTrue(TriangleUtils.gridDataLinear(line, pixel, nRows, nCols, new double[][]{z},
+                new double[][]{grd_ACTUAL}, tileWin, 1.4, 1, 1, -32768, 0));
+
+        final int[] vertices = new int[3 * nLines * nPixels];
+        final double[] weights = new double[2 * nLines * nPixels];
+        Assert.assertTrue(TriangleUtils.gridDataWeights(line, pixel, nRows, nCols, tileWin, 1.4, 1, 1, -32768, 0,
+                vertices, weights));
+
+        for (int i = 0; i < nLines; i++) {
+            for (int j = 0; j < nPixels; j++) {
+                final int k = i * nPixels + j;
+                final double expected = plane(tileWin.linelo + i, tileWin.pixlo + j);
+                Assert.assertEquals(expected, grd_ACTUAL[k], DELTA_10);
+
+                Assert.assertTrue(vertices[3 * k] >= 0);
+                final double zA = z[vertices[3 * k]];
+                final double interpolated = zA + weights[2 * k] * (z[vertices[3 * k + 1]] - zA) +
+                        weights[2 * k + 1] * (z[vertices[3 * k + 2]] - zA);
+                Assert.assertEquals(expected, interpolated, DELTA_10);
+            }
+        }
+    }
+
+    private static double plane(final double line, final double pixel) {
+        return 3.0 * line - 0.5 * pixel + 7.0;
+    }
+
 }
@@ -54,8 +54,12 @@ import org.jlinda.core.coregistration.utils.CoregistrationUtils;
 import org.jlinda.core.utils.MathUtils;
 import org.jlinda.nest.utils.TileUtilsDoris;
 
+import java.awt.Point;
 import java.awt.Rectangle;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -146,6 +150,7 @@ public class CoarseFineCoregOp extends Operator {
     private ElevationModel dem = null;
 
     // Constants
+    private static final int GCP_BATCH_SIZE = 512; // side of the areas in which GCP windows are read together
     private static final int EXTRA_BORDER = 20; // work with slightly smaller search space, used in gcp validation
 
     // Logger
@@ -471,12 +476,12 @@ public class CoarseFineCoregOp extends Operator {
             final ProductNodeGroup<Placemark> targetGCPGroup = GCPManager.instance().getGcpGroup(targetBand);
             final GeoCoding tgtGeoCoding = targetProduct.getGeoCoding();
 
-            final ThreadManager threadManager = new ThreadManager();
-
             final int numberOfMasterGCPs = masterGcpGroup.getNodeCount();
             final StatusProgressMonitor status = new StatusProgressMonitor(numberOfMasterGCPs,
                     "Cross Correlating " + bandCountStr + ' ' + slaveBand1.getName() + "... ");
 
+            // group the GCPs by tile aligned area, the windows of a group are read with one source tile per band
+            final Map<Point, List<Integer>> batchMap = new LinkedHashMap<>();
             for (int i = 0; i < numberOfMasterGCPs; ++i) {
 
                 checkForCancellation();
@@ -485,55 +490,54 @@ public class CoarseFineCoregOp extends Operator {
 
                 if (checkMasterGCPValidity(mPin)) {
 
-                    final GeoPos mGCPGeoPos = mPin.getGeoPos();
                     final PixelPos mGCPPixelPos = mPin.getPixelPos();
-                    final PixelPos sGCPPixelPos = new PixelPos(mPin.getPixelPos().x, mPin.getPixelPos().y);
-                    if (!checkSlaveGCPValidity(sGCPPixelPos)) {
+                    if (!checkSlaveGCPValidity(mGCPPixelPos)) {
                         logger.warning("GCP({}) is outside slave image."+ i);
                         continue;
                     }
 
-                    final Thread worker = new Thread() {
-
-                        @Override
-                        public void run() {
+                    final Point cell = new Point(
+                            (int) mGCPPixelPos.x / GCP_BATCH_SIZE, (int) mGCPPixelPos.y / GCP_BATCH_SIZE);
+                    List<Integer> batch = batchMap.get(cell);
+                    if (batch == null) {
+                        batch = new ArrayList<>();
+                        batchMap.put(cell, batch);
+                    }
+                    batch.add(i);
+                }
+            }
 
-                            logger.info("Running {}"+ mPin.getName());
-                            boolean getSlaveGCP = getCoarseOffsets(slaveBand1, slaveBand2, mGCPPixelPos, sGCPPixelPos);
+            // one worker per batch, results are kept in master GCP order
+            final Placemark[] slaveGCPs = new Placemark[numberOfMasterGCPs];
+            final ThreadManager threadManager = new ThreadManager();
 
-                            if (getSlaveGCP) {
-                                getSlaveGCP = getFineOffsets(slaveBand1, slaveBand2, mGCPPixelPos, sGCPPixelPos);
-                            }
+            int numProcessed = 0;
+            for (final List<Integer> batch : batchMap.values()) {
 
-                            if (getSlaveGCP) {
+                checkForCancellation();
 
-                                final Placemark sPin = Placemark.createPointPlacemark(
-                                        GcpDescriptor.getInstance(),
-                                        mPin.getName(),
-                                        mPin.getLabel(),
-                                        mPin.getDescription(),
-                                        sGCPPixelPos,
-                                        mGCPGeoPos,
-                                        tgtGeoCoding);
+                final Thread worker = new Thread() {
 
-                                addPlacemark(sPin);
+                    @Override
+                    public void run() {
+                        computeSlaveGCPBatch(batch, slaveBand1, slaveBand2, tgtGeoCoding, slaveGCPs);
+                    }
+                };
 
-                            }
-                        }
+                threadManager.add(worker);
 
-                        private synchronized void addPlacemark(final Placemark pin) {
-                            targetGCPGroup.add(pin);
-                        }
+                numProcessed += batch.size();
+                status.worked(numProcessed);
+            }
 
-                    };
+            threadManager.finish();
 
-                    threadManager.add(worker);
+            for (Placemark sPin : slaveGCPs) {
+                if (sPin != null) {
+                    targetGCPGroup.add(sPin);
                 }
-                status.worked(i);
             }
 
-            threadManager.finish();
-
             gcpsComputedMap.put(slaveBand1, true);
 
             MemUtils.tileCacheFreeOldTiles();
@@ -544,6 +548,63 @@ public class CoarseFineCoregOp extends Operator {
         }
     }
 
+    /**
+     * Compute the slave GCPs of one batch of master GCPs.
+     *
+     * @param batch      indices of the master GCPs
+     * @param slaveBand1 the input band
+     * @param slaveBand2 for complex
+     * @param tgtGeoCoding target geocoding
+     * @param slaveGCPs  output, the slave GCP at the index of its master GCP
+     */
+    private void computeSlaveGCPBatch(final List<Integer> batch, final Band slaveBand1, final Band slaveBand2,
+                                      final GeoCoding tgtGeoCoding, final Placemark[] slaveGCPs) {
+
+        // one rectangle covering the coarse and fine windows of all GCPs of the batch
+        Rectangle batchRect = null;
+        for (int i : batch) {
+            final PixelPos pixelPos = masterGcpGroup.get(i).getPixelPos();
+            final Rectangle windows = coarseWin.defineRectangleMask(pixelPos).union(fineWin.defineRectangleMask(pixelPos));
+            batchRect = batchRect == null ? windows : batchRect.union(windows);
+        }
+        batchRect = batchRect.intersection(new Rectangle(0, 0, sourceImageWidth, sourceImageHeight));
+
+        final WindowBatch masterBatch = new WindowBatch(
+                getSourceTile(masterBand1, batchRect), getSourceTile(masterBand2, batchRect));
+        final WindowBatch slaveBatch = new WindowBatch(
+                getSourceTile(slaveBand1, batchRect), getSourceTile(slaveBand2, batchRect));
+
+        for (int i : batch) {
+
+            checkForCancellation();
+
+            final Placemark mPin = masterGcpGroup.get(i);
+            final GeoPos mGCPGeoPos = mPin.getGeoPos();
+            final PixelPos mGCPPixelPos = mPin.getPixelPos();
+            final PixelPos sGCPPixelPos = new PixelPos(mPin.getPixelPos().x, mPin.getPixelPos().y);
+
+            logger.info("Running {}"+ mPin.getName());
+            boolean getSlaveGCP = getCoarseOffsets(masterBatch, slaveBatch, slaveBand1, slaveBand2,
+                                                   mGCPPixelPos, sGCPPixelPos);
+
+            if (getSlaveGCP) {
+                getSlaveGCP = getFineOffsets(masterBatch, slaveBatch, slaveBand1, slaveBand2,
+                                             mGCPPixelPos, sGCPPixelPos);
+            }
+
+            if (getSlaveGCP) {
+                slaveGCPs[i] = Placemark.createPointPlacemark(
+                        GcpDescriptor.getInstance(),
+                        mPin.getName(),
+                        mPin.getLabel(),
+                        mPin.getDescription(),
+                        sGCPPixelPos,
+                        mGCPGeoPos,
+                        tgtGeoCoding);
+            }
+        }
+    }
+
 
     /**
      * Copy GCPs of the first target band to current target band.
@@ -596,15 +657,16 @@ public class CoarseFineCoregOp extends Operator {
                 (pixelPos.y - coarseWin.halfWidth + 1 >= 0 && pixelPos.y + coarseWin.halfHeight <= sourceImageHeight - 1);
     }
 
-    private boolean getCoarseOffsets(final Band slaveBand1, final Band slaveBand2,
+    private boolean getCoarseOffsets(final WindowBatch masterBatch, final WindowBatch slaveBatch,
+                                     final Band slaveBand1, final Band slaveBand2,
                                      final PixelPos mGCPPixelPos,
                                      final PixelPos sGCPPixelPos) {
 
         try {
 
             // get data
-            final ComplexDoubleMatrix mI = getComplexDoubleMatrix(masterBand1, masterBand2, mGCPPixelPos, coarseWin);
-            final ComplexDoubleMatrix sI = getComplexDoubleMatrix(slaveBand1, slaveBand2, sGCPPixelPos, coarseWin);
+            final ComplexDoubleMatrix mI = getComplexDoubleMatrix(masterBatch, masterBand1, masterBand2, mGCPPixelPos, coarseWin);
+            final ComplexDoubleMatrix sI = getComplexDoubleMatrix(slaveBatch, slaveBand1, slaveBand2, sGCPPixelPos, coarseWin);
 
             final double[] coarseOffset = {0, 0};
 
@@ -624,15 +686,16 @@ public class CoarseFineCoregOp extends Operator {
         return false;
     }
 
-    private boolean getFineOffsets(final Band slaveBand1, final Band slaveBand2,
+    private boolean getFineOffsets(final WindowBatch masterBatch, final WindowBatch slaveBatch,
+                                   final Band slaveBand1, final Band slaveBand2,
                                    final PixelPos mGCPPixelPos,
                                    final PixelPos sGCPPixelPos) {
         try {
             logger.info("mGCP = ({}, {})"+ mGCPPixelPos.x+ mGCPPixelPos.y);
             logger.info("Initial sGCP = ({}, {})"+ sGCPPixelPos.x+ sGCPPixelPos.y);
 
-            ComplexDoubleMatrix mI = getComplexDoubleMatrix(masterBand1, masterBand2, mGCPPixelPos, fineWin);
-            ComplexDoubleMatrix sI = getComplexDoubleMatrix(slaveBand1, slaveBand2, sGCPPixelPos, fineWin);
+            ComplexDoubleMatrix mI = getComplexDoubleMatrix(masterBatch, masterBand1, masterBand2, mGCPPixelPos, fineWin);
+            ComplexDoubleMatrix sI = getComplexDoubleMatrix(slaveBatch, slaveBand1, slaveBand2, sGCPPixelPos, fineWin);
 
             final double[] fineOffset = {sGCPPixelPos.x, sGCPPixelPos.y};
 
@@ -656,9 +719,14 @@ public class CoarseFineCoregOp extends Operator {
         return false;
     }
 
-    private ComplexDoubleMatrix getComplexDoubleMatrix(Band band1, Band band2, PixelPos pixelPos, CorrelationWindow corrWindow) {
+    private ComplexDoubleMatrix getComplexDoubleMatrix(WindowBatch batch, Band band1, Band band2, PixelPos pixelPos,
+                                                       CorrelationWindow corrWindow) {
 
         Rectangle rectangle = corrWindow.defineRectangleMask(pixelPos);
+        if (batch.contains(rectangle)) {
+            return batch.getComplexDoubleMatrix(rectangle);
+        }
+        // window moved out of the batch area by the coarse offset
         Tile tileReal = getSourceTile(band1, rectangle);
         Tile tileImag = getSourceTile(band2, rectangle);
         return TileUtilsDoris.pullComplexDoubleMatrix(tileReal, tileImag);
@@ -717,6 +785,49 @@ public class CoarseFineCoregOp extends Operator {
 
     }
 
+    /**
+     * Complex source samples of a rectangle covering the correlation windows of a batch of GCPs.
+     */
+    private static class WindowBatch {
+
+        private final Tile tileReal;
+        private final Tile tileImag;
+        private final ProductData dataReal;
+        private final ProductData dataImag;
+        private final Rectangle rectangle;
+
+        private WindowBatch(final Tile tileReal, final Tile tileImag) {
+            this.tileReal = tileReal;
+            this.tileImag = tileImag;
+            this.dataReal = tileReal.getDataBuffer();
+            this.dataImag = tileImag.getDataBuffer();
+            this.rectangle = tileReal.getRectangle();
+        }
+
+        public boolean contains(final Rectangle window) {
+            return rectangle.contains(window);
+        }
+
+        public ComplexDoubleMatrix getComplexDoubleMatrix(final Rectangle window) {
+
+            final int height = window.height;
+            final int width = window.width;
+            final ComplexDoubleMatrix result = new ComplexDoubleMatrix(height, width);
+            final double[] data = result.data; // column major, interleaved real and imaginary parts
+
+            for (int y = 0; y < height; y++) {
+                final int realIndex = tileReal.getDataBufferIndex(window.x, window.y + y);
+                final int imagIndex = tileImag.getDataBufferIndex(window.x, window.y + y);
+                for (int x = 0; x < width; x++) {
+                    final int k = 2 * (x * height + y);
+                    data[k] = dataReal.getElemDoubleAt(realIndex + x);
+                    data[k + 1] = dataImag.getElemDoubleAt(imagIndex + x);
+                }
+            }
+            return result;
+        }
+    }
+
 
     /**
      * The SPI is used to register this operator in the graph processing framework
@@ -38,6 +38,7 @@ import org.jlinda.core.Orbit;
 import org.jlinda.core.SLCImage;
 import org.jlinda.core.Window;
 import org.jlinda.core.coregistration.CPM;
+import org.jlinda.core.coregistration.ComplexResampler;
 import org.jlinda.core.coregistration.SimpleLUT;
 
 import javax.media.jai.Interpolation;
@@ -122,6 +123,7 @@ public class ResampleOp extends Operator {
     // maps
     private final Map<Band, Band> sourceRasterMap = new HashMap<Band, Band>(10);
     private final Map<Band, Band> complexSrcMap = new HashMap<Band, Band>(10);
+    private final Map<Band, Band> complexTrgMap = new HashMap<Band, Band>(10);
     private final Map<Band, CPM> cpmMap = new HashMap<Band, CPM>(10);
 
     // processing control flags
@@ -131,6 +133,7 @@ public class ResampleOp extends Operator {
     // interpolation kernel fields
     private Interpolation interp = null;
     private InterpolationTable interpTable = null;
+    private ComplexResampler complexResampler = null;
     public static final String TRI = SimpleLUT.TRI;
     public static final String CC4P = SimpleLUT.CC4P;
     public static final String CC6P = SimpleLUT.CC6P;
@@ -309,6 +312,7 @@ public class ResampleOp extends Operator {
             // put bands in maps
             sourceRasterMap.put(targetBandQ, srcBandQ);
             complexSrcMap.put(srcBandQ, srcBand);
+            complexTrgMap.put(targetBand, targetBandQ);
 
             // create product suffix
             final String suffix = '_'+OperatorUtils.getSuffixFromBandName(srcBand.getName());
@@ -331,24 +335,18 @@ public class ResampleOp extends Operator {
     }
 
     /**
-     * Called by the framework in order to compute a tile for the given target band.
+     * Called by the framework in order to compute a tile stack for the given target bands.
      * <p>The default implementation throws a runtime exception with the message "not implemented".</p>
      *
-     * @param targetBand The target band.
-     * @param targetTile The current tile associated with the target band to be computed.
-     * @param pm         A progress monitor which should be used to determine computation cancelation requests.
+     * @param targetTileMap   The target tiles associated with all target bands to be computed.
+     * @param targetRectangle The rectangle of target tile.
+     * @param pm              A progress monitor which should be used to determine computation cancelation requests.
      * @throws org.esa.snap.framework.gpf.OperatorException
      *          If an error occurs during computation of the target raster.
      */
     @Override
-    public void computeTile(Band targetBand, Tile targetTile, ProgressMonitor pm) throws OperatorException {
-
-        final Rectangle targetRectangle = targetTile.getRectangle();
-        final int x0 = targetRectangle.x;
-        final int y0 = targetRectangle.y;
-        final int w = targetRectangle.width;
-        final int h = targetRectangle.height;
-        //System.out.println("WARPOperator: x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h);
+    public void computeTileStack(Map<Band, Tile> targetTileMap, Rectangle targetRectangle, ProgressMonitor pm)
+            throws OperatorException {
 
         try {
 
@@ -361,40 +359,100 @@ public class ResampleOp extends Operator {
                 computeCPM(targetRectangle);
             }
 
-            // get source bands
-            final Band srcBand = sourceRasterMap.get(targetBand);
-            if (srcBand == null)
-                return;
-            Band realSrcBand = complexSrcMap.get(srcBand);
-            if (realSrcBand == null)
-                realSrcBand = srcBand;
+            for (Map.Entry<Band, Tile> entry : targetTileMap.entrySet()) {
+                if (pm.isCanceled())
+                    return;
+
+                // get source bands
+                final Band targetBand = entry.getKey();
+                final Band srcBand = sourceRasterMap.get(targetBand);
+                if (srcBand == null)
+                    continue;
+
+                if (complexResampler != null) {
+                    final Band targetBandQ = complexTrgMap.get(targetBand);
+                    if (targetBandQ != null) {
+                        computeComplexTile(srcBand, sourceRasterMap.get(targetBandQ),
+                                entry.getValue(), targetTileMap.get(targetBandQ), targetRectangle);
+                        continue;
+                    }
+                    if (complexSrcMap.containsKey(srcBand)) {
+                        continue; // Q band, resampled together with its I band
+                    }
+                }
+
+                computeWarpedTile(srcBand, entry.getValue(), targetRectangle);
+            }
+
+        } catch (Throwable e) {
+            OperatorUtils.catchOperatorException(getId(), e);
+        } finally {
+            pm.done();
+        }
+    }
+
+    private void computeWarpedTile(final Band srcBand, final Tile targetTile, final Rectangle targetRectangle) {
+        final int x0 = targetRectangle.x;
+        final int y0 = targetRectangle.y;
+        final int w = targetRectangle.width;
+        final int h = targetRectangle.height;
 
-            // create source image
-            final Tile sourceRaster = getSourceTile(srcBand, targetRectangle);
+        Band realSrcBand = complexSrcMap.get(srcBand);
+        if (realSrcBand == null)
+            realSrcBand = srcBand;
 
-            if (pm.isCanceled())
-                return;
+        // create source image
+        final Tile sourceRaster = getSourceTile(srcBand, targetRectangle);
 
-            // pull CPM from map for source bands
-            final CPM cpmData = cpmMap.get(realSrcBand);
-            if (cpmData.noRedundancy)
-                return;
+        // pull CPM from map for source bands
+        final CPM cpmData = cpmMap.get(realSrcBand);
+        if (cpmData.noRedundancy)
+            return;
 
-            // get source image
-            final RenderedImage srcImage = sourceRaster.getRasterDataNode().getSourceImage();
+        // get source image
+        final RenderedImage srcImage = sourceRaster.getRasterDataNode().getSourceImage();
 
-            // resample source image -> target image
-            final RenderedOp warpedImage = createWarpImage(cpmData.jaiWarp, srcImage);
+        // resample source image -> target image
+        final RenderedOp warpedImage = createWarpImage(cpmData.jaiWarp, srcImage);
 
-            // copy warped image data to target
-            final float[] dataArray = warpedImage.getData(targetRectangle).getSamples(x0, y0, w, h, 0, (float[]) null);
+        // copy warped image data to target
+        final float[] dataArray = warpedImage.getData(targetRectangle).getSamples(x0, y0, w, h, 0, (float[]) null);
 
-            targetTile.setRawSamples(ProductData.createInstance(dataArray));
+        targetTile.setRawSamples(ProductData.createInstance(dataArray));
+    }
 
-        } catch (Throwable e) {
-            OperatorUtils.catchOperatorException(getId(), e);
-        } finally {
-            pm.done();
+    /**
+     * Resample the I and Q bands of a slave together: the CPM is evaluated once per target pixel and the
+     * same kernel weights are applied to both channels.
+     */
+    private void computeComplexTile(final Band srcBandI, final Band srcBandQ, final Tile targetTileI,
+                                    final Tile targetTileQ, final Rectangle targetRectangle) {
+
+        final CPM cpmData = cpmMap.get(srcBandI);
+        if (cpmData.noRedundancy)
+            return;
+
+        final int n = targetRectangle.width * targetRectangle.height;
+        final double[] srcX = new double[n];
+        final double[] srcY = new double[n];
+        ComplexResampler.warpRect(cpmData.xCoefJai, cpmData.yCoefJai, targetRectangle.x, targetRectangle.y,
+                targetRectangle.width, targetRectangle.height, srcX, srcY);
+
+        final int srcWidth = srcBandI.getSceneRasterWidth();
+        final int srcHeight = srcBandI.getSceneRasterHeight();
+        final Rectangle srcRect = complexResampler.getSourceRectangle(srcX, srcY, n, srcWidth, srcHeight);
+
+        final float[] trgI = new float[n];
+        final float[] trgQ = new float[n];
+        if (!srcRect.isEmpty()) {
+            final float[] srcI = getSourceTile(srcBandI, srcRect).getSamplesFloat();
+            final float[] srcQ = getSourceTile(srcBandQ, srcRect).getSamplesFloat();
+            complexResampler.resample(srcI, srcQ, srcRect, srcWidth, srcHeight, srcX, srcY, n, trgI, trgQ);
+        }
+
+        targetTileI.setRawSamples(ProductData.createInstance(trgI));
+        if (targetTileQ != null) {
+            targetTileQ.setRawSamples(ProductData.createInstance(trgQ));
         }
     }
 
@@ -582,12 +640,15 @@ public class ResampleOp extends Operator {
             lutArrayFloats[i++] = (float) lutElement;
         }
 
-        // construct interpolation table for JAI resampling
+        // construct interpolation table for JAI resampling of bands without an I/Q pair
         final int subsampleBits = 7;
         final int precisionBits = 32;
         int padding = kernelLength / 2 - 1;
 
         interpTable = new InterpolationTable(padding, kernelLength, subsampleBits, precisionBits, lutArrayFloats);
+
+        // I and Q are resampled together with the same LUT kernel
+        complexResampler = new ComplexResampler(lut);
     }
 
     private void addSurvivedSlaveGCPs(final CPM cpmData, final String bandName) {
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares JMH results in JSON format against a baseline and fails when a benchmark has regressed by more than a
+ * threshold.
+ * <p/>
+ * Usage: BenchmarkComparator baseline.json result.json [threshold]
+ * <p/>
+ * The threshold is the relative slowdown allowed, 0.1 by default. Benchmarks are matched by name and parameters.
+ * The baseline is recorded by copying a result file over it on the reference machine. An empty baseline fails the
+ * comparison, as nothing would be checked. Benchmarks missing from the baseline, and baseline benchmarks missing from
+ * the result, are listed as warnings, so that benchmarks can be added, removed or run selectively before the
+ * baseline is recorded again.
+ */
+public final class BenchmarkComparator {
+
+    public static final double DEFAULT_THRESHOLD = 0.1;
+
+    private BenchmarkComparator() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparator baseline.json result.json [threshold]");
+            System.exit(2);
+        }
+        final double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+
+        final Map<String, Score> baseline = readScores(new File(args[0]));
+        final Map<String, Score> result = readScores(new File(args[1]));
+
+        if (baseline.isEmpty()) {
+            System.err.println("The baseline " + args[0] + " has no benchmarks, nothing can be compared.");
+            System.err.println("Record it by copying " + args[1] + " from a run on the reference machine.");
+            System.exit(1);
+        }
+
+        final List<String> regressions = compare(baseline, result, threshold);
+        if (!regressions.isEmpty()) {
+            System.out.println();
+            System.out.println(regressions.size() + " benchmark(s) regressed by more than " +
+                    String.format("%.1f%%", threshold * 100) + ":");
+            for (String name : regressions) {
+                System.out.println("  " + name);
+            }
+            System.exit(1);
+        }
+
+        printWarning(getMissing(result, baseline), "are not in the baseline " + args[0] + " and were not checked");
+        printWarning(getMissing(baseline, result), "of the baseline are not in the result " + args[1]);
+    }
+
+    private static void printWarning(final List<String> names, final String message) {
+        if (!names.isEmpty()) {
+            System.err.println();
+            System.err.println("WARNING: " + names.size() + " benchmark(s) " + message + ':');
+            for (String name : names) {
+                System.err.println("  " + name);
+            }
+        }
+    }
+
+    /**
+     * @return the names of the benchmarks in scores that are missing from others
+     */
+    static List<String> getMissing(final Map<String, Score> scores, final Map<String, Score> others) {
+        final List<String> missing = new ArrayList<>();
+        for (String name : scores.keySet()) {
+            if (!others.containsKey(name)) {
+                missing.add(name);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Print the change of each benchmark.
+     *
+     * @return the names of the benchmarks that regressed by more than the threshold
+     */
+    static List<String> compare(final Map<String, Score> baseline, final Map<String, Score> result,
+                                final double threshold) {
+        final List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Score> entry : result.entrySet()) {
+            final String name = entry.getKey();
+            final Score score = entry.getValue();
+            final Score base = baseline.get(name);
+            if (base == null) {
+                System.out.println(String.format("%-80s %14.3f %-10s  (no baseline)", name, score.value, score.unit));
+                continue;
+            }
+            if (!base.unit.equals(score.unit)) {
+                System.out.println(String.format("%-80s units differ: %s, baseline %s", name, score.unit, base.unit));
+                continue;
+            }
+
+            final double slowdown = score.getSlowdown(base);
+            final boolean regressed = slowdown > threshold;
+            System.out.println(String.format("%-80s %14.3f %-10s baseline %14.3f  %+7.1f%%%s", name, score.value,
+                    score.unit, base.value, slowdown * 100, regressed ? "  REGRESSION" : ""));
+            if (regressed) {
+                regressions.add(name);
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Read the primary scores of a JMH result file, by benchmark name and parameters.
+     */
+    static Map<String, Score> readScores(final File file) throws IOException {
+        final Map<String, Score> scores = new LinkedHashMap<>();
+        try (Reader reader = new FileReader(file)) {
+            final JsonArray runs = new JsonParser().parse(reader).getAsJsonArray();
+            for (JsonElement element : runs) {
+                final JsonObject run = element.getAsJsonObject();
+                final JsonObject metric = run.getAsJsonObject("primaryMetric");
+                final Score score = new Score(run.get("mode").getAsString(),
+                        metric.get("score").getAsDouble(), metric.get("scoreUnit").getAsString());
+                scores.put(getName(run), score);
+            }
+        }
+        return scores;
+    }
+
+    private static String getName(final JsonObject run) {
+        final StringBuilder name = new StringBuilder(run.get("benchmark").getAsString());
+        if (run.has("params")) {
+            final Map<String, String> params = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> param : run.getAsJsonObject("params").entrySet()) {
+                params.put(param.getKey(), param.getValue().getAsString());
+            }
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                name.append(' ').append(param.getKey()).append('=').append(param.getValue());
+            }
+        }
+        return name.toString();
+    }
+
+    static final class Score {
+        final String mode;
+        final double value;
+        final String unit;
+
+        Score(final String mode, final double value, final String unit) {
+            this.mode = mode;
+            this.value = value;
+            this.unit = unit;
+        }
+
+        /**
+         * @return the relative slowdown from the baseline, negative for a speedup
+         */
+        double getSlowdown(final Score base) {
+            if (mode.equals("thrpt")) {
+                // operations per time unit, higher is better
+                return base.value / value - 1.0;
+            }
+            // time per operation, lower is better
+            return value / base.value - 1.0;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.benchmark;
+
+import org.csa.rstb.polarimetric.gpf.PolarimetricSpeckleFilterOp;
+import org.esa.s1tbx.fex.gpf.GLCMOp;
+import org.esa.s1tbx.insar.gpf.GoldsteinFilterOp;
+import org.esa.snap.datamodel.AbstractMetadata;
+import org.esa.snap.datamodel.Unit;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.MetadataElement;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.gpf.Operator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.media.jai.JAI;
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of one target tile of the GLCM texture, Lee sigma speckle filter and Goldstein phase filter operators
+ * on synthetic products. The tile cache is flushed before each invocation so the tile is computed every time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FilterBenchmark {
+
+    private static final int IMAGE_SIZE = 768;
+    private static final int TILE_SIZE = 256;
+
+    @Param({"GLCM", "LeeSigma", "Goldstein"})
+    private String filter;
+
+    private Operator operator;
+    private RenderedImage targetImage;
+    private Rectangle tileRect;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        System.setProperty("snap.gpf.disableTileCache", "true");
+
+        final Product sourceProduct;
+        switch (filter) {
+            case "GLCM":
+                sourceProduct = createAmplitudeProduct();
+                operator = new GLCMOp.Spi().createOperator();
+                break;
+            case "LeeSigma":
+                sourceProduct = createQuadPolProduct();
+                operator = new PolarimetricSpeckleFilterOp.Spi().createOperator();
+                operator.setParameter("filter", PolarimetricSpeckleFilterOp.LEE_SIGMA_FILTER);
+                break;
+            case "Goldstein":
+                sourceProduct = createInterferogramProduct();
+                operator = new GoldsteinFilterOp.Spi().createOperator();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown filter " + filter);
+        }
+        operator.setSourceProduct(sourceProduct);
+
+        final Band targetBand = operator.getTargetProduct().getBandAt(0);
+        targetImage = targetBand.getSourceImage();
+
+        // an interior tile, so the source rectangle includes the filter border on all sides
+        final int tileW = targetImage.getTileWidth();
+        final int tileH = targetImage.getTileHeight();
+        final int tx = Math.min(1, targetImage.getNumXTiles() - 1);
+        final int ty = Math.min(1, targetImage.getNumYTiles() - 1);
+        tileRect = new Rectangle(targetImage.getTileGridXOffset() + tx * tileW,
+                targetImage.getTileGridYOffset() + ty * tileH, tileW, tileH)
+                .intersection(new Rectangle(0, 0, targetImage.getWidth(), targetImage.getHeight()));
+    }
+
+    @Setup(Level.Invocation)
+    public void flushTileCache() {
+        JAI.getDefaultInstance().getTileCache().flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        operator.dispose();
+    }
+
+    @Benchmark
+    public Raster computeTile() {
+        return targetImage.getData(tileRect);
+    }
+
+    private static Product createProduct(final String name, final String sampleType) {
+        final Product product = new Product(name, "SYNTHETIC", IMAGE_SIZE, IMAGE_SIZE);
+        product.setPreferredTileSize(TILE_SIZE, TILE_SIZE);
+        final MetadataElement absRoot = AbstractMetadata.addAbstractedMetadataHeader(product.getMetadataRoot());
+        absRoot.setAttributeString(AbstractMetadata.SAMPLE_TYPE, sampleType);
+        return product;
+    }
+
+    private static Band addBand(final Product product, final String name, final String unit, final float[] data) {
+        final Band band = product.addBand(name, ProductData.TYPE_FLOAT32);
+        band.setUnit(unit);
+        band.setData(ProductData.createInstance(data));
+        return band;
+    }
+
+    /**
+     * Gamma distributed speckle over a pattern of patches of different backscatter.
+     */
+    private static Product createAmplitudeProduct() {
+        final Product product = createProduct("amplitude", "DETECTED");
+        final Random random = new Random(42);
+        final float[] data = new float[IMAGE_SIZE * IMAGE_SIZE];
+        for (int y = 0; y < IMAGE_SIZE; y++) {
+            for (int x = 0; x < IMAGE_SIZE; x++) {
+                final double backscatter = 1.0 + ((x / 48 + y / 32) % 4);
+                final double intensity = -backscatter * Math.log(1.0 - random.nextDouble());
+                data[y * IMAGE_SIZE + x] = (float) Math.sqrt(intensity);
+            }
+        }
+        addBand(product, "Amplitude_VV", Unit.AMPLITUDE, data);
+        return product;
+    }
+
+    /**
+     * Complex circular Gaussian scattering vectors, correlated between HH and VV.
+     */
+    private static Product createQuadPolProduct() {
+        final Product product = createProduct("quadpol", "COMPLEX");
+        final Random random = new Random(42);
+        final String[] pols = {"HH", "HV", "VH", "VV"};
+        final float[][] i = new float[pols.length][IMAGE_SIZE * IMAGE_SIZE];
+        final float[][] q = new float[pols.length][IMAGE_SIZE * IMAGE_SIZE];
+        for (int k = 0; k < IMAGE_SIZE * IMAGE_SIZE; k++) {
+            final double hhI = random.nextGaussian(), hhQ = random.nextGaussian();
+            final double hvI = 0.3 * random.nextGaussian(), hvQ = 0.3 * random.nextGaussian();
+            i[0][k] = (float) hhI;
+            q[0][k] = (float) hhQ;
+            i[1][k] = (float) hvI;
+            q[1][k] = (float) hvQ;
+            i[2][k] = (float) hvI;
+            q[2][k] = (float) hvQ;
+            i[3][k] = (float) (0.7 * hhI + 0.5 * random.nextGaussian());
+            q[3][k] = (float) (0.7 * hhQ + 0.5 * random.nextGaussian());
+        }
+        for (int p = 0; p < pols.length; p++) {
+            addBand(product, "i_" + pols[p], Unit.REAL, i[p]);
+            addBand(product, "q_" + pols[p], Unit.IMAGINARY, q[p]);
+        }
+        return product;
+    }
+
+    /**
+     * Fringes of varying frequency with phase noise.
+     */
+    private static Product createInterferogramProduct() {
+        final Product product = createProduct("interferogram", "COMPLEX");
+        final Random random = new Random(42);
+        final float[] i = new float[IMAGE_SIZE * IMAGE_SIZE];
+        final float[] q = new float[IMAGE_SIZE * IMAGE_SIZE];
+        for (int y = 0; y < IMAGE_SIZE; y++) {
+            for (int x = 0; x < IMAGE_SIZE; x++) {
+                final double phase = 2e-4 * x * x + 0.05 * y + 0.8 * random.nextGaussian();
+                i[y * IMAGE_SIZE + x] = (float) Math.cos(phase);
+                q[y * IMAGE_SIZE + x] = (float) Math.sin(phase);
+            }
+        }
+        addBand(product, "i_ifg", Unit.REAL, i);
+        addBand(product, "q_ifg", Unit.IMAGINARY, q);
+        return product;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.benchmark;
+
+import org.esa.s1tbx.insar.gpf.geometric.SARGeocoding;
+import org.esa.snap.datamodel.OrbitStateVector;
+import org.esa.snap.datamodel.PosVector;
+import org.esa.snap.eo.Constants;
+import org.esa.snap.eo.GeoUtils;
+import org.esa.snap.framework.datamodel.GeoPos;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the geocoding kernels on a synthetic circular orbit: the zero Doppler time search, the Lagrange
+ * interpolation of the orbit state vectors and the per pixel loop of range Doppler terrain correction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeocodingBenchmark {
+
+    private static final double EARTH_RADIUS = 6371000.0;
+    private static final double ORBIT_RADIUS = 7071000.0;
+    private static final double INCLINATION = Math.toRadians(98.2);
+    private static final double ANGULAR_VELOCITY = 2.0 * Math.PI / 5920.0;  // radians per second
+    private static final double WAVELENGTH = 0.0555;
+
+    private static final double FIRST_LINE_UTC = 5600.0;                    // MJD
+    private static final double LINE_TIME_INTERVAL = 0.002 / Constants.secondsInDay;
+    private static final int NUM_LINES = 10000;
+    private static final double STATE_VECTOR_INTERVAL = 10.0;               // seconds
+    private static final int NUM_STATE_VECTORS = 17;
+
+    private static final int GRID_SIZE = 64;                                // pixels per tile side
+    private static final double RANGE_SPACING = 2.33;
+    private static final double NEAR_EDGE_SLANT_RANGE = 800000.0;
+
+    private SARGeocoding.Orbit orbit;
+    private PosVector[] earthPoints;
+    private double[] lineTimes;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] heights;
+    private int next = 0;
+
+    private final PosVector position = new PosVector();
+    private final PosVector velocity = new PosVector();
+    private final PosVector earthPoint = new PosVector();
+    private final PosVector sensorPos = new PosVector();
+
+    @Setup
+    public void setup() {
+        final double sceneMid = FIRST_LINE_UTC + NUM_LINES / 2 * LINE_TIME_INTERVAL;
+        final OrbitStateVector[] stateVectors = new OrbitStateVector[NUM_STATE_VECTORS];
+        for (int i = 0; i < NUM_STATE_VECTORS; i++) {
+            final double t = (i - NUM_STATE_VECTORS / 2) * STATE_VECTOR_INTERVAL;
+            final double[] pos = new double[3];
+            final double[] vel = new double[3];
+            getOrbitState(t, pos, vel);
+            stateVectors[i] = new OrbitStateVector(new ProductData.UTC(sceneMid + t / Constants.secondsInDay),
+                    pos[0], pos[1], pos[2], vel[0], vel[1], vel[2]);
+        }
+        orbit = new SARGeocoding.Orbit(stateVectors, FIRST_LINE_UTC, LINE_TIME_INTERVAL, NUM_LINES);
+
+        // earth points seen from the whole scene, at incidence angles of about 30 to 45 degrees
+        final Random random = new Random(42);
+        final int numPoints = GRID_SIZE * GRID_SIZE;
+        earthPoints = new PosVector[numPoints];
+        lineTimes = new double[numPoints];
+        latitudes = new double[numPoints];
+        longitudes = new double[numPoints];
+        heights = new double[numPoints];
+        final GeoPos geoPos = new GeoPos();
+        for (int i = 0; i < numPoints; i++) {
+            final double line = (i / GRID_SIZE + random.nextDouble()) * (NUM_LINES - 1) / GRID_SIZE;
+            final double lookAngle = 0.06 + 0.04 * ((i % GRID_SIZE) + random.nextDouble()) / GRID_SIZE;
+            final double t = (line - NUM_LINES / 2) * LINE_TIME_INTERVAL * Constants.secondsInDay;
+            earthPoints[i] = getEarthPoint(t, lookAngle, 500.0 * random.nextDouble());
+            lineTimes[i] = FIRST_LINE_UTC + line * LINE_TIME_INTERVAL;
+
+            GeoUtils.xyz2geo(earthPoints[i].toArray(), geoPos);
+            latitudes[i] = geoPos.lat;
+            longitudes[i] = geoPos.lon;
+            heights[i] = 500.0 * random.nextDouble();
+        }
+    }
+
+    /**
+     * Position and velocity on a circular orbit, t seconds from the scene centre.
+     */
+    private static void getOrbitState(final double t, final double[] pos, final double[] vel) {
+        final double a = ANGULAR_VELOCITY * t;
+        final double cosI = Math.cos(INCLINATION);
+        final double sinI = Math.sin(INCLINATION);
+        pos[0] = ORBIT_RADIUS * Math.cos(a);
+        pos[1] = ORBIT_RADIUS * Math.sin(a) * cosI;
+        pos[2] = ORBIT_RADIUS * Math.sin(a) * sinI;
+        vel[0] = -ORBIT_RADIUS * ANGULAR_VELOCITY * Math.sin(a);
+        vel[1] = ORBIT_RADIUS * ANGULAR_VELOCITY * Math.cos(a) * cosI;
+        vel[2] = ORBIT_RADIUS * ANGULAR_VELOCITY * Math.cos(a) * sinI;
+    }
+
+    /**
+     * The earth point with zero Doppler time t seconds from the scene centre, offset from the ground track by the
+     * given angle seen from the earth centre.
+     */
+    private static PosVector getEarthPoint(final double t, final double angle, final double height) {
+        final double[] pos = new double[3];
+        final double[] vel = new double[3];
+        getOrbitState(t, pos, vel);
+        final double r = EARTH_RADIUS + height;
+        final double c = Math.cos(angle) * r / ORBIT_RADIUS;
+        final double s = Math.sin(angle) * r;
+        // normal of the orbit plane
+        final double nx = 0.0, ny = -Math.sin(INCLINATION), nz = Math.cos(INCLINATION);
+        return new PosVector(c * pos[0] + s * nx, c * pos[1] + s * ny, c * pos[2] + s * nz);
+    }
+
+    private int nextPoint() {
+        next = (next + 1) % earthPoints.length;
+        return next;
+    }
+
+    @Benchmark
+    public double zeroDopplerTime() {
+        return SARGeocoding.getEarthPointZeroDopplerTime(FIRST_LINE_UTC, LINE_TIME_INTERVAL, WAVELENGTH,
+                earthPoints[nextPoint()], orbit.sensorPosition, orbit.sensorVelocity);
+    }
+
+    @Benchmark
+    public void orbitLagrangeInterpolation(final Blackhole bh) {
+        orbit.getPositionVelocity(lineTimes[nextPoint()], position, velocity);
+        bh.consume(position);
+        bh.consume(velocity);
+    }
+
+    /**
+     * The per pixel computations of RangeDopplerGeocodingOp for one tile of a slant range image.
+     */
+    @Benchmark
+    public void rangeDopplerTile(final Blackhole bh) {
+        final double lastLineUTC = FIRST_LINE_UTC + (NUM_LINES - 1) * LINE_TIME_INTERVAL;
+        for (int i = 0; i < earthPoints.length; i++) {
+            GeoUtils.geo2xyzWGS84(latitudes[i], longitudes[i], heights[i], earthPoint);
+
+            double zeroDopplerTime = SARGeocoding.getEarthPointZeroDopplerTime(FIRST_LINE_UTC,
+                    LINE_TIME_INTERVAL, WAVELENGTH, earthPoint, orbit.sensorPosition, orbit.sensorVelocity);
+            if (Double.compare(zeroDopplerTime, SARGeocoding.NonValidZeroDopplerTime) == 0) {
+                continue;
+            }
+
+            double slantRange = SARGeocoding.computeSlantRange(zeroDopplerTime, orbit, earthPoint, sensorPos);
+            zeroDopplerTime += slantRange / Constants.lightSpeedInMetersPerDay;
+            slantRange = SARGeocoding.computeSlantRange(zeroDopplerTime, orbit, earthPoint, sensorPos);
+
+            final double rangeIndex = SARGeocoding.computeRangeIndex(false, 0, FIRST_LINE_UTC, lastLineUTC,
+                    RANGE_SPACING, zeroDopplerTime, slantRange, NEAR_EDGE_SLANT_RANGE, null);
+            final double azimuthIndex = (zeroDopplerTime - FIRST_LINE_UTC) / LINE_TIME_INTERVAL;
+            bh.consume(rangeIndex);
+            bh.consume(azimuthIndex);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.benchmark;
+
+import org.csa.rstb.polarimetric.gpf.PolOpUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the eigen decomposition of coherency matrices, as done per pixel by the polarimetric decompositions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PolarimetricBenchmark {
+
+    private static final int NUM_MATRICES = 1024;
+
+    @Param({"3", "4"})
+    private int n;
+
+    private double[][][] matricesRe;
+    private double[][][] matricesIm;
+    private double[][] eigenVectRe;
+    private double[][] eigenVectIm;
+    private double[] eigenVal;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        matricesRe = new double[NUM_MATRICES][n][n];
+        matricesIm = new double[NUM_MATRICES][n][n];
+
+        // averaged outer products of random scattering vectors, Hermitian and positive semi-definite
+        final int numLooks = 9;
+        for (int m = 0; m < NUM_MATRICES; m++) {
+            for (int look = 0; look < numLooks; look++) {
+                final double[] kr = new double[n];
+                final double[] ki = new double[n];
+                for (int i = 0; i < n; i++) {
+                    kr[i] = random.nextGaussian() * (n - i);
+                    ki[i] = random.nextGaussian() * (n - i);
+                }
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < n; j++) {
+                        matricesRe[m][i][j] += (kr[i] * kr[j] + ki[i] * ki[j]) / numLooks;
+                        matricesIm[m][i][j] += (ki[i] * kr[j] - kr[i] * ki[j]) / numLooks;
+                    }
+                }
+            }
+        }
+
+        eigenVectRe = new double[n][n];
+        eigenVectIm = new double[n][n];
+        eigenVal = new double[n];
+    }
+
+    @Benchmark
+    public void eigenDecomposition(final Blackhole bh) {
+        next = (next + 1) % NUM_MATRICES;
+        PolOpUtils.eigenDecomposition(n, matricesRe[next], matricesIm[next], eigenVectRe, eigenVectIm, eigenVal);
+        bh.consume(eigenVal);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.benchmark;
+
+import org.jblas.ComplexDoubleMatrix;
+import org.jblas.DoubleMatrix;
+import org.jlinda.core.utils.SarUtils;
+import org.jlinda.core.utils.SpectralUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the jlinda spectral kernels and the coherence estimator on a synthetic interferogram.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpectralBenchmark {
+
+    @Param({"128", "256"})
+    private int size;
+
+    private ComplexDoubleMatrix data;
+    private ComplexDoubleMatrix interferogram;
+    private ComplexDoubleMatrix norms;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        data = new ComplexDoubleMatrix(size, size);
+        interferogram = new ComplexDoubleMatrix(size, size);
+        norms = new ComplexDoubleMatrix(size, size);
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                data.put(r, c, random.nextGaussian(), random.nextGaussian());
+
+                // fringes with phase noise, and the master and slave intensities
+                final double phase = 0.05 * r + 0.11 * c + 0.5 * random.nextGaussian();
+                final double amplitude = 1.0 + random.nextDouble();
+                interferogram.put(r, c, amplitude * Math.cos(phase), amplitude * Math.sin(phase));
+                norms.put(r, c, amplitude * (1.0 + random.nextDouble()), amplitude * (1.0 + random.nextDouble()));
+            }
+        }
+    }
+
+    @Benchmark
+    public ComplexDoubleMatrix fftRows() {
+        return SpectralUtils.fft(data, 2);
+    }
+
+    @Benchmark
+    public ComplexDoubleMatrix fft2D() {
+        return SpectralUtils.fft2D(data);
+    }
+
+    @Benchmark
+    public DoubleMatrix coherence() {
+        return SarUtils.coherence2(interferogram, norms, 10, 2);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.benchmark;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for BenchmarkComparator.
+ */
+public class TestBenchmarkComparator {
+
+    private static final String BASELINE = "[" +
+            "{\"benchmark\":\"a.Fft.fft2D\",\"mode\":\"avgt\",\"params\":{\"size\":\"256\"}," +
+            "\"primaryMetric\":{\"score\":100.0,\"scoreError\":1.0,\"scoreUnit\":\"us/op\"}}," +
+            "{\"benchmark\":\"a.Fft.fft2D\",\"mode\":\"avgt\",\"params\":{\"size\":\"128\"}," +
+            "\"primaryMetric\":{\"score\":20.0,\"scoreError\":1.0,\"scoreUnit\":\"us/op\"}}," +
+            "{\"benchmark\":\"a.Orbit.interpolate\",\"mode\":\"thrpt\"," +
+            "\"primaryMetric\":{\"score\":1000.0,\"scoreError\":1.0,\"scoreUnit\":\"ops/ms\"}}" +
+            "]";
+
+    private static final String RESULT = "[" +
+            "{\"benchmark\":\"a.Fft.fft2D\",\"mode\":\"avgt\",\"params\":{\"size\":\"256\"}," +
+            "\"primaryMetric\":{\"score\":105.0,\"scoreError\":1.0,\"scoreUnit\":\"us/op\"}}," +
+            "{\"benchmark\":\"a.Fft.fft2D\",\"mode\":\"avgt\",\"params\":{\"size\":\"128\"}," +
+            "\"primaryMetric\":{\"score\":30.0,\"scoreError\":1.0,\"scoreUnit\":\"us/op\"}}," +
+            "{\"benchmark\":\"a.Orbit.interpolate\",\"mode\":\"thrpt\"," +
+            "\"primaryMetric\":{\"score\":800.0,\"scoreError\":1.0,\"scoreUnit\":\"ops/ms\"}}," +
+            "{\"benchmark\":\"a.Orbit.zeroDoppler\",\"mode\":\"avgt\"," +
+            "\"primaryMetric\":{\"score\":5.0,\"scoreError\":1.0,\"scoreUnit\":\"us/op\"}}" +
+            "]";
+
+    @Test
+    public void testCompare() throws IOException {
+        final Map<String, BenchmarkComparator.Score> baseline = BenchmarkComparator.readScores(write(BASELINE));
+        final Map<String, BenchmarkComparator.Score> result = BenchmarkComparator.readScores(write(RESULT));
+        assertEquals(3, baseline.size());
+        assertEquals(4, result.size());
+
+        // 5% slower passes, 50% slower and 25% less throughput fail, no baseline passes
+        final List<String> regressions = BenchmarkComparator.compare(baseline, result, 0.1);
+        assertEquals(2, regressions.size());
+        assertEquals("a.Fft.fft2D size=128", regressions.get(0));
+        assertEquals("a.Orbit.interpolate", regressions.get(1));
+
+        assertEquals(0, BenchmarkComparator.compare(baseline, result, 0.6).size());
+
+        final List<String> missing = BenchmarkComparator.getMissing(result, baseline);
+        assertEquals(1, missing.size());
+        assertEquals("a.Orbit.zeroDoppler", missing.get(0));
+        assertEquals(0, BenchmarkComparator.getMissing(baseline, result).size());
+    }
+
+    @Test
+    public void testMissingFromResult() throws IOException {
+        // a selective run of the FFT benchmarks only
+        final Map<String, BenchmarkComparator.Score> baseline = BenchmarkComparator.readScores(write(BASELINE));
+        final Map<String, BenchmarkComparator.Score> result = BenchmarkComparator.readScores(write(RESULT));
+        result.remove("a.Orbit.interpolate");
+        result.remove("a.Orbit.zeroDoppler");
+
+        final List<String> missing = BenchmarkComparator.getMissing(baseline, result);
+        assertEquals(1, missing.size());
+        assertEquals("a.Orbit.interpolate", missing.get(0));
+        assertEquals(0, BenchmarkComparator.getMissing(result, baseline).size());
+    }
+
+    @Test
+    public void testEmptyBaseline() throws IOException {
+        final Map<String, BenchmarkComparator.Score> baseline = BenchmarkComparator.readScores(write("[\n]"));
+        final Map<String, BenchmarkComparator.Score> result = BenchmarkComparator.readScores(write(RESULT));
+        assertEquals(0, baseline.size());
+
+        // nothing is compared, every benchmark is missing from the baseline
+        assertEquals(0, BenchmarkComparator.compare(baseline, result, 0.1).size());
+        assertEquals(4, BenchmarkComparator.getMissing(result, baseline).size());
+    }
+
+    private static File write(final String json) throws IOException {
+        final File file = File.createTempFile("jmh", ".json");
+        file.deleteOnExit();
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(json);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.io;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.dataio.ProductWriter;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.util.SystemUtils;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes band raster data of one output product from a dedicated thread.
+ * <p/>
+ * Callers hand over the data of a region and return as soon as it is queued, so computing the next tile overlaps
+ * with the disk I/O of the previous ones. Every output file gets its own writer and thread, so writes to different
+ * files do not wait for each other. The memory held by queued requests is bounded by a {@link MemoryLimit} which
+ * can be shared by all writers of an operator: when it is exhausted the callers block until data has been written.
+ * <p/>
+ * An error of the writer thread is rethrown to the next caller of {@link #writeBandRasterData}, {@link #flush()}
+ * or {@link #close()}.
+ */
+public final class AsyncProductWriter {
+
+    private static final WriteRequest END_OF_QUEUE = new WriteRequest(null, 0, 0, 0, 0, null, 0);
+
+    private final String name;
+    private final ProductWriter productWriter;
+    private final MemoryLimit memoryLimit;
+    private final BlockingQueue<WriteRequest> queue = new LinkedBlockingQueue<>();
+    private final Object lock = new Object();
+
+    private Thread writerThread = null;
+    private int pending = 0;
+    private boolean closed = false;
+    private IOException error = null;
+
+    // metrics, updated by the writer thread only
+    private volatile long bytesWritten = 0;
+    private volatile long requestsWritten = 0;
+    private volatile long busyNanos = 0;
+
+    /**
+     * @param name          name used for the thread and in the metrics, eg, the output file name
+     * @param productWriter the writer of the output product, its product nodes must have been written
+     * @param memoryLimit   the limit of the memory held by queued requests
+     */
+    public AsyncProductWriter(final String name, final ProductWriter productWriter, final MemoryLimit memoryLimit) {
+        this.name = name;
+        this.productWriter = productWriter;
+        this.memoryLimit = memoryLimit;
+    }
+
+    public ProductWriter getProductWriter() {
+        return productWriter;
+    }
+
+    /**
+     * Queue a region of band raster data to be written. Blocks while the memory limit is exhausted.
+     * The data buffer must not be modified by the caller afterwards.
+     *
+     * @throws IOException if a previous write failed or the writer is closed
+     */
+    public void writeBandRasterData(final Band band, final int offsetX, final int offsetY,
+                                    final int width, final int height, final ProductData data) throws IOException {
+
+        final int permits = memoryLimit.getPermits((long) data.getNumElems() * data.getElemSize());
+        synchronized (lock) {
+            checkState();
+            if (writerThread == null) {
+                writerThread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        drain();
+                    }
+                }, "AsyncProductWriter-" + name);
+                writerThread.setDaemon(true);
+                writerThread.start();
+            }
+            ++pending;
+        }
+
+        try {
+            memoryLimit.acquire(permits);
+        } catch (InterruptedException e) {
+            synchronized (lock) {
+                --pending;
+                lock.notifyAll();
+            }
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to write " + name, e);
+        }
+        queue.add(new WriteRequest(band, offsetX, offsetY, width, height, data, permits));
+    }
+
+    /**
+     * Wait until all queued requests have been written.
+     *
+     * @throws IOException if a write failed
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            while (pending > 0 && error == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while flushing " + name, e);
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * Write all queued requests, stop the writer thread and close the product writer.
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            synchronized (lock) {
+                if (!closed) {
+                    closed = true;
+                    if (writerThread != null) {
+                        queue.add(END_OF_QUEUE);
+                    }
+                }
+            }
+            if (requestsWritten > 0) {
+                SystemUtils.LOG.fine(getMetrics());
+            }
+            productWriter.close();
+        }
+    }
+
+    private void checkState() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+        if (closed) {
+            throw new IOException("Writer for " + name + " is closed");
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            final WriteRequest request;
+            try {
+                request = queue.take();
+            } catch (InterruptedException e) {
+                setError(new IOException("Writer thread of " + name + " interrupted", e));
+                return;
+            }
+            if (request == END_OF_QUEUE) {
+                return;
+            }
+
+            try {
+                if (error == null) {
+                    final long start = System.nanoTime();
+                    productWriter.writeBandRasterData(request.band, request.offsetX, request.offsetY,
+                                                      request.width, request.height, request.data,
+                                                      ProgressMonitor.NULL);
+                    busyNanos += System.nanoTime() - start;
+                    bytesWritten += (long) request.data.getNumElems() * request.data.getElemSize();
+                    requestsWritten++;
+                }
+            } catch (Throwable t) {
+                setError(t instanceof IOException ? (IOException) t : new IOException(t));
+            } finally {
+                memoryLimit.release(request.permits);
+                synchronized (lock) {
+                    --pending;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void setError(final IOException e) {
+        synchronized (lock) {
+            if (error == null) {
+                error = e;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getRequestsWritten() {
+        return requestsWritten;
+    }
+
+    /**
+     * @return the write throughput in MB/s measured over the time spent in the product writer
+     */
+    public double getThroughput() {
+        final long nanos = busyNanos;
+        return nanos == 0 ? 0.0 : (bytesWritten / (1024.0 * 1024.0)) / (nanos / 1.0e9);
+    }
+
+    public String getMetrics() {
+        return String.format("%s: %d requests, %.1f MB written in %.2f s (%.1f MB/s)", name, requestsWritten,
+                             bytesWritten / (1024.0 * 1024.0), busyNanos / 1.0e9, getThroughput());
+    }
+
+    private static final class WriteRequest {
+        final Band band;
+        final int offsetX, offsetY, width, height;
+        final ProductData data;
+        final int permits;
+
+        WriteRequest(final Band band, final int offsetX, final int offsetY, final int width, final int height,
+                     final ProductData data, final int permits) {
+            this.band = band;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.width = width;
+            this.height = height;
+            this.data = data;
+            this.permits = permits;
+        }
+    }
+
+    /**
+     * Bound of the memory held by queued write requests, in units of kilobytes.
+     * A single request larger than the limit is admitted alone.
+     */
+    public static final class MemoryLimit {
+
+        private final int maxPermits;
+        private final Semaphore semaphore;
+
+        public MemoryLimit(final long maxBytes) {
+            maxPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / 1024));
+            semaphore = new Semaphore(maxPermits, true);
+        }
+
+        /**
+         * @return a limit of a quarter of the maximum heap size
+         */
+        public static MemoryLimit createDefault() {
+            return new MemoryLimit(Runtime.getRuntime().maxMemory() / 4);
+        }
+
+        int getPermits(final long bytes) {
+            return (int) Math.min(maxPermits, Math.max(1, (bytes + 1023) / 1024));
+        }
+
+        void acquire(final int permits) throws InterruptedException {
+            semaphore.acquire(permits);
+        }
+
+        void release(final int permits) {
+            semaphore.release(permits);
+        }
+
+        public long getAvailableBytes() {
+            return semaphore.availablePermits() * 1024L;
+        }
+    }
+}
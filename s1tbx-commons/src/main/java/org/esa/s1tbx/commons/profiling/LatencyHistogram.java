@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.profiling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds with power of two buckets.
+ * <p/>
+ * Bucket i holds the values in [2^(i-1), 2^i), bucket 0 holds zero. Percentiles are therefore accurate to a
+ * factor of two, which is enough to tell a slow tile from a typical one. Any number of threads may record
+ * concurrently.
+ */
+public final class LatencyHistogram {
+
+    private static final int NUM_BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(final long nanos) {
+        final long value = Math.max(nanos, 0L);
+        buckets.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(value), NUM_BUCKETS - 1));
+        count.increment();
+        total.add(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return total.sum();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public double getMeanNanos() {
+        final long n = getCount();
+        return n == 0 ? 0.0 : (double) getTotalNanos() / n;
+    }
+
+    /**
+     * @param fraction the percentile as a fraction, eg, 0.99
+     * @return the upper bound of the bucket holding the percentile, at most the maximum recorded
+     */
+    public long getPercentileNanos(final double fraction) {
+        final long n = getCount();
+        if (n == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                final long upperBound = i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                return Math.min(upperBound, getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+}
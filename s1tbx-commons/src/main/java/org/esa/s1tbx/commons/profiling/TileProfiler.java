@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.profiling;
+
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.gpf.Operator;
+import org.esa.snap.util.SystemUtils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records where the time of computeTile and computeTileStack goes, per operator, and per target band for operators
+ * computing single band tiles: waiting for source tiles, DEM and orbit lookups, and the remaining compute time.
+ * <p/>
+ * Profiling is enabled by the system property snap.s1tbx.profiling=true. The report is written when the JVM
+ * exits, eg, at the end of a gpt graph run, to the directory given by snap.s1tbx.profiling.dir, by default
+ * the temporary directory. It consists of
+ * <ul>
+ * <li>s1tbx-profile-[time].json: per operator and band, the number of tiles and the count, total, mean,
+ * percentiles and maximum of the time per tile of each stage</li>
+ * <li>s1tbx-profile-[time].folded: the total time of each stage in microseconds, as stacks operator;stage,
+ * or operator;band;stage for single band tiles, to be rendered by flamegraph.pl</li>
+ * </ul>
+ * When profiling is disabled {@link #startTile} returns a shared timer whose methods do nothing.
+ */
+public final class TileProfiler {
+
+    public static final boolean ENABLED =
+            Boolean.getBoolean(SystemUtils.getApplicationContextId() + ".s1tbx.profiling");
+
+    public enum Stage {
+        SOURCE_TILE("getSourceTile"),
+        DEM("dem"),
+        ORBIT("orbit"),
+        /** the time of the tile not spent in the other stages, derived by the profiler */
+        COMPUTE("compute");
+
+        private final String label;
+
+        Stage(final String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final ConcurrentMap<String, Profile> profiles = new ConcurrentHashMap<>();
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread("TileProfiler report") {
+                @Override
+                public void run() {
+                    // the shutdown hook of the LogManager may already have closed the handlers of the logger
+                    final File dir = getReportDir();
+                    try {
+                        final String files = writeReportFiles(dir);
+                        if (files != null) {
+                            System.out.println("Tile profile written to " + files);
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Unable to write tile profile to " + dir + ": " + e.getMessage());
+                    }
+                }
+            });
+        }
+    }
+
+    private TileProfiler() {
+    }
+
+    /**
+     * Start timing a tile stack, in computeTileStack.
+     *
+     * @param operator the operator computing the tile stack
+     * @return the timer of the tile stack, to be finished when the tile stack is done
+     */
+    public static TileTimer startTile(final Operator operator) {
+        if (!ENABLED) {
+            return TileTimer.DISABLED;
+        }
+        return startTile(operator.getClass().getSimpleName(), null);
+    }
+
+    /**
+     * Start timing a tile of a band, in computeTile.
+     *
+     * @param operator   the operator computing the tile
+     * @param targetBand the band of the tile
+     * @return the timer of the tile, to be finished when the tile is done
+     */
+    public static TileTimer startTile(final Operator operator, final Band targetBand) {
+        if (!ENABLED) {
+            return TileTimer.DISABLED;
+        }
+        return startTile(operator.getClass().getSimpleName(), targetBand.getName());
+    }
+
+    static TileTimer startTile(final String operatorName) {
+        return startTile(operatorName, null);
+    }
+
+    static TileTimer startTile(final String operatorName, final String bandName) {
+        final String key = getKey(operatorName, bandName);
+        Profile profile = profiles.get(key);
+        if (profile == null) {
+            final Profile newProfile = new Profile(operatorName, bandName);
+            profile = profiles.putIfAbsent(key, newProfile);
+            if (profile == null) {
+                profile = newProfile;
+            }
+        }
+        return new TileTimer(profile);
+    }
+
+    private static String getKey(final String operatorName, final String bandName) {
+        return bandName == null ? operatorName : operatorName + ';' + bandName;
+    }
+
+    /**
+     * @return the histograms of the tile stacks of an operator, or null if none was recorded
+     */
+    static Profile getProfile(final String operatorName) {
+        return getProfile(operatorName, null);
+    }
+
+    /**
+     * @return the histograms of the tiles of a band of an operator, or null if none was recorded
+     */
+    static Profile getProfile(final String operatorName, final String bandName) {
+        return profiles.get(getKey(operatorName, bandName));
+    }
+
+    /**
+     * Discard everything recorded so far.
+     */
+    public static void reset() {
+        profiles.clear();
+    }
+
+    /**
+     * Write the JSON and folded stack reports of everything recorded so far to the report directory.
+     * Nothing is written if no tile was recorded.
+     */
+    public static void writeReport() {
+        final File dir = getReportDir();
+        try {
+            final String files = writeReportFiles(dir);
+            if (files != null) {
+                SystemUtils.LOG.info("Tile profile written to " + files);
+            }
+        } catch (IOException e) {
+            SystemUtils.LOG.warning("Unable to write tile profile to " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private static File getReportDir() {
+        return new File(System.getProperty(SystemUtils.getApplicationContextId() + ".s1tbx.profiling.dir",
+                                           System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @return the names of the files written, or null if no tile was recorded
+     */
+    private static synchronized String writeReportFiles(final File dir) throws IOException {
+        if (profiles.isEmpty()) {
+            return null;
+        }
+        final String name = "s1tbx-profile-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        final File jsonFile = new File(dir, name + ".json");
+        final File foldedFile = new File(dir, name + ".folded");
+        try (Writer writer = new FileWriter(jsonFile)) {
+            writeJson(writer);
+        }
+        try (Writer writer = new FileWriter(foldedFile)) {
+            writeFoldedStacks(writer);
+        }
+        return jsonFile + " and " + foldedFile;
+    }
+
+    /**
+     * Write the statistics of each operator as JSON.
+     */
+    public static void writeJson(final Writer writer) {
+        final PrintWriter out = new PrintWriter(writer);
+        out.println("{");
+        out.println("  \"profiles\": [");
+        final List<Profile> list = getSortedProfiles();
+        for (int p = 0; p < list.size(); p++) {
+            final Profile profile = list.get(p);
+            out.println("    {");
+            out.println("      \"operator\": \"" + escape(profile.operatorName) + "\",");
+            if (profile.bandName != null) {
+                out.println("      \"band\": \"" + escape(profile.bandName) + "\",");
+            }
+            out.println("      \"tiles\": " + profile.tileHistogram.getCount() + ',');
+            out.println("      \"tile\": " + toJson(profile.tileHistogram) + ',');
+            out.println("      \"stages\": {");
+            final Stage[] stages = Stage.values();
+            for (int s = 0; s < stages.length; s++) {
+                out.println("        \"" + stages[s].getLabel() + "\": " + toJson(profile.stageHistograms[s]) +
+                        (s < stages.length - 1 ? "," : ""));
+            }
+            out.println("      }");
+            out.println("    }" + (p < list.size() - 1 ? "," : ""));
+        }
+        out.println("  ]");
+        out.println("}");
+        out.flush();
+    }
+
+    /**
+     * Write the total time of each stage in microseconds in the folded stack format of flamegraph.pl,
+     * one line operator;stage time, or operator;band;stage time for single band tiles, per stage.
+     */
+    public static void writeFoldedStacks(final Writer writer) {
+        final PrintWriter out = new PrintWriter(writer);
+        for (Profile profile : getSortedProfiles()) {
+            final String frames = toFrame(profile.operatorName) + ';' +
+                    (profile.bandName != null ? toFrame(profile.bandName) + ';' : "");
+            for (Stage stage : Stage.values()) {
+                final long micros = profile.stageHistograms[stage.ordinal()].getTotalNanos() / 1000;
+                if (micros > 0) {
+                    out.println(frames + stage.getLabel() + ' ' + micros);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static List<Profile> getSortedProfiles() {
+        final List<Profile> list = new ArrayList<>(profiles.values());
+        Collections.sort(list, new Comparator<Profile>() {
+            @Override
+            public int compare(final Profile p1, final Profile p2) {
+                final int c = p1.operatorName.compareTo(p2.operatorName);
+                if (c != 0) {
+                    return c;
+                }
+                // the tile stacks of an operator come before its bands
+                if (p1.bandName == null || p2.bandName == null) {
+                    return p1.bandName == null ? (p2.bandName == null ? 0 : -1) : 1;
+                }
+                return p1.bandName.compareTo(p2.bandName);
+            }
+        });
+        return list;
+    }
+
+    private static String toJson(final LatencyHistogram histogram) {
+        return String.format(Locale.ENGLISH,
+                "{\"count\": %d, \"totalMs\": %.3f, \"meanMs\": %.3f, \"p50Ms\": %.3f, \"p90Ms\": %.3f, " +
+                        "\"p99Ms\": %.3f, \"maxMs\": %.3f}",
+                histogram.getCount(), histogram.getTotalNanos() / 1e6, histogram.getMeanNanos() / 1e6,
+                histogram.getPercentileNanos(0.5) / 1e6, histogram.getPercentileNanos(0.9) / 1e6,
+                histogram.getPercentileNanos(0.99) / 1e6, histogram.getMaxNanos() / 1e6);
+    }
+
+    private static String escape(final String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static String toFrame(final String s) {
+        // ';' separates the frames and ' ' the count
+        return s.replace(';', '_').replace(' ', '_');
+    }
+
+    /**
+     * The histograms of the tile stacks of one operator, or of the tiles of one of its bands.
+     */
+    static final class Profile {
+        final String operatorName;
+        final String bandName; // null for tile stacks
+        final LatencyHistogram tileHistogram = new LatencyHistogram();
+        final LatencyHistogram[] stageHistograms = new LatencyHistogram[Stage.values().length];
+
+        Profile(final String operatorName) {
+            this(operatorName, null);
+        }
+
+        Profile(final String operatorName, final String bandName) {
+            this.operatorName = operatorName;
+            this.bandName = bandName;
+            for (int i = 0; i < stageHistograms.length; i++) {
+                stageHistograms[i] = new LatencyHistogram();
+            }
+        }
+
+        /**
+         * @param tileNanos  the time of the whole tile
+         * @param stageNanos the time of each stage, the compute time is derived from the others
+         */
+        void record(final long tileNanos, final long[] stageNanos) {
+            tileHistogram.record(tileNanos);
+            long other = 0;
+            for (Stage stage : Stage.values()) {
+                if (stage != Stage.COMPUTE) {
+                    stageHistograms[stage.ordinal()].record(stageNanos[stage.ordinal()]);
+                    other += stageNanos[stage.ordinal()];
+                }
+            }
+            // stages timed by several threads of a tile can add up to more than the tile
+            stageHistograms[Stage.COMPUTE.ordinal()].record(Math.max(tileNanos - other, 0L));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.profiling;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Accumulates the time spent in each stage while one tile, or tile stack, is computed. The totals are
+ * recorded in the histograms of the operator by {@link #finish()}, so the shared histograms are
+ * updated once per tile whatever the number of timed calls.
+ * <p/>
+ * Typical use in computeTile, or in computeTileStack with {@code TileProfiler.startTile(this)}:
+ * <pre>
+ *     final TileTimer timer = TileProfiler.startTile(this, targetBand);
+ *     try {
+ *         final long start = timer.start();
+ *         final Tile sourceTile = getSourceTile(sourceBand, sourceRectangle);
+ *         timer.stop(TileProfiler.Stage.SOURCE_TILE, start);
+ *         ...
+ *     } finally {
+ *         timer.finish();
+ *     }
+ * </pre>
+ * When profiling is disabled all methods return immediately and the JIT removes the calls.
+ * <p/>
+ * {@link #start()} and {@link #stop} may be called from several threads working on the same tile. Calls made
+ * per pixel should use {@link #startSampled} and {@link #stopSampled} instead, from the thread computing the
+ * tile: only one call in {@link #SAMPLING_INTERVAL} per stage reads the clock and its time is scaled up.
+ */
+public final class TileTimer {
+
+    /**
+     * One per-pixel call in this many is timed. Prime, so that the calls made for each band of a stack are
+     * sampled evenly.
+     */
+    public static final int SAMPLING_INTERVAL = 17;
+
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    static final TileTimer DISABLED = new TileTimer(null);
+
+    private final TileProfiler.Profile profile;
+    private final long startTime;
+    private final AtomicLongArray stageNanos;
+    private final int[] sampleCountdown;
+
+    TileTimer(final TileProfiler.Profile profile) {
+        this.profile = profile;
+        if (profile != null) {
+            startTime = System.nanoTime();
+            stageNanos = new AtomicLongArray(TileProfiler.Stage.values().length);
+            sampleCountdown = new int[TileProfiler.Stage.values().length];
+        } else {
+            startTime = 0;
+            stageNanos = null;
+            sampleCountdown = null;
+        }
+    }
+
+    /**
+     * @return the start time to pass to {@link #stop}
+     */
+    public long start() {
+        if (!TileProfiler.ENABLED) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Add the time since start to a stage.
+     */
+    public void stop(final TileProfiler.Stage stage, final long start) {
+        if (!TileProfiler.ENABLED) {
+            return;
+        }
+        stageNanos.addAndGet(stage.ordinal(), System.nanoTime() - start);
+    }
+
+    /**
+     * @return the start time to pass to {@link #stopSampled}, or a marker if this call is not sampled
+     */
+    public long startSampled(final TileProfiler.Stage stage) {
+        if (!TileProfiler.ENABLED) {
+            return 0;
+        }
+        if (--sampleCountdown[stage.ordinal()] > 0) {
+            return NOT_SAMPLED;
+        }
+        sampleCountdown[stage.ordinal()] = SAMPLING_INTERVAL;
+        return System.nanoTime();
+    }
+
+    /**
+     * Add the time since start, scaled by the sampling interval, to a stage if the call was sampled.
+     */
+    public void stopSampled(final TileProfiler.Stage stage, final long start) {
+        if (!TileProfiler.ENABLED || start == NOT_SAMPLED) {
+            return;
+        }
+        stageNanos.addAndGet(stage.ordinal(), (System.nanoTime() - start) * SAMPLING_INTERVAL);
+    }
+
+    /**
+     * Record the stage times and the time of the whole tile. Call once, when the tile is done.
+     */
+    public void finish() {
+        if (!TileProfiler.ENABLED) {
+            return;
+        }
+        final long[] nanos = new long[stageNanos.length()];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = stageNanos.get(i);
+        }
+        profile.record(System.nanoTime() - startTime, nanos);
+    }
+}
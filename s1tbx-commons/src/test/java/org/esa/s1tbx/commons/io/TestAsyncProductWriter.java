@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.io;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.dataio.AbstractProductWriter;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test for AsyncProductWriter
+ */
+public class TestAsyncProductWriter {
+
+    private static final int WIDTH = 16;
+    private static final int NUM_LINES = 40;
+
+    private final Band band = new Band("band", ProductData.TYPE_FLOAT32, WIDTH, NUM_LINES);
+
+    /**
+     * Records the lines written, optionally slowly, and fails on a given line.
+     */
+    private static class RecordingWriter extends AbstractProductWriter {
+
+        final List<Integer> linesWritten = Collections.synchronizedList(new ArrayList<Integer>());
+        final long delayMillis;
+        final int failingLine;
+        volatile boolean closed = false;
+
+        RecordingWriter(final long delayMillis, final int failingLine) {
+            super(null);
+            this.delayMillis = delayMillis;
+            this.failingLine = failingLine;
+        }
+
+        @Override
+        protected void writeProductNodesImpl() throws IOException {
+        }
+
+        @Override
+        public void writeBandRasterData(final Band sourceBand, final int sourceOffsetX, final int sourceOffsetY,
+                                        final int sourceWidth, final int sourceHeight,
+                                        final ProductData sourceBuffer, final ProgressMonitor pm)
+                throws IOException {
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (sourceOffsetY == failingLine) {
+                throw new IOException("cannot write line " + sourceOffsetY);
+            }
+            linesWritten.add(sourceOffsetY);
+        }
+
+        @Override
+        public void flush() throws IOException {
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+        }
+
+        @Override
+        public void deleteOutput() throws IOException {
+        }
+    }
+
+    private void writeLines(final AsyncProductWriter writer) throws IOException {
+        for (int y = 0; y < NUM_LINES; y++) {
+            writer.writeBandRasterData(band, 0, y, WIDTH, 1, ProductData.createInstance(new float[WIDTH]));
+        }
+    }
+
+    private static void assertAllLinesInOrder(final RecordingWriter productWriter) {
+        assertEquals(NUM_LINES, productWriter.linesWritten.size());
+        for (int y = 0; y < NUM_LINES; y++) {
+            assertEquals(y, productWriter.linesWritten.get(y).intValue());
+        }
+    }
+
+    @Test
+    public void testWritesInOrder() throws IOException {
+        final RecordingWriter productWriter = new RecordingWriter(0, -1);
+        final AsyncProductWriter writer = new AsyncProductWriter("inOrder", productWriter,
+                                                                 AsyncProductWriter.MemoryLimit.createDefault());
+        writeLines(writer);
+        writer.flush();
+
+        assertAllLinesInOrder(productWriter);
+        assertEquals(NUM_LINES, writer.getRequestsWritten());
+        assertEquals(NUM_LINES * WIDTH * 4L, writer.getBytesWritten());
+        writer.close();
+    }
+
+    @Test
+    public void testFlushDrainsQueue() throws IOException {
+        final RecordingWriter productWriter = new RecordingWriter(2, -1);
+        final AsyncProductWriter writer = new AsyncProductWriter("flush", productWriter,
+                                                                 AsyncProductWriter.MemoryLimit.createDefault());
+        writeLines(writer);
+        writer.flush();
+
+        assertAllLinesInOrder(productWriter);
+        assertFalse(productWriter.closed);
+        writer.close();
+    }
+
+    @Test
+    public void testCloseDrainsQueue() throws IOException {
+        final RecordingWriter productWriter = new RecordingWriter(2, -1);
+        final AsyncProductWriter writer = new AsyncProductWriter("close", productWriter,
+                                                                 AsyncProductWriter.MemoryLimit.createDefault());
+        writeLines(writer);
+        writer.close();
+
+        assertAllLinesInOrder(productWriter);
+        assertTrue(productWriter.closed);
+        try {
+            writer.writeBandRasterData(band, 0, 0, WIDTH, 1, ProductData.createInstance(new float[WIDTH]));
+            fail("write after close");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testMemoryLimitSmallerThanRequest() throws IOException {
+        // every request is larger than the limit and is admitted alone
+        final RecordingWriter productWriter = new RecordingWriter(1, -1);
+        final AsyncProductWriter writer = new AsyncProductWriter("limit", productWriter,
+                                                                 new AsyncProductWriter.MemoryLimit(16));
+        writeLines(writer);
+        writer.close();
+
+        assertAllLinesInOrder(productWriter);
+    }
+
+    @Test
+    public void testWriterErrorReachesCaller() throws IOException {
+        final int failingLine = 3;
+        final RecordingWriter productWriter = new RecordingWriter(1, failingLine);
+        final AsyncProductWriter writer = new AsyncProductWriter("error", productWriter,
+                                                                 AsyncProductWriter.MemoryLimit.createDefault());
+        IOException error = null;
+        try {
+            writeLines(writer);
+            writer.flush();
+        } catch (IOException e) {
+            error = e;
+        }
+        assertTrue(error != null);
+        assertEquals("cannot write line " + failingLine, error.getMessage());
+
+        // nothing is written after the failure
+        assertEquals(failingLine, productWriter.linesWritten.size());
+
+        // the error is rethrown on close, which still closes the product writer
+        try {
+            writer.close();
+            fail("close after a failed write");
+        } catch (IOException e) {
+            assertEquals(error.getMessage(), e.getMessage());
+        }
+        assertTrue(productWriter.closed);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.profiling;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for LatencyHistogram
+ */
+public class TestLatencyHistogram {
+
+    @Test
+    public void testEmpty() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getTotalNanos());
+        assertEquals(0.0, histogram.getMeanNanos(), 0.0);
+        assertEquals(0, histogram.getPercentileNanos(0.5));
+        assertEquals(0, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void testStatistics() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+        histogram.record(1000);
+
+        assertEquals(5, histogram.getCount());
+        assertEquals(1006, histogram.getTotalNanos());
+        assertEquals(1006.0 / 5, histogram.getMeanNanos(), 1e-9);
+        assertEquals(1000, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        // buckets 0: {0}, 1: [1, 1], 2: [2, 3], 10: [512, 1023]
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+        histogram.record(600);
+
+        // the percentile is the upper bound of the bucket holding the rank ceil(fraction * count)
+        assertEquals(0, histogram.getPercentileNanos(0.0));
+        assertEquals(0, histogram.getPercentileNanos(0.2));
+        assertEquals(1, histogram.getPercentileNanos(0.4));
+        assertEquals(3, histogram.getPercentileNanos(0.5));
+        assertEquals(3, histogram.getPercentileNanos(0.8));
+
+        // the upper bound 1023 of the last bucket is limited to the maximum
+        assertEquals(600, histogram.getPercentileNanos(0.9));
+        assertEquals(600, histogram.getPercentileNanos(1.0));
+    }
+
+    @Test
+    public void testBucketBounds() {
+        // powers of two start a new bucket
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 9; i++) {
+            histogram.record(1023);
+        }
+        histogram.record(1024);
+        assertEquals(1023, histogram.getPercentileNanos(0.9));
+        assertEquals(1024, histogram.getPercentileNanos(1.0));
+    }
+
+    @Test
+    public void testExtremeValues() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        // negative durations from clock adjustments are recorded as zero
+        histogram.record(-5);
+        assertEquals(0, histogram.getTotalNanos());
+        assertEquals(0, histogram.getPercentileNanos(1.0));
+
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getMaxNanos());
+        assertEquals(Long.MAX_VALUE, histogram.getPercentileNanos(1.0));
+    }
+
+    @Test
+    public void testConcurrentRecord() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int numThreads = 4;
+        final int numValues = 10000;
+        final Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final long value = t + 1;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < numValues; i++) {
+                        histogram.record(value);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(numThreads * numValues, histogram.getCount());
+        assertEquals((1 + 2 + 3 + 4) * numValues, histogram.getTotalNanos());
+        assertEquals(4, histogram.getMaxNanos());
+        assertEquals(1, histogram.getPercentileNanos(0.25));
+        assertEquals(3, histogram.getPercentileNanos(0.5));
+        assertEquals(4, histogram.getPercentileNanos(1.0));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.commons.profiling;
+
+import org.esa.snap.util.SystemUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for TileTimer
+ */
+public class TestTileTimer {
+
+    private static final long MILLIS = 1000000L;
+
+    static {
+        // profiling is enabled when TileProfiler is loaded
+        System.setProperty(SystemUtils.getApplicationContextId() + ".s1tbx.profiling", "true");
+    }
+
+    @Before
+    public void setUp() {
+        assertTrue("TileProfiler was loaded before profiling was enabled", TileProfiler.ENABLED);
+        TileProfiler.reset();
+    }
+
+    @After
+    public void tearDown() {
+        // nothing is left for the report written at exit
+        TileProfiler.reset();
+    }
+
+    private static long getTotal(final TileProfiler.Profile profile, final TileProfiler.Stage stage) {
+        return profile.stageHistograms[stage.ordinal()].getTotalNanos();
+    }
+
+    @Test
+    public void testStages() throws InterruptedException {
+        final TileTimer timer = TileProfiler.startTile("StagesOp");
+        final long demStart = timer.start();
+        Thread.sleep(20);
+        timer.stop(TileProfiler.Stage.DEM, demStart);
+        Thread.sleep(10);
+        timer.finish();
+
+        final TileProfiler.Profile profile = TileProfiler.getProfile("StagesOp");
+        assertEquals(1, profile.tileHistogram.getCount());
+        assertTrue(getTotal(profile, TileProfiler.Stage.DEM) >= 20 * MILLIS);
+        assertEquals(0, getTotal(profile, TileProfiler.Stage.SOURCE_TILE));
+        assertEquals(0, getTotal(profile, TileProfiler.Stage.ORBIT));
+        assertTrue(getTotal(profile, TileProfiler.Stage.COMPUTE) >= 10 * MILLIS);
+
+        // the compute time is what the other stages leave of the tile
+        assertEquals(profile.tileHistogram.getTotalNanos(),
+                     getTotal(profile, TileProfiler.Stage.DEM) + getTotal(profile, TileProfiler.Stage.COMPUTE));
+    }
+
+    @Test
+    public void testNestedTiles() throws InterruptedException {
+        // the source tile of the outer operator is computed by the inner operator on the same thread
+        final TileTimer outer = TileProfiler.startTile("OuterOp");
+        final long sourceStart = outer.start();
+
+        final TileTimer inner = TileProfiler.startTile("InnerOp");
+        final long demStart = inner.start();
+        Thread.sleep(20);
+        inner.stop(TileProfiler.Stage.DEM, demStart);
+        inner.finish();
+
+        outer.stop(TileProfiler.Stage.SOURCE_TILE, sourceStart);
+        outer.finish();
+
+        final TileProfiler.Profile innerProfile = TileProfiler.getProfile("InnerOp");
+        final TileProfiler.Profile outerProfile = TileProfiler.getProfile("OuterOp");
+        assertEquals(1, innerProfile.tileHistogram.getCount());
+        assertEquals(1, outerProfile.tileHistogram.getCount());
+
+        // the stages of the inner tile are recorded for the inner operator only
+        assertTrue(getTotal(innerProfile, TileProfiler.Stage.DEM) >= 20 * MILLIS);
+        assertEquals(0, getTotal(outerProfile, TileProfiler.Stage.DEM));
+
+        // the whole inner tile is part of the source tile time of the outer tile
+        assertTrue(getTotal(outerProfile, TileProfiler.Stage.SOURCE_TILE) >=
+                           innerProfile.tileHistogram.getTotalNanos());
+        assertTrue(outerProfile.tileHistogram.getTotalNanos() >=
+                           getTotal(outerProfile, TileProfiler.Stage.SOURCE_TILE));
+    }
+
+    private static void recordTile(final String operatorName, final String bandName) throws InterruptedException {
+        final TileTimer timer = TileProfiler.startTile(operatorName, bandName);
+        Thread.sleep(2);
+        timer.finish();
+    }
+
+    @Test
+    public void testBandTiles() throws IOException, InterruptedException {
+        // an operator computing single band tiles has a profile per band, apart from its tile stacks
+        for (int i = 0; i < 3; i++) {
+            recordTile("BandOp", "Sigma0_VV");
+        }
+        recordTile("BandOp", "Sigma0_VH");
+        recordTile("BandOp", null);
+
+        assertEquals(3, TileProfiler.getProfile("BandOp", "Sigma0_VV").tileHistogram.getCount());
+        assertEquals(1, TileProfiler.getProfile("BandOp", "Sigma0_VH").tileHistogram.getCount());
+        assertEquals(1, TileProfiler.getProfile("BandOp").tileHistogram.getCount());
+
+        final StringWriter json = new StringWriter();
+        TileProfiler.writeJson(json);
+        assertTrue(json.toString().contains("\"band\": \"Sigma0_VV\""));
+        assertTrue(json.toString().contains("\"band\": \"Sigma0_VH\""));
+
+        // only the compute stage has a time: the tile stacks first, then the bands in order
+        final StringWriter folded = new StringWriter();
+        TileProfiler.writeFoldedStacks(folded);
+        final BufferedReader reader = new BufferedReader(new StringReader(folded.toString()));
+        final List<String> frames = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            frames.add(line.substring(0, line.lastIndexOf(';')));
+        }
+        assertEquals(Arrays.asList("BandOp", "BandOp;Sigma0_VH", "BandOp;Sigma0_VV"), frames);
+    }
+
+    @Test
+    public void testSampledStage() {
+        final TileTimer timer = TileProfiler.startTile("SampledOp");
+        int numSampled = 0;
+        for (int i = 0; i < 3 * TileTimer.SAMPLING_INTERVAL; i++) {
+            final long start = timer.startSampled(TileProfiler.Stage.ORBIT);
+            if (start != Long.MIN_VALUE) {
+                ++numSampled;
+            }
+            timer.stopSampled(TileProfiler.Stage.ORBIT, start);
+        }
+        timer.finish();
+
+        assertEquals(3, numSampled);
+        final TileProfiler.Profile profile = TileProfiler.getProfile("SampledOp");
+        assertEquals(1, profile.stageHistograms[TileProfiler.Stage.ORBIT.ordinal()].getCount());
+    }
+
+    @Test
+    public void testStagesLongerThanTile() {
+        // stages timed by several threads of a tile can add up to more than the tile
+        final TileProfiler.Profile profile = new TileProfiler.Profile("ThreadedOp");
+        profile.record(100, new long[]{60, 50, 0, 0});
+
+        assertEquals(60, getTotal(profile, TileProfiler.Stage.SOURCE_TILE));
+        assertEquals(50, getTotal(profile, TileProfiler.Stage.DEM));
+        assertEquals(0, getTotal(profile, TileProfiler.Stage.COMPUTE));
+    }
+}
@@ -0,0 +1,536 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.dataio.orbits;
+
+import org.esa.snap.datamodel.Orbits;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.util.SystemUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * JVM-wide store of Sentinel-1 POD orbit files.
+ * <p/>
+ * The validity windows of the files of an orbit folder are indexed once and the index is rebuilt only when the
+ * folder changes. The state vectors of an orbit file are read with a streaming parser the first time the file is
+ * used and written to a compact binary cache next to the application data, which is memory mapped on later runs.
+ * Parsed orbits are shared by all readers in the JVM, so a batch of products using the same orbit file parses
+ * its XML at most once.
+ */
+public final class SentinelOrbitStore {
+
+    private static final int CACHE_MAGIC = 0x53314f42;    // "S1OB"
+    private static final int CACHE_VERSION = 1;
+    private static final int MAX_CACHED_ORBITS = 32;
+
+    private static final Map<File, FolderIndex> folderIndices = new ConcurrentHashMap<>();
+
+    private static final Map<String, OrbitData> orbitCache = new LinkedHashMap<String, OrbitData>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, OrbitData> eldest) {
+            return size() > MAX_CACHED_ORBITS;
+        }
+    };
+
+    private static final Map<String, Object> loadLocks = new ConcurrentHashMap<>();
+
+    private SentinelOrbitStore() {
+    }
+
+    /**
+     * Find the orbit file of a folder whose validity window contains the given time.
+     *
+     * @param folder        the orbit folder
+     * @param prefix        the file name prefix, eg, S1A_OPER_AUX_POEORB_OPOD_
+     * @param stateVectorTime the time in MJD
+     * @return the orbit file or null if none is found
+     */
+    public static File findOrbitFile(final File folder, final String prefix, final double stateVectorTime) {
+        return getFolderIndex(folder).find(prefix, stateVectorTime);
+    }
+
+    /**
+     * Discard the index of a folder, eg, after files have been downloaded into it.
+     */
+    public static void invalidate(final File folder) {
+        folderIndices.remove(folder.getAbsoluteFile());
+    }
+
+    // synchronized as the file names are parsed with a shared DateFormat
+    private static synchronized FolderIndex getFolderIndex(final File folder) {
+        final File key = folder.getAbsoluteFile();
+        final long lastModified = key.lastModified();
+        FolderIndex index = folderIndices.get(key);
+        if (index == null || index.lastModified != lastModified) {
+            index = new FolderIndex(key, lastModified);
+            folderIndices.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Get the content of an orbit file, from memory, from the binary cache or by parsing the file.
+     *
+     * @param orbitFile the EOF file or a zip containing it
+     * @return the orbit data
+     * @throws IOException if the file cannot be read
+     */
+    public static OrbitData getOrbitData(final File orbitFile) throws IOException {
+        final String key = orbitFile.getAbsolutePath() + '_' + orbitFile.length() + '_' + orbitFile.lastModified();
+
+        synchronized (orbitCache) {
+            final OrbitData data = orbitCache.get(key);
+            if (data != null) {
+                return data;
+            }
+        }
+
+        // one loader per file, other files can be loaded concurrently
+        final Object newLock = new Object();
+        final Object existingLock = loadLocks.putIfAbsent(key, newLock);
+        final Object lock = existingLock != null ? existingLock : newLock;
+        synchronized (lock) {
+            try {
+                synchronized (orbitCache) {
+                    final OrbitData data = orbitCache.get(key);
+                    if (data != null) {
+                        return data;
+                    }
+                }
+
+                final File cacheFile = getCacheFile(orbitFile);
+                OrbitData data = readCache(cacheFile, orbitFile);
+                if (data == null) {
+                    data = parseOrbitFile(orbitFile);
+                    writeCache(cacheFile, orbitFile, data);
+                }
+
+                synchronized (orbitCache) {
+                    orbitCache.put(key, data);
+                }
+                return data;
+            } finally {
+                loadLocks.remove(key);
+            }
+        }
+    }
+
+    private static File getCacheFile(final File orbitFile) {
+        final File cacheFolder = new File(SystemUtils.getApplicationDataDir(), "orbit_cache");
+        return new File(cacheFolder, orbitFile.getName() + ".osv");
+    }
+
+    /**
+     * Content of an orbit file. Times are in MJD, state vectors are stored as x, y, z, vx, vy, vz per time.
+     */
+    public static final class OrbitData {
+
+        public final String mission;
+        public final String fileType;
+        public final String validityStart;
+        public final String validityStop;
+
+        private final double[] times;
+        private final double[] stateVectors;
+
+        OrbitData(final String mission, final String fileType, final String validityStart, final String validityStop,
+                  final double[] times, final double[] stateVectors) {
+            this.mission = mission;
+            this.fileType = fileType;
+            this.validityStart = validityStart;
+            this.validityStop = validityStop;
+            this.times = times;
+            this.stateVectors = stateVectors;
+        }
+
+        public int getNumVectors() {
+            return times.length;
+        }
+
+        public double getTime(final int i) {
+            return times[i];
+        }
+
+        public Orbits.OrbitVector getOrbitVector(final int i) {
+            final int k = 6 * i;
+            return new Orbits.OrbitVector(times[i], stateVectors[k], stateVectors[k + 1], stateVectors[k + 2],
+                                          stateVectors[k + 3], stateVectors[k + 4], stateVectors[k + 5]);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // parsing
+
+    static OrbitData parseOrbitFile(final File orbitFile) throws IOException {
+        if (orbitFile.getName().toLowerCase().endsWith(".zip")) {
+            try (ZipFile productZip = new ZipFile(orbitFile, ZipFile.OPEN_READ)) {
+                final Enumeration<? extends ZipEntry> entries = productZip.entries();
+                if (!entries.hasMoreElements()) {
+                    throw new IOException("Empty orbit zip file " + orbitFile);
+                }
+                try (InputStream stream = new BufferedInputStream(productZip.getInputStream(entries.nextElement()))) {
+                    return parseOrbitFile(stream, orbitFile.getName());
+                }
+            }
+        }
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(orbitFile))) {
+            return parseOrbitFile(stream, orbitFile.getName());
+        }
+    }
+
+    static OrbitData parseOrbitFile(final InputStream stream, final String name) throws IOException {
+        // DateFormat is not thread safe
+        final DateFormat orbitDateFormat = ProductData.UTC.createDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        String mission = null, fileType = null, validityStart = null, validityStop = null;
+        final List<double[]> osvList = new ArrayList<>();
+        int count = -1;
+
+        try {
+            final XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            final XMLStreamReader reader = factory.createXMLStreamReader(stream);
+            try {
+                boolean inFixedHeader = false;
+                double[] osv = null;
+                while (reader.hasNext()) {
+                    final int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        final String element = reader.getLocalName();
+                        if (osv != null) {
+                            switch (element) {
+                                case "UTC":
+                                    osv[0] = toMJD(reader.getElementText(), orbitDateFormat);
+                                    break;
+                                case "X":
+                                    osv[1] = Double.parseDouble(reader.getElementText());
+                                    break;
+                                case "Y":
+                                    osv[2] = Double.parseDouble(reader.getElementText());
+                                    break;
+                                case "Z":
+                                    osv[3] = Double.parseDouble(reader.getElementText());
+                                    break;
+                                case "VX":
+                                    osv[4] = Double.parseDouble(reader.getElementText());
+                                    break;
+                                case "VY":
+                                    osv[5] = Double.parseDouble(reader.getElementText());
+                                    break;
+                                case "VZ":
+                                    osv[6] = Double.parseDouble(reader.getElementText());
+                                    break;
+                                default:
+                                    break;
+                            }
+                        } else if (element.equals("OSV")) {
+                            osv = new double[7];
+                        } else if (element.equals("List_of_OSVs")) {
+                            final String countStr = reader.getAttributeValue(null, "count");
+                            if (countStr != null) {
+                                count = Integer.parseInt(countStr.trim());
+                            }
+                        } else if (element.equals("Fixed_Header")) {
+                            inFixedHeader = true;
+                        } else if (inFixedHeader) {
+                            switch (element) {
+                                case "Mission":
+                                    mission = reader.getElementText();
+                                    break;
+                                case "File_Type":
+                                    fileType = reader.getElementText();
+                                    break;
+                                case "Validity_Start":
+                                    validityStart = reader.getElementText();
+                                    break;
+                                case "Validity_Stop":
+                                    validityStop = reader.getElementText();
+                                    break;
+                                default:
+                                    break;
+                            }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        final String element = reader.getLocalName();
+                        if (element.equals("OSV")) {
+                            osvList.add(osv);
+                            osv = null;
+                        } else if (element.equals("Fixed_Header")) {
+                            inFixedHeader = false;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Unable to parse orbit file " + name + ": " + e.getMessage(), e);
+        }
+
+        if (count >= 0 && count != osvList.size()) {
+            SystemUtils.LOG.warning("SentinelOrbitStore: List_of_OSVs count = " + count + " but found " +
+                                            osvList.size() + " OSV in " + name);
+        }
+
+        osvList.sort(new Comparator<double[]>() {
+            @Override
+            public int compare(final double[] o1, final double[] o2) {
+                return Double.compare(o1[0], o2[0]);
+            }
+        });
+
+        final int n = osvList.size();
+        final double[] times = new double[n];
+        final double[] stateVectors = new double[6 * n];
+        for (int i = 0; i < n; i++) {
+            final double[] osv = osvList.get(i);
+            times[i] = osv[0];
+            System.arraycopy(osv, 1, stateVectors, 6 * i, 6);
+        }
+        return new OrbitData(mission, fileType, validityStart, validityStop, times, stateVectors);
+    }
+
+    private static double toMJD(final String utc, final DateFormat orbitDateFormat) throws IOException {
+        try {
+            return ProductData.UTC.parse(utc.replace("UTC=", "").replace("T", " "), orbitDateFormat).getMJD();
+        } catch (ParseException e) {
+            throw new IOException("Invalid orbit time " + utc, e);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // binary cache
+    //
+    // int magic, int version, long source length, long source last modified, 4 strings (int length + UTF-8),
+    // int number of vectors, then per vector the time and the 6 state vector components as doubles
+
+    private static OrbitData readCache(final File cacheFile, final File orbitFile) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(cacheFile, "r");
+             FileChannel channel = raf.getChannel()) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != CACHE_MAGIC || buffer.getInt() != CACHE_VERSION ||
+                    buffer.getLong() != orbitFile.length() || buffer.getLong() != orbitFile.lastModified()) {
+                return null;
+            }
+            final String mission = getString(buffer);
+            final String fileType = getString(buffer);
+            final String validityStart = getString(buffer);
+            final String validityStop = getString(buffer);
+
+            final int n = buffer.getInt();
+            if (n < 0 || buffer.remaining() != 7L * Double.BYTES * n) {
+                return null;
+            }
+            final double[] times = new double[n];
+            final double[] stateVectors = new double[6 * n];
+            buffer.asDoubleBuffer().get(times);
+            buffer.position(buffer.position() + n * Double.BYTES);
+            buffer.asDoubleBuffer().get(stateVectors);
+
+            return new OrbitData(mission, fileType, validityStart, validityStop, times, stateVectors);
+        } catch (Exception e) {
+            SystemUtils.LOG.fine("Ignoring orbit cache " + cacheFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeCache(final File cacheFile, final File orbitFile, final OrbitData data) {
+        final File folder = cacheFile.getParentFile();
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            return;
+        }
+
+        final byte[][] strings = {getBytes(data.mission), getBytes(data.fileType),
+                getBytes(data.validityStart), getBytes(data.validityStop)};
+        int size = 4 + 4 + 8 + 8 + 4 + 7 * Double.BYTES * data.times.length;
+        for (byte[] s : strings) {
+            size += 4 + (s == null ? 0 : s.length);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(CACHE_MAGIC).putInt(CACHE_VERSION).putLong(orbitFile.length()).putLong(orbitFile.lastModified());
+        for (byte[] s : strings) {
+            if (s == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(s.length).put(s);
+            }
+        }
+        buffer.putInt(data.times.length);
+        buffer.asDoubleBuffer().put(data.times);
+        buffer.position(buffer.position() + data.times.length * Double.BYTES);
+        buffer.asDoubleBuffer().put(data.stateVectors);
+        buffer.rewind();
+
+        // write to a temporary file and rename, so that other processes never see a partial cache
+        final File tmpFile = new File(folder, cacheFile.getName() + '.' + Thread.currentThread().getId() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+                out.getChannel().write(buffer);
+            }
+            if (!tmpFile.renameTo(cacheFile)) {
+                cacheFile.delete();
+                if (!tmpFile.renameTo(cacheFile)) {
+                    tmpFile.delete();
+                }
+            }
+        } catch (IOException e) {
+            SystemUtils.LOG.fine("Unable to write orbit cache " + cacheFile + ": " + e.getMessage());
+            tmpFile.delete();
+        }
+    }
+
+    private static byte[] getBytes(final String str) {
+        return str == null ? null : str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // folder index
+
+    /**
+     * Validity windows of the orbit files of a folder, sorted by validity start.
+     */
+    private static final class FolderIndex {
+
+        private final long lastModified;
+        private final String[] names;
+        private final File[] files;
+        private final double[] start;
+        private final double[] stop;
+        private double maxDuration = 0;
+
+        FolderIndex(final File folder, final long lastModified) {
+            this.lastModified = lastModified;
+
+            final List<Entry> entries = new ArrayList<>();
+            final File[] folderFiles = folder.listFiles();
+            if (folderFiles != null) {
+                for (File file : folderFiles) {
+                    final String name = file.getName().toUpperCase();
+                    if (!name.endsWith(".ZIP") && !name.endsWith(".EOF")) {
+                        continue;
+                    }
+                    try {
+                        final ProductData.UTC utcStart = SentinelPODOrbitFile.getValidityStartFromFilenameUTC(name);
+                        final ProductData.UTC utcEnd = SentinelPODOrbitFile.getValidityStopFromFilenameUTC(name);
+                        if (utcStart != null && utcEnd != null) {
+                            entries.add(new Entry(name, file, utcStart.getMJD(), utcEnd.getMJD()));
+                        }
+                    } catch (ParseException | RuntimeException e) {
+                        // not an orbit file name, skipped
+                        SystemUtils.LOG.fine("Ignoring orbit file " + file + ": " + e.getMessage());
+                    }
+                }
+            }
+            entries.sort(new Comparator<Entry>() {
+                @Override
+                public int compare(final Entry o1, final Entry o2) {
+                    return Double.compare(o1.start, o2.start);
+                }
+            });
+
+            final int n = entries.size();
+            names = new String[n];
+            files = new File[n];
+            start = new double[n];
+            stop = new double[n];
+            for (int i = 0; i < n; i++) {
+                final Entry entry = entries.get(i);
+                names[i] = entry.name;
+                files[i] = entry.file;
+                start[i] = entry.start;
+                stop[i] = entry.stop;
+                maxDuration = Math.max(maxDuration, entry.stop - entry.start);
+            }
+        }
+
+        File find(final String prefix, final double time) {
+            final String upperPrefix = prefix.toUpperCase();
+
+            // last file starting at or before the time, then back to the first one covering it
+            int i = Arrays.binarySearch(start, time);
+            if (i < 0) {
+                i = -(i + 1) - 1;
+            } else {
+                while (i + 1 < start.length && start[i + 1] == time) {
+                    ++i;
+                }
+            }
+            final double earliestStart = time - maxDuration;
+            for (; i >= 0 && start[i] >= earliestStart; i--) {
+                if (time < stop[i] && names[i].startsWith(upperPrefix)) {
+                    return files[i];
+                }
+            }
+            return null;
+        }
+
+        private static final class Entry {
+            final String name;
+            final File file;
+            final double start, stop;
+
+            Entry(final String name, final File file, final double start, final double stop) {
+                this.name = name;
+                this.file = file;
+                this.start = start;
+                this.stop = stop;
+            }
+        }
+    }
+}
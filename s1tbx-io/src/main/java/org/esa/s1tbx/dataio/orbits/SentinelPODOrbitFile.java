@@ -25,16 +25,8 @@ import org.esa.snap.framework.datamodel.ProductData;
 import org.esa.snap.framework.gpf.OperatorException;
 import org.esa.snap.util.Maths;
 import org.esa.snap.util.Settings;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+
 import java.io.File;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.net.URL;
 import java.text.DateFormat;
@@ -42,10 +34,7 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 /**
  * Sentinel POD Orbit File
@@ -127,68 +116,67 @@ public class SentinelPODOrbitFile extends BaseOrbitFile implements OrbitFile {
     }
 
     private File getDestFolder(final int year) {
-        final File orbitFileFolder;
-        if(orbitType.endsWith(RESTITUTED)) {
-            orbitFileFolder = new File(Settings.instance().get("OrbitFiles.sentinel1RESOrbitPath")+File.separator+year);
-        } else {
-            orbitFileFolder = new File(Settings.instance().get("OrbitFiles.sentinel1POEOrbitPath")+File.separator+year);
-        }
-        return orbitFileFolder;
+        return getOrbitFolder(orbitType, new File(Settings.instance().get("OrbitFiles.sentinel1RESOrbitPath")),
+                              new File(Settings.instance().get("OrbitFiles.sentinel1POEOrbitPath")), year);
+    }
+
+    /**
+     * Get the folder of the orbit files of a year.
+     *
+     * @param orbitType    the orbit type, eg, "Sentinel Restituted (Auto Download)"
+     * @param resOrbitPath the folder of the restituted orbit files
+     * @param poeOrbitPath the folder of the precise orbit files
+     * @param year         the year
+     * @return the folder of the year in the folder of the orbit type
+     */
+    static File getOrbitFolder(final String orbitType, final File resOrbitPath, final File poeOrbitPath,
+                               final int year) {
+        return new File(orbitType.startsWith(RESTITUTED) ? resOrbitPath : poeOrbitPath, String.valueOf(year));
+    }
+
+    /**
+     * @param orbitType     the orbit type, eg, "Sentinel Restituted (Auto Download)"
+     * @param missionPrefix the mission identifier, eg, S1A
+     * @return the prefix of the names of the orbit files of the orbit type
+     */
+    static String getOrbitFilePrefix(final String orbitType, final String missionPrefix) {
+        return missionPrefix + (orbitType.startsWith(RESTITUTED) ? "_OPER_AUX_RESORB_OPOD_" : "_OPER_AUX_POEORB_OPOD_");
     }
 
     private File findOrbitFile(final double stateVectorTime, final int year) {
 
-        final String prefix;
-        final File orbitFileFolder;
-        if(orbitType.startsWith(RESTITUTED)) {
-            prefix = "S1A_OPER_AUX_RESORB_OPOD_";
-            orbitFileFolder = new File(Settings.instance().get("OrbitFiles.sentinel1RESOrbitPath")+File.separator+year);
-        } else {
-            prefix = "S1A_OPER_AUX_POEORB_OPOD_";
-            orbitFileFolder = new File(Settings.instance().get("OrbitFiles.sentinel1POEOrbitPath")+File.separator+year);
-        }
+        final String prefix = getOrbitFilePrefix(orbitType, getMissionPrefix());
+        final File orbitFileFolder = getDestFolder(year);
 
-        final File[] files = orbitFileFolder.listFiles(new FilenameFilter() {
-            @Override
-            public boolean accept(File dir, String name) {
-                name = name.toUpperCase();
-                return (name.endsWith(".ZIP") || name.endsWith(".EOF")) && name.startsWith(prefix);
-            }
-        });
-        if(files == null || files.length == 0)
-            return null;
-
-        for(File file : files) {
-            try {
-                final String filename = file.getName();
-                final ProductData.UTC utcStart = SentinelPODOrbitFile.getValidityStartFromFilenameUTC(filename);
-                final ProductData.UTC utcEnd = SentinelPODOrbitFile.getValidityStopFromFilenameUTC(filename);
-                if(utcStart != null && utcEnd != null) {
-                    if(stateVectorTime >= utcStart.getMJD() && stateVectorTime < utcEnd.getMJD()) {
-                        return file;
-                    }
-                }
-            } catch (ParseException ignored) {
-            }
+        return SentinelOrbitStore.findOrbitFile(orbitFileFolder, prefix, stateVectorTime);
+    }
+
+    /**
+     * @return the mission identifier used in the orbit file names, eg, S1A
+     */
+    private String getMissionPrefix() {
+        final String mission = absRoot.getAttributeString(AbstractMetadata.MISSION, "").trim().toUpperCase();
+        if (mission.startsWith("SENTINEL-1") && mission.length() == 11) {
+            return "S1" + mission.charAt(10);
         }
-        return null;
+        return "S1A";
     }
 
     private void getRemoteFiles(final int year, final int month) throws Exception {
 
-        final File localFolder;
+        final File localFolder = getDestFolder(year);
         final URL remotePath;
-        if(orbitType.endsWith(RESTITUTED)) {
-            localFolder = new File(Settings.instance().get("OrbitFiles.sentinel1RESOrbitPath"), String.valueOf(year));
+        if(orbitType.startsWith(RESTITUTED)) {
             remotePath = new URL(Settings.instance().getPath("OrbitFiles.sentinel1RESOrbit_remotePath"));
         } else {
-            localFolder = new File(Settings.instance().get("OrbitFiles.sentinel1POEOrbitPath"), String.valueOf(year));
             remotePath = new URL(Settings.instance().getPath("OrbitFiles.sentinel1POEOrbit_remotePath"));
         }
 
         final File localFile = new File(localFolder, year + "-" + month + ".zip");
         final DownloadableArchive archive = new DownloadableArchive(localFile, remotePath);
         archive.getContentFiles();
+
+        SentinelOrbitStore.invalidate(localFolder);
     }
 
     /**
@@ -322,276 +310,21 @@ public class SentinelPODOrbitFile extends BaseOrbitFile implements OrbitFile {
 
     private void readOrbitFile() throws Exception {
 
-        try {
-            final DocumentBuilderFactory documentFactory = DocumentBuilderFactory.newInstance();
-            final DocumentBuilder documentBuilder = documentFactory.newDocumentBuilder();
-
-            final Document doc;
-            if(orbitFile.getName().toLowerCase().endsWith(".zip")) {
-                final ZipFile productZip = new ZipFile(orbitFile, ZipFile.OPEN_READ);
-                final Enumeration<? extends ZipEntry> entries = productZip.entries();
-                final ZipEntry zipEntry = entries.nextElement();
-
-                doc = documentBuilder.parse(productZip.getInputStream(zipEntry));
-            } else {
-                doc = documentBuilder.parse(orbitFile);
-            }
-
-            if (doc == null) {
-
-                System.out.println("SentinelPODOrbitFile.readOrbitFile: ERROR failed to create Document for orbit file");
-                return;
-            }
-
-            doc.getDocumentElement().normalize();
-
-            final NodeList nodeList = doc.getElementsByTagName("Earth_Explorer_File");
-            if (nodeList.getLength() != 1) {
-                System.out.println("SentinelPODOrbitFile.readOrbitFile: ERROR found this many Earth_Explorer_File " + nodeList.getLength());
-                return;
-            }
-
-            org.w3c.dom.Node fixedHeaderNode = null;
-            org.w3c.dom.Node variableHeaderNode = null;
-            org.w3c.dom.Node listOfOSVsNode = null;
-
-            final NodeList fileChildNodes = nodeList.item(0).getChildNodes();
-
-            for (int i = 0; i < fileChildNodes.getLength(); i++) {
-
-                final org.w3c.dom.Node fileChildNode = fileChildNodes.item(i);
-
-                if (fileChildNode.getNodeName().equals("Earth_Explorer_Header")) {
-
-                    final NodeList headerChildNodes = fileChildNode.getChildNodes();
-
-                    for (int j = 0; j < headerChildNodes.getLength(); j++) {
-
-                        final org.w3c.dom.Node headerChildNode = headerChildNodes.item(j);
-
-                        if (headerChildNode.getNodeName().equals("Fixed_Header")) {
-
-                            fixedHeaderNode = headerChildNode;
-
-                        }  else if (headerChildNode.getNodeName().equals("Variable_Header")) {
-
-                            variableHeaderNode = headerChildNode;
-                        }
-                    }
-
-                }  else if (fileChildNode.getNodeName().equals("Data_Block")) {
-
-                    final NodeList dataBlockChildNodes = fileChildNode.getChildNodes();
-
-                    for (int j = 0; j < dataBlockChildNodes.getLength(); j++) {
-
-                        final org.w3c.dom.Node dataBlockChildNode = dataBlockChildNodes.item(j);
-
-                        if (dataBlockChildNode.getNodeName().equals("List_of_OSVs")) {
-
-                            listOfOSVsNode = dataBlockChildNode;
-                        }
-                    }
-                }
-
-                if (fixedHeaderNode != null && variableHeaderNode != null && listOfOSVsNode != null) {
-                    break;
-                }
-            }
-
-            if (fixedHeaderNode != null) {
-
-                readFixedHeader(fixedHeaderNode);
-            }
-
-            // Don't need anything from Variable_Header.
-
-            if (listOfOSVsNode != null) {
-
-                readOSVList(listOfOSVsNode);
-            }
-
-        } catch (IOException e) {
-
-            System.out.println("SentinelPODOrbitFile.readOrbitFile: IOException " + e.getMessage());
+        final SentinelOrbitStore.OrbitData orbitData = SentinelOrbitStore.getOrbitData(orbitFile);
 
-        } catch (ParserConfigurationException e) {
-
-            System.out.println("SentinelPODOrbitFile.readOrbitFile: ParserConfigurationException " + e.getMessage());
-
-        } catch (SAXException e) {
-
-            System.out.println("SentinelPODOrbitFile.readOrbitFile: SAXException " + e.getMessage());
-        }
-    }
-
-    private void readFixedHeader(final org.w3c.dom.Node fixedHeaderNode) {
-
-        final NodeList fixedHeaderChildNodes = fixedHeaderNode.getChildNodes();
-
-        String mission = null;
-        String fileType = null;
-        String validityStart = null;
-        String validityStop = null;
-
-        for (int i = 0; i < fixedHeaderChildNodes.getLength(); i++) {
-
-            final org.w3c.dom.Node fixedHeaderChildNode = fixedHeaderChildNodes.item(i);
-
-            if (fixedHeaderChildNode.getNodeName().equals("Mission")) {
-
-                mission = fixedHeaderChildNode.getTextContent();
-
-            } else if (fixedHeaderChildNode.getNodeName().equals("File_Type")) {
-
-                fileType = fixedHeaderChildNode.getTextContent();
-
-            } else if (fixedHeaderChildNode.getNodeName().equals("Validity_Period")) {
-
-                final NodeList validityPeriodChildNodes = fixedHeaderChildNode.getChildNodes();
-
-                for (int j = 0; j < validityPeriodChildNodes.getLength(); j++) {
-
-                    final org.w3c.dom.Node validityPeriodChildNode = validityPeriodChildNodes.item(j);
-
-                    if (validityPeriodChildNode.getNodeName().equals("Validity_Start")) {
-
-                        validityStart = validityPeriodChildNode.getTextContent();
-
-                    } else if (validityPeriodChildNode.getNodeName().equals("Validity_Stop")) {
-
-                        validityStop = validityPeriodChildNode.getTextContent();
-                    }
-                }
-            }
-
-            if (mission != null && fileType != null && validityStart != null && validityStop != null) {
-
-                fixedHeader = new FixedHeader(mission, fileType, validityStart, validityStop);
-                break;
-            }
-        }
-    }
-
-    private void readOSVList(final org.w3c.dom.Node listOfOSVsNode) throws Exception {
-
-        final org.w3c.dom.Node attrCount = getAttributeFromNode(listOfOSVsNode, "count");
-
-        if (attrCount == null) {
-            return;
+        if (orbitData.mission != null && orbitData.fileType != null &&
+                orbitData.validityStart != null && orbitData.validityStop != null) {
+            fixedHeader = new FixedHeader(orbitData.mission, orbitData.fileType,
+                                          orbitData.validityStart, orbitData.validityStop);
         }
 
-        final int count = Integer.parseInt(attrCount.getTextContent());
-
-        //System.out.println("SentinelPODOrbitFile.readOSVList: List_of_OSVs count = " + count);
-
-        org.w3c.dom.Node childNode = listOfOSVsNode.getFirstChild();
-        int osvCnt = 0;
-
-        while (childNode != null) {
-
-            if (childNode.getNodeName().equals("OSV")) {
-
-                osvCnt++;
-                readOneOSV(childNode);
-            }
-
-            childNode = childNode.getNextSibling();
-        }
-
-        Collections.sort(osvList, new Orbits.OrbitComparator());
-
-        //System.out.println("SentinelPODOrbitFile.readOSVList: osvCnt = " + osvCnt);
-
-        if (count != osvCnt) {
-
-            System.out.println("SentinelPODOrbitFile.readOSVList: WARNING List_of_OSVs count = " + count + " but found only " + osvCnt + " OSV");
+        osvList.clear();
+        final int numVectors = orbitData.getNumVectors();
+        for (int i = 0; i < numVectors; i++) {
+            osvList.add(orbitData.getOrbitVector(i));
         }
     }
 
-    private void readOneOSV(final org.w3c.dom.Node osvNode) throws Exception {
-
-        String utc = "";
-        double x = 0.0;
-        double y = 0.0;
-        double z = 0.0;
-        double vx = 0.0;
-        double vy = 0.0;
-        double vz = 0.0;
-
-        org.w3c.dom.Node childNode = osvNode.getFirstChild();
-
-        while (childNode != null) {
-
-            switch (childNode.getNodeName()) {
-                case "UTC": {
-                    utc = childNode.getTextContent();
-                }
-                    break;
-                case "X": {
-                    x = Double.parseDouble(childNode.getTextContent());
-                }
-                    break;
-                case "Y": {
-                    y = Double.parseDouble(childNode.getTextContent());
-                }
-                    break;
-                case "Z": {
-                    z = Double.parseDouble(childNode.getTextContent());
-                }
-                    break;
-                case "VX": {
-                    vx = Double.parseDouble(childNode.getTextContent());
-                }
-                    break;
-                case "VY": {
-                    vy = Double.parseDouble(childNode.getTextContent());
-                }
-                    break;
-                case "VZ": {
-                    vz = Double.parseDouble(childNode.getTextContent());
-                }
-                    break;
-                default:
-                    break;
-            }
-
-            childNode = childNode.getNextSibling();
-        }
-
-        final double utcTime =  toUTC(utc).getMJD();
-
-        osvList.add(new Orbits.OrbitVector(utcTime, x, y, z, vx, vy, vz));
-    }
-
-    // TODO This is copied from Sentinel1Level0Reader.java; may be we should put in in some utilities class.
-    private org.w3c.dom.Node getAttributeFromNode(final org.w3c.dom.Node node, final String attrName) {
-
-        // Will look for attribute called attrName in the given node
-
-        NamedNodeMap attr = node.getAttributes();
-
-        org.w3c.dom.Node attrNode = null;
-
-        for (int j = 0; j < attr.getLength(); j++) {
-
-            if (attr.item(j).getNodeName().equals(attrName)) {
-                if (attrNode == null) {
-                    attrNode = attr.item(j);
-                } else {
-                    // Should not be possible
-                    System.out.println("SentinelPODOrbitFile.getAttributeFromNode: WARNING more than one " + attrName + " in " + node.getNodeName());
-                }
-            }
-        }
-
-        if (attrNode == null) {
-            System.out.println("SentinelPODOrbitFile.getAttributeFromNode: Failed to find " + attrName + " in " + node.getNodeName());
-        }
-
-        return attrNode;
-    }
-
     private static String convertUTC(String utc) {
 
         return utc.replace("UTC=","").replace("T"," ");
@@ -829,20 +829,10 @@ public class Sentinel1Level1Directory extends XMLProductDirectory implements Sen
         final double subSamplingX = (double) sceneRasterWidth / (newGridWidth - 1);
         final double subSamplingY = (double) sceneRasterHeight / (newGridHeight - 1);
 
-        getListInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, gridWidth, gridHeight, x, y, latList,
-                newGridWidth, newGridHeight, subSamplingX, subSamplingY, newLatList);
-
-        getListInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, gridWidth, gridHeight, x, y, lngList,
-                newGridWidth, newGridHeight, subSamplingX, subSamplingY, newLonList);
-
-        getListInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, gridWidth, gridHeight, x, y, incidenceAngleList,
-                newGridWidth, newGridHeight, subSamplingX, subSamplingY, newIncList);
-
-        getListInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, gridWidth, gridHeight, x, y, elevAngleList,
-                newGridWidth, newGridHeight, subSamplingX, subSamplingY, newElevList);
-
-        getListInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, gridWidth, gridHeight, x, y, rangeTimeList,
-                newGridWidth, newGridHeight, subSamplingX, subSamplingY, newslrtList);
+        getListsInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, gridWidth, gridHeight, x, y,
+                new double[][]{latList, lngList, incidenceAngleList, elevAngleList, rangeTimeList},
+                newGridWidth, newGridHeight, subSamplingX, subSamplingY,
+                new float[][]{newLatList, newLonList, newIncList, newElevList, newslrtList});
 
         TiePointGrid latGrid = product.getTiePointGrid(pre + OperatorUtils.TPG_LATITUDE);
         if (latGrid == null) {
@@ -926,14 +916,31 @@ public class Sentinel1Level1Directory extends XMLProductDirectory implements Sen
             final int targetGridWidth, final int targetGridHeight, final double subSamplingX, final double subSamplingY,
             final float[] targetPointList) {
 
-        if (sourcePointList.length != sourceGridWidth * sourceGridHeight) {
-            throw new IllegalArgumentException(
-                    "Original tie point array size does not match 'sourceGridWidth' x 'sourceGridHeight'");
-        }
+        getListsInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, sourceGridWidth, sourceGridHeight, x, y,
+                new double[][]{sourcePointList}, targetGridWidth, targetGridHeight, subSamplingX, subSamplingY,
+                new float[][]{targetPointList});
+    }
 
-        if (targetPointList.length != targetGridWidth * targetGridHeight) {
-            throw new IllegalArgumentException(
-                    "Target tie point array size does not match 'targetGridWidth' x 'targetGridHeight'");
+    /**
+     * Resample several point lists sharing the same source grid onto an evenly spaced grid. The interpolation
+     * weights are found once per target point and applied to all the lists.
+     */
+    public static void getListsInEvenlySpacedGrid(
+            final int sceneRasterWidth, final int sceneRasterHeight, final int sourceGridWidth,
+            final int sourceGridHeight, final int[] x, final int[] y, final double[][] sourcePointLists,
+            final int targetGridWidth, final int targetGridHeight, final double subSamplingX, final double subSamplingY,
+            final float[][] targetPointLists) {
+
+        for (int l = 0; l < sourcePointLists.length; l++) {
+            if (sourcePointLists[l].length != sourceGridWidth * sourceGridHeight) {
+                throw new IllegalArgumentException(
+                        "Original tie point array size does not match 'sourceGridWidth' x 'sourceGridHeight'");
+            }
+
+            if (targetPointLists[l].length != targetGridWidth * targetGridHeight) {
+                throw new IllegalArgumentException(
+                        "Target tie point array size does not match 'targetGridWidth' x 'targetGridHeight'");
+            }
         }
 
         int k = 0;
@@ -976,11 +983,15 @@ public class Sentinel1Level1Directory extends XMLProductDirectory implements Sen
                 }
                 final double wi = (newX - oldX0) / (oldX1 - oldX0);
 
-                targetPointList[k++] = (float)(MathUtils.interpolate2D(wi, wj,
-                        sourcePointList[i0 + j0 * sourceGridWidth],
-                        sourcePointList[i1 + j0 * sourceGridWidth],
-                        sourcePointList[i0 + j1 * sourceGridWidth],
-                        sourcePointList[i1 + j1 * sourceGridWidth]));
+                for (int l = 0; l < sourcePointLists.length; l++) {
+                    final double[] sourcePointList = sourcePointLists[l];
+                    targetPointLists[l][k] = (float)(MathUtils.interpolate2D(wi, wj,
+                            sourcePointList[i0 + j0 * sourceGridWidth],
+                            sourcePointList[i1 + j0 * sourceGridWidth],
+                            sourcePointList[i0 + j1 * sourceGridWidth],
+                            sourcePointList[i1 + j1 * sourceGridWidth]));
+                }
+                ++k;
             }
         }
     }
@@ -0,0 +1,58 @@
+package org.esa.s1tbx.dataio.orbits;
+
+import org.esa.snap.datamodel.Orbits;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * To test SentinelOrbitStore
+ */
+public class TestSentinelOrbitStore {
+
+    private final static String EOF =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<Earth_Explorer_File><Earth_Explorer_Header><Fixed_Header>" +
+            "<File_Name>S1A_OPER_AUX_RESORB_OPOD_20140611T152302_V20140525T151921_20140525T183641</File_Name>" +
+            "<Mission>Sentinel-1A</Mission><File_Type>AUX_RESORB</File_Type>" +
+            "<Validity_Period><Validity_Start>UTC=2014-05-25T15:19:21</Validity_Start>" +
+            "<Validity_Stop>UTC=2014-05-25T18:36:41</Validity_Stop></Validity_Period>" +
+            "</Fixed_Header><Variable_Header/></Earth_Explorer_Header>" +
+            "<Data_Block type=\"xml\"><List_of_OSVs count=\"2\">" +
+            "<OSV><TAI>TAI=2014-05-25T15:19:45.698661</TAI><UTC>UTC=2014-05-25T15:19:31.698661</UTC>" +
+            "<X unit=\"m\">5395921.549047</X><Y unit=\"m\">4569598.713485</Y><Z unit=\"m\">-24264.632489</Z>" +
+            "<VX unit=\"m/s\">1055.857604</VX><VY unit=\"m/s\">-1152.930473</VY><VZ unit=\"m/s\">7433.464958</VZ></OSV>" +
+            "<OSV><TAI>TAI=2014-05-25T15:19:35.698661</TAI><UTC>UTC=2014-05-25T15:19:21.698661</UTC>" +
+            "<X unit=\"m\">5385157.178934</X><Y unit=\"m\">4581079.075900</Y><Z unit=\"m\">-98597.029370</Z>" +
+            "<VX unit=\"m/s\">1097.015759</VX><VY unit=\"m/s\">-1143.130525</VY><VZ unit=\"m/s\">7433.180927</VZ></OSV>" +
+            "</List_of_OSVs></Data_Block></Earth_Explorer_File>";
+
+    @Test
+    public void testParseOrbitFile() throws Exception {
+        final SentinelOrbitStore.OrbitData data = SentinelOrbitStore.parseOrbitFile(
+                new ByteArrayInputStream(EOF.getBytes(StandardCharsets.UTF_8)), "test.EOF");
+
+        assertEquals("Sentinel-1A", data.mission);
+        assertEquals("AUX_RESORB", data.fileType);
+        assertEquals("UTC=2014-05-25T15:19:21", data.validityStart);
+        assertEquals("UTC=2014-05-25T18:36:41", data.validityStop);
+        assertEquals(2, data.getNumVectors());
+
+        // sorted by time
+        final Orbits.OrbitVector first = data.getOrbitVector(0);
+        assertEquals(SentinelPODOrbitFile.toUTC("UTC=2014-05-25T15:19:21.698661").getMJD(), first.utcMJD, 1e-10);
+        assertEquals(5385157.178934, first.xPos, 0.0);
+        assertEquals(4581079.075900, first.yPos, 0.0);
+        assertEquals(-98597.029370, first.zPos, 0.0);
+        assertEquals(1097.015759, first.xVel, 0.0);
+        assertEquals(-1143.130525, first.yVel, 0.0);
+        assertEquals(7433.180927, first.zVel, 0.0);
+
+        final Orbits.OrbitVector second = data.getOrbitVector(1);
+        assertEquals(SentinelPODOrbitFile.toUTC("UTC=2014-05-25T15:19:31.698661").getMJD(), second.utcMJD, 1e-10);
+        assertEquals(5395921.549047, second.xPos, 0.0);
+    }
+}
@@ -12,6 +12,8 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 
 import static org.junit.Assert.*;
 
@@ -164,4 +166,58 @@ public class TestSentinelPODOrbitFile {
         final ProductData.UTC utcEnd = SentinelPODOrbitFile.getValidityStopFromFilenameUTC(name);
         assertEquals(5258.775474537037, utcEnd.getMJD(), 0.00001);
     }
+
+    @Test
+    public void testFindRestitutedOrbitFile() throws Exception {
+        final File root = Files.createTempDirectory("orbits").toFile();
+        try {
+            final File resOrbitPath = new File(root, "RESORB");
+            final File poeOrbitPath = new File(root, "POEORB");
+            final File resFile = createFile(new File(resOrbitPath, "2014"),
+                    "S1A_OPER_AUX_RESORB_OPOD_20140611T152302_V20140525T151921_20140525T183641.EOF");
+            final File poeFile = createFile(new File(poeOrbitPath, "2014"),
+                    "S1A_OPER_AUX_POEORB_OPOD_20140526T151322_V20140524T225944_20140526T005944.EOF");
+            // not orbit files, skipped
+            createFile(new File(resOrbitPath, "2014"), "readme.zip");
+            createFile(new File(resOrbitPath, "2014"),
+                    "S1A_OPER_AUX_RESORB_OPOD_20140611T152302_VXXXXXXXXTXXXXXX_20140525T183641.EOF");
+
+            final double time = SentinelPODOrbitFile.toUTC("UTC=2014-05-25T16:00:00").getMJD();
+
+            final String resType = SentinelPODOrbitFile.RESTITUTED + " (Auto Download)";
+            final File resFolder = SentinelPODOrbitFile.getOrbitFolder(resType, resOrbitPath, poeOrbitPath, 2014);
+            assertEquals(new File(resOrbitPath, "2014"), resFolder);
+            assertEquals(resFile, SentinelOrbitStore.findOrbitFile(
+                    resFolder, SentinelPODOrbitFile.getOrbitFilePrefix(resType, "S1A"), time));
+
+            final String poeType = SentinelPODOrbitFile.PRECISE + " (Auto Download)";
+            final File poeFolder = SentinelPODOrbitFile.getOrbitFolder(poeType, resOrbitPath, poeOrbitPath, 2014);
+            assertEquals(new File(poeOrbitPath, "2014"), poeFolder);
+            assertEquals(poeFile, SentinelOrbitStore.findOrbitFile(
+                    poeFolder, SentinelPODOrbitFile.getOrbitFilePrefix(poeType, "S1A"), time));
+        } finally {
+            deleteRecursively(root);
+        }
+    }
+
+    private static File createFile(final File folder, final String name) throws IOException {
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            throw new IOException("Unable to create " + folder);
+        }
+        final File file = new File(folder, name);
+        if (!file.createNewFile()) {
+            throw new IOException("Unable to create " + file);
+        }
+        return file;
+    }
+
+    private static void deleteRecursively(final File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                deleteRecursively(f);
+            }
+        }
+        file.delete();
+    }
 }
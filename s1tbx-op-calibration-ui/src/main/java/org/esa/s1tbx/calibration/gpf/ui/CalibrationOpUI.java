@@ -69,10 +69,12 @@ public class CalibrationOpUI extends BaseOperatorUI {
     private final JCheckBox outputGammaBandCheckBox = new JCheckBox("Output gamma0 band");
     private final JCheckBox outputBetaBandCheckBox = new JCheckBox("Output beta0 band");
     private final JCheckBox outputDNBandCheckBox = new JCheckBox("Output DN band");
+    private final JCheckBox removeThermalNoiseCheckBox = new JCheckBox("Remove thermal noise");
     private boolean outputSigmaBand = false;
     private boolean outputGammaBand = false;
     private boolean outputBetaBand = false;
     private boolean outputDNBand = false;
+    private boolean removeThermalNoise = false;
 
     @Override
     public JComponent CreateOpTab(String operatorName, Map<String, Object> parameterMap, AppContext appContext) {
@@ -165,6 +167,12 @@ public class CalibrationOpUI extends BaseOperatorUI {
             }
         });
 
+        removeThermalNoiseCheckBox.addItemListener(new ItemListener() {
+            public void itemStateChanged(ItemEvent e) {
+                removeThermalNoise = (e.getStateChange() == ItemEvent.SELECTED);
+            }
+        });
+
         return panel;
     }
 
@@ -209,6 +217,7 @@ public class CalibrationOpUI extends BaseOperatorUI {
                 outputGammaBandCheckBox.setVisible(false);
                 outputBetaBandCheckBox.setVisible(false);
                 outputDNBandCheckBox.setVisible(false);
+                removeThermalNoiseCheckBox.setVisible(false);
 
 //                if (mission.equals("RS2") || mission.contains("TSX") || mission.contains("ALOS")) {
                 if ((mission.equals("RS2") || mission.contains("ALOS")) && sampleType.equals("COMPLEX")) {
@@ -247,6 +256,7 @@ public class CalibrationOpUI extends BaseOperatorUI {
                     outputGammaBandCheckBox.setVisible(true);
                     outputBetaBandCheckBox.setVisible(true);
                     outputDNBandCheckBox.setVisible(true);
+                    removeThermalNoiseCheckBox.setVisible(true);
 
                 } else {
                     saveInComplexCheckBox.setEnabled(false);
@@ -304,6 +314,11 @@ public class CalibrationOpUI extends BaseOperatorUI {
             outputDNBand = paramVal;
             outputDNBandCheckBox.setSelected(outputDNBand);
         }
+        paramVal = (Boolean) paramMap.get("removeThermalNoise");
+        if (paramVal != null) {
+            removeThermalNoise = paramVal;
+            removeThermalNoiseCheckBox.setSelected(removeThermalNoise);
+        }
     }
 
     @Override
@@ -333,6 +348,7 @@ public class CalibrationOpUI extends BaseOperatorUI {
         paramMap.put("outputGammaBand", outputGammaBand);
         paramMap.put("outputBetaBand", outputBetaBand);
         paramMap.put("outputDNBand", outputDNBand);
+        paramMap.put("removeThermalNoise", removeThermalNoise);
     }
 
     private JComponent createPanel() {
@@ -367,6 +383,9 @@ public class CalibrationOpUI extends BaseOperatorUI {
         contentPane.add(createBeta0VirtualBandCheckBox, gbc);
         contentPane.add(outputDNBandCheckBox, gbc);
 
+        gbc.gridy++;
+        contentPane.add(removeThermalNoiseCheckBox, gbc);
+
         DialogUtils.fillPanel(contentPane, gbc);
 
         DialogUtils.enableComponents(polListLabel, polListPane, false);
@@ -374,6 +393,7 @@ public class CalibrationOpUI extends BaseOperatorUI {
         outputGammaBandCheckBox.setVisible(false);
         outputBetaBandCheckBox.setVisible(false);
         outputDNBandCheckBox.setVisible(false);
+        removeThermalNoiseCheckBox.setVisible(false);
 
         return contentPane;
     }
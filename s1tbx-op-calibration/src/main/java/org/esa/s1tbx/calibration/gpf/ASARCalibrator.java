@@ -46,6 +46,9 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Calibration for ASAR data products.
@@ -109,6 +112,10 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
     private static final double refSlantRange800km = 800000.0; //  m
     private static final int INVALID_SUB_SWATH_INDEX = -1;
 
+    // calibration planes of the most recently used tiles, shared by the bands of a tile
+    static final long MAX_CACHED_PLANES_BYTES = 128L * 1024L * 1024L;
+    private final CalibrationPlanesCache calibrationPlanesCache = new CalibrationPlanesCache(MAX_CACHED_PLANES_BYTES);
+
     public ASARCalibrator() {
     }
 
@@ -905,78 +912,40 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
         final int maxY = y0 + h;
         final int maxX = x0 + w;
 
-        final double[] incidenceAnglesArray = new double[w];
-        final double[] slantRangeTimeArray = new double[w];
-
-        double[][] targetTileOldAntPat = null; // old antenna pattern gains for row pixels in a tile, in linear scale
-        double[][] targetTileNewAntPat = null; // new antenna pattern gains for row pixels in a tile, in linear scale
-        double[][] targetTileSlantRange = null; // slant range for pixels in a tile, in m
-
-        if (applyAntennaPatternCorr) {
-            targetTileNewAntPat = new double[h][w];
-            targetTileSlantRange = new double[h][w];
-            if (retroCalibrationFlag) {
-                targetTileOldAntPat = new double[h][w];
-            }
-
-            if (wideSwathProductFlag) {
-                computeWideSwathAntennaPatternForCurrentTile(x0, y0, w, h,
-                        targetTileOldAntPat, targetTileNewAntPat, targetTileSlantRange, slantRangeTPGInterp);
-            } else {
-                computeSingleSwathAntennaPatternForCurrentTile(x0, y0, w, h,
-                        targetTileOldAntPat, targetTileNewAntPat, targetTileSlantRange, prodBand, slantRangeTPGInterp);
-            }
-        }
-
-        double sigma, dn = 0, i, q;
-        final double theCalibrationFactor = newCalibrationConstant[prodBand];
-
-        int srcIdx, tgtIdx;
-        for (int y = y0, yy = 0; y < maxY; ++y, ++yy) {
+        final double[] sigmaArray = new double[w * h];
+        double dn, i, q;
+        int srcIdx, tgtIdx, k = 0;
+        for (int y = y0; y < maxY; ++y) {
             srcIndex.calculateStride(y);
-            tgtIndex.calculateStride(y);
-
-            incidenceTPGInterp.getPixels(x0, y, w, 1, incidenceAnglesArray, pm, TiePointInterpolator.InterpMode.QUADRATIC);
 
-            if (applyRangeSpreadingCorr) {
-                slantRangeTPGInterp.getPixels(x0, y, w, 1, slantRangeTimeArray, pm, TiePointInterpolator.InterpMode.QUADRATIC);
-            }
-
-            for (int x = x0, xx = 0; x < maxX; ++x, ++xx) {
+            for (int x = x0; x < maxX; ++x, ++k) {
                 srcIdx = srcIndex.getIndex(x);
-                tgtIdx = tgtIndex.getIndex(x);
 
                 if (bandUnit == Unit.UnitType.AMPLITUDE) {
                     dn = srcData1.getElemDoubleAt(srcIdx);
-                    sigma = dn * dn;
+                    sigmaArray[k] = dn * dn;
                 } else if (bandUnit == Unit.UnitType.INTENSITY) {
-                    sigma = srcData1.getElemDoubleAt(srcIdx);
+                    sigmaArray[k] = srcData1.getElemDoubleAt(srcIdx);
                 } else if (bandUnit == Unit.UnitType.REAL || bandUnit == Unit.UnitType.IMAGINARY) {
                     i = srcData1.getElemDoubleAt(srcIdx);
                     q = srcData2.getElemDoubleAt(srcIdx);
-                    sigma = i * i + q * q;
+                    sigmaArray[k] = i * i + q * q;
                 } else {
                     throw new OperatorException("ASAR Calibration: unhandled unit");
                 }
+            }
+        }
 
-                if (retroCalibrationFlag) { // remove old antenna pattern gain
-                    sigma *= targetTileOldAntPat[yy][xx]; // see Andrea's email dated Nov. 11, 2008
-                }
-
-                // apply calibration constant and incidence angle corrections
-                sigma *= FastMath.sin(incidenceAnglesArray[xx] * Constants.DTOR) / theCalibrationFactor;
+        applyCalibrationPlanes(sigmaArray, getCalibrationPlanes(targetTileRectangle, pm), prodBand);
 
-                if (applyRangeSpreadingCorr && targetTileSlantRange != null) { // apply range spreading loss compensation
-                    /*
-                    time = slantRangeTimeArray[xx] / 1000000000.0; //convert ns to s
-                    sigma *= Math.pow(time * halfLightSpeedByRefSlantRange, rangeSpreadingCompPower);
-                    */
-                    sigma *= FastMath.pow(targetTileSlantRange[yy][xx] / refSlantRange800km, rangeSpreadingCompPower);
-                }
+        double sigma;
+        k = 0;
+        for (int y = y0; y < maxY; ++y) {
+            tgtIndex.calculateStride(y);
 
-                if (applyAntennaPatternCorr) { // apply antenna pattern correction
-                    sigma /= targetTileNewAntPat[yy][xx];  // see Andrea's email dated Nov. 11, 2008
-                }
+            for (int x = x0; x < maxX; ++x, ++k) {
+                tgtIdx = tgtIndex.getIndex(x);
+                sigma = sigmaArray[k];
 
                 if (outputImageScaleInDb) { // convert calibration result to dB
                     if (sigma < underFlowFloat) {
@@ -992,20 +961,249 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
     }
 
     /**
-     * Compute antenna pattern for the middle row of the given tile for single swath product.
-     * Here it is assumed that the elevation angles for pixels in the same column are the same.
+     * Apply the calibration planes of a tile to the pixel intensities of a band.
      *
-     * @param x0   The x coordinate of the upper left point in the current tile.
-     * @param y0   The y coordinate of the upper left point in the current tile.
-     * @param w    The width of the current tile.
-     * @param h    The height of the current tile.
-     * @param band The band index.
+     * @param sigma    The pixel intensities of the tile, row by row, replaced by the calibrated values.
+     * @param planes   The calibration planes of the tile.
+     * @param prodBand The polarisation index of the band.
+     */
+    static void applyCalibrationPlanes(final double[] sigma, final CalibrationPlanes planes, final int prodBand) {
+
+        final double[] incidenceFactor = planes.incidenceFactor[prodBand];
+        final double[] rangeSpreadingFactor = planes.rangeSpreadingFactor;
+        final double[] newAntPat = planes.newAntPat != null ? planes.newAntPat[prodBand] : null;
+        final double[] oldAntPat = planes.oldAntPat != null ? planes.oldAntPat[prodBand] : null;
+
+        double v;
+        for (int k = 0; k < sigma.length; ++k) {
+            v = sigma[k];
+
+            // the factors are applied one at a time in the original order so the result does not change
+            if (oldAntPat != null) { // remove old antenna pattern gain
+                v *= oldAntPat[k]; // see Andrea's email dated Nov. 11, 2008
+            }
+
+            // apply calibration constant and incidence angle corrections
+            v *= incidenceFactor[k];
+
+            if (rangeSpreadingFactor != null) { // apply range spreading loss compensation
+                v *= rangeSpreadingFactor[k];
+            }
+
+            if (newAntPat != null) { // apply antenna pattern correction
+                v /= newAntPat[k];  // see Andrea's email dated Nov. 11, 2008
+            }
+
+            sigma[k] = v;
+        }
+    }
+
+    /**
+     * @param incidenceAngle      The incidence angle, in degree.
+     * @param calibrationConstant The calibration constant of the polarisation.
+     * @return The calibration constant and incidence angle correction.
+     */
+    static double getIncidenceFactor(final double incidenceAngle, final double calibrationConstant) {
+        return FastMath.sin(incidenceAngle * Constants.DTOR) / calibrationConstant;
+    }
+
+    /**
+     * @param slantRange              The slant range, in m.
+     * @param rangeSpreadingCompPower The range spreading compensation power.
+     * @return The range spreading loss compensation.
+     */
+    static double getRangeSpreadingFactor(final double slantRange, final double rangeSpreadingCompPower) {
+        return FastMath.pow(slantRange / refSlantRange800km, rangeSpreadingCompPower);
+    }
+
+    /**
+     * Calibration factors for the pixels of a tile, stored row by row. Apart from the polarisation they do not
+     * depend on the source band, so they are computed once per tile and shared by all bands.
+     */
+    static final class CalibrationPlanes {
+        double[][] incidenceFactor; // sin(incidence angle) / calibration constant, for each polarisation
+        double[] rangeSpreadingFactor; // range spreading loss compensation, null if not applied
+        double[][] newAntPat; // new antenna pattern gains in linear scale for each polarisation, null if not applied
+        double[][] oldAntPat; // old antenna pattern gains in linear scale for each polarisation, null if not applied
+        boolean computed = false;
+        final long bytes; // upper bound of the memory used by the planes
+
+        CalibrationPlanes(final long bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * The calibration planes of the most recently used tiles, up to a total size. The least recently used tiles
+     * are evicted first, and their planes are computed again when they are used again.
+     */
+    static final class CalibrationPlanesCache {
+
+        private final long maxBytes;
+        private final Map<Rectangle, CalibrationPlanes> planesMap =
+                new LinkedHashMap<Rectangle, CalibrationPlanes>(16, 0.75f, true);
+        private long bytes = 0;
+
+        CalibrationPlanesCache(final long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * Get the planes of a tile, or new planes to be computed if the tile is not cached.
+         *
+         * @param rect        The tile rectangle.
+         * @param planesBytes The size of the planes of the tile, if new planes are created.
+         * @return The calibration planes.
+         */
+        synchronized CalibrationPlanes get(final Rectangle rect, final long planesBytes) {
+
+            CalibrationPlanes planes = planesMap.get(rect);
+            if (planes == null) {
+                planes = new CalibrationPlanes(planesBytes);
+                planesMap.put(new Rectangle(rect), planes);
+                bytes += planes.bytes;
+
+                // evict the least recently used tiles, the new planes are kept even if they exceed the limit
+                final Iterator<CalibrationPlanes> it = planesMap.values().iterator();
+                while (bytes > maxBytes && planesMap.size() > 1) {
+                    bytes -= it.next().bytes;
+                    it.remove();
+                }
+            }
+            return planes;
+        }
+
+        synchronized int size() {
+            return planesMap.size();
+        }
+
+        synchronized long getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Get the upper bound of the memory used by the calibration planes of a tile.
+     *
+     * @param rect The tile rectangle.
+     * @return The size in bytes.
+     */
+    private long getCalibrationPlanesBytes(final Rectangle rect) {
+
+        final int numPolarizations = mdsPolar[1] != null ? 2 : 1;
+        int numPlanes = numPolarizations;
+        if (applyAntennaPatternCorr) {
+            numPlanes += retroCalibrationFlag ? 2 * numPolarizations : numPolarizations;
+            if (applyRangeSpreadingCorr) {
+                ++numPlanes;
+            }
+        }
+        return 8L * rect.width * rect.height * numPlanes;
+    }
+
+    /**
+     * Get the calibration planes for the given tile, computing them on first use.
+     *
+     * @param rect The tile rectangle.
+     * @param pm   A progress monitor.
+     * @return The calibration planes.
+     */
+    private CalibrationPlanes getCalibrationPlanes(final Rectangle rect, final ProgressMonitor pm) {
+
+        final CalibrationPlanes planes = calibrationPlanesCache.get(rect, getCalibrationPlanesBytes(rect));
+
+        // the other bands of the tile wait for the planes rather than computing them again
+        synchronized (planes) {
+            if (!planes.computed) {
+                computeCalibrationPlanes(rect, planes, pm);
+                planes.computed = true;
+            }
+        }
+        return planes;
+    }
+
+    /**
+     * Compute the calibration planes for all polarisations of the given tile.
+     *
+     * @param rect   The tile rectangle.
+     * @param planes The planes to be filled.
+     * @param pm     A progress monitor.
+     */
+    private void computeCalibrationPlanes(final Rectangle rect, final CalibrationPlanes planes, final ProgressMonitor pm) {
+
+        final int x0 = rect.x;
+        final int y0 = rect.y;
+        final int w = rect.width;
+        final int h = rect.height;
+        final int size = w * h;
+        final int numPolarizations = mdsPolar[1] != null ? 2 : 1;
+
+        final double[] incidenceAngles = incidenceTPGInterp.getPixels(
+                x0, y0, w, h, null, pm, TiePointInterpolator.InterpMode.QUADRATIC);
+
+        planes.incidenceFactor = new double[numPolarizations][size];
+        for (int p = 0; p < numPolarizations; ++p) {
+            final double theCalibrationFactor = newCalibrationConstant[p];
+            final double[] incidenceFactor = planes.incidenceFactor[p];
+            for (int k = 0; k < size; ++k) {
+                incidenceFactor[k] = getIncidenceFactor(incidenceAngles[k], theCalibrationFactor);
+            }
+        }
+
+        if (!applyAntennaPatternCorr) {
+            return;
+        }
+
+        final double[] slantRange = new double[size]; // slant range for pixels in the tile, in m
+        final double[][] newAntPat = new double[numPolarizations][];
+        final double[][] oldAntPat = retroCalibrationFlag ? new double[numPolarizations][] : null;
+
+        if (wideSwathProductFlag) {
+            // the wide swath gains are the same for all polarisations
+            final double[] newGains = new double[size];
+            final double[] oldGains = retroCalibrationFlag ? new double[size] : null;
+            computeWideSwathAntennaPatternForCurrentTile(x0, y0, w, h,
+                    oldGains, newGains, slantRange, slantRangeTPGInterp);
+            for (int p = 0; p < numPolarizations; ++p) {
+                newAntPat[p] = newGains;
+                if (oldAntPat != null) {
+                    oldAntPat[p] = oldGains;
+                }
+            }
+        } else {
+            for (int p = 0; p < numPolarizations; ++p) {
+                newAntPat[p] = new double[size];
+                if (oldAntPat != null) {
+                    oldAntPat[p] = new double[size];
+                }
+            }
+            computeSingleSwathAntennaPatternForCurrentTile(x0, y0, w, h,
+                    oldAntPat, newAntPat, slantRange, slantRangeTPGInterp);
+        }
+        planes.newAntPat = newAntPat;
+        planes.oldAntPat = oldAntPat;
+
+        if (applyRangeSpreadingCorr) {
+            planes.rangeSpreadingFactor = new double[size];
+            for (int k = 0; k < size; ++k) {
+                planes.rangeSpreadingFactor[k] = getRangeSpreadingFactor(slantRange[k], rangeSpreadingCompPower);
+            }
+        }
+    }
+
+    /**
+     * Compute antenna pattern gains of the pixels in the given tile for single swath product.
+     * The gains of the polarisations are computed together, for the bands with a non-null gain array.
+     *
+     * @param x0 The x coordinate of the upper left point in the current tile.
+     * @param y0 The y coordinate of the upper left point in the current tile.
+     * @param w  The width of the current tile.
+     * @param h  The height of the current tile.
      */
     private void computeSingleSwathAntennaPatternForCurrentTile(final int x0, final int y0, final int w, final int h,
                                                                 final double[][] targetTileOldAntPat,
                                                                 final double[][] targetTileNewAntPat,
-                                                                final double[][] targetTileSlantRange,
-                                                                final int band,
+                                                                final double[] targetTileSlantRange,
                                                                 final TiePointInterpolator slantRangeTPGInterp) {
 
         final int yMax = y0 + h;
@@ -1019,36 +1217,39 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
                 srgrConvParam = getSRGRCoefficientsForARangeLine(zeroDopplerTime);
             }
 
-            final int yy = y - y0;
+            int k = (y - y0) * w;
             final int xMax = x0 + w;
-            for (int x = x0; x < xMax; x++) {
+            for (int x = x0; x < xMax; x++, k++) {
 
-                final int xx = x - x0;
-                targetTileSlantRange[yy][xx] = computeSlantRange(x, y, srgrConvParam, slantRangeTPGInterp); // in m
+                targetTileSlantRange[k] = computeSlantRange(x, y, srgrConvParam, slantRangeTPGInterp); // in m
 
                 final double localEarthRadius = getEarthRadius(x, y);
 
                 final double theta = computeElevationAngle(
-                        targetTileSlantRange[yy][xx], satelliteHeight, avgSceneHeight + localEarthRadius); // in degree
+                        targetTileSlantRange[k], satelliteHeight, avgSceneHeight + localEarthRadius); // in degree
                 /*
                 double alpha = incidenceAngle.getPixelDouble(x, y); // in degree
-                double gamma = Math.asin(targetTileSlantRange[yy][xx]*Math.sin(alpha*MathUtils.DTOR)/satelitteHeight)*MathUtils.RTOD; // in degree
+                double gamma = Math.asin(targetTileSlantRange[k]*Math.sin(alpha*MathUtils.DTOR)/satelitteHeight)*MathUtils.RTOD; // in degree
                 double theta = alpha - gamma; // in degree
                 */
-                targetTileNewAntPat[yy][xx] = computeAntPatGain(
-                        theta, newRefElevationAngle[0], newAntennaPatternSingleSwath[band]);
+                for (int band = 0; band < targetTileNewAntPat.length; band++) {
+                    if (targetTileNewAntPat[band] == null) {
+                        continue;
+                    }
+                    targetTileNewAntPat[band][k] = computeAntPatGain(
+                            theta, newRefElevationAngle[0], newAntennaPatternSingleSwath[band]);
 
-                if (retroCalibrationFlag) {
-                    targetTileOldAntPat[yy][xx] = computeAntPatGain(
-                            theta, oldRefElevationAngle[0], oldAntennaPatternSingleSwath[band]);
+                    if (retroCalibrationFlag) {
+                        targetTileOldAntPat[band][k] = computeAntPatGain(
+                                theta, oldRefElevationAngle[0], oldAntennaPatternSingleSwath[band]);
+                    }
                 }
             }
         }
     }
 
     /**
-     * Compute antenna pattern for the middle row of the given tile for wide swath product.
-     * Here it is assumed that the elevation angles for pixels in the same column are the same.
+     * Compute antenna pattern gains of the pixels in the given tile for wide swath product.
      *
      * @param x0 The x coordinate of the upper left point in the current tile.
      * @param y0 The y coordinate of the upper left point in the current tile.
@@ -1056,9 +1257,9 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
      * @param h  The height of the current tile.
      */
     private void computeWideSwathAntennaPatternForCurrentTile(final int x0, final int y0, final int w, final int h,
-                                                              final double[][] targetTileOldAntPat,
-                                                              final double[][] targetTileNewAntPat,
-                                                              final double[][] targetTileSlantRange,
+                                                              final double[] targetTileOldAntPat,
+                                                              final double[] targetTileNewAntPat,
+                                                              final double[] targetTileSlantRange,
                                                               final TiePointInterpolator slantRangeTPGInterp) {
 
         final int yMax = y0 + h;
@@ -1072,27 +1273,26 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
                 srgrConvParam = getSRGRCoefficientsForARangeLine(zeroDopplerTime);
             }
 
-            final int yy = y - y0;
+            int k = (y - y0) * w;
             final int xMax = x0 + w;
-            for (int x = x0; x < xMax; x++) {
+            for (int x = x0; x < xMax; x++, k++) {
 
-                final int xx = x - x0;
-                targetTileSlantRange[yy][xx] = computeSlantRange(x, y, srgrConvParam, slantRangeTPGInterp); // in m
+                targetTileSlantRange[k] = computeSlantRange(x, y, srgrConvParam, slantRangeTPGInterp); // in m
 
                 final double localEarthRadius = getEarthRadius(x, y);
 
                 final double theta = computeElevationAngle(
-                        targetTileSlantRange[yy][xx], satelitteHeight, avgSceneHeight + localEarthRadius); // in degree
+                        targetTileSlantRange[k], satelitteHeight, avgSceneHeight + localEarthRadius); // in degree
 
                 int subSwathIndex = findSubSwath(theta, newRefElevationAngle);
 
-                targetTileNewAntPat[yy][xx] = computeAntPatGain(
+                targetTileNewAntPat[k] = computeAntPatGain(
                         theta, newRefElevationAngle[subSwathIndex], newAntennaPatternWideSwath[subSwathIndex]);
 
                 if (retroCalibrationFlag) {
                     subSwathIndex = findSubSwath(theta, oldRefElevationAngle);
 
-                    targetTileOldAntPat[yy][xx] = computeAntPatGain(
+                    targetTileOldAntPat[k] = computeAntPatGain(
                             theta, oldRefElevationAngle[subSwathIndex], oldAntennaPatternWideSwath[subSwathIndex]);
                 }
             }
@@ -1525,9 +1725,9 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
             prodBand = 1;
         }
 
-        final double[][] targetTileNewAntPat = new double[h][w];
-        final double[][] targetTileSlantRange = new double[h][w];
-        final double[][] targetTileOldAntPat = new double[h][w];
+        final double[] targetTileNewAntPat = new double[w * h];
+        final double[] targetTileSlantRange = new double[w * h];
+        final double[] targetTileOldAntPat = new double[w * h];
 
         final TiePointInterpolator slantRangeTPGInterp = new TiePointInterpolator(slantRangeTime);
 
@@ -1535,18 +1735,22 @@ public class ASARCalibrator extends BaseCalibrator implements Calibrator {
             computeWideSwathAntennaPatternForCurrentTile(x0, y0, w, h,
                     targetTileOldAntPat, targetTileNewAntPat, targetTileSlantRange, slantRangeTPGInterp);
         } else {
+            final double[][] oldAntPat = new double[2][];
+            final double[][] newAntPat = new double[2][];
+            oldAntPat[prodBand] = targetTileOldAntPat;
+            newAntPat[prodBand] = targetTileNewAntPat;
             computeSingleSwathAntennaPatternForCurrentTile(x0, y0, w, h,
-                    targetTileOldAntPat, targetTileNewAntPat, targetTileSlantRange, prodBand, slantRangeTPGInterp);
+                    oldAntPat, newAntPat, targetTileSlantRange, slantRangeTPGInterp);
         }
 
         final int maxY = y0 + h;
         final int maxX = x0 + w;
         double gain, slantRange, v;
-        for (int y = y0, yy = 0; y < maxY; ++y, ++yy) {
-            for (int x = x0, xx = 0; x < maxX; ++x, ++xx) {
+        for (int y = y0, k = 0; y < maxY; ++y) {
+            for (int x = x0; x < maxX; ++x, ++k) {
                 v = srcData.getElemDoubleAt(sourceTile.getDataBufferIndex(x, y));
-                gain = targetTileOldAntPat[yy][xx];
-                slantRange = targetTileSlantRange[yy][xx];
+                gain = targetTileOldAntPat[k];
+                slantRange = targetTileSlantRange[k];
 
                 if (bandUnit == Unit.UnitType.AMPLITUDE) {
                     v *= Math.sqrt(gain) * FastMath.pow(refSlantRange800km / slantRange, 0.5 * rangeSpreadingCompPower);
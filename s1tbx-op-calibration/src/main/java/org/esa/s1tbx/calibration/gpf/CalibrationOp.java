@@ -92,6 +92,10 @@ public class CalibrationOp extends Operator {
     @Parameter(description = "Output DN band", defaultValue = "false", label = "Output DN band")
     private Boolean outputDNBand = false;
 
+    @Parameter(description = "Remove thermal noise before calibrating Sentinel-1 data", defaultValue = "false",
+            label = "Remove thermal noise")
+    private Boolean removeThermalNoise = false;
+
     private Calibrator calibrator = null;
 
     public static final String PRODUCT_AUX = "Product Auxiliary File";
@@ -135,6 +139,7 @@ public class CalibrationOp extends Operator {
                 Sentinel1Calibrator cal = (Sentinel1Calibrator) calibrator;
                 cal.setUserSelections(sourceProduct,
                         selectedPolarisations, outputSigmaBand, outputGammaBand, outputBetaBand, outputDNBand);
+                cal.setRemoveThermalNoise(removeThermalNoise);
             }
             targetProduct = calibrator.createTargetProduct(sourceProduct, sourceBandNames);
             calibrator.initialize(this, sourceProduct, targetProduct, false, true);
@@ -34,6 +34,7 @@ import org.esa.snap.framework.gpf.Operator;
 import org.esa.snap.framework.gpf.OperatorException;
 import org.esa.snap.framework.gpf.Tile;
 import org.esa.snap.gpf.OperatorUtils;
+import org.esa.snap.gpf.TileIndex;
 import org.esa.snap.util.ResourceInstaller;
 
 import javax.media.jai.BorderExtender;
@@ -140,6 +141,7 @@ public final class ERSCalibrator extends BaseCalibrator implements Calibrator {
     private Date time20041014; // = 1097764631.0;  14-Oct-2004 14:37:11.000, in s
 
     private double[] incidenceAngles = null; // for a complete range line, in radian
+    private double[] sinIncidenceAnglesByK = null; // sin(incidence angle) / k for a complete range line
     private double[] lookAngles = null; // for a complete range line, in radian
     private double[] rangeSpreadingLoss = null; // for a complete range line
     private double[] antennaPatternCorrFactor = null; // for a range line in current tile, in linear scale
@@ -268,6 +270,8 @@ public final class ERSCalibrator extends BaseCalibrator implements Calibrator {
 
             //computeIncidenceAnglesLookAnglesRangeSpreadingLoss();  // common to CEOS and ENVISAT
 
+            sinIncidenceAnglesByK = computeSinIncidenceAnglesByK(incidenceAngles, calibrationConstant);
+
             if (mustUpdateMetadata) {
                 updateTargetProductMetadata();
             }
@@ -347,20 +351,23 @@ public final class ERSCalibrator extends BaseCalibrator implements Calibrator {
                 adcPowerLoss = computeADCPowerLossValuesForCurrentTile(sourceBand1, sourceBand2, x0, y0, w, h, bandUnit);
             }
 
-            final double k = calibrationConstant * FastMath.sin(referenceIncidenceAngle);
+            final TileIndex srcIndex = new TileIndex(sourceRaster1);
+            final TileIndex tgtIndex = new TileIndex(targetTile);
+            final int maxX = x0 + w;
+            final int maxY = y0 + h;
 
             double sigma, dn, i, q;
             int index;
-            int adcJ = 0;
-            for (int x = x0; x < x0 + w; x++) {
-
-                final double sinIncidenceAngleByK = FastMath.sin(incidenceAngles[x]) / k;
+            int adcI = 0;
+            for (int y = y0; y < maxY; y++) {
+                srcIndex.calculateStride(y);
+                tgtIndex.calculateStride(y);
                 if (applyADCSaturationCorrectionToCurrentTile) {
-                    adcJ = Math.min(((x - x0) / blockWidth), adcPowerLoss[0].length - 1);
+                    adcI = Math.min(((y - y0) / blockHeight), adcPowerLoss.length - 1);
                 }
 
-                for (int y = y0; y < y0 + h; y++) {
-                    index = sourceRaster1.getDataBufferIndex(x, y);
+                for (int x = x0; x < maxX; x++) {
+                    index = srcIndex.getIndex(x);
 
                     if (bandUnit == Unit.UnitType.AMPLITUDE) {
                         dn = srcData1.getElemDoubleAt(index);
@@ -373,7 +380,8 @@ public final class ERSCalibrator extends BaseCalibrator implements Calibrator {
                         sigma = i * i + q * q;
                     }
 
-                    sigma *= sinIncidenceAngleByK;
+                    // the factors are applied one at a time in the original order so the result does not change
+                    sigma *= sinIncidenceAnglesByK[x];
 
                     if (applyAntennaPatternCorrection) {
                         sigma *= antennaPatternCorrFactor[x];
@@ -388,7 +396,7 @@ public final class ERSCalibrator extends BaseCalibrator implements Calibrator {
                     }
 
                     if (applyADCSaturationCorrectionToCurrentTile) {
-                        final int adcI = Math.min(((y - y0) / blockHeight), adcPowerLoss.length - 1);
+                        final int adcJ = Math.min(((x - x0) / blockWidth), adcPowerLoss[0].length - 1);
                         sigma *= adcPowerLoss[adcI][adcJ];
                     }
 
@@ -400,7 +408,7 @@ public final class ERSCalibrator extends BaseCalibrator implements Calibrator {
                         }
                     }
 
-                    trgData.setElemDoubleAt(targetTile.getDataBufferIndex(x, y), sigma);
+                    trgData.setElemDoubleAt(tgtIndex.getIndex(x), sigma);
                 }
             }
         } catch (Throwable e) {
@@ -1085,6 +1093,24 @@ public final class ERSCalibrator extends BaseCalibrator implements Calibrator {
         return attr.getData().getElemFloat();
     }
 
+    /**
+     * Compute the calibration constant and incidence angle correction for pixels in a complete range line.
+     *
+     * @param incidenceAngles     The incidence angles of the range line, in radian.
+     * @param calibrationConstant The calibration constant.
+     * @return sin(incidence angle) / k for each pixel of the range line.
+     */
+    static double[] computeSinIncidenceAnglesByK(final double[] incidenceAngles, final double calibrationConstant) {
+
+        final double k = calibrationConstant * FastMath.sin(referenceIncidenceAngle);
+
+        final double[] sinIncidenceAnglesByK = new double[incidenceAngles.length];
+        for (int x = 0; x < incidenceAngles.length; x++) {
+            sinIncidenceAnglesByK[x] = FastMath.sin(incidenceAngles[x]) / k;
+        }
+        return sinIncidenceAnglesByK;
+    }
+
     /**
      * Compute incidence angles (in radian), look angles (in radian) and range spreading loss
      * for pixels in a complete range line.
@@ -57,6 +57,8 @@ public class Sentinel1Calibrator extends BaseCalibrator implements Calibrator {
     private boolean outputGammaBand = false;
     private boolean outputBetaBand = false;
     private boolean outputDNBand = false;
+    private boolean removeThermalNoise = false;
+    private Sentinel1RemoveThermalNoiseOp.ThermalNoiseInfo[] noise = null;
     private CALTYPE dataType = null;
 
     public enum CALTYPE {SIGMA0, BETA0, GAMMA, DN}
@@ -112,6 +114,13 @@ public class Sentinel1Calibrator extends BaseCalibrator implements Calibrator {
         }
     }
 
+    /**
+     * Remove the thermal noise from the source intensities before they are calibrated.
+     */
+    public void setRemoveThermalNoise(final boolean removeThermalNoise) {
+        this.removeThermalNoise = removeThermalNoise;
+    }
+
     /**
 
      */
@@ -145,6 +154,10 @@ public class Sentinel1Calibrator extends BaseCalibrator implements Calibrator {
 
             createTargetBandToCalInfoMap();
 
+            if (removeThermalNoise) {
+                getThermalNoiseVectors();
+            }
+
             if (mustUpdateMetadata) {
                 updateTargetProductMetadata();
             }
@@ -203,6 +216,23 @@ public class Sentinel1Calibrator extends BaseCalibrator implements Calibrator {
                 getSigmaLUT, getBetaLUT, getGammaLUT, getDNLUT);
     }
 
+    /**
+     * Get thermal noise vectors from the original product metadata.
+     */
+    private void getThermalNoiseVectors() {
+
+        if (dataType != null) {
+            throw new OperatorException("Thermal noise cannot be removed from a calibrated product");
+        }
+
+        final MetadataElement origProdRoot = AbstractMetadata.getOriginalProductMetadata(sourceProduct);
+        if (Sentinel1RemoveThermalNoiseOp.isThermalNoiseCorrectionPerformed(origProdRoot)) {
+            throw new OperatorException("Thermal noise has already been removed from the product");
+        }
+
+        noise = Sentinel1RemoveThermalNoiseOp.getThermalNoiseVectors(origProdRoot, selectedPolList);
+    }
+
     /**
      * Get calibration vectors from metadata.
      */
@@ -300,6 +330,11 @@ public class Sentinel1Calibrator extends BaseCalibrator implements Calibrator {
         final MetadataElement absRoot = AbstractMetadata.getAbstractedMetadata(targetProduct);
         absRoot.getAttribute(AbstractMetadata.abs_calibration_flag).getData().setElemBoolean(true);
 
+        if (removeThermalNoise) {
+            Sentinel1RemoveThermalNoiseOp.setThermalNoiseCorrectionFlag(
+                    AbstractMetadata.getOriginalProductMetadata(targetProduct), true);
+        }
+
         final String[] targetBandNames = targetProduct.getBandNames();
         Sentinel1Utils.updateBandNames(absRoot, selectedPolList, targetBandNames);
 
@@ -479,27 +514,54 @@ public class Sentinel1Calibrator extends BaseCalibrator implements Calibrator {
 
         final boolean complexData = bandUnit == Unit.UnitType.REAL || bandUnit == Unit.UnitType.IMAGINARY;
         final CalibrationInfo calInfo = targetBandToCalInfo.get(targetBandName);
+        if (calInfo == null) {
+            throw new OperatorException("CalibrationInfo not found for " + targetBandName);
+        }
         final Sentinel1Calibrator.CALTYPE calType = Sentinel1Calibrator.getCalibrationType(targetBandName);
 
-        double dn, dn2, i, q, muX, lutVal, retroLutVal = 1.0;
-        int srcIdx, trgIdx;
+        // calibration, retro-calibration and noise vectors resampled to the columns of the tile
+        final TileVectorLUT calLUT = new TileVectorLUT(x0, w);
+        final double[] lut = new double[w];
+        TileVectorLUT retroLUT = null;
+        double[] retroLut = null;
+        if (dataType != null) {
+            retroLUT = new TileVectorLUT(x0, w);
+            retroLut = new double[w];
+        }
+        Sentinel1RemoveThermalNoiseOp.ThermalNoiseInfo noiseInfo = null;
+        TileVectorLUT noiseLUT = null;
+        double[] noiseLut = null;
+        if (noise != null) {
+            noiseInfo = Sentinel1RemoveThermalNoiseOp.getNoiseInfo(noise, targetBandName, isMultiSwath);
+            noiseLUT = new TileVectorLUT(x0, w);
+            noiseLut = new double[w];
+        }
+
+        double dn, dn2, i, q, lutVal, retroLutVal = 1.0, noiseVal = 0.0;
+        int srcIdx, trgIdx, xx;
         for (int y = y0; y < maxY; ++y) {
             srcIndex.calculateStride(y);
             trgIndex.calculateStride(y);
 
             final int calVecIdx = calInfo.getCalibrationVectorIndex(y);
-            final Sentinel1Utils.CalibrationVector vec0 = calInfo.getCalibrationVector(calVecIdx);
-            final Sentinel1Utils.CalibrationVector vec1 = calInfo.getCalibrationVector(calVecIdx + 1);
-            final float[] vec0LUT = getVector(calType, vec0);
-            final float[] vec1LUT = getVector(calType, vec1);
-            float[] retroVec0LUT = null;
-            float[] retroVec1LUT = null;
-            if (dataType != null) {
-                retroVec0LUT = getVector(dataType, vec0);
-                retroVec1LUT = getVector(dataType, vec1);
+            if (!calLUT.isSet(calVecIdx)) {
+                final Sentinel1Utils.CalibrationVector vec0 = calInfo.getCalibrationVector(calVecIdx);
+                final Sentinel1Utils.CalibrationVector vec1 = calInfo.getCalibrationVector(calVecIdx + 1);
+                calLUT.setVectors(calVecIdx, vec0.pixels, getVector(calType, vec0), getVector(calType, vec1),
+                        vec0.timeMJD, vec1.timeMJD);
+                if (retroLUT != null) {
+                    retroLUT.setVectors(calVecIdx, vec0.pixels, getVector(dataType, vec0),
+                            getVector(dataType, vec1), vec0.timeMJD, vec1.timeMJD);
+                }
             }
             final double azTime = calInfo.firstLineTime + y * calInfo.lineTimeInterval;
-            final double muY = (azTime - vec0.timeMJD) / (vec1.timeMJD - vec0.timeMJD);
+            calLUT.getLine(azTime, lut);
+            if (retroLUT != null) {
+                retroLUT.getLine(azTime, retroLut);
+            }
+            if (noiseLUT != null) {
+                Sentinel1RemoveThermalNoiseOp.getNoiseLine(noiseLUT, noiseInfo, y, noiseLut);
+            }
 
             for (int x = x0; x < maxX; ++x) {
                 srcIdx = srcIndex.getIndex(x);
@@ -509,26 +571,25 @@ public class Sentinel1Calibrator extends BaseCalibrator implements Calibrator {
                     continue;
                 }
 
-                final int pixelIdx = calInfo.getPixelIndex(x, calVecIdx);
-                muX = (x - vec0.pixels[pixelIdx]) / (double)(vec0.pixels[pixelIdx + 1] - vec0.pixels[pixelIdx]);
-
-                lutVal = (1 - muY) * ((1 - muX) * vec0LUT[pixelIdx] + muX * vec0LUT[pixelIdx + 1]) +
-                        muY * ((1 - muX) * vec1LUT[pixelIdx] + muX * vec1LUT[pixelIdx + 1]);
+                xx = x - x0;
+                lutVal = lut[xx];
+                if (noiseLut != null) {
+                    noiseVal = noiseLut[xx];
+                }
 
                 if (complexData) {
                     i = srcData1.getElemDoubleAt(srcIdx);
                     q = srcData2.getElemDoubleAt(srcIdx);
-                    trgData.setElemDoubleAt(trgIdx, (i * i + q * q) / (lutVal*lutVal));
+                    trgData.setElemDoubleAt(trgIdx, (i * i + q * q - noiseVal) / (lutVal*lutVal));
                 } else if (bandUnit == Unit.UnitType.AMPLITUDE) {
                     dn = srcData1.getElemDoubleAt(srcIdx);
-                    trgData.setElemDoubleAt(trgIdx, (dn * dn) / (lutVal*lutVal));
+                    trgData.setElemDoubleAt(trgIdx, (dn * dn - noiseVal) / (lutVal*lutVal));
                 } else { // intensity
-                    if (dataType != null) {
-                        retroLutVal = (1 - muY) * ((1 - muX) * retroVec0LUT[pixelIdx] + muX * retroVec0LUT[pixelIdx + 1]) +
-                                muY * ((1 - muX) * retroVec1LUT[pixelIdx] + muX * retroVec1LUT[pixelIdx + 1]);
+                    if (retroLut != null) {
+                        retroLutVal = retroLut[xx];
                     }
                     dn2 = srcData1.getElemDoubleAt(srcIdx);
-                    trgData.setElemDoubleAt(trgIdx, dn2 * retroLutVal / (lutVal*lutVal));
+                    trgData.setElemDoubleAt(trgIdx, (dn2 * retroLutVal - noiseVal) / (lutVal*lutVal));
                 }
             }
         }
@@ -34,7 +34,6 @@ import org.esa.snap.framework.gpf.annotations.TargetProduct;
 import org.esa.snap.gpf.InputProductValidator;
 import org.esa.snap.gpf.OperatorUtils;
 import org.esa.snap.gpf.TileIndex;
-import org.esa.snap.util.Maths;
 import org.esa.snap.util.ProductUtils;
 
 import java.awt.*;
@@ -75,7 +74,6 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
     private boolean inputDNBand = false;
     private boolean isTOPSARSLC = false;
     private String productType = null;
-    private int numOfSubSwath = 1;
     private ThermalNoiseInfo[] noise = null;
     private Sentinel1Calibrator.CalibrationInfo[] calibration = null;
     private java.util.List<String> selectedPolList = null;
@@ -114,8 +112,6 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
 
             getProductType();
 
-            getAcquisitionMode();
-
             getProductPolarization();
 
             getThermalNoiseCorrectionFlag();
@@ -149,22 +145,6 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
         isTOPSARSLC = productType.contains("SLC") && (mode.contains("IW") || mode.contains("EW"));
     }
 
-    /**
-     * Get acquisition mode from abstracted metadata.
-     */
-    private void getAcquisitionMode() {
-
-        final String acquisitionMode = absRoot.getAttributeString(AbstractMetadata.ACQUISITION_MODE);
-
-        if (productType.equals("SLC")) {
-            if (acquisitionMode.equals("IW")) {
-                numOfSubSwath = 3;
-            } else if (acquisitionMode.equals("EW")) {
-                numOfSubSwath = 5;
-            }
-        }
-    }
-
     /**
      * Get product polarization.
      */
@@ -189,14 +169,7 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
      */
     private void getThermalNoiseCorrectionFlag() {
 
-        final MetadataElement annotationElem = origMetadataRoot.getElement("annotation");
-        final MetadataElement[] annotationDataSetListElem = annotationElem.getElements();
-        final MetadataElement productElem = annotationDataSetListElem[0].getElement("product");
-        final MetadataElement imageAnnotationElem = productElem.getElement("imageAnnotation");
-        final MetadataElement processingInformationElem = imageAnnotationElem.getElement("processingInformation");
-
-        thermalNoiseCorrectionPerformed = Boolean.parseBoolean(
-                processingInformationElem.getAttribute("thermalNoiseCorrectionPerformed").getData().getElemString());
+        thermalNoiseCorrectionPerformed = isThermalNoiseCorrectionPerformed(origMetadataRoot);
 
         if (removeThermalNoise && thermalNoiseCorrectionPerformed) {
             throw new OperatorException("Thermal noise correction has already been performed for the product");
@@ -207,16 +180,46 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
         }
     }
 
+    /**
+     * Get the thermal noise correction flag from the original product metadata.
+     *
+     * @param origMetadataRoot Root of the original product metadata.
+     * @return true if the thermal noise has been removed
+     */
+    static boolean isThermalNoiseCorrectionPerformed(final MetadataElement origMetadataRoot) {
+
+        final MetadataElement annotationElem = origMetadataRoot.getElement("annotation");
+        final MetadataElement[] annotationDataSetListElem = annotationElem.getElements();
+        final MetadataElement productElem = annotationDataSetListElem[0].getElement("product");
+        final MetadataElement imageAnnotationElem = productElem.getElement("imageAnnotation");
+        final MetadataElement processingInformationElem = imageAnnotationElem.getElement("processingInformation");
+
+        return Boolean.parseBoolean(
+                processingInformationElem.getAttribute("thermalNoiseCorrectionPerformed").getData().getElemString());
+    }
+
     /**
      * Get thermal noise vectors from the original product metadata.
      */
     private void getThermalNoiseVectors() {
 
-        noise = new ThermalNoiseInfo[numOfSubSwath * selectedPolList.size()];
+        noise = getThermalNoiseVectors(origMetadataRoot, selectedPolList);
+    }
+
+    /**
+     * Get the thermal noise vectors of the given polarisations from the original product metadata.
+     *
+     * @param origMetadataRoot Root of the original product metadata.
+     * @param selectedPolList  The polarisations.
+     * @return The thermal noise information of each polarisation and sub-swath.
+     */
+    static ThermalNoiseInfo[] getThermalNoiseVectors(final MetadataElement origMetadataRoot,
+                                                     final java.util.List<String> selectedPolList) {
+
+        final java.util.List<ThermalNoiseInfo> noiseList = new java.util.ArrayList<>();
         final MetadataElement noiseElem = origMetadataRoot.getElement("noise");
         final MetadataElement[] noiseDataSetListElem = noiseElem.getElements();
 
-        int dataSetIndex = 0;
         for (MetadataElement dataSetListElem : noiseDataSetListElem) {
 
             final MetadataElement noiElem = dataSetListElem.getElement("noise");
@@ -229,15 +232,14 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
             final MetadataElement noiseVectorListElem = noiElem.getElement("noiseVectorList");
             final String subSwath = adsHeaderElem.getAttributeString("swath");
 
-            noise[dataSetIndex] = new ThermalNoiseInfo(pol, subSwath,
+            noiseList.add(new ThermalNoiseInfo(pol, subSwath,
                     Sentinel1Utils.getTime(adsHeaderElem, "startTime").getMJD(),
                     Sentinel1Utils.getTime(adsHeaderElem, "stopTime").getMJD(),
                     Sentinel1Calibrator.getNumOfLines(origMetadataRoot, pol, subSwath),
                     Integer.parseInt(noiseVectorListElem.getAttributeString("count")),
-                    Sentinel1Utils.getNoiseVector(noiseVectorListElem));
-
-            dataSetIndex++;
+                    Sentinel1Utils.getNoiseVector(noiseVectorListElem)));
         }
+        return noiseList.toArray(new ThermalNoiseInfo[noiseList.size()]);
     }
 
     /**
@@ -393,19 +395,31 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
         Sentinel1Utils.updateBandNames(abs, selectedPolList, targetBandNames);
 
         final MetadataElement origMetadataRoot = AbstractMetadata.getOriginalProductMetadata(targetProduct);
+        if (removeThermalNoise) {
+            setThermalNoiseCorrectionFlag(origMetadataRoot, true);
+        }
+
+        if (reIntroduceThermalNoise) {
+            setThermalNoiseCorrectionFlag(origMetadataRoot, false);
+        }
+    }
+
+    /**
+     * Set the thermal noise correction flag of all annotation data sets in the original product metadata.
+     *
+     * @param origMetadataRoot Root of the original product metadata.
+     * @param performed        true if the thermal noise has been removed
+     */
+    static void setThermalNoiseCorrectionFlag(final MetadataElement origMetadataRoot, final boolean performed) {
+
         final MetadataElement annotationElem = origMetadataRoot.getElement("annotation");
         final MetadataElement[] annotationDataSetListElem = annotationElem.getElements();
         for (MetadataElement elem : annotationDataSetListElem) {
             final MetadataElement productElem = elem.getElement("product");
             final MetadataElement imageAnnotationElem = productElem.getElement("imageAnnotation");
             final MetadataElement processingInformationElem = imageAnnotationElem.getElement("processingInformation");
-            if (removeThermalNoise) {
-                processingInformationElem.getAttribute("thermalNoiseCorrectionPerformed").getData().setElems("true");
-            }
-
-            if (reIntroduceThermalNoise) {
-                processingInformationElem.getAttribute("thermalNoiseCorrectionPerformed").getData().setElems("false");
-            }
+            processingInformationElem.getAttribute("thermalNoiseCorrectionPerformed").getData().setElems(
+                    String.valueOf(performed));
         }
     }
 
@@ -467,26 +481,37 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
                 calType = Sentinel1Calibrator.getCalibrationType(targetBandName);
             }
 
+            // noise, and calibration, vectors resampled to the columns of the tile
+            final TileVectorLUT noiseLUT = new TileVectorLUT(x0, w);
+            final TileVectorLUT calLUT = absoluteCalibrationPerformed ? new TileVectorLUT(x0, w) : null;
+            final double[] lut = new double[w];
+            final double[] calLut = absoluteCalibrationPerformed ? new double[w] : null;
+            final double sign = removeThermalNoise ? 1.0 : -1.0; // else reIntroduceThermalNoise
+
             double dn, dn2, i, q;
             int srcIdx, tgtIdx;
             for (int y = y0; y < maxY; ++y) {
                 srcIndex.calculateStride(y);
                 tgtIndex.calculateStride(y);
 
-                final double[] lut = new double[w];
+                getNoiseLine(noiseLUT, noiseInfo, y, lut);
                 if (absoluteCalibrationPerformed) {
                     final int calVecIdx = calInfo.getCalibrationVectorIndex(y);
-                    final Sentinel1Utils.CalibrationVector vec0 = calInfo.getCalibrationVector(calVecIdx);
-                    final Sentinel1Utils.CalibrationVector vec1 = calInfo.getCalibrationVector(calVecIdx + 1);
-                    final float[] vec0LUT = Sentinel1Calibrator.getVector(calType, vec0);
-                    final float[] vec1LUT = Sentinel1Calibrator.getVector(calType, vec1);
-                    final int pixelIdx0 = calInfo.getPixelIndex(x0, calVecIdx);
-
-                    computeTileScaledNoiseLUT(y, x0, y0, w, noiseInfo, calInfo, vec0.timeMJD, vec1.timeMJD,
-                            vec0LUT, vec1LUT, vec0.pixels, pixelIdx0, lut);
+                    if (!calLUT.isSet(calVecIdx)) {
+                        final Sentinel1Utils.CalibrationVector vec0 = calInfo.getCalibrationVector(calVecIdx);
+                        final Sentinel1Utils.CalibrationVector vec1 = calInfo.getCalibrationVector(calVecIdx + 1);
+                        calLUT.setVectors(calVecIdx, vec0.pixels, Sentinel1Calibrator.getVector(calType, vec0),
+                                Sentinel1Calibrator.getVector(calType, vec1), vec0.timeMJD, vec1.timeMJD);
+                    }
+                    calLUT.getLine(calInfo.firstLineTime + y * calInfo.lineTimeInterval, calLut);
 
-                } else {
-                    computeTileNoiseLUT(y, x0, y0, w, noiseInfo, lut);
+                    for (int k = 0; k < w; k++) {
+                        lut[k] = sign * lut[k] / (calLut[k] * calLut[k]);
+                    }
+                } else if (sign < 0) {
+                    for (int k = 0; k < w; k++) {
+                        lut[k] = -lut[k];
+                    }
                 }
 
                 for (int x = x0; x < maxX; ++x) {
@@ -521,7 +546,23 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
      * @return The ThermalNoiseInfo object.
      */
     private ThermalNoiseInfo getNoiseInfo(final String targetBandName) throws OperatorException {
+        return getNoiseInfo(noise, targetBandName, isTOPSARSLC);
+    }
 
+    /**
+     * Get thermal noise information for given target band.
+     *
+     * @param noise          The thermal noise information of each polarisation and sub-swath.
+     * @param targetBandName Target band name.
+     * @param isTOPSARSLC    true if the bands are per sub-swath.
+     * @return The ThermalNoiseInfo object.
+     */
+    static ThermalNoiseInfo getNoiseInfo(final ThermalNoiseInfo[] noise, final String targetBandName,
+                                         final boolean isTOPSARSLC) throws OperatorException {
+
+        if (noise == null) {
+            throw new OperatorException("Thermal noise vectors not read for " + targetBandName);
+        }
         for (ThermalNoiseInfo noiseInfo : noise) {
             if (isTOPSARSLC) {
                 if (targetBandName.contains(noiseInfo.polarization) && targetBandName.contains(noiseInfo.subSwath)) {
@@ -542,7 +583,7 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
      * @param targetBandName Target band name.
      * @return The CalibrationInfo object.
      */
-    private Sentinel1Calibrator.CalibrationInfo getCalInfo(final String targetBandName) {
+    private Sentinel1Calibrator.CalibrationInfo getCalInfo(final String targetBandName) throws OperatorException {
 
         for (Sentinel1Calibrator.CalibrationInfo cal : calibration) {
             final String pol = cal.polarization;
@@ -557,124 +598,41 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
                 }
             }
         }
-        return null;
+        throw new OperatorException("CalibrationInfo not found for " + targetBandName);
     }
 
     /**
-     * Compute scaled noise LUTs for the given range line.
+     * Resample the noise vectors bracketing the given line to the columns of a tile, unless they are already set.
      *
-     * @param y         Index of the given range line.
-     * @param x0        X coordinate of the upper left corner pixel of the given tile.
-     * @param y0        Y coordinate of the upper left corner pixel of the given tile.
-     * @param w         Tile width.
+     * @param lut       The noise LUT of the tile.
      * @param noiseInfo Object of ThermalNoiseInfo class.
-     * @param calInfo   Object of CalibrationInfo class.
-     * @param lut       The scaled noise LUT.
-     */
-    private void computeTileScaledNoiseLUT(final int y, final int x0, final int y0, final int w,
-                                           final ThermalNoiseInfo noiseInfo,
-                                           final Sentinel1Calibrator.CalibrationInfo calInfo,
-                                           final double azT0, final double azT1,
-                                           final float[] vec0LUT, final float[] vec1LUT,
-                                           final int[] vec0Pixels, final int pixelIdx0,
-                                           final double[] lut) {
-
-        final double[] noiseLut = new double[w];
-        computeTileNoiseLUT(y, x0, y0, w, noiseInfo, noiseLut);
-
-        final double[] calLut = new double[w];
-        computeTileCalibrationLUTs(y, x0, w, calInfo, azT0, azT1,
-                vec0LUT, vec1LUT, vec0Pixels, pixelIdx0, calLut);
-
-        if (removeThermalNoise) {
-            for (int i = 0; i < w; i++) {
-                lut[i] = noiseLut[i] / (calLut[i]*calLut[i]);
-            }
-        } else { // reIntroduceThermalNoise
-            for (int i = 0; i < w; i++) {
-                lut[i] = -noiseLut[i] / (calLut[i]*calLut[i]);
-            }
-        }
-    }
-
-    /**
-     * Compute calibration LUTs for the given range line.
-     *
-     * @param y       Index of the given range line.
-     * @param x0      X coordinate of the upper left corner pixel of the given tile.
-     * @param w       Tile width.
-     * @param calInfo Object of CalibrationInfo class.
-     * @param lut     LUT for calibration.
+     * @param y         Index of the given range line.
      */
-    public static void computeTileCalibrationLUTs(final int y, final int x0, final int w,
-                                                  final Sentinel1Calibrator.CalibrationInfo calInfo,
-                                                  final double azT0, final double azT1,
-                                                  final float[] vec0LUT, final float[] vec1LUT,
-                                                  final int[] vec0Pixels, int pixelIdx0,
-                                                  final double[] lut) {
-        final double azTime = calInfo.firstLineTime + y * calInfo.lineTimeInterval;
-        double muX, muY = (azTime - azT0) / (azT1 - azT0);
-
-        int pixelIdx = pixelIdx0;
-        final int maxX = x0 + w;
-        for (int x = x0; x < maxX; x++) {
-            if (x > vec0Pixels[pixelIdx + 1]) {
-                pixelIdx++;
-            }
+    static void setNoiseVectors(final TileVectorLUT lut, final ThermalNoiseInfo noiseInfo, final int y) {
 
-            muX = (double) (x - vec0Pixels[pixelIdx]) / (double) (vec0Pixels[pixelIdx + 1] - vec0Pixels[pixelIdx]);
-            lut[x - x0] = Maths.interpolationBiLinear(
-                    vec0LUT[pixelIdx], vec0LUT[pixelIdx + 1], vec1LUT[pixelIdx], vec1LUT[pixelIdx + 1], muX, muY);
+        final int noiseVecIdx = getNoiseVectorIndex(y, noiseInfo);
+        if (!lut.isSet(noiseVecIdx)) {
+            final Sentinel1Utils.NoiseVector noiseVector = noiseInfo.noiseVectorList[noiseVecIdx];
+            final Sentinel1Utils.NoiseVector noiseVector1 = noiseInfo.noiseVectorList[noiseVecIdx + 1];
+            lut.setVectors(noiseVecIdx, noiseVector.pixels, noiseVector.noiseLUT, noiseVector1.noiseLUT,
+                    noiseVector.timeMJD, noiseVector1.timeMJD);
         }
     }
 
     /**
-     * Compute noise LUTs for the given range line.
+     * Interpolate the thermal noise of a line for the columns of a tile. The noise vectors bracketing the line
+     * are set first, so a tile may span several noise vectors.
      *
-     * @param y         Index of the given range line.
-     * @param x0        X coordinate of the upper left corner pixel of the given tile.
-     * @param y0        Y coordinate of the upper left corner pixel of the given tile.
-     * @param w         Tile width.
+     * @param lut       The noise LUT of the tile.
      * @param noiseInfo Object of ThermalNoiseInfo class.
-     * @param lut       The noise LUT.
+     * @param y         Index of the given range line.
+     * @param noiseLut  The noise of the line for the columns of the tile.
      */
-    private static void computeTileNoiseLUT(final int y, final int x0, final int y0, final int w,
-                                     final ThermalNoiseInfo noiseInfo, final double[] lut) {
-        try {
-            double muX, muY;
-            final int noiseVecIdx = getNoiseVectorIndex(y0, noiseInfo);
-            int pixelIdx = getPixelIndex(x0, noiseVecIdx, noiseInfo);
-
-            final Sentinel1Utils.NoiseVector noiseVector = noiseInfo.noiseVectorList[noiseVecIdx];
-            final Sentinel1Utils.NoiseVector noiseVector1 = noiseInfo.noiseVectorList[noiseVecIdx + 1];
-
-            final double azTime = noiseInfo.firstLineTime + y * noiseInfo.lineTimeInterval;
-            final double azT0 = noiseVector.timeMJD;
-            final double azT1 = noiseVector1.timeMJD;
-            muY = (azTime - azT0) / (azT1 - azT0);
-
-            final int maxLength = noiseVector.pixels.length - 2;
-            final int maxX = x0 + w;
-            for (int x = x0; x < maxX; x++) {
-
-                if (x > noiseVector.pixels[pixelIdx + 1] && pixelIdx < maxLength) {
-                    pixelIdx++;
-                }
-
-                final int xx0 = noiseVector.pixels[pixelIdx];
-                final int xx1 = noiseVector.pixels[pixelIdx + 1];
-                muX = (double) (x - xx0) / (double) (xx1 - xx0);
+    static void getNoiseLine(final TileVectorLUT lut, final ThermalNoiseInfo noiseInfo, final int y,
+                             final double[] noiseLut) {
 
-                lut[x - x0] = Maths.interpolationBiLinear(
-                        noiseVector.noiseLUT[pixelIdx],
-                        noiseVector.noiseLUT[pixelIdx + 1],
-                        noiseVector1.noiseLUT[pixelIdx],
-                        noiseVector1.noiseLUT[pixelIdx + 1],
-                        muX, muY);
-            }
-        } catch (Throwable e) {
-            OperatorUtils.catchOperatorException("computeTileNoiseLUT", e);
-        }
+        setNoiseVectors(lut, noiseInfo, y);
+        lut.getLine(noiseInfo.firstLineTime + y * noiseInfo.lineTimeInterval, noiseLut);
     }
 
     /**
@@ -693,25 +651,6 @@ public final class Sentinel1RemoveThermalNoiseOp extends Operator {
         return noiseInfo.count - 2;
     }
 
-    /**
-     * Get pixel index in a given noise vector for a given pixel.
-     *
-     * @param x           Pixel coordinate.
-     * @param noiseVecIdx Noise vector index.
-     * @param noiseInfo   Object of ThermalNoiseInfo class.
-     * @return The pixel index.
-     */
-    private static int getPixelIndex(final int x, final int noiseVecIdx, final ThermalNoiseInfo noiseInfo) {
-
-        for (int i = 0; i < noiseInfo.noiseVectorList[noiseVecIdx].pixels.length; i++) {
-            if (x < noiseInfo.noiseVectorList[noiseVecIdx].pixels[i]) {
-                return i - 1;
-            }
-        }
-        return noiseInfo.noiseVectorList[noiseVecIdx].pixels.length - 2;
-    }
-
-
     public static class ThermalNoiseInfo {
         public String polarization;
         public String subSwath;
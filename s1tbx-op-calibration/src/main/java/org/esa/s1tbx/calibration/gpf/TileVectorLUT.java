@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.calibration.gpf;
+
+/**
+ * Interpolates annotation vectors given for some pixels of some lines, such as the Sentinel-1 noise and
+ * calibration vectors, over the pixels of a tile: linearly in pixel, then linearly in azimuth time between the
+ * two vectors bracketing the line.
+ * <p/>
+ * The interpolation is separable. The two bracketing vectors are resampled to the columns of the tile once, when
+ * they are set, and each line is then a weighted sum of the two range LUTs. The vectors only have to be set
+ * again when a line of the tile falls between another pair of vectors.
+ */
+final class TileVectorLUT {
+
+    private final int x0;
+    private final double[] range0;
+    private final double[] range1;
+    private int vectorIndex = -1;
+    private double time0;
+    private double time1;
+
+    /**
+     * @param x0 X coordinate of the first column of the tile.
+     * @param w  Tile width.
+     */
+    TileVectorLUT(final int x0, final int w) {
+        this.x0 = x0;
+        this.range0 = new double[w];
+        this.range1 = new double[w];
+    }
+
+    /**
+     * @param vectorIndex Index of the first of a pair of vectors.
+     * @return true if that pair is the one currently set
+     */
+    boolean isSet(final int vectorIndex) {
+        return this.vectorIndex == vectorIndex;
+    }
+
+    /**
+     * Resample a pair of vectors to the columns of the tile.
+     *
+     * @param vectorIndex Index of the first vector, to be tested with {@link #isSet}.
+     * @param pixels      Pixels of the values of the first vector, used for both vectors.
+     * @param values0     Values of the first vector.
+     * @param values1     Values of the second vector.
+     * @param time0       Azimuth time of the first vector.
+     * @param time1       Azimuth time of the second vector.
+     */
+    void setVectors(final int vectorIndex, final int[] pixels, final float[] values0, final float[] values1,
+                    final double time0, final double time1) {
+
+        final int maxPixelIdx = pixels.length - 2;
+        int pixelIdx = 0;
+        for (int i = 0; i < range0.length; i++) {
+            final int x = x0 + i;
+            while (pixelIdx < maxPixelIdx && x >= pixels[pixelIdx + 1]) {
+                pixelIdx++;
+            }
+
+            final double muX = (x - pixels[pixelIdx]) / (double) (pixels[pixelIdx + 1] - pixels[pixelIdx]);
+            range0[i] = (1 - muX) * values0[pixelIdx] + muX * values0[pixelIdx + 1];
+            range1[i] = (1 - muX) * values1[pixelIdx] + muX * values1[pixelIdx + 1];
+        }
+
+        this.vectorIndex = vectorIndex;
+        this.time0 = time0;
+        this.time1 = time1;
+    }
+
+    /**
+     * Interpolate the vectors for a line.
+     *
+     * @param azTime Azimuth time of the line.
+     * @param lut    The values of the line for the columns of the tile.
+     */
+    void getLine(final double azTime, final double[] lut) {
+
+        final double muY = (azTime - time0) / (time1 - time0);
+        for (int i = 0; i < range0.length; i++) {
+            lut[i] = (1 - muY) * range0[i] + muY * range1[i];
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.calibration.gpf;
+
+import org.apache.commons.math3.util.FastMath;
+import org.esa.snap.eo.Constants;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for the calibration planes of ASARCalibrator: the calibrated values must be bit-identical to the
+ * per-pixel computation they replace.
+ */
+public class TestASARCalibrator {
+
+    private static final int W = 37;
+    private static final int H = 23;
+    private static final int SIZE = W * H;
+    private static final double[] CALIBRATION_CONSTANTS = {524365.0, 491734.0};
+    private static final double RANGE_SPREADING_COMP_POWER = 3.0;
+
+    /**
+     * The inputs of the calibration of a tile with two polarisations.
+     */
+    private static final class TileInputs {
+        final double[][] dn2 = new double[2][SIZE];
+        final double[] incidenceAngles = new double[SIZE]; // in degree
+        final double[] slantRange = new double[SIZE]; // in m
+        final double[][] newGains = new double[2][SIZE]; // linear scale
+        final double[][] oldGains = new double[2][SIZE]; // linear scale
+
+        TileInputs(final long seed) {
+            final Random random = new Random(seed);
+            for (int k = 0; k < SIZE; k++) {
+                incidenceAngles[k] = 15.0 + 30.0 * random.nextDouble();
+                slantRange[k] = 800000.0 + 150000.0 * random.nextDouble();
+                for (int p = 0; p < 2; p++) {
+                    dn2[p][k] = 1.0e4 * random.nextDouble();
+                    newGains[p][k] = 0.5 + 1.5 * random.nextDouble();
+                    oldGains[p][k] = 0.5 + 1.5 * random.nextDouble();
+                }
+            }
+        }
+    }
+
+    /**
+     * The per-pixel calibration of ASARCalibrator.computeTile before the calibration planes.
+     */
+    private static double[] calibratePerPixel(final TileInputs in, final int prodBand, final boolean retro,
+                                              final boolean antennaPattern, final boolean rangeSpreading) {
+        final double[] result = new double[SIZE];
+        final double theCalibrationFactor = CALIBRATION_CONSTANTS[prodBand];
+        for (int k = 0; k < SIZE; k++) {
+            double sigma = in.dn2[prodBand][k];
+
+            if (retro) { // remove old antenna pattern gain
+                sigma *= in.oldGains[prodBand][k];
+            }
+
+            // apply calibration constant and incidence angle corrections
+            sigma *= FastMath.sin(in.incidenceAngles[k] * Constants.DTOR) / theCalibrationFactor;
+
+            if (rangeSpreading) { // apply range spreading loss compensation
+                sigma *= FastMath.pow(in.slantRange[k] / 800000.0, RANGE_SPREADING_COMP_POWER);
+            }
+
+            if (antennaPattern) { // apply antenna pattern correction
+                sigma /= in.newGains[prodBand][k];
+            }
+            result[k] = sigma;
+        }
+        return result;
+    }
+
+    /**
+     * Fill the calibration planes as ASARCalibrator.computeCalibrationPlanes does.
+     */
+    private static void computePlanes(final TileInputs in, final ASARCalibrator.CalibrationPlanes planes,
+                                      final boolean retro, final boolean antennaPattern,
+                                      final boolean rangeSpreading) {
+        planes.incidenceFactor = new double[2][SIZE];
+        for (int p = 0; p < 2; p++) {
+            for (int k = 0; k < SIZE; k++) {
+                planes.incidenceFactor[p][k] =
+                        ASARCalibrator.getIncidenceFactor(in.incidenceAngles[k], CALIBRATION_CONSTANTS[p]);
+            }
+        }
+        if (antennaPattern) {
+            planes.newAntPat = in.newGains;
+            planes.oldAntPat = retro ? in.oldGains : null;
+            if (rangeSpreading) {
+                planes.rangeSpreadingFactor = new double[SIZE];
+                for (int k = 0; k < SIZE; k++) {
+                    planes.rangeSpreadingFactor[k] =
+                            ASARCalibrator.getRangeSpreadingFactor(in.slantRange[k], RANGE_SPREADING_COMP_POWER);
+                }
+            }
+        }
+        planes.computed = true;
+    }
+
+    private static void compare(final TileInputs in, final ASARCalibrator.CalibrationPlanes planes,
+                                final boolean retro, final boolean antennaPattern, final boolean rangeSpreading) {
+        for (int prodBand = 0; prodBand < 2; prodBand++) {
+            final double[] expected = calibratePerPixel(in, prodBand, retro, antennaPattern, rangeSpreading);
+            final double[] sigma = in.dn2[prodBand].clone();
+            ASARCalibrator.applyCalibrationPlanes(sigma, planes, prodBand);
+            for (int k = 0; k < SIZE; k++) {
+                assertEquals(expected[k], sigma[k], 0.0);
+            }
+        }
+    }
+
+    private static void testCorrections(final boolean retro, final boolean antennaPattern,
+                                        final boolean rangeSpreading) {
+        final TileInputs in = new TileInputs(42);
+        final ASARCalibrator.CalibrationPlanes planes = new ASARCalibrator.CalibrationPlanes(0);
+        computePlanes(in, planes, retro, antennaPattern, rangeSpreading);
+        compare(in, planes, retro, antennaPattern, rangeSpreading);
+    }
+
+    @Test
+    public void testAllCorrections() {
+        testCorrections(true, true, true);
+    }
+
+    @Test
+    public void testWithoutRetroCalibration() {
+        testCorrections(false, true, true);
+    }
+
+    @Test
+    public void testWithoutRangeSpreading() {
+        testCorrections(false, true, false);
+    }
+
+    @Test
+    public void testWithoutAntennaPattern() {
+        testCorrections(false, false, false);
+    }
+
+    @Test
+    public void testEvictedPlanesAreRebuilt() {
+        // room for the planes of two tiles
+        final long tileBytes = 8L * SIZE * 7;
+        final ASARCalibrator.CalibrationPlanesCache cache = new ASARCalibrator.CalibrationPlanesCache(2 * tileBytes);
+        final Rectangle[] rects = {new Rectangle(0, 0, W, H), new Rectangle(W, 0, W, H), new Rectangle(0, H, W, H)};
+        final TileInputs[] inputs = {new TileInputs(1), new TileInputs(2), new TileInputs(3)};
+
+        final ASARCalibrator.CalibrationPlanes[] planes = new ASARCalibrator.CalibrationPlanes[rects.length];
+        for (int t = 0; t < rects.length; t++) {
+            planes[t] = cache.get(rects[t], tileBytes);
+            assertFalse(planes[t].computed);
+            computePlanes(inputs[t], planes[t], true, true, true);
+            compare(inputs[t], planes[t], true, true, true);
+        }
+        assertEquals(2, cache.size());
+        assertEquals(2 * tileBytes, cache.getBytes());
+
+        // the second tile is still cached, the first one was evicted
+        assertTrue(cache.get(new Rectangle(rects[1]), tileBytes) == planes[1]);
+        final ASARCalibrator.CalibrationPlanes rebuilt = cache.get(rects[0], tileBytes);
+        assertTrue(rebuilt != planes[0]);
+        assertFalse(rebuilt.computed);
+
+        // the rebuilt planes give the same values, the least recently used third tile made room for them
+        computePlanes(inputs[0], rebuilt, true, true, true);
+        compare(inputs[0], rebuilt, true, true, true);
+        assertTrue(cache.get(rects[1], tileBytes) == planes[1]);
+        assertFalse(cache.get(rects[2], tileBytes) == planes[2]);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testTileLargerThanCache() {
+        // the planes of a tile are kept even if they alone exceed the limit
+        final ASARCalibrator.CalibrationPlanesCache cache = new ASARCalibrator.CalibrationPlanesCache(100);
+        final Rectangle rect = new Rectangle(0, 0, W, H);
+        final ASARCalibrator.CalibrationPlanes planes = cache.get(rect, 8L * SIZE);
+        assertTrue(cache.get(rect, 8L * SIZE) == planes);
+
+        cache.get(new Rectangle(W, 0, W, H), 8L * SIZE);
+        assertEquals(1, cache.size());
+        assertEquals(8L * SIZE, cache.getBytes());
+    }
+}
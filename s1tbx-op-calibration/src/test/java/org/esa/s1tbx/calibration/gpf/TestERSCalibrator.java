@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.calibration.gpf;
+
+import org.apache.commons.math3.util.FastMath;
+import org.esa.snap.eo.Constants;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for the precomputed incidence angle correction of ERSCalibrator
+ */
+public class TestERSCalibrator {
+
+    @Test
+    public void testSinIncidenceAnglesByK() {
+        final Random random = new Random(7);
+        final double calibrationConstant = 588310.0;
+        final double[] incidenceAngles = new double[1000];
+        for (int x = 0; x < incidenceAngles.length; x++) {
+            incidenceAngles[x] = (18.0 + 8.0 * random.nextDouble()) * Constants.DTOR;
+        }
+
+        final double[] sinIncidenceAnglesByK =
+                ERSCalibrator.computeSinIncidenceAnglesByK(incidenceAngles, calibrationConstant);
+
+        // the correction of ERSCalibrator.computeTile before it was precomputed, applied to a pixel
+        final double k = calibrationConstant * FastMath.sin(23.0 * Constants.DTOR);
+        for (int x = 0; x < incidenceAngles.length; x++) {
+            final double dn2 = 1.0e4 * random.nextDouble();
+            double expected = dn2;
+            expected *= FastMath.sin(incidenceAngles[x]) / k;
+            double sigma = dn2;
+            sigma *= sinIncidenceAnglesByK[x];
+            assertEquals(expected, sigma, 0.0);
+        }
+    }
+}
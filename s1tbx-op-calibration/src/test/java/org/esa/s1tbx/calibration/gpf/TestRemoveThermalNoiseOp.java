@@ -85,6 +85,52 @@ public class TestRemoveThermalNoiseOp {
         assertEquals(6065.0, floatValues[2], 0.0001);
     }
 
+    @Test
+    public void testCalibrationWithNoiseRemovalS1_GRD() throws Exception {
+        final File inputFile = TestData.inputS1_GRD;
+        if (!inputFile.exists()) {
+            TestUtils.skipTest(this, inputFile + " not found");
+            return;
+        }
+        final Product sourceProduct = TestUtils.readSourceProduct(inputFile);
+
+        // thermal noise removal followed by calibration
+        final Sentinel1RemoveThermalNoiseOp noiseOp = (Sentinel1RemoveThermalNoiseOp) spi.createOperator();
+        noiseOp.setSourceProduct(sourceProduct);
+        final CalibrationOp calOp = (CalibrationOp) new CalibrationOp.Spi().createOperator();
+        calOp.setSourceProduct(noiseOp.getTargetProduct());
+        final Band standaloneBand = calOp.getTargetProduct().getBand("Sigma0_VV");
+        assertNotNull(standaloneBand);
+
+        // calibration removing the thermal noise
+        final CalibrationOp fusedOp = (CalibrationOp) new CalibrationOp.Spi().createOperator();
+        fusedOp.setSourceProduct(sourceProduct);
+        fusedOp.setParameter("removeThermalNoise", true);
+        final Band fusedBand = fusedOp.getTargetProduct().getBand("Sigma0_VV");
+        assertNotNull(fusedBand);
+
+        final Band sourceBand = sourceProduct.getBand("Amplitude_VV");
+        assertNotNull(sourceBand);
+
+        // all lines, so the tiles span several noise vectors
+        final int w = 16;
+        final int h = sourceProduct.getSceneRasterHeight();
+        final float[] sourceValues = new float[w * h];
+        final float[] standaloneValues = new float[w * h];
+        final float[] fusedValues = new float[w * h];
+        sourceBand.readPixels(0, 0, w, h, sourceValues, ProgressMonitor.NULL);
+        standaloneBand.readPixels(0, 0, w, h, standaloneValues, ProgressMonitor.NULL);
+        fusedBand.readPixels(0, 0, w, h, fusedValues, ProgressMonitor.NULL);
+
+        final double noDataValue = sourceBand.getNoDataValue();
+        for (int i = 0; i < fusedValues.length; i++) {
+            if (sourceValues[i] == noDataValue) {
+                continue;
+            }
+            assertEquals(standaloneValues[i], fusedValues[i], 1e-4 * Math.abs(standaloneValues[i]) + 1e-9);
+        }
+    }
+
     /**
      * Processes a product and compares it to processed product known to be correct
      *
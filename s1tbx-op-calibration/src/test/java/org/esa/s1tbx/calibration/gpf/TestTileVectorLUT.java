@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.calibration.gpf;
+
+import org.esa.s1tbx.insar.gpf.Sentinel1Utils;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for TileVectorLUT
+ */
+public class TestTileVectorLUT {
+
+    private static final int[] PIXELS = {0, 10, 30, 40};
+    private static final float[] VALUES0 = {1.0f, 2.0f, 6.0f, 4.0f};
+    private static final float[] VALUES1 = {3.0f, 0.0f, 2.0f, 8.0f};
+
+    private static final double SECOND = 1.0 / 86400.0; // in MJD
+
+    /**
+     * Bilinear interpolation of the vectors at a pixel, as the vectors were interpolated before TileVectorLUT.
+     */
+    private static double interpolate(final int x, final double muY) {
+        int i = 0;
+        while (i < PIXELS.length - 2 && x >= PIXELS[i + 1]) {
+            i++;
+        }
+        final double muX = (x - PIXELS[i]) / (double) (PIXELS[i + 1] - PIXELS[i]);
+        return (1 - muY) * ((1 - muX) * VALUES0[i] + muX * VALUES0[i + 1]) +
+                muY * ((1 - muX) * VALUES1[i] + muX * VALUES1[i + 1]);
+    }
+
+    @Test
+    public void testIsSet() {
+        final TileVectorLUT lut = new TileVectorLUT(0, 8);
+        assertFalse(lut.isSet(0));
+
+        lut.setVectors(2, PIXELS, VALUES0, VALUES1, 0.0, 1.0);
+        assertTrue(lut.isSet(2));
+        assertFalse(lut.isSet(0));
+        assertFalse(lut.isSet(3));
+    }
+
+    @Test
+    public void testVectorPixels() {
+        final TileVectorLUT lut = new TileVectorLUT(0, 41);
+        lut.setVectors(0, PIXELS, VALUES0, VALUES1, 10.0, 20.0);
+        final double[] line = new double[41];
+
+        // the lines of the vectors give the values of the vectors at their pixels
+        lut.getLine(10.0, line);
+        for (int i = 0; i < PIXELS.length; i++) {
+            assertEquals(VALUES0[i], line[PIXELS[i]], 1e-12);
+        }
+        lut.getLine(20.0, line);
+        for (int i = 0; i < PIXELS.length; i++) {
+            assertEquals(VALUES1[i], line[PIXELS[i]], 1e-12);
+        }
+    }
+
+    @Test
+    public void testBilinear() {
+        final TileVectorLUT lut = new TileVectorLUT(0, 41);
+        lut.setVectors(0, PIXELS, VALUES0, VALUES1, 10.0, 20.0);
+        final double[] line = new double[41];
+
+        for (double azTime = 10.0; azTime <= 20.0; azTime += 2.5) {
+            lut.getLine(azTime, line);
+            final double muY = (azTime - 10.0) / 10.0;
+            for (int x = 0; x < line.length; x++) {
+                assertEquals(interpolate(x, muY), line[x], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testTileOffset() {
+        // a tile starting between two pixels of the vectors gives the same values as the whole line
+        final int x0 = 17;
+        final int w = 30;
+        final TileVectorLUT lut = new TileVectorLUT(x0, w);
+        lut.setVectors(0, PIXELS, VALUES0, VALUES1, 0.0, 1.0);
+        final double[] line = new double[w];
+
+        lut.getLine(0.25, line);
+        for (int i = 0; i < w; i++) {
+            assertEquals(interpolate(x0 + i, 0.25), line[i], 1e-12);
+        }
+    }
+
+    @Test
+    public void testBeyondLastPixel() {
+        // pixels after the last one of the vectors are extrapolated from the last two
+        final TileVectorLUT lut = new TileVectorLUT(38, 6);
+        lut.setVectors(0, PIXELS, VALUES0, VALUES1, 0.0, 1.0);
+        final double[] line = new double[6];
+
+        lut.getLine(0.0, line);
+        assertEquals(4.0, line[2], 1e-12);
+        assertEquals(4.0 - 0.2 * 3, line[5], 1e-12);
+    }
+
+    /**
+     * Noise vectors at lines 0, 10 and 20, one line per second.
+     */
+    private static Sentinel1RemoveThermalNoiseOp.ThermalNoiseInfo createNoiseInfo() {
+        final int[] lines = {0, 10, 20};
+        final float[][] values = {VALUES0, VALUES1, VALUES0};
+        final Sentinel1Utils.NoiseVector[] vectors = new Sentinel1Utils.NoiseVector[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            vectors[i] = new Sentinel1Utils.NoiseVector(new ProductData.UTC(0, lines[i], 0), lines[i], PIXELS,
+                    values[i]);
+        }
+        return new Sentinel1RemoveThermalNoiseOp.ThermalNoiseInfo("VV", "IW1", 0.0, 20 * SECOND, 21,
+                vectors.length, vectors);
+    }
+
+    @Test
+    public void testNoiseLineAcrossVectors() {
+        final Sentinel1RemoveThermalNoiseOp.ThermalNoiseInfo noiseInfo = createNoiseInfo();
+
+        // the lines of a tile from 5 to 14 are between the first and the second, then the second and the third
+        // noise vectors
+        final int x0 = 5;
+        final int w = 30;
+        final TileVectorLUT tileLUT = new TileVectorLUT(x0, w);
+        final double[] tileLine = new double[w];
+        final double[] line = new double[w];
+        for (int y = 5; y < 15; y++) {
+            Sentinel1RemoveThermalNoiseOp.getNoiseLine(tileLUT, noiseInfo, y, tileLine);
+
+            // the same line from a LUT of its own
+            Sentinel1RemoveThermalNoiseOp.getNoiseLine(new TileVectorLUT(x0, w), noiseInfo, y, line);
+
+            final double muY = (y % 10) / 10.0;
+            for (int i = 0; i < w; i++) {
+                final double expected = y < 10 ? interpolate(x0 + i, muY) : interpolate(x0 + i, 1.0 - muY);
+                assertEquals(expected, tileLine[i], 1e-9);
+                assertEquals(line[i], tileLine[i], 0.0);
+            }
+        }
+        assertTrue(tileLUT.isSet(1));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of connected components: area, bounding box, centroid and the first two moments of the
+ * pixel values. The statistics are accumulated while the components are labelled and merged when
+ * components turn out to be connected, so the pixels of a component never have to be visited again.
+ * Components are indexed from 0.
+ */
+public final class ComponentStatistics {
+
+    private int size = 0;
+    private int[] area;
+    private int[] minX;
+    private int[] maxX;
+    private int[] minY;
+    private int[] maxY;
+    private double[] sumX;
+    private double[] sumY;
+    private double[] sumValue;
+    private double[] sumValue2;
+
+    ComponentStatistics(final int capacity) {
+        final int n = Math.max(capacity, 16);
+        area = new int[n];
+        minX = new int[n];
+        maxX = new int[n];
+        minY = new int[n];
+        maxY = new int[n];
+        sumX = new double[n];
+        sumY = new double[n];
+        sumValue = new double[n];
+        sumValue2 = new double[n];
+    }
+
+    /**
+     * Add an empty component.
+     *
+     * @return the index of the component
+     */
+    int add() {
+        if (size == area.length) {
+            final int n = 2 * size;
+            area = Arrays.copyOf(area, n);
+            minX = Arrays.copyOf(minX, n);
+            maxX = Arrays.copyOf(maxX, n);
+            minY = Arrays.copyOf(minY, n);
+            maxY = Arrays.copyOf(maxY, n);
+            sumX = Arrays.copyOf(sumX, n);
+            sumY = Arrays.copyOf(sumY, n);
+            sumValue = Arrays.copyOf(sumValue, n);
+            sumValue2 = Arrays.copyOf(sumValue2, n);
+        }
+        final int c = size++;
+        area[c] = 0;
+        minX[c] = Integer.MAX_VALUE;
+        maxX[c] = Integer.MIN_VALUE;
+        minY[c] = Integer.MAX_VALUE;
+        maxY[c] = Integer.MIN_VALUE;
+        sumX[c] = 0;
+        sumY[c] = 0;
+        sumValue[c] = 0;
+        sumValue2[c] = 0;
+        return c;
+    }
+
+    /**
+     * Add the pixels xs to xe (inclusive) of line y to a component.
+     */
+    void addRun(final int c, final int xs, final int xe, final int y) {
+        final int n = xe - xs + 1;
+        area[c] += n;
+        if (xs < minX[c])
+            minX[c] = xs;
+        if (xe > maxX[c])
+            maxX[c] = xe;
+        if (y < minY[c])
+            minY[c] = y;
+        if (y > maxY[c])
+            maxY[c] = y;
+        sumX[c] += 0.5 * (xs + xe) * n;
+        sumY[c] += (double) y * n;
+    }
+
+    void addValue(final int c, final double value) {
+        sumValue[c] += value;
+        sumValue2[c] += value * value;
+    }
+
+    /**
+     * Add the statistics of component c of src to component into.
+     */
+    void merge(final int into, final ComponentStatistics src, final int c) {
+        area[into] += src.area[c];
+        minX[into] = Math.min(minX[into], src.minX[c]);
+        maxX[into] = Math.max(maxX[into], src.maxX[c]);
+        minY[into] = Math.min(minY[into], src.minY[c]);
+        maxY[into] = Math.max(maxY[into], src.maxY[c]);
+        sumX[into] += src.sumX[c];
+        sumY[into] += src.sumY[c];
+        sumValue[into] += src.sumValue[c];
+        sumValue2[into] += src.sumValue2[c];
+    }
+
+    public int getNumComponents() {
+        return size;
+    }
+
+    /**
+     * @return the number of pixels in the component
+     */
+    public int getArea(final int c) {
+        return area[c];
+    }
+
+    public int getMinX(final int c) {
+        return minX[c];
+    }
+
+    public int getMaxX(final int c) {
+        return maxX[c];
+    }
+
+    public int getMinY(final int c) {
+        return minY[c];
+    }
+
+    public int getMaxY(final int c) {
+        return maxY[c];
+    }
+
+    public double getCentroidX(final int c) {
+        return sumX[c] / area[c];
+    }
+
+    public double getCentroidY(final int c) {
+        return sumY[c] / area[c];
+    }
+
+    /**
+     * @return the sum of the pixel values of the component
+     */
+    public double getSumValue(final int c) {
+        return sumValue[c];
+    }
+
+    public double getMeanValue(final int c) {
+        return sumValue[c] / area[c];
+    }
+
+    public double getValueVariance(final int c) {
+        final double mean = sumValue[c] / area[c];
+        return Math.max(sumValue2[c] / area[c] - mean * mean, 0.0);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Joins the connected components labelled tile by tile into the components of the whole image.
+ * <p/>
+ * Only the labels along the tile edges and the component statistics of each tile are kept. When all tiles
+ * have been added, the labels facing each other across the edges and corners of neighbouring tiles are joined
+ * in a global union-find table and the statistics of joined components are merged. Tiles are expected to lie
+ * on a regular grid, as the tiles of a target band do.
+ */
+public final class ConnectedComponentMerger {
+
+    private final Map<Point, TileLabels> tiles = new HashMap<>();
+
+    /**
+     * Add the components of a tile. May be called concurrently.
+     */
+    public synchronized void add(final ConnectedComponents components) {
+        final TileLabels tile = new TileLabels(components);
+        tiles.put(new Point(tile.x0, tile.y0), tile);
+    }
+
+    /**
+     * @return the statistics of the components of all tiles added, joined across the tile edges
+     */
+    public synchronized ComponentStatistics merge() {
+
+        final List<TileLabels> tileList = new ArrayList<>(tiles.values());
+        int total = 0;
+        for (TileLabels tile : tileList) {
+            tile.offset = total;
+            total += tile.statistics.getNumComponents();
+        }
+
+        final int[] parent = new int[total];
+        for (int i = 0; i < total; ++i) {
+            parent[i] = i;
+        }
+
+        for (TileLabels tile : tileList) {
+            final TileLabels right = tiles.get(new Point(tile.x0 + tile.width, tile.y0));
+            final TileLabels below = tiles.get(new Point(tile.x0, tile.y0 + tile.height));
+            final TileLabels belowRight = tiles.get(new Point(tile.x0 + tile.width, tile.y0 + tile.height));
+
+            if (right != null) {
+                joinEdge(parent, tile, tile.right, right, right.left);
+            }
+            if (below != null) {
+                joinEdge(parent, tile, tile.bottom, below, below.top);
+            }
+            if (belowRight != null) {
+                join(parent, tile, tile.bottom[tile.width - 1], belowRight, belowRight.top[0]);
+            }
+            if (below != null && right != null) {
+                join(parent, below, below.top[below.width - 1], right, right.bottom[0]);
+            }
+        }
+
+        final int[] compact = new int[total];
+        final ComponentStatistics merged = new ComponentStatistics(total);
+        for (TileLabels tile : tileList) {
+            final int numComponents = tile.statistics.getNumComponents();
+            for (int c = 0; c < numComponents; ++c) {
+                final int id = tile.offset + c;
+                final int root = ConnectedComponents.find(parent, id);
+                if (root == id) {
+                    compact[id] = merged.add();
+                }
+            }
+        }
+        for (TileLabels tile : tileList) {
+            final int numComponents = tile.statistics.getNumComponents();
+            for (int c = 0; c < numComponents; ++c) {
+                final int root = ConnectedComponents.find(parent, tile.offset + c);
+                merged.merge(compact[root], tile.statistics, c);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Join the labels of two edges facing each other, each pixel touches the three opposite pixels.
+     */
+    private static void joinEdge(final int[] parent, final TileLabels tileA, final int[] edgeA,
+                                 final TileLabels tileB, final int[] edgeB) {
+        final int n = Math.min(edgeA.length, edgeB.length);
+        for (int i = 0; i < n; ++i) {
+            if (edgeA[i] == 0)
+                continue;
+            for (int j = Math.max(i - 1, 0); j <= Math.min(i + 1, n - 1); ++j) {
+                join(parent, tileA, edgeA[i], tileB, edgeB[j]);
+            }
+        }
+    }
+
+    private static void join(final int[] parent, final TileLabels tileA, final int labelA,
+                             final TileLabels tileB, final int labelB) {
+        if (labelA != 0 && labelB != 0) {
+            ConnectedComponents.union(parent, tileA.offset + labelA - 1, tileB.offset + labelB - 1);
+        }
+    }
+
+    private static class TileLabels {
+        final int x0;
+        final int y0;
+        final int width;
+        final int height;
+        final int[] top;
+        final int[] bottom;
+        final int[] left;
+        final int[] right;
+        final ComponentStatistics statistics;
+        int offset;
+
+        TileLabels(final ConnectedComponents components) {
+            x0 = components.getX0();
+            y0 = components.getY0();
+            width = components.getWidth();
+            height = components.getHeight();
+            statistics = components.getStatistics();
+
+            top = new int[width];
+            bottom = new int[width];
+            for (int x = 0; x < width; ++x) {
+                top[x] = components.getLabel(x0 + x, y0);
+                bottom[x] = components.getLabel(x0 + x, y0 + height - 1);
+            }
+            left = new int[height];
+            right = new int[height];
+            for (int y = 0; y < height; ++y) {
+                left[y] = components.getLabel(x0, y0 + y);
+                right[y] = components.getLabel(x0 + width - 1, y0 + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf;
+
+import java.util.Arrays;
+
+/**
+ * 8-connected components of a binary mask over a rectangle of the image.
+ * <p/>
+ * Labelling is done in two passes over runs of foreground pixels. The first pass gives each run the label
+ * of the runs it touches in the previous line, joining labels with a union-find table, and accumulates the
+ * component statistics per provisional label. The second pass resolves the provisional labels to compact
+ * component labels and merges their statistics. Labels are 1 based, 0 is background; the statistics of
+ * label l are at index l - 1.
+ */
+public final class ConnectedComponents {
+
+    private final int x0;
+    private final int y0;
+    private final int width;
+    private final int height;
+    private final int[] labels;
+    private final ComponentStatistics statistics;
+
+    private ConnectedComponents(final int x0, final int y0, final int width, final int height,
+                                final int[] labels, final ComponentStatistics statistics) {
+        this.x0 = x0;
+        this.y0 = y0;
+        this.width = width;
+        this.height = height;
+        this.labels = labels;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Label the connected components of a mask.
+     *
+     * @param x0     x coordinate of the upper left corner of the rectangle
+     * @param y0     y coordinate of the upper left corner of the rectangle
+     * @param width  width of the rectangle
+     * @param height height of the rectangle
+     * @param mask   foreground flags, line by line
+     * @param values pixel values for the value statistics, line by line, or null
+     * @return the labelled components
+     */
+    public static ConnectedComponents label(final int x0, final int y0, final int width, final int height,
+                                            final boolean[] mask, final double[] values) {
+
+        final int[] labels = new int[width * height];
+        final ComponentStatistics provisional = new ComponentStatistics(64);
+        int[] parent = new int[64];
+
+        // runs of the previous and the current line
+        final int maxRuns = (width + 1) / 2;
+        int[] prevStart = new int[maxRuns];
+        int[] prevEnd = new int[maxRuns];
+        int[] prevLabel = new int[maxRuns];
+        int[] curStart = new int[maxRuns];
+        int[] curEnd = new int[maxRuns];
+        int[] curLabel = new int[maxRuns];
+        int numPrev = 0;
+
+        for (int y = 0; y < height; ++y) {
+            final int offset = y * width;
+            int numCur = 0;
+            int p = 0;
+            int x = 0;
+            while (x < width) {
+                if (!mask[offset + x]) {
+                    ++x;
+                    continue;
+                }
+                final int xs = x;
+                while (x < width && mask[offset + x]) {
+                    ++x;
+                }
+                final int xe = x - 1;
+
+                // runs of the previous line touching this run, including diagonally
+                while (p < numPrev && prevEnd[p] < xs - 1) {
+                    ++p;
+                }
+                int label = 0;
+                int q = p;
+                while (q < numPrev && prevStart[q] <= xe + 1) {
+                    label = label == 0 ? find(parent, prevLabel[q]) : union(parent, label, prevLabel[q]);
+                    ++q;
+                }
+                // the last run touched may also touch the next run of this line
+                if (q > p) {
+                    p = q - 1;
+                }
+
+                if (label == 0) {
+                    label = provisional.add() + 1;
+                    if (label == parent.length) {
+                        parent = Arrays.copyOf(parent, 2 * parent.length);
+                    }
+                    parent[label] = label;
+                }
+
+                final int c = label - 1;
+                provisional.addRun(c, x0 + xs, x0 + xe, y0 + y);
+                for (int i = offset + xs; i <= offset + xe; ++i) {
+                    labels[i] = label;
+                }
+                if (values != null) {
+                    for (int i = offset + xs; i <= offset + xe; ++i) {
+                        provisional.addValue(c, values[i]);
+                    }
+                }
+
+                curStart[numCur] = xs;
+                curEnd[numCur] = xe;
+                curLabel[numCur] = label;
+                ++numCur;
+            }
+
+            int[] tmp = prevStart;
+            prevStart = curStart;
+            curStart = tmp;
+            tmp = prevEnd;
+            prevEnd = curEnd;
+            curEnd = tmp;
+            tmp = prevLabel;
+            prevLabel = curLabel;
+            curLabel = tmp;
+            numPrev = numCur;
+        }
+
+        // roots are the smallest label of their set, so they are numbered before the labels joined to them
+        final int numProvisional = provisional.getNumComponents();
+        final int[] compact = new int[numProvisional + 1];
+        final ComponentStatistics statistics = new ComponentStatistics(numProvisional);
+        for (int label = 1; label <= numProvisional; ++label) {
+            final int root = find(parent, label);
+            if (root == label) {
+                compact[label] = statistics.add() + 1;
+            } else {
+                compact[label] = compact[root];
+            }
+            statistics.merge(compact[label] - 1, provisional, label - 1);
+        }
+
+        if (statistics.getNumComponents() != numProvisional) {
+            for (int i = 0; i < labels.length; ++i) {
+                labels[i] = compact[labels[i]];
+            }
+        }
+
+        return new ConnectedComponents(x0, y0, width, height, labels, statistics);
+    }
+
+    static int find(final int[] parent, int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    /**
+     * Join the sets of two labels, the smaller root becomes the root of both.
+     *
+     * @return the root of the joined set
+     */
+    static int union(final int[] parent, final int a, final int b) {
+        final int ra = find(parent, a);
+        final int rb = find(parent, b);
+        if (ra < rb) {
+            parent[rb] = ra;
+            return ra;
+        }
+        parent[ra] = rb;
+        return rb;
+    }
+
+    public int getX0() {
+        return x0;
+    }
+
+    public int getY0() {
+        return y0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getNumComponents() {
+        return statistics.getNumComponents();
+    }
+
+    /**
+     * @param x image x coordinate
+     * @param y image y coordinate
+     * @return the label of the pixel, 0 for background
+     */
+    public int getLabel(final int x, final int y) {
+        return labels[(y - y0) * width + x - x0];
+    }
+
+    public ComponentStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -21,6 +21,7 @@ import org.esa.snap.eo.Constants;
 import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.Product;
 import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.Stx;
 import org.esa.snap.framework.gpf.Operator;
 import org.esa.snap.framework.gpf.OperatorException;
 import org.esa.snap.framework.gpf.OperatorSpi;
@@ -37,7 +38,7 @@ import org.esa.snap.util.ProductUtils;
 
 import java.awt.Dimension;
 import java.awt.Rectangle;
-import java.util.ArrayList;
+import java.io.IOException;
 
 /**
  * The operator perform land cover classification using maximum likelihood classifier with the following
@@ -55,6 +56,10 @@ import java.util.ArrayList;
  * <p/>
  * Pixels with ratio value in range [3.76, 6.55] are initially classified as forest. Other classes are
  * selected based on the number of classes and their ratio value ranges.
+ * <p/>
+ * The class of each pixel during the iterations is kept in a temporary file, tile by tile, so that the scene
+ * does not have to fit in memory. Optionally the clusters are computed from pixels sampled on a regular grid,
+ * kept in memory, and the pixels are classified with the final clusters as the target tiles are computed.
  */
 
 @OperatorMetadata(alias = "Forest-Area-Classification",
@@ -64,6 +69,9 @@ import java.util.ArrayList;
         description = "Detect forest area", internal = false)
 public final class ForestAreaClassificationOp extends Operator {
 
+    private static final int TILE_SIZE = 256;
+    private static final int NO_DATA = 255;
+
     @SourceProduct(alias = "source")
     private Product sourceProduct;
     @TargetProduct
@@ -85,10 +93,16 @@ public final class ForestAreaClassificationOp extends Operator {
             label = "Convergence Threshold (%)")
     private int convergenceThreshold = 95;
 
+    @Parameter(description = "The number of pixels sampled to compute the clusters, 0 to use all pixels",
+            interval = "[0, 100000000]", defaultValue = "0", label = "Number of Sample Pixels")
+    private int numSamplePixels = 0;
+
     private int srcWidth = 0;
     private int srcHeight = 0;
-    private boolean clusterCentersComputed = false;
-    private byte[][] mask = null; // record for each pixel the class index (1: forest, 2 to numClasses: others)
+    private volatile boolean clusterCentersComputed = false;
+    private TiledClassMask mask = null; // record for each pixel the class index (0: forest, 1 to numClasses-1: others)
+    private ClusterInfo[] clusters = null;
+    private int numFeatures = 0;
     private double T_Ratio_Low = 3.76;
     private double T_Ratio_High = 6.55;
     private String[] srcBandNames = null;
@@ -191,157 +205,118 @@ public final class ForestAreaClassificationOp extends Operator {
             performClustering();
         }
 
-        final Rectangle targetRectangle = targetTile.getRectangle();
-        final int tx0 = targetRectangle.x;
-        final int ty0 = targetRectangle.y;
-        final int tw = targetRectangle.width;
-        final int th = targetRectangle.height;
-        final int maxY = ty0 + th;
-        final int maxX = tx0 + tw;
-        final ProductData targetData = targetTile.getDataBuffer();
-        final TileIndex trgIndex = new TileIndex(targetTile);
-        //System.out.println("x0 = " + tx0 + ", y0 = " + ty0 + ", w = " + tw + ", h = " + th);
-
-        for (int y = ty0; y < maxY; ++y) {
-            trgIndex.calculateStride(y);
-            for (int x = tx0; x < maxX; ++x) {
-                targetData.setElemIntAt(trgIndex.getIndex(x), mask[y][x]);
+        try {
+            final Rectangle targetRectangle = targetTile.getRectangle();
+            final int tx0 = targetRectangle.x;
+            final int ty0 = targetRectangle.y;
+            final int tw = targetRectangle.width;
+            final int th = targetRectangle.height;
+            final int maxY = ty0 + th;
+            final int maxX = tx0 + tw;
+            final ProductData targetData = targetTile.getDataBuffer();
+            final TileIndex trgIndex = new TileIndex(targetTile);
+            //System.out.println("x0 = " + tx0 + ", y0 = " + ty0 + ", w = " + tw + ", h = " + th);
+
+            if (mask != null) {
+                final byte[] classes = new byte[tw * th];
+                mask.read(targetRectangle, classes);
+
+                for (int y = ty0; y < maxY; ++y) {
+                    trgIndex.calculateStride(y);
+                    final int offset = (y - ty0) * tw - tx0;
+                    for (int x = tx0; x < maxX; ++x) {
+                        targetData.setElemIntAt(trgIndex.getIndex(x), classes[offset + x] & 0xFF);
+                    }
+                }
+                return;
+            }
+
+            // the clusters were computed from samples, classify the pixels of the tile
+            final ProductData[] dataBuffers = new ProductData[srcBandNames.length];
+            Tile sourceTile = null;
+            for (int i = 0; i < srcBandNames.length; ++i) {
+                sourceTile = getSourceTile(sourceProduct.getBand(srcBandNames[i]), targetRectangle);
+                dataBuffers[i] = sourceTile.getDataBuffer();
+            }
+            final TileIndex srcIndex = new TileIndex(sourceTile);
+            final double[] u = new double[numFeatures];
+            final double[] du = new double[numFeatures];
+
+            for (int y = ty0; y < maxY; ++y) {
+                trgIndex.calculateStride(y);
+                srcIndex.calculateStride(y);
+                for (int x = tx0; x < maxX; ++x) {
+                    getCurrentPoint(srcIndex.getIndex(x), dataBuffers, u, 0);
+                    final int clusterIdx = findClosestCluster(u, 0, du);
+                    targetData.setElemIntAt(trgIndex.getIndex(x), clusterIdx < 0 ? NO_DATA : clusterIdx);
+                }
             }
+
+        } catch (Throwable e) {
+            OperatorUtils.catchOperatorException(getId(), e);
         }
     }
 
     /**
-     * Compute centers for all clusters
+     * Delete the temporary class mask.
      */
-    private synchronized void performClustering() {
-
-        if (clusterCentersComputed) {
-            return;
+    @Override
+    public void dispose() {
+        if (mask != null) {
+            mask.dispose();
         }
-
-        final java.util.List<ClusterInfo> clusterList = new ArrayList<>(numClasses);
-        mask = new byte[srcHeight][srcWidth];
-        final Dimension tileSize = new Dimension(256, 256);
-        final Rectangle[] tileRectangles = OperatorUtils.getAllTileRectangles(sourceProduct, tileSize, 0);
-
-        computeInitialClusterCenters(clusterList, tileRectangles);
-
-        computeClusterCovarianceMatrices(clusterList, tileRectangles);
-
-        computeFinalClusterCenters(clusterList, tileRectangles);
-
-        clusterCentersComputed = true;
     }
 
     /**
-     * Compute initial cluster centers.
-     *
-     * @param clusterList    Cluster list.
-     * @param tileRectangles Tile rectangle array.
+     * Compute centers for all clusters
      */
-    private void computeInitialClusterCenters(final java.util.List<ClusterInfo> clusterList,
-                                              final Rectangle[] tileRectangles) {
-
-        setInitialClusterBoundaries(clusterList);
-
-        final StatusProgressMonitor status = new StatusProgressMonitor(tileRectangles.length,
-                "Creating Initial Clusters... ");
-        int tileCnt = 0;
-
-        final int numSrcBands = srcBandNames.length;
-
-        final int[] counter = new int[numClasses]; // number of pixels in each class
+    private synchronized void performClustering() {
 
-        final ThreadManager threadManager = new ThreadManager();
+        if (clusterCentersComputed) {
+            return;
+        }
 
-        final double[][] clusterSum = new double[numClasses][numSrcBands - 1];
+        numFeatures = srcBandNames.length - 1;
+        clusters = createInitialClusters();
 
         try {
-            for (final Rectangle rectangle : tileRectangles) {
-                checkForCancellation();
-
-                final Thread worker = new Thread() {
-
-                    final Tile[] sourceTiles = new Tile[numSrcBands];
-                    final ProductData[] dataBuffers = new ProductData[numSrcBands];
-                    final double[] u = new double[numSrcBands - 1];
-
-                    @Override
-                    public void run() {
-                        final int x0 = rectangle.x;
-                        final int y0 = rectangle.y;
-                        final int w = rectangle.width;
-                        final int h = rectangle.height;
-                        final int xMax = x0 + w;
-                        final int yMax = y0 + h;
-                        //System.out.println("x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h);
-
-                        for (int i = 0; i < numSrcBands; ++i) {
-                            sourceTiles[i] = getSourceTile(sourceProduct.getBand(srcBandNames[i]), rectangle);
-                            dataBuffers[i] = sourceTiles[i].getDataBuffer();
-                        }
-
-                        final TileIndex srcIndex = new TileIndex(sourceTiles[0]);
-
-                        for (int y = y0; y < yMax; ++y) {
-                            srcIndex.calculateStride(y);
-                            for (int x = x0; x < xMax; ++x) {
-                                final int idx = srcIndex.getIndex(x);
-
-                                final double ratio = dataBuffers[0].getElemDoubleAt(idx);
-
-                                getCurrentPoint(idx, dataBuffers, u);
+            final PixelBlocks blocks;
+            if (numSamplePixels > 0 && (long) srcWidth * srcHeight > numSamplePixels) {
+                blocks = collectSamples();
+            } else {
+                mask = new TiledClassMask(srcWidth, srcHeight, TILE_SIZE, TILE_SIZE);
+                blocks = new TileBlocks(mask);
+            }
 
-                                synchronized (counter) {
+            computeInitialClusterCenters(blocks);
 
-                                    if (!Double.isNaN(ratio)) {
-                                        for (int i = 0; i < numClasses; i++) {
-                                            if (ratio >= clusterList.get(i).initLowBound &&
-                                                    ratio < clusterList.get(i).initHighBound) {
-                                                mask[y][x] = (byte) i;
-                                                addClusterSum(i, clusterSum, u);
-                                                counter[i]++;
-                                                break;
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                };
-                threadManager.add(worker);
+            computeClusterCovarianceMatrices(blocks);
 
-                status.worked(tileCnt++);
-            }
-            threadManager.finish();
+            computeFinalClusterCenters(blocks);
 
         } catch (Throwable e) {
-            OperatorUtils.catchOperatorException(getId() + " computeInitialClusterCenters ", e);
-        } finally {
-            status.done();
+            OperatorUtils.catchOperatorException(getId() + " performClustering ", e);
         }
 
-        double[] center = new double[numSrcBands - 1];
-        for (int i = 0; i < numClasses; i++) {
-            for (int j = 0; j < numSrcBands - 1; j++) {
-                center[j] = clusterSum[i][j] / counter[i];
-            }
-            clusterList.get(i).setClusterCenter(center, counter[i]);
-        }
+        clusterCentersComputed = true;
     }
 
-    private void setInitialClusterBoundaries(final java.util.List<ClusterInfo> clusterList) {
+    /**
+     * Create the clusters with their initial ratio bounds.
+     */
+    private ClusterInfo[] createInitialClusters() {
 
         final Band ratio = sourceProduct.getBand(srcBandNames[0]);
-        final double bandMin = ratio.getStx(true, ProgressMonitor.NULL).getMinimum();
-        final double bandMax = ratio.getStx(true, ProgressMonitor.NULL).getMaximum();
+        final Stx stx = ratio.getStx(true, ProgressMonitor.NULL);
+        final double bandMin = stx.getMinimum();
+        final double bandMax = stx.getMaximum();
         final int numLowerClasses = Math.max(1, (int) Math.round((T_Ratio_Low - bandMin) / (bandMax - bandMin -
                 T_Ratio_High + T_Ratio_Low) * (numClasses - 1)));
         final int numHighClasses = numClasses - 1 - numLowerClasses;
         final double dl = (T_Ratio_Low - bandMin) / numLowerClasses;
         final double dh = (bandMax - T_Ratio_High) / numHighClasses;
 
+        final ClusterInfo[] clusterList = new ClusterInfo[numClasses];
         for (int i = 0; i < numClasses; i++) {
             ClusterInfo cluster = new ClusterInfo(i);
             if (i == 0) {
@@ -351,270 +326,544 @@ public final class ForestAreaClassificationOp extends Operator {
             } else {
                 cluster.setInitialClusterBounds(T_Ratio_High + (i - numLowerClasses - 1) * dh, T_Ratio_High + (i - numLowerClasses) * dh);
             }
-            clusterList.add(cluster);
+            clusterList[i] = cluster;
         }
+        return clusterList;
     }
 
-    private void getCurrentPoint(final int idx, final ProductData[] dataBuffers, final double[] u) {
+    /**
+     * Read the ratio and features of the pixels on a regular grid with about numSamplePixels points.
+     */
+    private PixelBlocks collectSamples() {
+
+        final int step = (int) Math.ceil(Math.sqrt((double) srcWidth * srcHeight / numSamplePixels));
+        final int offsetX = Math.min(step, srcWidth) / 2;
+        final int offsetY = Math.min(step, srcHeight) / 2;
+        final int numGridX = (srcWidth - offsetX + step - 1) / step;
+        final int numGridY = (srcHeight - offsetY + step - 1) / step;
+        final SampleBlocks samples = new SampleBlocks(numGridX * numGridY, numFeatures);
+
+        final Rectangle[] tileRectangles = OperatorUtils.getAllTileRectangles(sourceProduct,
+                new Dimension(TILE_SIZE, TILE_SIZE), 0);
+
+        runPass("Sampling Pixels... ", tileRectangles.length, null, new BlockTask() {
+            @Override
+            public void process(final int block, final BlockBuffer buffer, final ClusterStatistics statistics) {
+                final Rectangle rectangle = tileRectangles[block];
+                final int gx0 = (Math.max(rectangle.x - offsetX, 0) + step - 1) / step;
+                final int gy0 = (Math.max(rectangle.y - offsetY, 0) + step - 1) / step;
+                final int gx1 = Math.min(Math.floorDiv(rectangle.x + rectangle.width - 1 - offsetX, step), numGridX - 1);
+                final int gy1 = Math.min(Math.floorDiv(rectangle.y + rectangle.height - 1 - offsetY, step), numGridY - 1);
+                if (gx0 > gx1 || gy0 > gy1) {
+                    return;
+                }
 
-        for (int i = 1; i < dataBuffers.length; i++) {
-            u[i - 1] = dataBuffers[i].getElemDoubleAt(idx);
-        }
-    }
+                final ProductData[] dataBuffers = new ProductData[srcBandNames.length];
+                Tile sourceTile = null;
+                for (int i = 0; i < srcBandNames.length; ++i) {
+                    sourceTile = getSourceTile(sourceProduct.getBand(srcBandNames[i]), rectangle);
+                    dataBuffers[i] = sourceTile.getDataBuffer();
+                }
+                final TileIndex srcIndex = new TileIndex(sourceTile);
+
+                for (int gy = gy0; gy <= gy1; ++gy) {
+                    srcIndex.calculateStride(offsetY + gy * step);
+                    for (int gx = gx0; gx <= gx1; ++gx) {
+                        final int idx = srcIndex.getIndex(offsetX + gx * step);
+                        final int k = gy * numGridX + gx;
+                        samples.ratio[k] = dataBuffers[0].getElemDoubleAt(idx);
+                        getCurrentPoint(idx, dataBuffers, samples.features, k * numFeatures);
+                    }
+                }
+            }
+        });
 
-    private void addClusterSum(final int classIdx, final double[][] clusterSum, final double[] u) {
-        for (int j = 0; j < u.length; j++) {
-            clusterSum[classIdx][j] += u[j];
-        }
+        return samples;
     }
 
     /**
-     * Compute covariance matrices for all clusters.
+     * Compute initial cluster centers.
      *
-     * @param clusterList    The cluster list.
-     * @param tileRectangles The tile rectangles.
+     * @param blocks The pixels to cluster.
      */
-    private void computeClusterCovarianceMatrices(final java.util.List<ClusterInfo> clusterList,
-                                                  final Rectangle[] tileRectangles) {
-
-        final StatusProgressMonitor status = new StatusProgressMonitor(tileRectangles.length,
-                "Computing Cluster Covariance Matrices... ");
-        int tileCnt = 0;
+    private void computeInitialClusterCenters(final PixelBlocks blocks) {
 
-        final int numSrcBands = srcBandNames.length;
+        final ClusterStatistics statistics = runPass("Creating Initial Clusters... ", blocks.getNumBlocks(),
+                blocks, new BlockTask() {
+                    @Override
+                    public void process(final int block, final BlockBuffer buffer,
+                                        final ClusterStatistics statistics) throws IOException {
+                        blocks.load(block, buffer, false);
+
+                        for (int k = buffer.from; k < buffer.to; ++k) {
+                            buffer.labels[k] = 0;
+
+                            final double ratio = buffer.ratio[k];
+                            if (!Double.isNaN(ratio)) {
+                                for (int i = 0; i < numClasses; i++) {
+                                    if (ratio >= clusters[i].initLowBound && ratio < clusters[i].initHighBound) {
+                                        buffer.labels[k] = (byte) i;
+                                        statistics.addClusterSum(i, buffer.features, k * numFeatures);
+                                        statistics.counter[i]++;
+                                        break;
+                                    }
+                                }
+                            }
+                        }
 
-        final ThreadManager threadManager = new ThreadManager();
+                        blocks.store(block, buffer);
+                    }
+                });
 
-        final double[][][] clusterCov = new double[numClasses][numSrcBands - 1][numSrcBands - 1];
+        updateClusterCenter(clusters, statistics);
+    }
 
-        try {
-            for (final Rectangle rectangle : tileRectangles) {
-                checkForCancellation();
+    private static void getCurrentPoint(final int idx, final ProductData[] dataBuffers, final double[] u,
+                                        final int offset) {
 
-                final Thread worker = new Thread() {
+        for (int i = 1; i < dataBuffers.length; i++) {
+            u[offset + i - 1] = dataBuffers[i].getElemDoubleAt(idx);
+        }
+    }
 
-                    final Tile[] sourceTiles = new Tile[numSrcBands];
-                    final ProductData[] dataBuffers = new ProductData[numSrcBands];
-                    final double[][] C = new double[numSrcBands - 1][numSrcBands - 1];
-                    final double[] u = new double[numSrcBands - 1];
+    /**
+     * Compute covariance matrices for all clusters.
+     *
+     * @param blocks The pixels to cluster.
+     */
+    private void computeClusterCovarianceMatrices(final PixelBlocks blocks) {
 
+        final ClusterStatistics statistics = runPass("Computing Cluster Covariance Matrices... ",
+                blocks.getNumBlocks(), blocks, new BlockTask() {
                     @Override
-                    public void run() {
-                        final int x0 = rectangle.x;
-                        final int y0 = rectangle.y;
-                        final int w = rectangle.width;
-                        final int h = rectangle.height;
-                        final int xMax = x0 + w;
-                        final int yMax = y0 + h;
-                        //System.out.println("x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h);
-
-                        for (int i = 0; i < numSrcBands; ++i) {
-                            sourceTiles[i] = getSourceTile(sourceProduct.getBand(srcBandNames[i]), rectangle);
-                            dataBuffers[i] = sourceTiles[i].getDataBuffer();
+                    public void process(final int block, final BlockBuffer buffer,
+                                        final ClusterStatistics statistics) throws IOException {
+                        blocks.load(block, buffer, true);
+
+                        for (int k = buffer.from; k < buffer.to; ++k) {
+                            final int classIdx = buffer.labels[k] & 0xFF;
+                            if (classIdx < numClasses) {
+                                statistics.addCovariance(classIdx, clusters[classIdx].center, buffer.features,
+                                        k * numFeatures, buffer.du);
+                            }
                         }
+                    }
+                });
 
-                        final TileIndex srcIndex = new TileIndex(sourceTiles[0]);
-
-                        for (int y = y0; y < yMax; ++y) {
-                            srcIndex.calculateStride(y);
-                            for (int x = x0; x < xMax; ++x) {
-                                final int idx = srcIndex.getIndex(x);
+        for (int c = 0; c < numClasses; c++) {
+            final double[][] clusterCov = statistics.clusterCov[c];
+            for (int i = 0; i < numFeatures; i++) {
+                for (int j = 0; j < i; j++) {
+                    clusterCov[i][j] = clusterCov[j][i];
+                }
+            }
+            for (int i = 0; i < numFeatures; i++) {
+                for (int j = 0; j < numFeatures; j++) {
+                    clusterCov[i][j] /= clusters[c].size;
+                }
+            }
+            clusters[c].setClusterCovarianceMatrix(clusterCov);
+        }
+    }
 
-                                getCurrentPoint(idx, dataBuffers, u);
+    private void computeFinalClusterCenters(final PixelBlocks blocks) {
 
-                                final int classIdx = mask[y][x];
+        for (int it = 0; it < maxIterations; ++it) {
 
-                                computeCovarianceMatrix(clusterList.get(classIdx).center, u, C);
+            final ClusterStatistics statistics = runPass("Computing Final Cluster Centres " + (it + 1) + '/' +
+                    maxIterations + "... ", blocks.getNumBlocks(), blocks, new BlockTask() {
+                @Override
+                public void process(final int block, final BlockBuffer buffer,
+                                    final ClusterStatistics statistics) throws IOException {
+                    blocks.load(block, buffer, true);
 
-                                synchronized (clusterCov) {
+                    boolean changed = false;
+                    for (int k = buffer.from; k < buffer.to; ++k) {
+                        final int offset = k * numFeatures;
+                        final int clusterIdx = findClosestCluster(buffer.features, offset, buffer.du);
+                        final int classIdx = buffer.labels[k] & 0xFF;
 
-                                    for (int i = 0; i < numSrcBands - 1; i++) {
-                                        for (int j = 0; j < numSrcBands - 1; j++) {
-                                            clusterCov[classIdx][i][j] += C[i][j];
-                                        }
-                                    }
-                                }
+                        if (classIdx != (clusterIdx < 0 ? NO_DATA : clusterIdx)) {
+                            if (classIdx < numClasses) {
+                                statistics.pixelChangeCounter[classIdx]++;
                             }
+                            buffer.labels[k] = (byte) (clusterIdx < 0 ? NO_DATA : clusterIdx);
+                            changed = true;
                         }
+                        if (clusterIdx >= 0) {
+                            statistics.addClusterSum(clusterIdx, buffer.features, offset);
+                            statistics.counter[clusterIdx]++;
+                        }
+                    }
+
+                    if (changed) {
+                        blocks.store(block, buffer);
                     }
-                };
-                threadManager.add(worker);
+                }
+            });
 
-                status.worked(tileCnt++);
+            if (isConvergent(clusters, statistics.pixelChangeCounter)) {
+                break;
+            }
+
+            updateClusterCenter(clusters, statistics);
+
+            computeClusterCovarianceMatrices(blocks);
+        }
+    }
+
+    /**
+     * Run a task on all blocks with one worker thread per processor. Each worker accumulates into its own
+     * statistics, which are summed once all blocks are done.
+     *
+     * @param message   The progress message.
+     * @param numBlocks The number of blocks.
+     * @param blocks    The pixels providing the buffers of the workers, or null if the task needs none.
+     * @param task      The task run for each block.
+     * @return The statistics of all blocks.
+     */
+    private ClusterStatistics runPass(final String message, final int numBlocks, final PixelBlocks blocks,
+                                      final BlockTask task) {
+
+        final StatusProgressMonitor status = new StatusProgressMonitor(numBlocks, message);
+        final int numWorkers = Math.max(1, Math.min(numBlocks, Runtime.getRuntime().availableProcessors()));
+        final ClusterStatistics total = new ClusterStatistics(numClasses, numFeatures);
+
+        final ThreadManager threadManager = new ThreadManager();
+
+        try {
+            final PassWorker[] workers = new PassWorker[numWorkers];
+            for (int w = 0; w < numWorkers; w++) {
+                workers[w] = new PassWorker(w, numWorkers, numBlocks, blocks, task, status);
+                threadManager.add(workers[w]);
             }
             threadManager.finish();
 
+            for (PassWorker worker : workers) {
+                if (worker.error != null) {
+                    throw worker.error;
+                }
+                total.add(worker.statistics);
+            }
+
         } catch (Throwable e) {
-            OperatorUtils.catchOperatorException(getId() + " computeClusterCovarianceMatrices ", e);
+            OperatorUtils.catchOperatorException(getId() + ' ' + message, e);
         } finally {
             status.done();
         }
+        return total;
+    }
 
-        for (int c = 0; c < numClasses; c++) {
-            for (int i = 0; i < numSrcBands - 1; i++) {
-                for (int j = 0; j < numSrcBands - 1; j++) {
-                    clusterCov[c][i][j] /= clusterList.get(c).size;
-                }
+    private int findClosestCluster(final double[] u, final int offset, final double[] du) {
+
+        double minDistance = Double.MAX_VALUE;
+        int clusterIndex = -1;
+        for (int c = 0; c < clusters.length; ++c) {
+            final double d = computeMLD(u, offset, clusters[c], du);
+            if (minDistance > d) {
+                minDistance = d;
+                clusterIndex = c;
             }
-            clusterList.get(c).setClusterCovarianceMatrix(clusterCov[c]);
         }
+
+        return clusterIndex;
     }
 
-    private void computeCovarianceMatrix(final double[] center, final double[] u, final double[][] C) {
-        for (int i = 0; i < u.length; i++) {
-            for (int j = 0; j < u.length; j++) {
-                C[i][j] = (u[i] - center[i]) * (u[j] - center[j]);
+    /**
+     * Compute (u - center)' * invCov * (u - center) + log(det(Cov)), in the order of Jama.Matrix.times.
+     */
+    private static double computeMLD(final double[] u, final int offset, final ClusterInfo cluster,
+                                     final double[] du) {
+
+        final double[] center = cluster.center;
+        final double[][] invCov = cluster.invCov;
+        final int n = center.length;
+        for (int i = 0; i < n; i++) {
+            du[i] = u[offset + i] - center[i];
+        }
+
+        double d = 0.0;
+        for (int j = 0; j < n; j++) {
+            double s = 0.0;
+            for (int i = 0; i < n; i++) {
+                s += du[i] * invCov[i][j];
             }
+            d += s * du[j];
         }
+        return d + cluster.logDet;
     }
 
-    private void computeFinalClusterCenters(final java.util.List<ClusterInfo> clusterList,
-                                            final Rectangle[] tileRectangles) {
-
-        final StatusProgressMonitor status = new StatusProgressMonitor(tileRectangles.length * maxIterations,
-                "Computing Final Cluster Centres... ");
-        int tileCnt = 0;
-
-        final int numSrcBands = srcBandNames.length;
-        final int[] clusterCounter = new int[numClasses];
-        final int[] clusterPixelChangeCounter = new int[numClasses];
-        final double[][] clusterSum = new double[numClasses][numSrcBands - 1];
-
-        final ThreadManager threadManager = new ThreadManager();
-
-        try {
-            for (int it = 0; it < maxIterations; ++it) {
+    private boolean isConvergent(final ClusterInfo[] clusterList, final long[] clusterPixelChangeCounter) {
 
-                java.util.Arrays.fill(clusterCounter, 0);
-                java.util.Arrays.fill(clusterPixelChangeCounter, 0);
-                for (double[] row : clusterSum) {
-                    java.util.Arrays.fill(row, 0.0);
-                }
+        for (int c = 0; c < numClasses; c++) {
+            final double unchangedPercentage = 100.0 * (1.0 - (double) clusterPixelChangeCounter[c] / (double) clusterList[c].size);
+            if (unchangedPercentage < convergenceThreshold) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-                for (final Rectangle rectangle : tileRectangles) {
+    private static void updateClusterCenter(final ClusterInfo[] clusterList, final ClusterStatistics statistics) {
 
-                    final Thread worker = new Thread() {
+        for (int c = 0; c < clusterList.length; c++) {
+            final double[] center = new double[statistics.clusterSum[c].length];
+            for (int i = 0; i < center.length; i++) {
+                center[i] = statistics.clusterSum[c][i] / statistics.counter[c];
+            }
+            clusterList[c].setClusterCenter(center, statistics.counter[c]);
+        }
+    }
 
-                        final Tile[] sourceTiles = new Tile[numSrcBands];
-                        final ProductData[] dataBuffers = new ProductData[numSrcBands];
+    /**
+     * The pixels to cluster, in blocks which the passes process independently.
+     */
+    private interface PixelBlocks {
 
-                        final double[] u = new double[numSrcBands - 1];
+        int getNumBlocks();
 
-                        @Override
-                        public void run() {
-                            checkForCancellation();
+        BlockBuffer createBuffer();
 
-                            final int x0 = rectangle.x;
-                            final int y0 = rectangle.y;
-                            final int w = rectangle.width;
-                            final int h = rectangle.height;
-                            final int xMax = x0 + w;
-                            final int yMax = y0 + h;
+        /**
+         * Make the ratio and features of a block, and optionally its classes, available in a buffer.
+         */
+        void load(int block, BlockBuffer buffer, boolean loadLabels) throws IOException;
 
-                            for (int i = 0; i < numSrcBands; ++i) {
-                                sourceTiles[i] = getSourceTile(sourceProduct.getBand(srcBandNames[i]), rectangle);
-                                dataBuffers[i] = sourceTiles[i].getDataBuffer();
-                            }
-                            final TileIndex srcIndex = new TileIndex(sourceTiles[0]);
+        /**
+         * Save the classes of a block changed in the buffer.
+         */
+        void store(int block, BlockBuffer buffer) throws IOException;
+    }
 
-                            for (int y = y0; y < yMax; ++y) {
-                                srcIndex.calculateStride(y);
-                                for (int x = x0; x < xMax; ++x) {
-                                    final int idx = srcIndex.getIndex(x);
+    /**
+     * The pixels of a block, those with index in [from, to) of the arrays, features interleaved by pixel.
+     */
+    private static final class BlockBuffer {
+        final double[] ratio;
+        final double[] features;
+        final byte[] labels;
+        final double[] du;
+        int from;
+        int to;
+
+        BlockBuffer(final double[] ratio, final double[] features, final byte[] labels, final int numFeatures) {
+            this.ratio = ratio;
+            this.features = features;
+            this.labels = labels;
+            this.du = new double[numFeatures];
+        }
+    }
 
-                                    getCurrentPoint(idx, dataBuffers, u);
-                                    int clusterIdx = findClosestCluster(u, clusterList);
+    /**
+     * All pixels of the source product, tile by tile, with the classes kept in a temporary file.
+     */
+    private final class TileBlocks implements PixelBlocks {
 
-                                    synchronized (clusterCounter) {
+        private final TiledClassMask classMask;
+        private final Rectangle[] tileRectangles;
 
-                                        if (mask[y][x] != clusterIdx) {
-                                            clusterPixelChangeCounter[mask[y][x]]++;
-                                            mask[y][x] = (byte) clusterIdx;
-                                        }
-                                        addClusterSum(clusterIdx, clusterSum, u);
-                                        clusterCounter[clusterIdx]++;
-                                    }
-                                }
-                            }
-                        }
-                    };
-                    threadManager.add(worker);
+        TileBlocks(final TiledClassMask classMask) {
+            this.classMask = classMask;
+            this.tileRectangles = classMask.getTileRectangles();
+        }
 
-                    status.worked(tileCnt++);
-                }
-                threadManager.finish();
+        @Override
+        public int getNumBlocks() {
+            return tileRectangles.length;
+        }
 
+        @Override
+        public BlockBuffer createBuffer() {
+            final int size = TILE_SIZE * TILE_SIZE;
+            return new BlockBuffer(new double[size], new double[size * numFeatures], new byte[size], numFeatures);
+        }
 
-                if (isConvergent(clusterList, clusterPixelChangeCounter)) {
-                    break;
+        @Override
+        public void load(final int block, final BlockBuffer buffer, final boolean loadLabels)
+                throws IOException {
+            final Rectangle rectangle = tileRectangles[block];
+            final int x0 = rectangle.x;
+            final int y0 = rectangle.y;
+            final int w = rectangle.width;
+            final int h = rectangle.height;
+            final int xMax = x0 + w;
+            final int yMax = y0 + h;
+
+            final ProductData[] dataBuffers = new ProductData[srcBandNames.length];
+            Tile sourceTile = null;
+            for (int i = 0; i < srcBandNames.length; ++i) {
+                sourceTile = getSourceTile(sourceProduct.getBand(srcBandNames[i]), rectangle);
+                dataBuffers[i] = sourceTile.getDataBuffer();
+            }
+            final TileIndex srcIndex = new TileIndex(sourceTile);
+
+            for (int y = y0; y < yMax; ++y) {
+                srcIndex.calculateStride(y);
+                for (int x = x0; x < xMax; ++x) {
+                    final int idx = srcIndex.getIndex(x);
+                    final int k = (y - y0) * w + x - x0;
+                    buffer.ratio[k] = dataBuffers[0].getElemDoubleAt(idx);
+                    getCurrentPoint(idx, dataBuffers, buffer.features, k * numFeatures);
                 }
+            }
 
-                updateClusterCenter(clusterList, clusterCounter, clusterSum);
-
-                computeClusterCovarianceMatrices(clusterList, tileRectangles);
+            if (loadLabels) {
+                classMask.read(rectangle, buffer.labels);
             }
+            buffer.from = 0;
+            buffer.to = w * h;
+        }
 
-        } catch (Throwable e) {
-            OperatorUtils.catchOperatorException(getId() + " computeFinalClusterCenters ", e);
-        } finally {
-            status.done();
+        @Override
+        public void store(final int block, final BlockBuffer buffer) throws IOException {
+            classMask.write(tileRectangles[block], buffer.labels);
         }
     }
 
-    private int findClosestCluster(final double[] u, final java.util.List<ClusterInfo> clusterList) {
+    /**
+     * Pixels sampled from the source product, kept in memory.
+     */
+    private static final class SampleBlocks implements PixelBlocks {
+
+        private static final int BLOCK_SIZE = TILE_SIZE * TILE_SIZE;
+
+        final int numSamples;
+        final int numFeatures;
+        final double[] ratio;
+        final double[] features;
+        final byte[] labels;
+
+        SampleBlocks(final int numSamples, final int numFeatures) {
+            this.numSamples = numSamples;
+            this.numFeatures = numFeatures;
+            this.ratio = new double[numSamples];
+            this.features = new double[numSamples * numFeatures];
+            this.labels = new byte[numSamples];
+        }
 
-        double minDistance = Double.MAX_VALUE;
-        int clusterIndex = -1;
-        for (int c = 0; c < clusterList.size(); ++c) {
-            final double d = computeMLD(u, clusterList.get(c));
-            if (minDistance > d) {
-                minDistance = d;
-                clusterIndex = c;
-            }
+        @Override
+        public int getNumBlocks() {
+            return (numSamples + BLOCK_SIZE - 1) / BLOCK_SIZE;
         }
 
-        return clusterIndex;
-    }
+        @Override
+        public BlockBuffer createBuffer() {
+            return new BlockBuffer(ratio, features, labels, numFeatures);
+        }
 
-    private double computeMLD(final double[] u, final ClusterInfo cluster) {
+        @Override
+        public void load(final int block, final BlockBuffer buffer, final boolean loadLabels) {
+            buffer.from = block * BLOCK_SIZE;
+            buffer.to = Math.min(buffer.from + BLOCK_SIZE, numSamples);
+        }
 
-        Matrix uMat = new Matrix(u, u.length);
-        Matrix uMatNew = uMat.minus(new Matrix(cluster.center, cluster.center.length));
-        return uMatNew.transpose().times(cluster.invCov).times(uMatNew).get(0, 0) + cluster.logDet;
+        @Override
+        public void store(final int block, final BlockBuffer buffer) {
+            // the classes are changed in place
+        }
     }
 
-    private boolean isConvergent(final java.util.List<ClusterInfo> clusterList, final int[] clusterPixelChangeCounter) {
+    private interface BlockTask {
+        void process(int block, BlockBuffer buffer, ClusterStatistics statistics) throws IOException;
+    }
 
-        for (int c = 0; c < numClasses; c++) {
-            final double unchangedPercentage = 100.0 * (1.0 - (double) clusterPixelChangeCounter[c] / (double) clusterList.get(c).size);
-            if (unchangedPercentage < convergenceThreshold) {
-                return false;
+    /**
+     * Runs a task on every numWorkers-th block, starting from its own index.
+     */
+    private final class PassWorker extends Thread {
+
+        private final int first;
+        private final int numWorkers;
+        private final int numBlocks;
+        private final PixelBlocks blocks;
+        private final BlockTask task;
+        private final StatusProgressMonitor status;
+        final ClusterStatistics statistics = new ClusterStatistics(numClasses, numFeatures);
+        Throwable error = null;
+
+        PassWorker(final int first, final int numWorkers, final int numBlocks, final PixelBlocks blocks,
+                   final BlockTask task, final StatusProgressMonitor status) {
+            this.first = first;
+            this.numWorkers = numWorkers;
+            this.numBlocks = numBlocks;
+            this.blocks = blocks;
+            this.task = task;
+            this.status = status;
+        }
+
+        @Override
+        public void run() {
+            try {
+                final BlockBuffer buffer = blocks != null ? blocks.createBuffer() : null;
+                for (int block = first; block < numBlocks; block += numWorkers) {
+                    checkForCancellation();
+                    task.process(block, buffer, statistics);
+                    status.workedOne();
+                }
+            } catch (Throwable e) {
+                error = e;
             }
         }
-        return true;
     }
 
-    private static void updateClusterCenter(final java.util.List<ClusterInfo> clusterList, final int[] clusterCounter,
-                                            final double[][] clusterSum) {
+    /**
+     * Sums of the pixels of each cluster accumulated by one worker.
+     */
+    private static final class ClusterStatistics {
+        final long[] counter;
+        final long[] pixelChangeCounter;
+        final double[][] clusterSum;
+        final double[][][] clusterCov; // upper triangle only
+
+        ClusterStatistics(final int numClasses, final int numFeatures) {
+            counter = new long[numClasses];
+            pixelChangeCounter = new long[numClasses];
+            clusterSum = new double[numClasses][numFeatures];
+            clusterCov = new double[numClasses][numFeatures][numFeatures];
+        }
+
+        void addClusterSum(final int classIdx, final double[] u, final int offset) {
+            final double[] sum = clusterSum[classIdx];
+            for (int j = 0; j < sum.length; j++) {
+                sum[j] += u[offset + j];
+            }
+        }
 
-        for (int c = 0; c < clusterList.size(); c++) {
-            final double[] center = new double[clusterList.get(c).center.length];
+        void addCovariance(final int classIdx, final double[] center, final double[] u, final int offset,
+                           final double[] du) {
             for (int i = 0; i < center.length; i++) {
-                center[i] = clusterSum[c][i] / clusterCounter[c];
+                du[i] = u[offset + i] - center[i];
+            }
+            final double[][] C = clusterCov[classIdx];
+            for (int i = 0; i < center.length; i++) {
+                for (int j = i; j < center.length; j++) {
+                    C[i][j] += du[i] * du[j];
+                }
             }
-            clusterList.get(c).setClusterCenter(center, clusterCounter[c]);
         }
-    }
 
+        void add(final ClusterStatistics other) {
+            for (int c = 0; c < counter.length; c++) {
+                counter[c] += other.counter[c];
+                pixelChangeCounter[c] += other.pixelChangeCounter[c];
+                for (int i = 0; i < clusterSum[c].length; i++) {
+                    clusterSum[c][i] += other.clusterSum[c][i];
+                    for (int j = i; j < clusterSum[c].length; j++) {
+                        clusterCov[c][i][j] += other.clusterCov[c][i][j];
+                    }
+                }
+            }
+        }
+    }
 
     public static class ClusterInfo {
         int classIndex;
-        int size;
+        long size;
         double initLowBound;
         double initHighBound;
         double[] center = null;
         double logDet;
-        Matrix invCov = null;
+        double[][] invCov = null;
 
         public ClusterInfo(final int classIdx) {
             this.classIndex = classIdx;
@@ -625,7 +874,7 @@ public final class ForestAreaClassificationOp extends Operator {
             this.initHighBound = highBound;
         }
 
-        public void setClusterCenter(final double[] center, final int size) {
+        public void setClusterCenter(final double[] center, final long size) {
             this.size = size;
             this.center = new double[center.length];
             System.arraycopy(center, 0, this.center, 0, center.length);
@@ -634,7 +883,7 @@ public final class ForestAreaClassificationOp extends Operator {
         public void setClusterCovarianceMatrix(final double[][] Cov) {
             final Matrix CMat = new Matrix(Cov);
             this.logDet = Math.log(Math.max(Math.abs(CMat.det()), Constants.EPS));
-            this.invCov = CMat.inverse();
+            this.invCov = CMat.inverse().getArray();
         }
     }
 
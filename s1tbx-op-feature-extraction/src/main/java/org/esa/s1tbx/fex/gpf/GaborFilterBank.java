@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_2D;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Convolution of a tile with a bank of filters.
+ * <p/>
+ * All filters are applied to one zero padded source block, read with the halo of the largest filter, so the image
+ * border needs no handling inside the convolution loops. For each filter the cheapest of three methods is used:
+ * direct convolution, a sum of separable filters found by a rank decomposition of the kernel, or FFT convolution of
+ * the whole block, which is the overlap-save method with the halo as overlap. The forward transform of the block is
+ * shared by all filters convolved in the frequency domain.
+ */
+final class GaborFilterBank {
+
+    // the separable terms reproduce the kernel to this relative Frobenius norm
+    private static final double RANK_TOLERANCE = 1.0e-9;
+    private static final int MAX_POWER_ITERATIONS = 100;
+
+    // DoubleFFT_2D holds work buffers, plans are cached per thread. Only the block sizes of the most recent tiles
+    // are kept, the threads of the GPF tile scheduler live as long as the application.
+    private static final int MAX_CACHED_PLANS = 4;
+    private static final ThreadLocal<Map<Long, DoubleFFT_2D>> fftPlans = new ThreadLocal<Map<Long, DoubleFFT_2D>>() {
+        @Override
+        protected Map<Long, DoubleFFT_2D> initialValue() {
+            return new LinkedHashMap<Long, DoubleFFT_2D>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Long, DoubleFFT_2D> eldest) {
+                    return size() > MAX_CACHED_PLANS;
+                }
+            };
+        }
+    };
+
+    private final Kernel[] kernels;
+    private final int haloX;
+    private final int haloY;
+
+    /**
+     * @param filters the filter kernels, indexed [x][y] as created by {@link GaborFilter}, with odd sizes
+     */
+    GaborFilterBank(final double[][][] filters) {
+        kernels = new Kernel[filters.length];
+        int hx = 0, hy = 0;
+        for (int k = 0; k < filters.length; ++k) {
+            kernels[k] = new Kernel(filters[k]);
+            hx = Math.max(hx, kernels[k].xmax);
+            hy = Math.max(hy, kernels[k].ymax);
+        }
+        haloX = hx;
+        haloY = hy;
+    }
+
+    int getNumFilters() {
+        return kernels.length;
+    }
+
+    /**
+     * @return the number of source columns needed on each side of a tile
+     */
+    int getHaloX() {
+        return haloX;
+    }
+
+    /**
+     * @return the number of source lines needed above and below a tile
+     */
+    int getHaloY() {
+        return haloY;
+    }
+
+    /**
+     * Convolve a tile with all filters.
+     *
+     * @param block source block of (w + 2 * haloX) by (h + 2 * haloY), line by line, zero outside the image
+     * @param w     tile width
+     * @param h     tile height
+     * @param out   output, w * h values line by line for each filter
+     */
+    void apply(final double[] block, final int w, final int h, final double[][] out) {
+
+        final int blockW = w + 2 * haloX;
+        final int blockH = h + 2 * haloY;
+        final int fftW = nextFastSize(blockW);
+        final int fftH = nextFastSize(blockH);
+        final double fftCost = fftCost(fftW, fftH, w, h);
+
+        final List<Integer> fftFilters = new ArrayList<>(kernels.length);
+        for (int k = 0; k < kernels.length; ++k) {
+            final Kernel kernel = kernels[k];
+            final double directCost = kernel.width * kernel.height;
+            final double separableCost = kernel.separable ?
+                    kernel.rank() * (kernel.width + kernel.height) : Double.MAX_VALUE;
+            if (fftCost < directCost && fftCost < separableCost) {
+                fftFilters.add(k);
+            } else if (separableCost < directCost) {
+                convolveSeparable(kernel, block, blockW, w, h, out[k]);
+            } else {
+                convolveDirect(kernel, block, blockW, w, h, out[k]);
+            }
+        }
+
+        if (!fftFilters.isEmpty()) {
+            final DoubleFFT_2D fft = getPlan(fftH, fftW);
+            final int stride = 2 * fftW;
+            final double[] spectrum = new double[fftH * stride];
+            for (int r = 0; r < blockH; ++r) {
+                for (int c = 0; c < blockW; ++c) {
+                    spectrum[r * stride + 2 * c] = block[r * blockW + c];
+                }
+            }
+            fft.complexForward(spectrum);
+
+            final double[] product = new double[spectrum.length];
+            for (int k : fftFilters) {
+                final Kernel kernel = kernels[k];
+                final double[] kernelSpectrum = kernel.getSpectrum(fftW, fftH);
+                for (int i = 0; i < product.length; i += 2) {
+                    final double re = spectrum[i] * kernelSpectrum[i] - spectrum[i + 1] * kernelSpectrum[i + 1];
+                    final double im = spectrum[i] * kernelSpectrum[i + 1] + spectrum[i + 1] * kernelSpectrum[i];
+                    product[i] = re;
+                    product[i + 1] = im;
+                }
+                fft.complexInverse(product, true);
+
+                // circular convolution index of output pixel (0, 0), free of wrap-around
+                final int offsetX = haloX + kernel.xmax;
+                final int offsetY = haloY + kernel.ymax;
+                final double[] result = out[k];
+                for (int r = 0; r < h; ++r) {
+                    final int rowOffset = (r + offsetY) * stride + 2 * offsetX;
+                    for (int c = 0; c < w; ++c) {
+                        result[r * w + c] = product[rowOffset + 2 * c];
+                    }
+                }
+            }
+        }
+    }
+
+    private void convolveDirect(final Kernel kernel, final double[] block, final int blockW,
+                                final int w, final int h, final double[] result) {
+
+        final double[][] filter = kernel.filter;
+        final int x1 = haloX + kernel.xmax;
+        final int y1 = haloY + kernel.ymax;
+        for (int r = 0; r < h; ++r) {
+            for (int c = 0; c < w; ++c) {
+                double sum = 0;
+                for (int b = 0; b < kernel.height; ++b) {
+                    final int rowOffset = (r + y1 - b) * blockW + c + x1;
+                    for (int a = 0; a < kernel.width; ++a) {
+                        sum += filter[a][b] * block[rowOffset - a];
+                    }
+                }
+                result[r * w + c] = sum;
+            }
+        }
+    }
+
+    private void convolveSeparable(final Kernel kernel, final double[] block, final int blockW,
+                                   final int w, final int h, final double[] result) {
+
+        final int x1 = haloX + kernel.xmax;
+        final int y1 = haloY + kernel.ymax;
+        final double[] column = new double[h * blockW];
+
+        for (int i = 0; i < h * w; ++i) {
+            result[i] = 0;
+        }
+
+        for (int t = 0; t < kernel.rank(); ++t) {
+            final double[] u = kernel.u.get(t);
+            final double[] v = kernel.v.get(t);
+
+            // along y for all columns of the block, then along x
+            for (int r = 0; r < h; ++r) {
+                final int rowOffset = r * blockW;
+                for (int c = 0; c < blockW; ++c) {
+                    double sum = 0;
+                    for (int b = 0; b < kernel.height; ++b) {
+                        sum += v[b] * block[(r + y1 - b) * blockW + c];
+                    }
+                    column[rowOffset + c] = sum;
+                }
+            }
+            for (int r = 0; r < h; ++r) {
+                final int rowOffset = r * blockW + x1;
+                for (int c = 0; c < w; ++c) {
+                    double sum = 0;
+                    for (int a = 0; a < kernel.width; ++a) {
+                        sum += u[a] * column[rowOffset + c - a];
+                    }
+                    result[r * w + c] += sum;
+                }
+            }
+        }
+    }
+
+    /**
+     * Estimated operations per output pixel of one inverse transform and the spectrum product.
+     */
+    private static double fftCost(final int fftW, final int fftH, final int w, final int h) {
+        final double n = (double) fftW * fftH;
+        return (5.0 * Math.log(n) / Math.log(2.0) + 6.0) * n / ((double) w * h);
+    }
+
+    /**
+     * @return the smallest length of at least n with no prime factors other than 2, 3 and 5
+     */
+    static int nextFastSize(final int n) {
+        int size = Math.max(n, 1);
+        while (true) {
+            int m = size;
+            for (int f : new int[]{2, 3, 5}) {
+                while (m % f == 0) {
+                    m /= f;
+                }
+            }
+            if (m == 1) {
+                return size;
+            }
+            ++size;
+        }
+    }
+
+    private static DoubleFFT_2D getPlan(final int rows, final int cols) {
+        final Map<Long, DoubleFFT_2D> plans = fftPlans.get();
+        final long key = ((long) rows << 32) | cols;
+        DoubleFFT_2D plan = plans.get(key);
+        if (plan == null) {
+            plan = new DoubleFFT_2D(rows, cols);
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    private static final class Kernel {
+        final double[][] filter;
+        final int width;
+        final int height;
+        final int xmax;
+        final int ymax;
+
+        // filter[a][b] = sum over t of u[t][a] * v[t][b]
+        final List<double[]> u = new ArrayList<>();
+        final List<double[]> v = new ArrayList<>();
+
+        boolean separable;
+
+        private final Map<Long, double[]> spectra = new ConcurrentHashMap<>();
+
+        Kernel(final double[][] filter) {
+            this.filter = filter;
+            width = filter.length;
+            height = filter[0].length;
+            xmax = width / 2;
+            ymax = height / 2;
+            decompose();
+        }
+
+        int rank() {
+            return u.size();
+        }
+
+        /**
+         * Decompose the kernel into a sum of separable kernels by deflation, each term being the leading singular
+         * pair of the residual found by power iteration. Stops when the residual is negligible or no term is left
+         * that would make the separable convolution cheaper than the direct one.
+         */
+        private void decompose() {
+
+            final double[][] residual = new double[width][];
+            double norm = 0;
+            for (int a = 0; a < width; ++a) {
+                residual[a] = filter[a].clone();
+                for (int b = 0; b < height; ++b) {
+                    norm += filter[a][b] * filter[a][b];
+                }
+            }
+            final double tolerance = RANK_TOLERANCE * RANK_TOLERANCE * norm;
+            final int maxRank = width * height / (width + height);
+
+            double residualNorm = norm;
+            while (residualNorm > tolerance && u.size() < maxRank) {
+
+                // start from the column of largest norm
+                double[] vt = new double[height];
+                double best = -1;
+                for (double[] row : residual) {
+                    double n = 0;
+                    for (double value : row) {
+                        n += value * value;
+                    }
+                    if (n > best) {
+                        best = n;
+                        vt = row.clone();
+                    }
+                }
+
+                final double[] ut = new double[width];
+                for (int iter = 0; iter < MAX_POWER_ITERATIONS; ++iter) {
+                    // u = R v / |R v|
+                    double uNorm = 0;
+                    for (int a = 0; a < width; ++a) {
+                        double sum = 0;
+                        for (int b = 0; b < height; ++b) {
+                            sum += residual[a][b] * vt[b];
+                        }
+                        ut[a] = sum;
+                        uNorm += sum * sum;
+                    }
+                    uNorm = Math.sqrt(uNorm);
+                    if (uNorm == 0) {
+                        break;
+                    }
+                    for (int a = 0; a < width; ++a) {
+                        ut[a] /= uNorm;
+                    }
+
+                    // v = R' u
+                    double change = 0;
+                    for (int b = 0; b < height; ++b) {
+                        double sum = 0;
+                        for (int a = 0; a < width; ++a) {
+                            sum += residual[a][b] * ut[a];
+                        }
+                        change += (sum - vt[b]) * (sum - vt[b]);
+                        vt[b] = sum;
+                    }
+                    if (change <= 1.0e-30 * norm) {
+                        break;
+                    }
+                }
+
+                residualNorm = 0;
+                for (int a = 0; a < width; ++a) {
+                    for (int b = 0; b < height; ++b) {
+                        residual[a][b] -= ut[a] * vt[b];
+                        residualNorm += residual[a][b] * residual[a][b];
+                    }
+                }
+                u.add(ut);
+                v.add(vt);
+            }
+
+            separable = residualNorm <= tolerance;
+        }
+
+        /**
+         * @return the transform of the kernel zero padded to the FFT size, for the block origin at (0, 0)
+         */
+        double[] getSpectrum(final int fftW, final int fftH) {
+            final long key = ((long) fftH << 32) | fftW;
+            double[] spectrum = spectra.get(key);
+            if (spectrum == null) {
+                spectrum = new double[2 * fftW * fftH];
+                for (int a = 0; a < width; ++a) {
+                    for (int b = 0; b < height; ++b) {
+                        spectrum[b * 2 * fftW + 2 * a] = filter[a][b];
+                    }
+                }
+                getPlan(fftH, fftW).complexForward(spectrum);
+                spectra.put(key, spectrum);
+            }
+            return spectrum;
+        }
+    }
+}
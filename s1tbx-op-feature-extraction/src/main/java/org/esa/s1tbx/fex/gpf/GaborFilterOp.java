@@ -32,7 +32,11 @@ import org.esa.snap.gpf.TileIndex;
 import org.esa.snap.util.ProductUtils;
 
 import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  */
@@ -55,9 +59,17 @@ public class GaborFilterOp extends Operator {
     @Parameter
     private double theta = 0.6;
 
+    @Parameter(description = "Number of filter orientations, evenly spaced over 180 degrees starting at theta",
+            interval = "[1, 16]", defaultValue = "1", label = "Number of Orientations")
+    private int numOrientations = 1;
+
+    @Parameter(description = "Wavelengths of the filters in pixels", defaultValue = "4.0", label = "Wavelengths")
+    private double[] wavelengths = {4.0};
+
     private final HashMap<String, String[]> targetBandNameToSourceBandName = new HashMap<>();
+    private final HashMap<String, Integer> targetBandNameToFilterIndex = new HashMap<>();
 
-    double[][] filter;
+    private GaborFilterBank filterBank;
 
     /**
      * Default constructor. The graph processing framework
@@ -89,15 +101,59 @@ public class GaborFilterOp extends Operator {
                 sourceProduct.getSceneRasterWidth(),
                 sourceProduct.getSceneRasterHeight());
 
-        OperatorUtils.addSelectedBands(
-                sourceProduct, sourceBandNames, targetProduct, targetBandNameToSourceBandName, false, true);
+        if (numOrientations < 1 || wavelengths == null || wavelengths.length == 0) {
+            throw new OperatorException("At least one orientation and one wavelength are required");
+        }
+
+        final List<double[][]> filters = new ArrayList<>();
+        final List<String> filterDescriptions = new ArrayList<>();
+        for (int o = 0; o < numOrientations; ++o) {
+            final double orientation = theta + o * Math.PI / numOrientations;
+            for (double lambda : wavelengths) {
+                filters.add(GaborFilter.createGarborFilter(lambda, orientation, 1.0, 2.0, 0.3));
+                filterDescriptions.add("Gabor filter, orientation " + Math.toDegrees(orientation) +
+                        " deg, wavelength " + lambda + " pixels");
+            }
+        }
+        filterBank = new GaborFilterBank(filters.toArray(new double[filters.size()][][]));
+
+        if (filters.size() == 1) {
+            OperatorUtils.addSelectedBands(
+                    sourceProduct, sourceBandNames, targetProduct, targetBandNameToSourceBandName, false, true);
+            for (String targetBandName : targetBandNameToSourceBandName.keySet()) {
+                targetBandNameToFilterIndex.put(targetBandName, 0);
+            }
+        } else {
+            addFilterBankBands(filterDescriptions);
+        }
 
         ProductUtils.copyProductNodes(sourceProduct, targetProduct);
 
         // update the metadata with the affect of the processing
         updateTargetProductMetadata();
+    }
+
+    /**
+     * Add one target band per filter of the bank for each source band.
+     */
+    private void addFilterBankBands(final List<String> filterDescriptions) {
+
+        final Band[] sourceBands = OperatorUtils.getSourceBands(sourceProduct, sourceBandNames, false);
+        for (Band srcBand : sourceBands) {
+            for (int o = 0; o < numOrientations; ++o) {
+                for (int l = 0; l < wavelengths.length; ++l) {
+                    final int filterIndex = o * wavelengths.length + l;
+                    final String targetBandName = srcBand.getName() + "_Gabor_T" + (o + 1) + "_L" + (l + 1);
+
+                    final Band targetBand = targetProduct.addBand(targetBandName, ProductData.TYPE_FLOAT32);
+                    targetBand.setUnit(srcBand.getUnit());
+                    targetBand.setDescription(filterDescriptions.get(filterIndex));
 
-        filter = GaborFilter.createGarborFilter(4.0, theta, 1.0, 2.0, 0.3);
+                    targetBandNameToSourceBandName.put(targetBandName, new String[]{srcBand.getName()});
+                    targetBandNameToFilterIndex.put(targetBandName, filterIndex);
+                }
+            }
+        }
     }
 
     /**
@@ -115,60 +171,85 @@ public class GaborFilterOp extends Operator {
     }
 
     /**
-     * Called by the framework in order to compute a tile for the given target band.
+     * Called by the framework in order to compute the stack of tiles for the given target bands.
      * <p>The default implementation throws a runtime exception with the message "not implemented".</p>
      *
-     * @param targetBand The target band.
-     * @param targetTile The current tile associated with the target band to be computed.
-     * @param pm         A progress monitor which should be used to determine computation cancelation requests.
-     * @throws org.esa.snap.framework.gpf.OperatorException If an error occurs during computation of the target raster.
+     * @param targetTiles     The current tiles to be computed for each target band.
+     * @param targetRectangle The area in pixel coordinates to be computed (same for all rasters in <code>targetRasters</code>).
+     * @param pm              A progress monitor which should be used to determine computation cancelation requests.
+     * @throws org.esa.snap.framework.gpf.OperatorException If an error occurs during computation of the target rasters.
      */
     @Override
-    public void computeTile(Band targetBand, Tile targetTile, ProgressMonitor pm) throws OperatorException {
+    public void computeTileStack(Map<Band, Tile> targetTiles, Rectangle targetRectangle, ProgressMonitor pm)
+            throws OperatorException {
 
-        final int x0 = targetTile.getRectangle().x;
-        final int y0 = targetTile.getRectangle().y;
-        final int w = targetTile.getRectangle().width;
-        final int h = targetTile.getRectangle().height;
+        final int x0 = targetRectangle.x;
+        final int y0 = targetRectangle.y;
+        final int w = targetRectangle.width;
+        final int h = targetRectangle.height;
         //System.out.println("x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h);
 
-        final int xmax = (int) Math.floor(filter.length / 2.0);
-        final int ymax = (int) Math.floor(filter[0].length / 2.0);
-        final String[] srcBandName = targetBandNameToSourceBandName.get(targetBand.getName());
-        final Band srcBand = sourceProduct.getBand(srcBandName[0]);
-        final int minBoundx = Math.max(0, x0 - xmax);
-        final int minBoundy = Math.max(0, y0 - ymax);
-        final int boundW = Math.min(w + minBoundx + xmax, srcBand.getSceneRasterWidth() - x0);
-        final int boundH = Math.min(h + minBoundy + ymax, srcBand.getSceneRasterHeight() - y0);
-        final Rectangle srcRect = new Rectangle(minBoundx, minBoundy, boundW, boundH);
-
-        final Tile sourceTile = getSourceTile(srcBand, srcRect);
-        final ProductData trgData = targetTile.getDataBuffer();
-        final ProductData srcData = sourceTile.getDataBuffer();
-        final TileIndex trgIndex = new TileIndex(targetTile);
-        final TileIndex srcIndex = new TileIndex(sourceTile);
-        int maxIndex = srcData.getNumElems();
-
-        for (int y = y0; y < y0 + h; y++) {
-            trgIndex.calculateStride(y);
-            for (int x = x0; x < x0 + w; x++) {
-
-                double sum = 0;
-                for (int yf = -ymax; yf <= ymax; yf++) {
-                    final int yy = y - yf;
-                    if (yy >= minBoundy && yy < y0 + boundH) {
-                        srcIndex.calculateStride(yy);
-                        for (int xf = -xmax; xf <= xmax; xf++) {
-                            final int xx = x - xf;
-                            if (xx >= minBoundx && xx < x0 + boundW) {
-                                final int idx = srcIndex.getIndex(xx);
-                                if (idx < maxIndex)   //todo something not right here
-                                    sum += filter[xf + xmax][yf + ymax] * srcData.getElemDoubleAt(idx);
-                            }
-                        }
+        // the target tiles of each source band, by filter
+        final Map<String, Tile[]> sourceBandTiles = new HashMap<>();
+        for (Map.Entry<Band, Tile> entry : targetTiles.entrySet()) {
+            final String targetBandName = entry.getKey().getName();
+            final String[] srcBandNames = targetBandNameToSourceBandName.get(targetBandName);
+            if (srcBandNames == null) {
+                continue;
+            }
+            Tile[] tiles = sourceBandTiles.get(srcBandNames[0]);
+            if (tiles == null) {
+                tiles = new Tile[filterBank.getNumFilters()];
+                sourceBandTiles.put(srcBandNames[0], tiles);
+            }
+            tiles[targetBandNameToFilterIndex.get(targetBandName)] = entry.getValue();
+        }
+
+        final int haloX = filterBank.getHaloX();
+        final int haloY = filterBank.getHaloY();
+        final int blockW = w + 2 * haloX;
+        final int blockH = h + 2 * haloY;
+        final double[] block = new double[blockW * blockH];
+        final double[][] out = new double[filterBank.getNumFilters()][w * h];
+
+        for (Map.Entry<String, Tile[]> entry : sourceBandTiles.entrySet()) {
+            final Band srcBand = sourceProduct.getBand(entry.getKey());
+
+            // source block with the filter halo, zero outside of the image
+            final int minX = Math.max(0, x0 - haloX);
+            final int minY = Math.max(0, y0 - haloY);
+            final int maxX = Math.min(x0 + w + haloX, srcBand.getSceneRasterWidth());
+            final int maxY = Math.min(y0 + h + haloY, srcBand.getSceneRasterHeight());
+            final Tile sourceTile = getSourceTile(srcBand, new Rectangle(minX, minY, maxX - minX, maxY - minY));
+            final ProductData srcData = sourceTile.getDataBuffer();
+            final TileIndex srcIndex = new TileIndex(sourceTile);
+
+            Arrays.fill(block, 0.0);
+            for (int y = minY; y < maxY; y++) {
+                srcIndex.calculateStride(y);
+                final int offset = (y - y0 + haloY) * blockW - x0 + haloX;
+                for (int x = minX; x < maxX; x++) {
+                    block[offset + x] = srcData.getElemDoubleAt(srcIndex.getIndex(x));
+                }
+            }
+
+            filterBank.apply(block, w, h, out);
+
+            final Tile[] tiles = entry.getValue();
+            for (int k = 0; k < tiles.length; k++) {
+                if (tiles[k] == null) {
+                    continue;
+                }
+                final ProductData trgData = tiles[k].getDataBuffer();
+                final TileIndex trgIndex = new TileIndex(tiles[k]);
+                final double[] result = out[k];
+                for (int y = y0; y < y0 + h; y++) {
+                    trgIndex.calculateStride(y);
+                    final int offset = (y - y0) * w - x0;
+                    for (int x = x0; x < x0 + w; x++) {
+                        trgData.setElemDoubleAt(trgIndex.getIndex(x), result[offset + x]);
                     }
                 }
-                trgData.setElemDoubleAt(trgIndex.getIndex(x), sum);
             }
         }
     }
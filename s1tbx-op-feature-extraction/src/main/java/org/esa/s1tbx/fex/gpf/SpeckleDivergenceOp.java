@@ -272,7 +272,7 @@ public class SpeckleDivergenceOp extends Operator {
             final Tile sourceTile = getSourceTile(sourceBand, sourceTileRectangle);
             final ProductData srcData = sourceTile.getDataBuffer();
             final double noDataValue = sourceBand.getNoDataValue();
-            final Unit.UnitType bandUnit = Unit.getUnitType(sourceBand);
+            final boolean isIntensity = Unit.getUnitType(sourceBand) == Unit.UnitType.INTENSITY;
 
             final Band maskBand = sourceProduct.getBand(TerrainMaskOp.TERRAIN_MASK_NAME);
             Tile maskTile = null;
@@ -285,6 +285,25 @@ public class SpeckleDivergenceOp extends Operator {
             final TileIndex trgIndex = new TileIndex(targetTile);
             final TileIndex srcIndex = new TileIndex(sourceTile);    // src and trg tile are different size
 
+            // intensity samples of the source tile, NaN where not used
+            final int sx0 = sourceTileRectangle.x;
+            final int sy0 = sourceTileRectangle.y;
+            final int sw = sourceTileRectangle.width;
+            final int sh = sourceTileRectangle.height;
+            final double[] samples = new double[sw * sh];
+            for (int y = sy0; y < sy0 + sh; y++) {
+                srcIndex.calculateStride(y);
+                final int offset = (y - sy0) * sw - sx0;
+                for (int x = sx0; x < sx0 + sw; x++) {
+                    final double v = srcData.getElemDoubleAt(srcIndex.getIndex(x));
+                    final double intensity = isIntensity ? v : v * v;
+                    samples[offset + x] = v != noDataValue && intensity > 0.4 ? intensity : Double.NaN;
+                }
+            }
+
+            final double[] cv = new double[tw * th];
+            computeCoefficientOfVariance(samples, sw, sh, tx0 - sx0, ty0 - sy0, tw, th, halfWindowSize, cv);
+
             final int maxy = ty0 + th;
             final int maxx = tx0 + tw;
 
@@ -295,13 +314,14 @@ public class SpeckleDivergenceOp extends Operator {
                     final int idx = trgIndex.getIndex(tx);
 
                     final double v = srcData.getElemDoubleAt(srcIndex.getIndex(tx));
-                    if (v == noDataValue || (maskBand != null && maskData.getElemIntAt(idx) == 1)) {
+                    final double localCV = cv[(ty - ty0) * tw + tx - tx0];
+                    if (v == noDataValue || (maskBand != null && maskData.getElemIntAt(idx) == 1) ||
+                            Double.isNaN(localCV)) {
                         trgData.setElemFloatAt(idx, (float) noDataValue);
                         continue;
                     }
 
-                    final double cv = computeCoefficientOfVariance(tx, ty, sourceTile, srcData, bandUnit, noDataValue);
-                    final double speckleDivergence = cv - c;
+                    final double speckleDivergence = localCV - c;
                     trgData.setElemFloatAt(idx, (float) speckleDivergence);
                 }
             }
@@ -349,128 +369,108 @@ public class SpeckleDivergenceOp extends Operator {
     }
 
     /**
-     * Compute local coefficient of variance.
+     * Compute the local coefficient of variance, standard deviation over mean, of the samples in the sliding
+     * window around each pixel of a rectangle. The window is clipped to the samples.
+     * <p/>
+     * The sums of the samples and of their squares over the window rows are kept for each column and updated
+     * as the window moves down by adding the row entering the window and subtracting the row leaving it. The
+     * sums over the window are then updated the same way from the column sums as the window moves right, so
+     * the cost per pixel does not depend on the window size. The samples are offset by their mean to keep the
+     * variance computed from the sums accurate.
      *
-     * @param tx          The x coordinate of the central pixel of the sliding window.
-     * @param ty          The y coordinate of the central pixel of the sliding window.
-     * @param sourceTile  The source image tile.
-     * @param srcData     The source image data.
-     * @param bandUnit    The source band unit.
-     * @param noDataValue the place holder for no data
-     * @return The local coefficient of variance.
+     * @param samples        The samples, row by row, NaN where not valid.
+     * @param sw             The width of the samples.
+     * @param sh             The height of the samples.
+     * @param x0             The x offset in the samples of the upper left pixel of the rectangle.
+     * @param y0             The y offset in the samples of the upper left pixel of the rectangle.
+     * @param w              The width of the rectangle.
+     * @param h              The height of the rectangle.
+     * @param halfWindowSize Half the size of the sliding window.
+     * @param cv             The coefficient of variance of each pixel of the rectangle, row by row, NaN where
+     *                       the window has no valid sample.
      */
-    private double computeCoefficientOfVariance(final int tx, final int ty,
-                                                final Tile sourceTile, final ProductData srcData,
-                                                final Unit.UnitType bandUnit, final double noDataValue) {
-
-        final double[] samples = new double[windowSize * windowSize];
-
-        final int numSamples = getSamples(tx, ty, bandUnit, noDataValue, sourceTile, srcData, samples);
-
-        if (numSamples == 0) {
-            return noDataValue;
+    static void computeCoefficientOfVariance(final double[] samples, final int sw, final int sh,
+                                             final int x0, final int y0, final int w, final int h,
+                                             final int halfWindowSize, final double[] cv) {
+
+        double offset = 0.0;
+        int numValid = 0;
+        for (double v : samples) {
+            if (!Double.isNaN(v)) {
+                offset += v;
+                numValid++;
+            }
+        }
+        if (numValid > 0) {
+            offset /= numValid;
         }
 
-        final double mean = getMeanValue(samples, numSamples);
-
-        final double variance = getVarianceValue(samples, numSamples, mean);
-
-        return Math.sqrt(variance) / mean;
-    }
-
-    /**
-     * Get source samples in the sliding window.
-     *
-     * @param tx          The x coordinate of the central pixel of the sliding window.
-     * @param ty          The y coordinate of the central pixel of the sliding window.
-     * @param bandUnit    The source band unit.
-     * @param noDataValue the place holder for no data
-     * @param sourceTile  The source image tile.
-     * @param srcData     The source image data.
-     * @param samples     The sample array.
-     * @return The number of samples.
-     */
-    private int getSamples(final int tx, final int ty, final Unit.UnitType bandUnit, final double noDataValue,
-                           final Tile sourceTile, final ProductData srcData, final double[] samples) {
-
-
-        final int x0 = Math.max(tx - halfWindowSize, 0);
-        final int y0 = Math.max(ty - halfWindowSize, 0);
-        final int w = Math.min(tx + halfWindowSize, sourceImageWidth - 1) - x0 + 1;
-        final int h = Math.min(ty + halfWindowSize, sourceImageHeight - 1) - y0 + 1;
-
-        final TileIndex tileIndex = new TileIndex(sourceTile);
-
-        int numSamples = 0;
-        final int maxy = Math.min(y0 + h, sourceTile.getMaxY() - 1);
-        final int maxx = Math.min(x0 + w, sourceTile.getMaxX() - 1);
-
-        if (bandUnit == Unit.UnitType.INTENSITY) {
-
-            for (int y = y0; y < maxy; y++) {
-                tileIndex.calculateStride(y);
-                for (int x = x0; x < maxx; x++) {
-                    final double v = srcData.getElemDoubleAt(tileIndex.getIndex(x));
-                    if (v != noDataValue && v > 0.4) {
-                        samples[numSamples++] = v;
+        final double[] columnSum = new double[sw];
+        final double[] columnSum2 = new double[sw];
+        final int[] columnCount = new int[sw];
+
+        int rowStart = Math.max(y0 - halfWindowSize, 0);
+        int rowEnd = rowStart; // exclusive
+        for (int y = y0; y < y0 + h; y++) {
+            final int windowRowStart = Math.max(y - halfWindowSize, 0);
+            final int windowRowEnd = Math.min(y + halfWindowSize + 1, sh);
+            for (; rowEnd < windowRowEnd; rowEnd++) {
+                final int k0 = rowEnd * sw;
+                for (int x = 0; x < sw; x++) {
+                    final double v = samples[k0 + x];
+                    if (!Double.isNaN(v)) {
+                        final double d = v - offset;
+                        columnSum[x] += d;
+                        columnSum2[x] += d * d;
+                        columnCount[x]++;
                     }
                 }
             }
-
-        } else {
-
-            for (int y = y0; y < maxy; y++) {
-                tileIndex.calculateStride(y);
-                for (int x = x0; x < maxx; x++) {
-                    final double v = srcData.getElemDoubleAt(tileIndex.getIndex(x));
-                    if (v != noDataValue & v * v > 0.4) {
-                        samples[numSamples++] = v * v;
+            for (; rowStart < windowRowStart; rowStart++) {
+                final int k0 = rowStart * sw;
+                for (int x = 0; x < sw; x++) {
+                    final double v = samples[k0 + x];
+                    if (!Double.isNaN(v)) {
+                        final double d = v - offset;
+                        columnSum[x] -= d;
+                        columnSum2[x] -= d * d;
+                        columnCount[x]--;
                     }
                 }
             }
-        }
-
-        return numSamples;
-    }
-
-    /**
-     * Get the mean value of the samples.
-     *
-     * @param samples    The sample array.
-     * @param numSamples The number of samples.
-     * @return mean The mean value.
-     */
-    private static double getMeanValue(final double[] samples, final int numSamples) {
-
-        double mean = 0.0;
-        for (int i = 0; i < numSamples; i++) {
-            mean += samples[i];
-        }
-        mean /= numSamples;
 
-        return mean;
-    }
-
-    /**
-     * Get the variance of samples.
-     *
-     * @param samples    The sample array.
-     * @param numSamples The number of samples.
-     * @param mean       the mean of samples.
-     * @return var The variance.
-     */
-    private static double getVarianceValue(final double[] samples, final int numSamples, final double mean) {
+            double sum = 0.0;
+            double sum2 = 0.0;
+            int count = 0;
+            int colStart = Math.max(x0 - halfWindowSize, 0);
+            int colEnd = colStart; // exclusive
+            final int k0 = (y - y0) * w - x0;
+            for (int x = x0; x < x0 + w; x++) {
+                final int windowColStart = Math.max(x - halfWindowSize, 0);
+                final int windowColEnd = Math.min(x + halfWindowSize + 1, sw);
+                for (; colEnd < windowColEnd; colEnd++) {
+                    sum += columnSum[colEnd];
+                    sum2 += columnSum2[colEnd];
+                    count += columnCount[colEnd];
+                }
+                for (; colStart < windowColStart; colStart++) {
+                    sum -= columnSum[colStart];
+                    sum2 -= columnSum2[colStart];
+                    count -= columnCount[colStart];
+                }
 
-        double var = 0.0;
-        if (numSamples > 1) {
-            for (int i = 0; i < numSamples; i++) {
-                final double diff = samples[i] - mean;
-                var += diff * diff;
+                if (count == 0) {
+                    cv[k0 + x] = Double.NaN;
+                    continue;
+                }
+                final double mean = offset + sum / count;
+                double variance = 0.0;
+                if (count > 1) {
+                    variance = Math.max((sum2 - sum * sum / count) / (count - 1), 0.0);
+                }
+                cv[k0 + x] = Math.sqrt(variance) / mean;
             }
-            var /= (numSamples - 1);
         }
-
-        return var;
     }
 
     /**
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A byte per pixel of a scene, eg, a class index, kept in a temporary file instead of the heap.
+ * <p/>
+ * The scene is divided in tiles of a fixed size and the bytes of each tile are stored contiguously, row by row,
+ * so that a tile is read or written with one positional I/O call. Different tiles may be read and written by
+ * several threads at once. The mask is initially 0 everywhere.
+ */
+final class TiledClassMask {
+
+    private final int width;
+    private final int height;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int numTilesX;
+    private final int numTilesY;
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+
+    TiledClassMask(final int width, final int height, final int tileWidth, final int tileHeight)
+            throws IOException {
+        this.width = width;
+        this.height = height;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.numTilesX = (width + tileWidth - 1) / tileWidth;
+        this.numTilesY = (height + tileHeight - 1) / tileHeight;
+
+        file = File.createTempFile("classMask", ".bin");
+        file.deleteOnExit();
+        raf = new RandomAccessFile(file, "rw");
+        raf.setLength((long) width * height);
+        channel = raf.getChannel();
+    }
+
+    /**
+     * @return the tiles of the mask, row by row
+     */
+    Rectangle[] getTileRectangles() {
+        final Rectangle[] tiles = new Rectangle[numTilesX * numTilesY];
+        for (int ty = 0; ty < numTilesY; ty++) {
+            for (int tx = 0; tx < numTilesX; tx++) {
+                tiles[ty * numTilesX + tx] = getTileRectangle(tx, ty);
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Read the mask of any rectangle of the scene.
+     *
+     * @param rectangle the rectangle
+     * @param data      the mask of the rectangle, row by row
+     */
+    void read(final Rectangle rectangle, final byte[] data) throws IOException {
+        final int tx0 = rectangle.x / tileWidth;
+        final int ty0 = rectangle.y / tileHeight;
+        final int tx1 = (rectangle.x + rectangle.width - 1) / tileWidth;
+        final int ty1 = (rectangle.y + rectangle.height - 1) / tileHeight;
+
+        byte[] tileData = null;
+        for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                final Rectangle tile = getTileRectangle(tx, ty);
+                if (tile.equals(rectangle)) {
+                    readFully(getOffset(tile), data, tile.width * tile.height);
+                    return;
+                }
+                if (tileData == null) {
+                    tileData = new byte[tileWidth * tileHeight];
+                }
+                readFully(getOffset(tile), tileData, tile.width * tile.height);
+
+                final Rectangle part = tile.intersection(rectangle);
+                for (int y = part.y; y < part.y + part.height; y++) {
+                    System.arraycopy(tileData, (y - tile.y) * tile.width + part.x - tile.x,
+                            data, (y - rectangle.y) * rectangle.width + part.x - rectangle.x, part.width);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the mask of one of the tiles returned by {@link #getTileRectangles()}.
+     *
+     * @param tile the tile
+     * @param data the mask of the tile, row by row
+     */
+    void write(final Rectangle tile, final byte[] data) throws IOException {
+        if (tile.x % tileWidth != 0 || tile.y % tileHeight != 0 ||
+                !tile.equals(getTileRectangle(tile.x / tileWidth, tile.y / tileHeight))) {
+            throw new IllegalArgumentException("not a tile of the mask: " + tile);
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(data, 0, tile.width * tile.height);
+        long position = getOffset(tile);
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Close and delete the file of the mask.
+     */
+    void dispose() {
+        try {
+            raf.close();
+        } catch (IOException e) {
+            // the file is deleted anyway
+        }
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private Rectangle getTileRectangle(final int tx, final int ty) {
+        final int x = tx * tileWidth;
+        final int y = ty * tileHeight;
+        return new Rectangle(x, y, Math.min(tileWidth, width - x), Math.min(tileHeight, height - y));
+    }
+
+    /**
+     * The tiles above a tile are all full height and those to its left all have its height.
+     */
+    private long getOffset(final Rectangle tile) {
+        return (long) tile.y * width + (long) tile.x * tile.height;
+    }
+
+    private void readFully(final long offset, final byte[] data, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            final int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("unexpected end of mask file " + file);
+            }
+            position += n;
+        }
+    }
+}
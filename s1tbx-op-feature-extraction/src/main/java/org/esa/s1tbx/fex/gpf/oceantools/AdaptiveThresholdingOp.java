@@ -238,28 +238,44 @@ public class AdaptiveThresholdingOp extends Operator {
             final Tile sourceTile = getSourceTile(sourceBand, sourceTileRectangle);
             final double noDataValue = sourceBand.getNoDataValue();
 
+            final SummedAreaTable sat = new SummedAreaTable(sourceTile, noDataValue);
             final TileIndex trgIndex = new TileIndex(targetTile);
-            final TileIndex srcIndex = new TileIndex(sourceTile);    // src and trg tile are different size
 
+            final int halfTargetWindowSize = (targetWindowSize - 1) / 2;
             final int maxy = ty0 + th;
             final int maxx = tx0 + tw;
             for (int ty = ty0; ty < maxy; ty++) {
                 trgIndex.calculateStride(ty);
-                srcIndex.calculateStride(ty);
+
+                // target, guard and background window rows, clipped to the image
+                final int tyMin = Math.max(ty - halfTargetWindowSize, 0);
+                final int tyMax = Math.min(ty + halfTargetWindowSize, sourceImageHeight - 1);
+                final int byMin = Math.max(ty - halfBackgroundWindowSize, 0);
+                final int byMax = Math.min(ty + halfBackgroundWindowSize, sourceImageHeight - 1);
+                final int gyMin = Math.max(ty - halfGuardWindowSize, byMin);
+                final int gyMax = Math.min(ty + halfGuardWindowSize, byMax);
+
                 for (int tx = tx0; tx < maxx; tx++) {
+                    final int trgIdx = trgIndex.getIndex(tx);
 
-                    final double targetMean = computeTargetMean(tx, ty, sourceTile, noDataValue);
-                    if (targetMean == noDataValue) {
-                        trgData.setElemIntAt(trgIndex.getIndex(tx), 0);
+                    // target window, any no-data pixel rejects the detection
+                    final int txMin = Math.max(tx - halfTargetWindowSize, 0);
+                    final int txMax = Math.min(tx + halfTargetWindowSize, sourceImageWidth - 1);
+                    if (sat.isNoData(tx, ty) || sat.noDataCount(txMin, tyMin, txMax, tyMax) > 0) {
+                        trgData.setElemIntAt(trgIdx, 0);
                         continue;
                     }
+                    final double targetMean = sat.mean(txMin, tyMin, txMax, tyMax);
 
-                    final double backgroundThreshold = computeBackgroundThreshold(tx, ty, sourceTile, noDataValue);
-                    if (targetMean > backgroundThreshold) {
-                        trgData.setElemIntAt(trgIndex.getIndex(tx), 1);
-                    } else {
-                        trgData.setElemIntAt(trgIndex.getIndex(tx), 0);
-                    }
+                    // background ring = background window minus guard window
+                    final int bxMin = Math.max(tx - halfBackgroundWindowSize, 0);
+                    final int bxMax = Math.min(tx + halfBackgroundWindowSize, sourceImageWidth - 1);
+                    final int gxMin = Math.max(tx - halfGuardWindowSize, bxMin);
+                    final int gxMax = Math.min(tx + halfGuardWindowSize, bxMax);
+
+                    final double backgroundThreshold = sat.ringThreshold(bxMin, byMin, bxMax, byMax,
+                            gxMin, gyMin, gxMax, gyMax, t);
+                    trgData.setElemIntAt(trgIdx, targetMean > backgroundThreshold ? 1 : 0);
                 }
             }
         } catch (Throwable e) {
@@ -268,114 +284,143 @@ public class AdaptiveThresholdingOp extends Operator {
     }
 
     /**
-     * Compute the mean value for pixels in the target window.
-     *
-     * @param tx          The x coordinate of the central point of the target window.
-     * @param ty          The y coordinate of the central point of the target window.
-     * @param sourceTile  The source image tile.
-     * @param noDataValue
-     * @return The mena value.
+     * Summed-area tables of a source tile. Sums of the pixel values, of their squares and the count of
+     * no-data pixels over any rectangle of the tile are obtained with four lookups, so the cost of the
+     * detector no longer depends on the window sizes.
+     * <p/>
+     * The values are accumulated relative to a reference value of the tile to limit the loss of precision
+     * when the variance is computed from the sums of squares.
      */
-    private double computeTargetMean(final int tx, final int ty, final Tile sourceTile, final double noDataValue) {
-
-        final ProductData srcData = sourceTile.getDataBuffer();
-        final double v = srcData.getElemDoubleAt(sourceTile.getDataBufferIndex(tx, ty));
-        if (v == noDataValue) {
-            return noDataValue;
+    static final class SummedAreaTable {
+
+        private final int minX, minY, stride;
+        private final double ref;
+        private final double[] sum;
+        private final double[] sum2;
+        private final int[] noData;
+
+        SummedAreaTable(final Tile sourceTile, final double noDataValue) {
+            this(sourceTile.getDataBuffer(), sourceTile.getScanlineOffset(), sourceTile.getScanlineStride(),
+                 sourceTile.getMinX(), sourceTile.getMinY(), sourceTile.getWidth(), sourceTile.getHeight(),
+                 noDataValue);
         }
 
-        if (targetWindowSize == 1) {
-            return v;
-        }
-
-        final int x0 = Math.max(tx - (targetWindowSize - 1) / 2, 0);
-        final int y0 = Math.max(ty - (targetWindowSize - 1) / 2, 0);
-        final int w = Math.min(tx + (targetWindowSize - 1) / 2, sourceImageWidth - 1) - x0 + 1;
-        final int h = Math.min(ty + (targetWindowSize - 1) / 2, sourceImageHeight - 1) - y0 + 1;
-
-        final int tileOffset = sourceTile.getScanlineOffset();
-        final int tileStride = sourceTile.getScanlineStride();
-        final int tileMinX = sourceTile.getMinX();
-        final int tileMinY = sourceTile.getMinY();
-
-        double mean = 0.0;
-        int numPixels = 0;
-        final int maxy = y0 + h;
-        final int maxx = x0 + w;
-        for (int y = y0; y < maxy; y++) {
-            final int stride = ((y - tileMinY) * tileStride) + tileOffset;
-            for (int x = x0; x < maxx; x++) {
-                final double val = srcData.getElemDoubleAt((x - tileMinX) + stride);
-                if (val == noDataValue) {
-                    return noDataValue;
-                } else {
-                    mean += val;
-                    ++numPixels;
+        SummedAreaTable(final ProductData srcData, final int tileOffset, final int tileStride,
+                        final int minX, final int minY, final int w, final int h, final double noDataValue) {
+            this.minX = minX;
+            this.minY = minY;
+            stride = w + 1;
+            sum = new double[stride * (h + 1)];
+            sum2 = new double[sum.length];
+            noData = new int[sum.length];
+
+            double refValue = 0.0;
+            for (int y = 0; y < h; y++) {
+                final int srcRow = y * tileStride + tileOffset;
+                final double v = srcData.getElemDoubleAt(srcRow + w / 2);
+                if (v != noDataValue) {
+                    refValue = v;
+                    break;
                 }
             }
-        }
-        return mean / numPixels;
-    }
-
-    /**
-     * Compute the standard deviation value for pixels in the background window.
-     *
-     * @param tx          The x coordinate of the central point of the background window.
-     * @param ty          The y coordinate of the central point of the background window.
-     * @param sourceTile  The source image tile.
-     * @param noDataValue
-     * @return The std value.
-     */
-    private double computeBackgroundThreshold(final int tx, final int ty, final Tile sourceTile, final double noDataValue) {
-
-        final int x0 = Math.max(tx - halfBackgroundWindowSize, 0);
-        final int y0 = Math.max(ty - halfBackgroundWindowSize, 0);
-        final int w = Math.min(tx + halfBackgroundWindowSize, sourceImageWidth - 1) - x0 + 1;
-        final int h = Math.min(ty + halfBackgroundWindowSize, sourceImageHeight - 1) - y0 + 1;
-        final ProductData srcData = sourceTile.getDataBuffer();
-
-        final int tileOffset = sourceTile.getScanlineOffset();
-        final int tileStride = sourceTile.getScanlineStride();
-        final int tileMinX = sourceTile.getMinX();
-        final int tileMinY = sourceTile.getMinY();
-
-        // Compute the mean value for pixels in the background window.
-        double sum = 0.0;
-        double val;
-        int numPixels = 0;
-        final int maxy = y0 + h;
-        final int maxx = x0 + w;
-
-        final double[] dataArray = new double[w * h];
-        for (int y = y0; y < maxy; y++) {
-            final boolean yGtrHalfGuard = Math.abs(y - ty) > halfGuardWindowSize;
-            final int stride = ((y - tileMinY) * tileStride) + tileOffset;
-            for (int x = x0; x < maxx; x++) {
-                if (yGtrHalfGuard || Math.abs(x - tx) > halfGuardWindowSize) {
-                    val = srcData.getElemDoubleAt((x - tileMinX) + stride);
-                    if (val == noDataValue) {
-                        return Double.MAX_VALUE;
+            ref = refValue;
+
+            for (int y = 0; y < h; y++) {
+                final int srcRow = y * tileStride + tileOffset;
+                final int row = (y + 1) * stride;
+                final int prevRow = y * stride;
+                double rowSum = 0.0, rowSum2 = 0.0;
+                int rowNoData = 0;
+                for (int x = 0; x < w; x++) {
+                    final double v = srcData.getElemDoubleAt(srcRow + x);
+                    if (v == noDataValue) {
+                        ++rowNoData;
                     } else {
-                        sum += val;
-                        dataArray[numPixels] = val;
-                        ++numPixels;
+                        final double d = v - ref;
+                        rowSum += d;
+                        rowSum2 += d * d;
                     }
+                    final int i = row + x + 1;
+                    sum[i] = sum[prevRow + x + 1] + rowSum;
+                    sum2[i] = sum2[prevRow + x + 1] + rowSum2;
+                    noData[i] = noData[prevRow + x + 1] + rowNoData;
                 }
             }
         }
-        final double mean = sum / numPixels;
-
-        // Compute the standard deviation value for pixels in the background window.
-        double std = 0.0;
-        double tmp;
-        for (int i = 0; i < numPixels; ++i) {
-            tmp = dataArray[i] - mean;
-            std += tmp * tmp;
+
+        boolean isNoData(final int x, final int y) {
+            return noDataCount(x, y, x, y) > 0;
+        }
+
+        /**
+         * @return number of no-data pixels in the inclusive rectangle [x0, x1] x [y0, y1]
+         */
+        int noDataCount(final int x0, final int y0, final int x1, final int y1) {
+            final int i00 = (y0 - minY) * stride + (x0 - minX);
+            final int i10 = (y1 - minY + 1) * stride + (x0 - minX);
+            final int w = x1 - x0 + 1;
+            return noData[i10 + w] - noData[i10] - noData[i00 + w] + noData[i00];
+        }
+
+        /**
+         * @return sum of the pixel values in the inclusive rectangle [x0, x1] x [y0, y1], relative to the
+         * tile reference value
+         */
+        double sum(final int x0, final int y0, final int x1, final int y1) {
+            return lookup(sum, x0, y0, x1, y1);
+        }
+
+        /**
+         * @return sum of the squared pixel values in the inclusive rectangle [x0, x1] x [y0, y1], relative to
+         * the tile reference value
+         */
+        double sumSquares(final int x0, final int y0, final int x1, final int y1) {
+            return lookup(sum2, x0, y0, x1, y1);
         }
 
-        final double backgroundSTD = Math.sqrt(std / numPixels);
+        private double lookup(final double[] table, final int x0, final int y0, final int x1, final int y1) {
+            final int i00 = (y0 - minY) * stride + (x0 - minX);
+            final int i10 = (y1 - minY + 1) * stride + (x0 - minX);
+            final int w = x1 - x0 + 1;
+            return table[i10 + w] - table[i10] - table[i00 + w] + table[i00];
+        }
+
+        /**
+         * Compute the 2-parameter CFAR threshold mean + t * std over the background ring, that is the
+         * background window [bxMin, bxMax] x [byMin, byMax] minus the guard window [gxMin, gxMax] x [gyMin, gyMax]
+         * clipped to it.
+         *
+         * @param t detector design parameter
+         * @return The threshold, or Double.MAX_VALUE if the ring is empty or has a no-data pixel.
+         */
+        double ringThreshold(final int bxMin, final int byMin, final int bxMax, final int byMax,
+                             final int gxMin, final int gyMin, final int gxMax, final int gyMax, final double t) {
+
+            int numPixels = (bxMax - bxMin + 1) * (byMax - byMin + 1);
+            int numNoData = noDataCount(bxMin, byMin, bxMax, byMax);
+            double ringSum = sum(bxMin, byMin, bxMax, byMax);
+            double ringSum2 = sumSquares(bxMin, byMin, bxMax, byMax);
+            if (gxMin <= gxMax && gyMin <= gyMax) {
+                numPixels -= (gxMax - gxMin + 1) * (gyMax - gyMin + 1);
+                numNoData -= noDataCount(gxMin, gyMin, gxMax, gyMax);
+                ringSum -= sum(gxMin, gyMin, gxMax, gyMax);
+                ringSum2 -= sumSquares(gxMin, gyMin, gxMax, gyMax);
+            }
+            if (numNoData > 0 || numPixels <= 0) {
+                return Double.MAX_VALUE;
+            }
 
-        return mean + backgroundSTD * t;
+            final double mean = ringSum / numPixels;
+            final double var = Math.max(ringSum2 / numPixels - mean * mean, 0.0);
+            return ref + mean + Math.sqrt(var) * t;
+        }
+
+        /**
+         * @return mean of the pixel values in the inclusive rectangle [x0, x1] x [y0, y1]
+         */
+        double mean(final int x0, final int y0, final int x1, final int y1) {
+            return ref + sum(x0, y0, x1, y1) / ((x1 - x0 + 1) * (y1 - y0 + 1));
+        }
     }
 
     /**
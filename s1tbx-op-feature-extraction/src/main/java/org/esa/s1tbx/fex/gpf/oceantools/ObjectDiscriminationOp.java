@@ -16,10 +16,12 @@
 package org.esa.s1tbx.fex.gpf.oceantools;
 
 import com.bc.ceres.core.ProgressMonitor;
+import org.esa.s1tbx.fex.gpf.ComponentStatistics;
+import org.esa.s1tbx.fex.gpf.ConnectedComponentMerger;
+import org.esa.s1tbx.fex.gpf.ConnectedComponents;
 import org.esa.snap.datamodel.AbstractMetadata;
 import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.MetadataElement;
-import org.esa.snap.framework.datamodel.PixelPos;
 import org.esa.snap.framework.datamodel.Product;
 import org.esa.snap.framework.datamodel.ProductData;
 import org.esa.snap.framework.datamodel.TiePointGrid;
@@ -85,6 +87,7 @@ public class ObjectDiscriminationOp extends Operator {
     private MetadataElement absRoot = null;
     private final transient Map<Band, Band> bandMap = new HashMap<>(3);
     private final HashMap<String, List<ShipRecord>> bandClusterLists = new HashMap<>();
+    private final HashMap<String, ConnectedComponentMerger> bandComponents = new HashMap<>();
     private File targetReportFile = null;
 
 
@@ -194,6 +197,7 @@ public class ObjectDiscriminationOp extends Operator {
                 targetProduct.addBand(targetBand);
 
                 bandClusterLists.put(srcBandName, new ArrayList<>());
+                bandComponents.put(srcBandName, new ConnectedComponentMerger());
 
                 final String bitMaskBandName = srcBandName + AdaptiveThresholdingOp.SHIPMASK_NAME;
                 final Band bitMaskBand = sourceProduct.getBand(bitMaskBandName);
@@ -235,26 +239,21 @@ public class ObjectDiscriminationOp extends Operator {
             final ProductData trgData = targetTile.getDataBuffer();
             //System.out.println("tx0 = " + tx0 + ", ty0 = " + ty0 + ", tw = " + tw + ", th = " + th);
 
-            final int x0 = Math.max(tx0 - 10, 0);
-            final int y0 = Math.max(ty0 - 10, 0);
-            final int w = Math.min(tw + 20, sourceImageWidth);
-            final int h = Math.min(th + 20, sourceImageHeight);
-            final Rectangle sourceTileRectangle = new Rectangle(x0, y0, w, h);
-            //System.out.println("x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h);
-
             final Band sourceBand = sourceProduct.getBand(targetBand.getName());
-            final Tile sourceTile = getSourceTile(sourceBand, sourceTileRectangle);
+            final Tile sourceTile = getSourceTile(sourceBand, targetTileRectangle);
             final ProductData srcData = sourceTile.getDataBuffer();
-            final int[][] pixelsScanned = new int[h][w];
-            final List<ShipRecord> clusterList = bandClusterLists.get(targetBand.getName());
 
             final Band bitMaskBand = bandMap.get(sourceBand);
-            final Tile bitMaskTile = getSourceTile(bitMaskBand, sourceTileRectangle);
+            final Tile bitMaskTile = getSourceTile(bitMaskBand, targetTileRectangle);
             final ProductData bitMaskData = bitMaskTile.getDataBuffer();
 
             final TileIndex trgIndex = new TileIndex(targetTile);
-            final TileIndex srcIndex = new TileIndex(sourceTile);    // src and trg tile are different size
+            final TileIndex srcIndex = new TileIndex(sourceTile);
+
+            final boolean[] mask = new boolean[tw * th];
+            final double[] values = new double[tw * th];
 
+            int k = 0;
             final int maxy = ty0 + th;
             final int maxx = tx0 + tw;
             for (int ty = ty0; ty < maxy; ty++) {
@@ -263,25 +262,16 @@ public class ObjectDiscriminationOp extends Operator {
                 for (int tx = tx0; tx < maxx; tx++) {
 
                     final int srcIdx = srcIndex.getIndex(tx);
-
-                    if (pixelsScanned[ty - y0][tx - x0] == 0 &&
-                            bitMaskData.getElemIntAt(srcIdx) == 1) {
-
-                        final List<PixelPos> clusterPixels = new ArrayList<>();
-                        clustering(tx, ty, x0, y0, w, h, bitMaskData, bitMaskTile, pixelsScanned, clusterPixels);
-
-                        final ShipRecord record = generateRecord(x0, y0, w, h, clusterPixels);
-
-                        final double size = Math.sqrt(record.length * record.length + record.width * record.width);
-                        if (size >= minTargetSizeInMeter && size <= maxTargetSizeInMeter) {
-                            getClusterIntensity(clusterPixels, srcData, sourceTile, record);
-                            clusterList.add(record);
-                        }
-                    }
-                    trgData.setElemDoubleAt(trgIndex.getIndex(tx), srcData.getElemDoubleAt(srcIdx));
+                    values[k] = srcData.getElemDoubleAt(srcIdx);
+                    mask[k] = bitMaskData.getElemIntAt(srcIdx) == 1;
+                    trgData.setElemDoubleAt(trgIndex.getIndex(tx), values[k]);
+                    ++k;
                 }
             }
 
+            // clusters are joined across the tile edges once all tiles are done
+            bandComponents.get(targetBand.getName()).add(ConnectedComponents.label(tx0, ty0, tw, th, mask, values));
+
             clusteringPerformed = true;
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException(getId(), e);
@@ -289,36 +279,25 @@ public class ObjectDiscriminationOp extends Operator {
     }
 
     /**
-     * Find pixels detected as target in a 3x3 window centered at a given point.
-     *
-     * @param xc            The x coordinate of the given point.
-     * @param yc            The y coordinate of the given point.
-     * @param x0            The x coordinate for the upper left corner point of the source rectangle.
-     * @param y0            The y coordinate for the upper left corner point of the source rectangle.
-     * @param w             The width of the source rectangle.
-     * @param h             The height of the source rectangle.
-     * @param bitMaskData   The bit maks band data.
-     * @param bitMaskTile   The bit mask band tile.
-     * @param pixelsScanned The binary array indicating which pixel in the tile has been scaned.
-     * @param clusterPixels The list of pixels in the cluster.
+     * Join the clusters of all tiles and discriminate them by size.
      */
-    private static void clustering(final int xc, final int yc, final int x0, final int y0, final int w, final int h,
-                                   final ProductData bitMaskData, final Tile bitMaskTile,
-                                   final int[][] pixelsScanned, List<PixelPos> clusterPixels) {
+    private void discriminateClusters() {
 
-        pixelsScanned[yc - y0][xc - x0] = 1;
-        clusterPixels.add(new PixelPos(xc, yc));
-
-        final int[] x = {xc - 1, xc, xc + 1, xc - 1, xc + 1, xc - 1, xc, xc + 1};
-        final int[] y = {yc - 1, yc - 1, yc - 1, yc, yc, yc + 1, yc + 1, yc + 1};
-
-        for (int i = 0; i < 8; i++) {
+        for (String bandName : bandComponents.keySet()) {
+            final ComponentStatistics clusters = bandComponents.get(bandName).merge();
+            final List<ShipRecord> clusterList = bandClusterLists.get(bandName);
+            clusterList.clear();
 
-            if (x[i] >= x0 && x[i] < x0 + w && y[i] >= y0 && y[i] < y0 + h &&
-                    pixelsScanned[y[i] - y0][x[i] - x0] == 0 &&
-                    bitMaskData.getElemIntAt(bitMaskTile.getDataBufferIndex(x[i], y[i])) == 1) {
+            final int numClusters = clusters.getNumComponents();
+            for (int c = 0; c < numClusters; c++) {
+                final ShipRecord record = generateRecord(clusters.getMinX(c), clusters.getMaxX(c),
+                                                         clusters.getMinY(c), clusters.getMaxY(c));
 
-                clustering(x[i], y[i], x0, y0, w, h, bitMaskData, bitMaskTile, pixelsScanned, clusterPixels);
+                final double size = Math.sqrt(record.length * record.length + record.width * record.width);
+                if (size >= minTargetSizeInMeter && size <= maxTargetSizeInMeter) {
+                    record.intensity = clusters.getSumValue(c);
+                    clusterList.add(record);
+                }
             }
         }
     }
@@ -326,37 +305,13 @@ public class ObjectDiscriminationOp extends Operator {
     /**
      * Generate a ship record for the detected cluster.
      *
-     * @param x0            The x coordinate for the upper left corner point of the source rectangle.
-     * @param y0            The y coordinate for the upper left corner point of the source rectangle.
-     * @param w             The width of the source rectangle.
-     * @param h             The height of the source rectangle.
-     * @param clusterPixels The list of pixels in the cluster.
+     * @param xMin The minimum x coordinate of the cluster.
+     * @param xMax The maximum x coordinate of the cluster.
+     * @param yMin The minimum y coordinate of the cluster.
+     * @param yMax The maximum y coordinate of the cluster.
      * @return ShipRecord
      */
-    private ShipRecord generateRecord(final int x0, final int y0, final int w, final int h,
-                                      List<PixelPos> clusterPixels) {
-        int xMin = x0 + w - 1;
-        int xMax = x0;
-        int yMin = y0 + h - 1;
-        int yMax = y0;
-
-        for (PixelPos pixel : clusterPixels) {
-            if (pixel.x < xMin) {
-                xMin = (int) pixel.x;
-            }
-
-            if (pixel.x > xMax) {
-                xMax = (int) pixel.x;
-            }
-
-            if (pixel.y < yMin) {
-                yMin = (int) pixel.y;
-            }
-
-            if (pixel.y > yMax) {
-                yMax = (int) pixel.y;
-            }
-        }
+    private ShipRecord generateRecord(final int xMin, final int xMax, final int yMin, final int yMax) {
 
         final double xMid = (xMin + xMax) / 2.0;
         final double yMid = (yMin + yMax) / 2.0;
@@ -369,25 +324,6 @@ public class ObjectDiscriminationOp extends Operator {
         return new ShipRecord(lat, lon, width, length, 0.0);
     }
 
-    /**
-     * compute total cluster intensity.
-     *
-     * @param clusterPixels The list of pixels in the cluster.
-     * @param srcData       The source band data.
-     * @param sourceTile    The souce band tile.
-     * @param record        The ship record.
-     */
-    private static void getClusterIntensity(final List<PixelPos> clusterPixels, final ProductData srcData,
-                                            final Tile sourceTile, ShipRecord record) {
-
-        double totalIntensity = 0.0;
-        for (PixelPos pixel : clusterPixels) {
-            totalIntensity += srcData.getElemDoubleAt(sourceTile.getDataBufferIndex((int) pixel.x, (int) pixel.y));
-        }
-
-        record.intensity = totalIntensity;
-    }
-
     /**
      * Output cluster information to file.
      */
@@ -398,6 +334,8 @@ public class ObjectDiscriminationOp extends Operator {
             return;
         }
 
+        discriminateClusters();
+
         writeBandClusterListsToFile();
     }
 
@@ -16,11 +16,12 @@
 package org.esa.s1tbx.fex.gpf.oceantools;
 
 import com.bc.ceres.core.ProgressMonitor;
+import org.esa.s1tbx.fex.gpf.ComponentStatistics;
+import org.esa.s1tbx.fex.gpf.ConnectedComponents;
 import org.esa.snap.datamodel.AbstractMetadata;
 import org.esa.snap.eo.Constants;
 import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.MetadataElement;
-import org.esa.snap.framework.datamodel.PixelPos;
 import org.esa.snap.framework.datamodel.Product;
 import org.esa.snap.framework.datamodel.ProductData;
 import org.esa.snap.framework.gpf.Operator;
@@ -166,42 +167,43 @@ public class OilSpillClusteringOp extends Operator {
             final ProductData trgData = targetTile.getDataBuffer();
             //System.out.println("tx0 = " + tx0 + ", ty0 = " + ty0 + ", tw = " + tw + ", th = " + th);
 
+            // a cluster smaller than the minimum size that touches the tile lies within this border, and a larger
+            // one has at least the minimum size within it, so labelling the extended rectangle is exact
             final int x0 = Math.max(tx0 - minClusterSizeInPixels, 0);
             final int y0 = Math.max(ty0 - minClusterSizeInPixels, 0);
-            final int w = Math.min(tw + 2 * minClusterSizeInPixels, sourceImageWidth);
-            final int h = Math.min(th + 2 * minClusterSizeInPixels, sourceImageHeight);
+            final int w = Math.min(tx0 + tw + minClusterSizeInPixels, sourceImageWidth) - x0;
+            final int h = Math.min(ty0 + th + minClusterSizeInPixels, sourceImageHeight) - y0;
             final Rectangle sourceTileRectangle = new Rectangle(x0, y0, w, h);
             //System.out.println("x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h);
 
             final Band sourceBand = sourceProduct.getBand(targetBand.getName());
             final Tile sourceTile = getSourceTile(sourceBand, sourceTileRectangle);
             final ProductData srcData = sourceTile.getDataBuffer();
-            final int[][] pixelsScaned = new int[h][w];
 
             final TileIndex srcIndex = new TileIndex(sourceTile);
+            final boolean[] mask = new boolean[w * h];
+            int k = 0;
+            for (int y = y0; y < y0 + h; y++) {
+                srcIndex.calculateStride(y);
+                for (int x = x0; x < x0 + w; x++) {
+                    mask[k++] = srcData.getElemIntAt(srcIndex.getIndex(x)) == 1;
+                }
+            }
+
+            final ConnectedComponents clusters = ConnectedComponents.label(x0, y0, w, h, mask, null);
+            final ComponentStatistics statistics = clusters.getStatistics();
 
+            final TileIndex trgIndex = new TileIndex(targetTile);
             final int maxy = ty0 + th;
             final int maxx = tx0 + tw;
             for (int ty = ty0; ty < maxy; ty++) {
 
-                srcIndex.calculateStride(ty);
+                trgIndex.calculateStride(ty);
                 for (int tx = tx0; tx < maxx; tx++) {
 
-                    if (pixelsScaned[ty - y0][tx - x0] == 0 && srcData.getElemIntAt(srcIndex.getIndex(tx)) == 1) {
-
-                        final List<PixelPos> clusterPixels = new ArrayList<>();
-
-                        clustering(tx, ty, x0, y0, w, h, srcData, sourceTile, pixelsScaned, clusterPixels);
-
-                        if (clusterPixels.size() >= minClusterSizeInPixels) {
-                            for (PixelPos pixel : clusterPixels) {
-                                final int x = (int) pixel.x;
-                                final int y = (int) pixel.y;
-                                if (x >= tx0 && x < tx0 + tw && y >= ty0 && y < ty0 + th) {
-                                    trgData.setElemIntAt(targetTile.getDataBufferIndex(x, y), 1);
-                                }
-                            }
-                        }
+                    final int label = clusters.getLabel(tx, ty);
+                    if (label != 0 && statistics.getArea(label - 1) >= minClusterSizeInPixels) {
+                        trgData.setElemIntAt(trgIndex.getIndex(tx), 1);
                     }
                 }
             }
@@ -210,61 +212,6 @@ public class OilSpillClusteringOp extends Operator {
         }
     }
 
-    /**
-     * Find pixels detected as target in a 3x3 window centered at a given point.
-     *
-     * @param xc            The x coordinate of the given point.
-     * @param yc            The y coordinate of the given point.
-     * @param x0            The x coordinate for the upper left corner point of the source rectangle.
-     * @param y0            The y coordinate for the upper left corner point of the source rectangle.
-     * @param w             The width of the source rectangle.
-     * @param h             The height of the source rectangle.
-     * @param bitMaskData   The bit maks band data.
-     * @param bitMaskTile   The bit mask band tile.
-     * @param pixelsScaned  The binary array indicating which pixel in the tile has been scaned.
-     * @param clusterPixels The list of pixels in the cluster.
-     */
-    private static void clustering(final int xc, final int yc, final int x0, final int y0, final int w, final int h,
-                                   final ProductData bitMaskData, final Tile bitMaskTile,
-                                   final int[][] pixelsScaned, final List<PixelPos> clusterPixels) {
-
-        final List<PixelPos> seeds = new ArrayList<>();
-        seeds.add(new PixelPos(xc, yc));
-        pixelsScaned[yc - y0][xc - x0] = 1;
-        clusterPixels.add(new PixelPos(xc, yc));
-
-        while (seeds.size() > 0) {
-            final List<PixelPos> newSeeds = new ArrayList<>();
-            for (PixelPos pixel : seeds) {
-                searchNeighbourhood(pixel, x0, y0, w, h, bitMaskData, bitMaskTile, pixelsScaned, clusterPixels, newSeeds);
-            }
-            seeds.clear();
-            seeds.addAll(newSeeds);
-        }
-    }
-
-    private static void searchNeighbourhood(final PixelPos pixel, final int x0, final int y0, final int w, final int h,
-                                            final ProductData bitMaskData, final Tile bitMaskTile,
-                                            final int[][] pixelsScaned, final List<PixelPos> clusterPixels,
-                                            final List<PixelPos> newSeeds) {
-
-        final int xc = (int) pixel.x;
-        final int yc = (int) pixel.y;
-        final int[] x = {xc - 1, xc, xc + 1, xc - 1, xc + 1, xc - 1, xc, xc + 1};
-        final int[] y = {yc - 1, yc - 1, yc - 1, yc, yc, yc + 1, yc + 1, yc + 1};
-
-        for (int i = 0; i < 8; i++) {
-            if (x[i] >= x0 && x[i] < x0 + w && y[i] >= y0 && y[i] < y0 + h &&
-                    pixelsScaned[y[i] - y0][x[i] - x0] == 0 &&
-                    bitMaskData.getElemIntAt(bitMaskTile.getDataBufferIndex(x[i], y[i])) == 1) {
-
-                pixelsScaned[y[i] - y0][x[i] - x0] = 1;
-                clusterPixels.add(new PixelPos(x[i], y[i]));
-                newSeeds.add(new PixelPos(x[i], y[i]));
-            }
-        }
-    }
-
     /**
      * Operator SPI.
      */
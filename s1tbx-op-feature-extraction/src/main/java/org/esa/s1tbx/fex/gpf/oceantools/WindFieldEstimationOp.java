@@ -17,7 +17,6 @@ package org.esa.s1tbx.fex.gpf.oceantools;
 
 import Jama.Matrix;
 import com.bc.ceres.core.ProgressMonitor;
-import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
 import org.apache.commons.math3.util.FastMath;
 import org.esa.snap.datamodel.AbstractMetadata;
 import org.esa.snap.datamodel.Unit;
@@ -25,6 +24,7 @@ import org.esa.snap.eo.Constants;
 import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.MetadataElement;
 import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
 import org.esa.snap.framework.datamodel.TiePointGrid;
 import org.esa.snap.framework.dataop.downloadable.XMLSupport;
 import org.esa.snap.framework.gpf.Operator;
@@ -61,6 +61,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * The wind field retrieval operator.
@@ -98,9 +101,15 @@ public class WindFieldEstimationOp extends Operator {
     @Parameter(description = "Window size", defaultValue = "20.0", label = "Window Size (km)")
     private double windowSizeInKm = 20.0;
 
+    private static final int MAX_AMBIGUITY_SWEEPS = 20;
+
     private String mission = null;
     private int windowSize = 0;
     private int halfWindowSize = 0;
+    private int fftSize = 0;
+
+    // spectrum estimators, with their FFT buffers, not used by a tile at the moment
+    private final Queue<WindSpectrumEstimator> spectrumEstimators = new ConcurrentLinkedQueue<>();
     private int sourceImageWidth = 0;
     private int sourceImageHeight = 0;
 
@@ -115,6 +124,7 @@ public class WindFieldEstimationOp extends Operator {
     private File windFieldReportFile = null;
     private boolean windFieldEstimated = false;
     private final HashMap<String, List<WindFieldRecord>> bandWindFieldRecord = new HashMap<>();
+    private final HashMap<String, Map<Point, WindCell>> bandWindCells = new HashMap<>();
 
     @Override
     public void initialize() throws OperatorException {
@@ -181,6 +191,12 @@ public class WindFieldEstimationOp extends Operator {
     private void computeWindowSize() {
         windowSize = (int) (windowSizeInKm * 1000 / Math.min(rangeSpacing, azimuthSpacing));
         halfWindowSize = windowSize / 2;
+
+        // the FFT size is 2/3 of the window size, made odd
+        fftSize = windowSize * 2 / 3;
+        if (fftSize % 2 == 0) {
+            fftSize++;
+        }
     }
 
     private void getSourceImageDimension() {
@@ -246,6 +262,7 @@ public class WindFieldEstimationOp extends Operator {
             targetBand.setUnit(unit);
             targetProduct.addBand(targetBand);
             bandWindFieldRecord.put(srcBandName, new ArrayList<>());
+            bandWindCells.put(srcBandName, new HashMap<>());
         }
     }
 
@@ -277,12 +294,10 @@ public class WindFieldEstimationOp extends Operator {
         //System.out.println("tx0 = " + tx0 + ", ty0 = " + ty0 + ", tw = " + tw + ", th = " + th);
 
         final String targetBandName = targetBand.getName();
-        final List<WindFieldRecord> windFieldRecordList = bandWindFieldRecord.get(targetBandName);
 
         final Band sourceBand = sourceProduct.getBand(targetBandName);
         final double noDataValue = sourceBand.getNoDataValue();
         final String pol = OperatorUtils.getBandPolarization(targetBandName, absRoot);
-        Tile sourceTile;
 
         if (mission.equals("ENVISAT")) {
             if (pol != null && !pol.contains("hh") && !pol.contains("vv")) {
@@ -296,6 +311,7 @@ public class WindFieldEstimationOp extends Operator {
 
         // copy the original band data
         targetTile.setRawSamples(getSourceTile(sourceBand, targetTile.getRectangle()).getRawSamples());
+        windFieldEstimated = true;
 
         final boolean normlizeSigma = (mission.equals("ENVISAT") && pol.contains("hh"));
 
@@ -310,16 +326,58 @@ public class WindFieldEstimationOp extends Operator {
             yStart += windowSize;
         }
 
-        final int maxY = ty0 + th;
-        final int maxX = tx0 + tw;
+        // only the frames lying entirely in the image are used
+        final int maxY = Math.min(ty0 + th, sourceImageHeight - windowSize + halfWindowSize + 1);
+        final int maxX = Math.min(tx0 + tw, sourceImageWidth - windowSize + halfWindowSize + 1);
+        if (xStart >= maxX || yStart >= maxY) {
+            return;
+        }
+
+        // get source data for all frames of the tile at once
+        final int numFramesX = (maxX - 1 - xStart) / windowSize + 1;
+        final int numFramesY = (maxY - 1 - yStart) / windowSize + 1;
+        final Rectangle sourceTileRectangle = new Rectangle(xStart - halfWindowSize, yStart - halfWindowSize,
+                numFramesX * windowSize, numFramesY * windowSize);
+        final Tile sourceTile = getSourceTile(sourceBand, sourceTileRectangle);
+
+        final Map<Point, WindCell> windCells = new HashMap<>();
+
+        WindSpectrumEstimator spectrumEstimator = spectrumEstimators.poll();
+        if (spectrumEstimator == null) {
+            spectrumEstimator = new WindSpectrumEstimator(fftSize);
+        }
+        try {
+            estimateWindCells(sourceTile, bandUnit, noDataValue, normlizeSigma, xStart, yStart, maxX, maxY,
+                    spectrumEstimator, windCells);
+        } finally {
+            spectrumEstimators.offer(spectrumEstimator);
+        }
+
+        final Map<Point, WindCell> bandCells = bandWindCells.get(targetBandName);
+        synchronized (bandCells) {
+            bandCells.putAll(windCells);
+        }
+    }
+
+    /**
+     * Estimate the wind direction of the frames with the given centres.
+     */
+    private void estimateWindCells(final Tile sourceTile, final Unit.UnitType bandUnit, final double noDataValue,
+                                   final boolean normlizeSigma, final int xStart, final int yStart,
+                                   final int maxX, final int maxY, final WindSpectrumEstimator spectrumEstimator,
+                                   final Map<Point, WindCell> windCells) {
+
+        final double[] imagette = new double[windowSize * windowSize];
+        final double[] dcRemovedImage = new double[windowSize * windowSize];
+        final double[] spec = new double[fftSize * fftSize];
+
         final int halfWindowArea = windowSize * windowSize / 2;
-        final int arrowSize = halfWindowSize * 2 / 3;
         for (int y = yStart; y < maxY; y += windowSize) {
             for (int x = xStart; x < maxX; x += windowSize) {
 
-                // get source data for the frame
-                final Rectangle sourceTileRectangle = getSourceRectangle(x, y);
-                if (sourceTileRectangle == null) {
+                final int numLandPixels = getImagette(sourceTile, x - halfWindowSize, y - halfWindowSize,
+                        noDataValue, imagette);
+                if (numLandPixels >= halfWindowArea) {
                     continue;
                 }
 
@@ -327,86 +385,66 @@ public class WindFieldEstimationOp extends Operator {
                 final double lon = longitudeTPG.getPixelDouble(x, y);
                 final double theta = incidenceAngle.getPixelDouble(x, y);
 
-                sourceTile = getSourceTile(sourceBand, sourceTileRectangle);
-                final int numLandPixels = getNumLandPixels(sourceTile, noDataValue);
-                if (numLandPixels >= halfWindowArea) {
-                    continue;
-                }
-
                 final double nrcs = getNormalizedRadarCrossSection(sourceTile, bandUnit, x, y, normlizeSigma, theta);
 
                 // estimate wind direction for the frame
                 final double[] direction = {0.0, 0.0};
-                double ratio = estimateWindDirection(sourceTile, numLandPixels, noDataValue, direction);
+                final double ratio = estimateWindDirection(imagette, dcRemovedImage, spec, spectrumEstimator,
+                        direction);
                 /*
-                if (ratio < 0.2 || ratio > 0.8) { 
+                if (ratio < 0.2 || ratio > 0.8) {
                     continue;
                 }
                 */
-                // estimate wind speed for the frame
-                final double speed = estimateWindSpeed(nrcs, direction, theta);
-
-                // save wind field info
-                final WindFieldRecord record =
-                        new WindFieldRecord(lat, lon, speed, arrowSize * direction[0], arrowSize * direction[1], ratio);
-
-                windFieldRecordList.add(record);
+                // the wind speed is estimated once the direction ambiguity is resolved over all frames
+                final Point cell = new Point((x - halfWindowSize) / windowSize, (y - halfWindowSize) / windowSize);
+                windCells.put(cell, new WindCell(lat, lon, theta, nrcs, direction[0], direction[1], ratio));
             }
         }
-
-        windFieldEstimated = true;
     }
 
     /**
-     * Get the source tile rectangle centered at a given point.
-     *
-     * @param x The x coordinate of the given pixel.
-     * @param y The y coordinate of the given pixel.
-     * @return The rectangle.
-     */
-    private Rectangle getSourceRectangle(final int x, final int y) {
-        final int x0 = x - halfWindowSize;
-        final int y0 = y - halfWindowSize;
-        final int w = windowSize;
-        final int h = windowSize;
-
-        if (x0 < 0 || y0 < 0 || x0 + w > sourceImageWidth || y0 + h > sourceImageHeight) {
-            return null;
-        }
-
-        return new Rectangle(x0, y0, w, h);
-    }
-
-    /**
-     * Get the number of land exists in the given window.
+     * Copy the window with the given upper left corner from the source tile. No data pixels are replaced by the
+     * mean of the window.
      *
      * @param sourceTile  The source tile.
+     * @param x0          The x coordinate of the upper left corner of the window.
+     * @param y0          The y coordinate of the upper left corner of the window.
      * @param noDataValue The NoDataValue for the source band.
-     * @return The number of land pixels.
+     * @param imagette    The window, line by line.
+     * @return The number of land (no data) pixels in the window.
      */
-    private int getNumLandPixels(final Tile sourceTile, final double noDataValue) {
-
-        final Rectangle sourceTileRectangle = sourceTile.getRectangle();
-        final int x0 = sourceTileRectangle.x;
-        final int y0 = sourceTileRectangle.y;
-        final int w = sourceTileRectangle.width;
-        final int h = sourceTileRectangle.height;
-        if (w != windowSize || h != windowSize) {
-            throw new OperatorException("Source tile size does not match window size.");
+    private int getImagette(final Tile sourceTile, final int x0, final int y0,
+                            final double noDataValue, final double[] imagette) {
+
+        final ProductData srcData = sourceTile.getDataBuffer();
+        int numLandPixels = 0;
+        double mean = 0.0;
+        for (int r = 0; r < windowSize; r++) {
+            final int srcIndex = sourceTile.getDataBufferIndex(x0, y0 + r);
+            final int offset = r * windowSize;
+            for (int c = 0; c < windowSize; c++) {
+                final double v = srcData.getElemDoubleAt(srcIndex + c);
+                imagette[offset + c] = v;
+                if (v == noDataValue) {
+                    numLandPixels++;
+                } else {
+                    mean += v;
+                }
+            }
         }
 
-        final int maxY = y0 + windowSize;
-        final int maxX = x0 + windowSize;
-        int numberOfLandPixels = 0;
-        for (int y = y0; y < maxY; y++) {
-            for (int x = x0; x < maxX; x++) {
-                if (sourceTile.getDataBuffer().getElemDoubleAt(sourceTile.getDataBufferIndex(x, y)) == noDataValue) {
-                    numberOfLandPixels++;
+        final int windowArea = windowSize * windowSize;
+        if (numLandPixels > 0 && numLandPixels < windowArea) {
+            mean /= windowArea - numLandPixels;
+            for (int i = 0; i < windowArea; i++) {
+                if (imagette[i] == noDataValue) {
+                    imagette[i] = mean;
                 }
             }
         }
 
-        return numberOfLandPixels;
+        return numLandPixels;
     }
 
     /**
@@ -439,14 +477,16 @@ public class WindFieldEstimationOp extends Operator {
     /**
      * Estimate wind direction for a given window.
      *
-     * @param sourceTile    The source tile.
-     * @param numLandPixels The number of land pixels in a given window.
-     * @param noDataValue   Source band No Data Value.
-     * @param direction     The direction vector.
+     * @param imagette       The window with no data pixels replaced, line by line.
+     * @param dcRemovedImage Work buffer of the window size.
+     * @param spec           Work buffer of the FFT size.
+     * @param spectrumEstimator The spectrum estimator of the FFT size.
+     * @param direction      The direction vector.
      * @return ratio The ratio of the minimum quadratic coefficient of the 2D polynomial over the maximum coefficient.
      */
-    private double estimateWindDirection(final Tile sourceTile, final int numLandPixels,
-                                         final double noDataValue, final double[] direction) {
+    private double estimateWindDirection(final double[] imagette, final double[] dcRemovedImage,
+                                         final double[] spec, final WindSpectrumEstimator spectrumEstimator,
+                                         final double[] direction) {
 
         // 1. For each window within which a wind direction will be estimated, a local FFT size is determined.
         //    The FFT size is 2/3 of the window size, therefore four spectra can be computed in the window with
@@ -455,7 +495,7 @@ public class WindFieldEstimationOp extends Operator {
         // 2. Each window is flattened by applying a large average filter, then dividing by the filtered image.
         //    The filter size for this implementation is set to 11x11.
         //
-        // 3. The FFT�s are applied and the four resulting spectra are averaged.
+        // 3. The FFT's are applied and the four resulting spectra are averaged.
         //
         // 4. An annulus is applied to the spectrum to zero out any energy outside of a wavenumber region.
         //    The limits of the annulus are set to wave lengths of 3 km to 15 km.
@@ -466,19 +506,9 @@ public class WindFieldEstimationOp extends Operator {
         //    which has the largest quadratic term (i.e. the widest extent) is determined. The wind direction
         //    is then assumed to be 90 degree from this direction.
 
-        final double[][] imagette = new double[windowSize][windowSize];
-        getImagette(sourceTile, numLandPixels, noDataValue, imagette);
-
-        final double[][] dcRemovedImage = new double[windowSize][windowSize];
         removeDCComponent(imagette, dcRemovedImage);
 
-        int fftSize = windowSize * 2 / 3;
-        if (fftSize % 2 == 0) {
-            fftSize++;
-        }
-
-        final double[][] spec = new double[fftSize][fftSize];
-        computeSpectrum(dcRemovedImage, fftSize, spec);
+        spectrumEstimator.computeSpectrum(dcRemovedImage, windowSize, spec);
 
         final double delta_k = 1.0 / (windowSizeInKm * 1000.0 * 2.0 / 3.0); // 1 / window_size_in_m
         final int n3 = Math.min((int) (Constants.TWO_PI / (2500.0 * delta_k)), fftSize / 2);
@@ -492,187 +522,37 @@ public class WindFieldEstimationOp extends Operator {
         return getDirection(array, peakValue, n3, direction);
     }
 
-    private void getImagette(final Tile sourceTile, final int numLandPixels,
-                             final double noDataValue, final double[][] imagette) {
-
-        final Rectangle sourceTileRectangle = sourceTile.getRectangle();
-        final int x0 = sourceTileRectangle.x;
-        final int y0 = sourceTileRectangle.y;
-        final int w = sourceTileRectangle.width;
-        final int h = sourceTileRectangle.height;
-        if (w != windowSize || h != windowSize) {
-            throw new OperatorException("Source tile size does not match window size.");
-        }
-
-        final int maxY = y0 + windowSize;
-        final int maxX = x0 + windowSize;
-        if (numLandPixels > 0) {
-
-            double mean = 0.0;
-            for (int y = y0; y < maxY; y++) {
-                for (int x = x0; x < maxX; x++) {
-                    final double v = sourceTile.getDataBuffer().getElemDoubleAt(sourceTile.getDataBufferIndex(x, y));
-                    if (v != noDataValue) {
-                        mean += v;
-                    }
-                }
-            }
-            mean /= windowSize * windowSize - numLandPixels;
-
-            for (int y = y0; y < maxY; y++) {
-                for (int x = x0; x < maxX; x++) {
-                    final double v = sourceTile.getDataBuffer().getElemDoubleAt(sourceTile.getDataBufferIndex(x, y));
-                    if (v == noDataValue) {
-                        imagette[y - y0][x - x0] = mean;
-                    } else {
-                        imagette[y - y0][x - x0] = v;
-                    }
-                }
-            }
-
-        } else {
+    /**
+     * Divide the window by its 11x11 average, the averages are taken from a summed area table.
+     */
+    private void removeDCComponent(final double[] imagette, final double[] dcRemovedImage) {
 
-            for (int y = y0; y < maxY; y++) {
-                for (int x = x0; x < maxX; x++) {
-                    imagette[y - y0][x - x0] = sourceTile.getDataBuffer().getElemDoubleAt(sourceTile.getDataBufferIndex(x, y));
-                }
-            }
-        }
+        final int filter_size = 11;
+        final int half_filter_size = filter_size / 2;
+        final int stride = windowSize + 1;
 
-        /*
-        // generate simulated data for test
-        Random generator = new Random();
-        for (int y = y0; y < y0 + windowSize; y++) {
-            int r = y - y0;
-            for (int x = x0; x < x0 + windowSize; x++) {
-                int c = x - x0;
-//                if (r == 30 || r == 60) {
-//                if (c == 30 || c == 60) {
-                if (c == r) {
-//                if (c == windowSize - 1 - r) {
-                    imagette[r][c] = 20*generator.nextDouble();
-                } else {
-                    imagette[r][c] = generator.nextDouble();
-                }
+        final double[] sums = new double[stride * stride];
+        for (int r = 0; r < windowSize; r++) {
+            double rowSum = 0.0;
+            for (int c = 0; c < windowSize; c++) {
+                rowSum += imagette[r * windowSize + c];
+                sums[(r + 1) * stride + c + 1] = sums[r * stride + c + 1] + rowSum;
             }
         }
-        */
-//        dumpData("Imagette", imagette);
-    }
 
-    private void removeDCComponent(final double[][] imagette, final double[][] dcRemovedImage) {
-
-        final int filter_size = 11;
-        final int half_filter_size = filter_size / 2;
         for (int r = 0; r < windowSize; r++) {
             final int rMin = Math.max(r - half_filter_size, 0);
             final int rMax = Math.min(r + half_filter_size, windowSize - 1);
+            final int top = rMin * stride;
+            final int bottom = (rMax + 1) * stride;
             for (int c = 0; c < windowSize; c++) {
                 final int cMin = Math.max(c - half_filter_size, 0);
                 final int cMax = Math.min(c + half_filter_size, windowSize - 1);
-                dcRemovedImage[r][c] = imagette[r][c] / getMean(imagette, rMin, rMax, cMin, cMax);
-            }
-        }
-    }
-
-    private static double getMean(final double[][] imagette,
-                                  final int rMin, final int rMax, final int cMin, final int cMax) {
-
-        double mean = 0.0;
-        for (int r = rMin; r <= rMax; r++) {
-            for (int c = cMin; c <= cMax; c++) {
-                mean += imagette[r][c];
-            }
-        }
-        return mean / ((rMax - rMin + 1) * (cMax - cMin + 1));
-    }
-
-    private void computeSpectrum(final double[][] srcImage, final int fftSize, final double[][] spec) {
-
-        final double[][] F1 = new double[fftSize][fftSize];
-        final double[][] F2 = new double[fftSize][fftSize];
-        final double[][] F3 = new double[fftSize][fftSize];
-        final double[][] F4 = new double[fftSize][fftSize];
-        perform2DFFT(srcImage, 0, fftSize - 1, 0, fftSize - 1, F1);
-        perform2DFFT(srcImage, 0, fftSize - 1, windowSize - fftSize, windowSize - 1, F2);
-        perform2DFFT(srcImage, windowSize - fftSize, windowSize - 1, 0, fftSize - 1, F3);
-        perform2DFFT(srcImage, windowSize - fftSize, windowSize - 1, windowSize - fftSize, windowSize - 1, F4);
-
-        for (int r = 0; r < fftSize; r++) {
-            for (int c = 0; c < fftSize; c++) {
-                spec[r][c] = (F1[r][c] + F2[r][c] + F3[r][c] + F4[r][c]) / 4.0;
-            }
-        }
-    }
-
-    private static void perform2DFFT(final double[][] srcImage, final int xMin, final int xMax,
-                                     final int yMin, final int yMax, final double[][] spec) {
-
-        // perform 1-D FFT to each row
-        final int rowFFTSize = xMax - xMin + 1;
-        final int colFFTSize = yMax - yMin + 1;
-        final DoubleFFT_1D row_fft = new DoubleFFT_1D(rowFFTSize);
-        final double[][] complexDataI = new double[colFFTSize][rowFFTSize];
-        final double[][] complexDataQ = new double[colFFTSize][rowFFTSize];
-        final double[] rowArray = new double[2 * rowFFTSize];
-        for (int y = yMin; y <= yMax; y++) {
-            int k = 0;
-            for (int x = xMin; x <= xMax; x++) {
-                rowArray[k++] = srcImage[y][x];
-                rowArray[k++] = 0.0;
-            }
-            row_fft.complexForward(rowArray);
-            for (int c = 0; c < rowFFTSize; c++) {
-                complexDataI[y - yMin][c] = rowArray[c + c];
-                complexDataQ[y - yMin][c] = rowArray[c + c + 1];
-            }
-        }
-        // dumpData("complexDataI after row FFT", complexDataI);
-        // dumpData("complexDataQ after row FFT", complexDataQ);
-
-        // perform 1-D FFT to each column
-        final DoubleFFT_1D col_fft = new DoubleFFT_1D(colFFTSize);
-        final double[] colArray = new double[2 * colFFTSize];
-        for (int x = xMin; x <= xMax; x++) {
-            int k = 0;
-            for (int y = yMin; y <= yMax; y++) {
-                colArray[k++] = complexDataI[y - yMin][x - xMin];
-                colArray[k++] = complexDataQ[y - yMin][x - xMin];
-            }
-            col_fft.complexForward(colArray);
-            for (int r = 0; r < colFFTSize; r++) {
-                complexDataI[r][x - xMin] = colArray[r + r];
-                complexDataQ[r][x - xMin] = colArray[r + r + 1];
+                final double sum = sums[bottom + cMax + 1] - sums[top + cMax + 1] - sums[bottom + cMin] + sums[top + cMin];
+                final double mean = sum / ((rMax - rMin + 1) * (cMax - cMin + 1));
+                dcRemovedImage[r * windowSize + c] = imagette[r * windowSize + c] / mean;
             }
         }
-        // dumpData("complexDataI after col FFT", complexDataI);
-        // dumpData("complexDataQ after col FFT", complexDataQ);
-
-        // get spectrum magnitude and perform fftshift
-        final int secondHalfColFFTSize = colFFTSize / 2;
-        final int firstHalfColFFTSize = colFFTSize - secondHalfColFFTSize;
-        final int secondHalfRowFFTSize = rowFFTSize / 2;
-        final int firstHalfRowFFTSize = rowFFTSize - secondHalfRowFFTSize;
-        int rr, cc;
-        for (int y = yMin; y <= yMax; y++) {
-            int r = y - yMin;
-            if (r < firstHalfColFFTSize) {
-                rr = r + secondHalfColFFTSize;
-            } else {
-                rr = r - firstHalfColFFTSize;
-            }
-
-            for (int x = xMin; x <= xMax; x++) {
-                int c = x - xMin;
-                if (c < firstHalfRowFFTSize) {
-                    cc = c + secondHalfRowFFTSize;
-                } else {
-                    cc = c - firstHalfRowFFTSize;
-                }
-                spec[rr][cc] = complexDataI[r][c] * complexDataI[r][c] + complexDataQ[r][c] * complexDataQ[r][c];
-            }
-        }
-        // dumpData("spec", spec);
     }
 
     private static RenderedImage createRenderedImage(double[] array, int width, int height) {
@@ -686,7 +566,7 @@ public class WindFieldEstimationOp extends Operator {
     }
 
     private static RenderedImage applyAnnulusToSpec(
-            final double[][] spec, final int fftSize, final int n3, final double delta_k) {
+            final double[] spec, final int fftSize, final int n3, final double delta_k) {
 
         final int halfFFTSize = fftSize / 2;
         int n15 = (int) (Constants.TWO_PI / (15000.0 * delta_k));
@@ -700,7 +580,7 @@ public class WindFieldEstimationOp extends Operator {
                 if (r >= halfFFTSize - n15 && r <= halfFFTSize + n15 && c >= halfFFTSize - n15 && c <= halfFFTSize + n15) {
                     array[k++] = 0.0;
                 } else {
-                    array[k++] = spec[r][c];
+                    array[k++] = spec[r * fftSize + c];
                 }
             }
         }
@@ -876,14 +756,15 @@ public class WindFieldEstimationOp extends Operator {
     /**
      * Estimate wind speed using CMOD5 model.
      *
-     * @param nrcs      The normalized radar cross section.
-     * @param direction The wind direction vector.
-     * @param theta     The incidence angle in degree.
+     * @param nrcs  The normalized radar cross section.
+     * @param dx    The x component of the wind direction vector.
+     * @param dy    The y component of the wind direction vector.
+     * @param theta The incidence angle in degree.
      * @return The wind speed in m/s.
      */
-    private static double estimateWindSpeed(final double nrcs, final double[] direction, final double theta) {
+    private static double estimateWindSpeed(final double nrcs, final double dx, final double dy, final double theta) {
 
-        final double fi = Math.atan2(direction[1], direction[0]) * Constants.RTOD;
+        final double fi = Math.atan2(dy, dx) * Constants.RTOD;
         final double cosFI = FastMath.cos(fi * Constants.DTOR);
 
         // try wind speed from 0.1 m/s to 20 m/s with step size 0.1
@@ -988,13 +869,100 @@ public class WindFieldEstimationOp extends Operator {
     @Override
     public void dispose() {
 
+        spectrumEstimators.clear();
+
         if (!windFieldEstimated) {
             return;
         }
 
+        createWindFieldRecords();
+
         outputWindFieldInfoToFile();
     }
 
+    /**
+     * Resolve the direction ambiguity over the frames of each band and estimate the wind speed of each frame.
+     */
+    private void createWindFieldRecords() {
+
+        final int arrowSize = halfWindowSize * 2 / 3;
+        for (String bandName : bandWindCells.keySet()) {
+            final WindCell[][] grid = getCellGrid(bandWindCells.get(bandName));
+            resolveDirectionAmbiguity(grid);
+
+            final List<WindFieldRecord> recordList = bandWindFieldRecord.get(bandName);
+            recordList.clear();
+            for (WindCell[] row : grid) {
+                for (WindCell cell : row) {
+                    if (cell == null) {
+                        continue;
+                    }
+                    final double speed = estimateWindSpeed(cell.nrcs, cell.dx, cell.dy, cell.theta);
+                    recordList.add(new WindFieldRecord(cell.lat, cell.lon, speed,
+                            arrowSize * cell.dx, arrowSize * cell.dy, cell.ratio));
+                }
+            }
+        }
+    }
+
+    private static WindCell[][] getCellGrid(final Map<Point, WindCell> cells) {
+
+        int numCellsX = 0;
+        int numCellsY = 0;
+        for (Point p : cells.keySet()) {
+            numCellsX = Math.max(numCellsX, p.x + 1);
+            numCellsY = Math.max(numCellsY, p.y + 1);
+        }
+
+        final WindCell[][] grid = new WindCell[numCellsY][numCellsX];
+        for (Map.Entry<Point, WindCell> entry : cells.entrySet()) {
+            grid[entry.getKey().y][entry.getKey().x] = entry.getValue();
+        }
+        return grid;
+    }
+
+    /**
+     * The wind direction estimated from the wind rolls has a 180 degree ambiguity. The direction of a frame is
+     * flipped when it points against the sum of the directions of its eight neighbours, sweeping over the frame
+     * grid until no direction changes. Each flip increases the agreement between neighbours, so the sweeps converge.
+     *
+     * @param grid The frames, null where no wind was estimated.
+     */
+    private static void resolveDirectionAmbiguity(final WindCell[][] grid) {
+
+        for (int sweep = 0; sweep < MAX_AMBIGUITY_SWEEPS; sweep++) {
+            boolean flipped = false;
+            for (int j = 0; j < grid.length; j++) {
+                for (int i = 0; i < grid[j].length; i++) {
+                    final WindCell cell = grid[j][i];
+                    if (cell == null) {
+                        continue;
+                    }
+
+                    double sx = 0.0, sy = 0.0;
+                    for (int jj = Math.max(j - 1, 0); jj <= Math.min(j + 1, grid.length - 1); jj++) {
+                        for (int ii = Math.max(i - 1, 0); ii <= Math.min(i + 1, grid[jj].length - 1); ii++) {
+                            final WindCell neighbour = grid[jj][ii];
+                            if (neighbour != null && neighbour != cell) {
+                                sx += neighbour.dx;
+                                sy += neighbour.dy;
+                            }
+                        }
+                    }
+
+                    if (cell.dx * sx + cell.dy * sy < 0.0) {
+                        cell.dx = -cell.dx;
+                        cell.dy = -cell.dy;
+                        flipped = true;
+                    }
+                }
+            }
+            if (!flipped) {
+                break;
+            }
+        }
+    }
+
     /**
      * Output wind fielld information to file.
      *
@@ -1043,6 +1011,30 @@ public class WindFieldEstimationOp extends Operator {
         XMLSupport.SaveXML(doc, windFieldReportFile.getAbsolutePath());
     }
 
+    /**
+     * The wind direction of a frame and the inputs of its wind speed estimation.
+     */
+    private static class WindCell {
+        final double lat;
+        final double lon;
+        final double theta;
+        final double nrcs;
+        final double ratio;
+        double dx;
+        double dy;
+
+        WindCell(final double lat, final double lon, final double theta, final double nrcs,
+                 final double dx, final double dy, final double ratio) {
+            this.lat = lat;
+            this.lon = lon;
+            this.theta = theta;
+            this.nrcs = nrcs;
+            this.dx = dx;
+            this.dy = dy;
+            this.ratio = ratio;
+        }
+    }
+
     public static class WindFieldRecord {
         public final double lat;
         public final double lon;
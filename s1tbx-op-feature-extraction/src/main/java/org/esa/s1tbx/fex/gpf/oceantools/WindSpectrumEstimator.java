@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf.oceantools;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+
+import java.util.Arrays;
+
+/**
+ * Averaged power spectrum of a wind cell imagette.
+ * <p/>
+ * The spectrum is the mean of the power spectra of the four overlapping corner sub-windows of the imagette.
+ * Rows are transformed with a real to complex FFT and, the input being real, only the columns of the
+ * non-negative row frequencies are transformed; the power of the other half follows from the Hermitian symmetry
+ * of the spectrum. The FFT plan and the work buffers are reused for every imagette, and all buffers are flat, with
+ * interleaved real and imaginary parts. An estimator is not thread safe.
+ */
+final class WindSpectrumEstimator {
+
+    private static final int COLUMN_GROUP = 8;
+
+    private final int fftSize;
+    private final int stride;
+    private final DoubleFFT_1D fft;
+    private final double[] rows;
+    private final double[] columns;
+
+    /**
+     * @param fftSize the FFT size
+     */
+    WindSpectrumEstimator(final int fftSize) {
+        this.fftSize = fftSize;
+        this.stride = 2 * fftSize;
+        this.fft = new DoubleFFT_1D(fftSize);
+        this.rows = new double[fftSize * stride];
+        this.columns = new double[COLUMN_GROUP * stride];
+    }
+
+    /**
+     * Compute the averaged power spectrum of the four fftSize by fftSize corner sub-windows of an imagette.
+     *
+     * @param image      the imagette, line by line
+     * @param windowSize width and height of the imagette
+     * @param spec       output, fftSize by fftSize, line by line, with the zero frequency shifted to the centre
+     */
+    void computeSpectrum(final double[] image, final int windowSize, final double[] spec) {
+
+        final int offset = windowSize - fftSize;
+        Arrays.fill(spec, 0, fftSize * fftSize, 0.0);
+        addPowerSpectrum(image, windowSize, 0, 0, spec);
+        addPowerSpectrum(image, windowSize, 0, offset, spec);
+        addPowerSpectrum(image, windowSize, offset, 0, spec);
+        addPowerSpectrum(image, windowSize, offset, offset, spec);
+
+        for (int i = 0; i < fftSize * fftSize; i++) {
+            spec[i] /= 4.0;
+        }
+    }
+
+    private void addPowerSpectrum(final double[] image, final int windowSize, final int x0, final int y0,
+                                  final double[] spec) {
+
+        final int n = fftSize;
+        for (int r = 0; r < n; r++) {
+            final int rowOffset = r * stride;
+            System.arraycopy(image, (y0 + r) * windowSize + x0, rows, rowOffset, n);
+            fft.realForwardFull(rows, rowOffset);
+        }
+
+        // columns 0 to n / 2, the power of column c at row r equals that of column n - c at row n - r
+        final int half = n / 2;
+        for (int c0 = 0; c0 <= half; c0 += COLUMN_GROUP) {
+            final int numCols = Math.min(COLUMN_GROUP, half + 1 - c0);
+
+            for (int r = 0; r < n; r++) {
+                int k = r * stride + 2 * c0;
+                for (int c = 0; c < numCols; c++) {
+                    columns[c * stride + 2 * r] = rows[k++];
+                    columns[c * stride + 2 * r + 1] = rows[k++];
+                }
+            }
+
+            for (int c = 0; c < numCols; c++) {
+                final int colOffset = c * stride;
+                fft.complexForward(columns, colOffset);
+
+                final int col = c0 + c;
+                final int shiftedCol = (col + half) % n;
+                final int mirroredCol = (n - col + half) % n;
+                final boolean mirror = col != 0 && 2 * col != n;
+                for (int r = 0; r < n; r++) {
+                    final double re = columns[colOffset + 2 * r];
+                    final double im = columns[colOffset + 2 * r + 1];
+                    final double power = re * re + im * im;
+                    spec[((r + half) % n) * n + shiftedCol] += power;
+                    if (mirror) {
+                        spec[((n - r + half) % n) * n + mirroredCol] += power;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for ConnectedComponents and ConnectedComponentMerger
+ */
+public class TestConnectedComponents {
+
+    private static final String[] IMAGE = {
+            "#...#....#",
+            "#.#.#....#",
+            "#.#.#...#.",
+            "###.#..#..",
+            "....###...",
+            ".##.......",
+            "..#.....##"
+    };
+
+    private static boolean[] toMask(final String[] image) {
+        final int w = image[0].length();
+        final boolean[] mask = new boolean[w * image.length];
+        for (int y = 0; y < image.length; y++) {
+            for (int x = 0; x < w; x++) {
+                mask[y * w + x] = image[y].charAt(x) == '#';
+            }
+        }
+        return mask;
+    }
+
+    @Test
+    public void testLabel() {
+        final int w = IMAGE[0].length();
+        final int h = IMAGE.length;
+        final boolean[] mask = toMask(IMAGE);
+        final double[] values = new double[w * h];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+
+        final ConnectedComponents components = ConnectedComponents.label(100, 200, w, h, mask, values);
+        final ComponentStatistics stats = components.getStatistics();
+
+        // the U shape, the column joined to the diagonal, the tail below the U and the pair at the bottom right
+        assertEquals(4, components.getNumComponents());
+        assertEquals(0, components.getLabel(101, 200));
+
+        final int u = components.getLabel(100, 200) - 1;
+        assertEquals(u, components.getLabel(102, 201) - 1);
+        assertEquals(8, stats.getArea(u));
+        assertEquals(100, stats.getMinX(u));
+        assertEquals(102, stats.getMaxX(u));
+        assertEquals(200, stats.getMinY(u));
+        assertEquals(203, stats.getMaxY(u));
+        assertEquals(157.0, stats.getSumValue(u), 1e-12);
+
+        final int bar = components.getLabel(104, 200) - 1;
+        assertEquals(bar, components.getLabel(109, 200) - 1);
+        assertEquals(11, stats.getArea(bar));
+        assertEquals(104, stats.getMinX(bar));
+        assertEquals(109, stats.getMaxX(bar));
+        assertEquals(200, stats.getMinY(bar));
+        assertEquals(204, stats.getMaxY(bar));
+
+        final int tail = components.getLabel(101, 205) - 1;
+        assertEquals(3, stats.getArea(tail));
+        assertEquals(100 + 5 / 3.0, stats.getCentroidX(tail), 1e-12);
+        assertEquals(200 + 16 / 3.0, stats.getCentroidY(tail), 1e-12);
+
+        final int pair = components.getLabel(108, 206) - 1;
+        assertEquals(2, stats.getArea(pair));
+        assertEquals(68.5, stats.getMeanValue(pair), 1e-12);
+        assertEquals(0.25, stats.getValueVariance(pair), 1e-12);
+    }
+
+    @Test
+    public void testMergeTiles() {
+        final Random random = new Random(12345);
+        final int w = 97;
+        final int h = 83;
+        final boolean[] mask = new boolean[w * h];
+        final double[] values = new double[w * h];
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = random.nextDouble() < 0.45;
+            values[i] = random.nextDouble();
+        }
+
+        final ComponentStatistics whole = ConnectedComponents.label(0, 0, w, h, mask, values).getStatistics();
+
+        final int tileW = 16;
+        final int tileH = 12;
+        final ConnectedComponentMerger merger = new ConnectedComponentMerger();
+        for (int ty = 0; ty < h; ty += tileH) {
+            for (int tx = 0; tx < w; tx += tileW) {
+                final int tw = Math.min(tileW, w - tx);
+                final int th = Math.min(tileH, h - ty);
+                final boolean[] tileMask = new boolean[tw * th];
+                final double[] tileValues = new double[tw * th];
+                for (int y = 0; y < th; y++) {
+                    for (int x = 0; x < tw; x++) {
+                        tileMask[y * tw + x] = mask[(ty + y) * w + tx + x];
+                        tileValues[y * tw + x] = values[(ty + y) * w + tx + x];
+                    }
+                }
+                merger.add(ConnectedComponents.label(tx, ty, tw, th, tileMask, tileValues));
+            }
+        }
+        final ComponentStatistics merged = merger.merge();
+
+        assertEquals(whole.getNumComponents(), merged.getNumComponents());
+
+        final Integer[] wholeOrder = sortedComponents(whole);
+        final Integer[] mergedOrder = sortedComponents(merged);
+        for (int i = 0; i < wholeOrder.length; i++) {
+            final int m = wholeOrder[i];
+            final int c = mergedOrder[i];
+            assertEquals(whole.getArea(m), merged.getArea(c));
+            assertEquals(whole.getMinX(m), merged.getMinX(c));
+            assertEquals(whole.getMaxX(m), merged.getMaxX(c));
+            assertEquals(whole.getMinY(m), merged.getMinY(c));
+            assertEquals(whole.getMaxY(m), merged.getMaxY(c));
+            assertEquals(whole.getCentroidX(m), merged.getCentroidX(c), 1e-9);
+            assertEquals(whole.getCentroidY(m), merged.getCentroidY(c), 1e-9);
+            assertEquals(whole.getSumValue(m), merged.getSumValue(c), 1e-9);
+        }
+    }
+
+    private static Integer[] sortedComponents(final ComponentStatistics stats) {
+        final Integer[] order = new Integer[stats.getNumComponents()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                if (stats.getMinY(a) != stats.getMinY(b))
+                    return Integer.compare(stats.getMinY(a), stats.getMinY(b));
+                if (stats.getMinX(a) != stats.getMinX(b))
+                    return Integer.compare(stats.getMinX(a), stats.getMinX(b));
+                if (stats.getArea(a) != stats.getArea(b))
+                    return Integer.compare(stats.getArea(a), stats.getArea(b));
+                return Double.compare(stats.getCentroidX(a), stats.getCentroidX(b));
+            }
+        });
+        return order;
+    }
+}
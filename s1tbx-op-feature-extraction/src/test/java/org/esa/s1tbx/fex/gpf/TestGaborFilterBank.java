@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for GaborFilterBank
+ */
+public class TestGaborFilterBank {
+
+    @Test
+    public void testNextFastSize() {
+        assertEquals(1, GaborFilterBank.nextFastSize(1));
+        assertEquals(8, GaborFilterBank.nextFastSize(7));
+        assertEquals(90, GaborFilterBank.nextFastSize(89));
+        assertEquals(540, GaborFilterBank.nextFastSize(536));
+    }
+
+    @Test
+    public void testFilterBank() {
+        final Random random = new Random(4321);
+        final double[][] small = new double[3][3];
+        for (double[] column : small) {
+            for (int b = 0; b < column.length; b++) {
+                column[b] = random.nextDouble() - 0.5;
+            }
+        }
+
+        final double[][] rankTwo = new double[9][7];
+        for (int a = 0; a < rankTwo.length; a++) {
+            for (int b = 0; b < rankTwo[a].length; b++) {
+                rankTwo[a][b] = Math.cos(0.3 * a) * Math.exp(-0.1 * b * b) + (a - 4) * (b - 3) * 0.01;
+            }
+        }
+
+        // direct, separable of rank 1 and 2, FFT or direct depending on the tile size, and direct
+        final double[][][] filters = {
+                small,
+                rankTwo,
+                GaborFilter.createGarborFilter(4.0, 0.0, 1.0, 2.0, 0.3),
+                GaborFilter.createGarborFilter(4.0, 0.6, 1.0, 2.0, 0.3),
+                GaborFilter.createGarborFilter(3.0, 1.2, 1.0, 1.0, 0.5)
+        };
+        final GaborFilterBank bank = new GaborFilterBank(filters);
+
+        final int imageW = 150;
+        final int imageH = 110;
+        final double[] image = new double[imageW * imageH];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = random.nextDouble();
+        }
+
+        // tiles in the corner, the middle and along the border of the image
+        checkTile(bank, filters, image, imageW, imageH, 0, 0, 64, 64);
+        checkTile(bank, filters, image, imageW, imageH, 40, 30, 70, 50);
+        checkTile(bank, filters, image, imageW, imageH, 130, 100, 20, 10);
+        checkTile(bank, filters, image, imageW, imageH, 5, 7, 6, 9);
+    }
+
+    private static void checkTile(final GaborFilterBank bank, final double[][][] filters, final double[] image,
+                                  final int imageW, final int imageH,
+                                  final int x0, final int y0, final int w, final int h) {
+
+        final int haloX = bank.getHaloX();
+        final int haloY = bank.getHaloY();
+        final int blockW = w + 2 * haloX;
+        final int blockH = h + 2 * haloY;
+        final double[] block = new double[blockW * blockH];
+        for (int r = 0; r < blockH; r++) {
+            for (int c = 0; c < blockW; c++) {
+                final int x = x0 - haloX + c;
+                final int y = y0 - haloY + r;
+                if (x >= 0 && x < imageW && y >= 0 && y < imageH) {
+                    block[r * blockW + c] = image[y * imageW + x];
+                }
+            }
+        }
+
+        final double[][] out = new double[bank.getNumFilters()][w * h];
+        bank.apply(block, w, h, out);
+
+        for (int k = 0; k < filters.length; k++) {
+            final double[][] filter = filters[k];
+            final int xmax = filter.length / 2;
+            final int ymax = filter[0].length / 2;
+            for (int y = y0; y < y0 + h; y++) {
+                for (int x = x0; x < x0 + w; x++) {
+                    double expected = 0;
+                    for (int yf = -ymax; yf <= ymax; yf++) {
+                        for (int xf = -xmax; xf <= xmax; xf++) {
+                            final int xx = x - xf;
+                            final int yy = y - yf;
+                            if (xx >= 0 && xx < imageW && yy >= 0 && yy < imageH) {
+                                expected += filter[xf + xmax][yf + ymax] * image[yy * imageW + xx];
+                            }
+                        }
+                    }
+                    assertEquals(expected, out[k][(y - y0) * w + x - x0], 1e-8);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for the sliding window coefficient of variance of SpeckleDivergenceOp
+ */
+public class TestSpeckleDivergence {
+
+    /**
+     * The coefficient of variance of the window around one pixel, from the samples in the window.
+     */
+    private static double computeDirect(final double[] samples, final int sw, final int sh,
+                                        final int x, final int y, final int halfWindowSize) {
+        double sum = 0.0;
+        int n = 0;
+        for (int j = Math.max(y - halfWindowSize, 0); j <= Math.min(y + halfWindowSize, sh - 1); j++) {
+            for (int i = Math.max(x - halfWindowSize, 0); i <= Math.min(x + halfWindowSize, sw - 1); i++) {
+                if (!Double.isNaN(samples[j * sw + i])) {
+                    sum += samples[j * sw + i];
+                    n++;
+                }
+            }
+        }
+        if (n == 0) {
+            return Double.NaN;
+        }
+        final double mean = sum / n;
+        double var = 0.0;
+        if (n > 1) {
+            for (int j = Math.max(y - halfWindowSize, 0); j <= Math.min(y + halfWindowSize, sh - 1); j++) {
+                for (int i = Math.max(x - halfWindowSize, 0); i <= Math.min(x + halfWindowSize, sw - 1); i++) {
+                    if (!Double.isNaN(samples[j * sw + i])) {
+                        final double diff = samples[j * sw + i] - mean;
+                        var += diff * diff;
+                    }
+                }
+            }
+            var /= (n - 1);
+        }
+        return Math.sqrt(var) / mean;
+    }
+
+    @Test
+    public void testCoefficientOfVariance() {
+        final Random random = new Random(7);
+        final int sw = 47;
+        final int sh = 39;
+        final double[] samples = new double[sw * sh];
+        for (int i = 0; i < samples.length; i++) {
+            // exponentially distributed intensities around 1000, with holes
+            samples[i] = random.nextDouble() < 0.2 ? Double.NaN : -1000.0 * Math.log(1.0 - random.nextDouble());
+        }
+        // a block without valid samples
+        for (int y = 20; y < 32; y++) {
+            for (int x = 10; x < 24; x++) {
+                samples[y * sw + x] = Double.NaN;
+            }
+        }
+
+        final int[] halfWindowSizes = {2, 7, 12};
+        for (int halfWindowSize : halfWindowSizes) {
+            final int x0 = 5;
+            final int y0 = 3;
+            final int w = sw - 9;
+            final int h = sh - 3;
+            final double[] cv = new double[w * h];
+            SpeckleDivergenceOp.computeCoefficientOfVariance(samples, sw, sh, x0, y0, w, h, halfWindowSize, cv);
+
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    final double expected = computeDirect(samples, sw, sh, x0 + x, y0 + y, halfWindowSize);
+                    final double actual = cv[y * w + x];
+                    if (Double.isNaN(expected)) {
+                        assertTrue(Double.isNaN(actual));
+                    } else {
+                        assertEquals(expected, actual, 1e-9);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for TiledClassMask
+ */
+public class TestTiledClassMask {
+
+    private static byte getValue(final int x, final int y) {
+        return (byte) (x * 7 + y * 13);
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        final int width = 23;
+        final int height = 17;
+        final TiledClassMask mask = new TiledClassMask(width, height, 8, 5);
+        try {
+            final Rectangle[] tiles = mask.getTileRectangles();
+            assertEquals(3 * 4, tiles.length);
+            assertEquals(new Rectangle(16, 15, 7, 2), tiles[tiles.length - 1]);
+
+            final byte[] data = new byte[width * height];
+            mask.read(new Rectangle(0, 0, width, height), data);
+            for (byte value : data) {
+                assertEquals(0, value);
+            }
+
+            for (Rectangle tile : tiles) {
+                final byte[] tileData = new byte[tile.width * tile.height];
+                for (int y = 0; y < tile.height; y++) {
+                    for (int x = 0; x < tile.width; x++) {
+                        tileData[y * tile.width + x] = getValue(tile.x + x, tile.y + y);
+                    }
+                }
+                mask.write(tile, tileData);
+            }
+
+            final Rectangle[] rectangles = {
+                    tiles[5], new Rectangle(0, 0, width, height), new Rectangle(3, 4, 14, 9),
+                    new Rectangle(20, 16, 3, 1)
+            };
+            for (Rectangle rectangle : rectangles) {
+                final byte[] rectangleData = new byte[rectangle.width * rectangle.height];
+                mask.read(rectangle, rectangleData);
+                for (int y = 0; y < rectangle.height; y++) {
+                    for (int x = 0; x < rectangle.width; x++) {
+                        assertEquals(getValue(rectangle.x + x, rectangle.y + y),
+                                rectangleData[y * rectangle.width + x]);
+                    }
+                }
+            }
+        } finally {
+            mask.dispose();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWriteNotTile() throws IOException {
+        final TiledClassMask mask = new TiledClassMask(23, 17, 8, 5);
+        try {
+            mask.write(new Rectangle(0, 0, 4, 5), new byte[20]);
+        } finally {
+            mask.dispose();
+        }
+    }
+}
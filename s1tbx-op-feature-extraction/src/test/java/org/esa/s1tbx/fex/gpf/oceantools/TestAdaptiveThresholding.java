@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf.oceantools;
+
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for the summed-area table statistics of AdaptiveThresholdingOp
+ */
+public class TestAdaptiveThresholding {
+
+    private static final double NO_DATA = 0.0;
+    private static final int SW = 41;
+    private static final int SH = 33;
+
+    private static final int HALF_TARGET_WINDOW_SIZE = 1;
+    private static final int HALF_GUARD_WINDOW_SIZE = 4;
+    private static final int HALF_BACKGROUND_WINDOW_SIZE = 8;
+    private static final double T = 12.5;
+
+    private static double[] createImage() {
+        final Random random = new Random(3);
+        final double[] image = new double[SW * SH];
+        for (int i = 0; i < image.length; i++) {
+            // exponentially distributed intensities on a large offset, with a few no-data pixels
+            image[i] = random.nextDouble() < 0.003 ? NO_DATA : 5.0e4 - 1000.0 * Math.log(1.0 - random.nextDouble());
+        }
+        // no-data pixels on the image edges
+        image[5] = NO_DATA;
+        image[(SH - 1) * SW + 30] = NO_DATA;
+        return image;
+    }
+
+    /**
+     * The mean of the target window, as AdaptiveThresholdingOp computed it before the summed-area tables.
+     */
+    private static double computeTargetMean(final double[] image, final int tx, final int ty) {
+        final double v = image[ty * SW + tx];
+        if (v == NO_DATA) {
+            return NO_DATA;
+        }
+        double mean = 0.0;
+        int numPixels = 0;
+        for (int y = Math.max(ty - HALF_TARGET_WINDOW_SIZE, 0);
+             y <= Math.min(ty + HALF_TARGET_WINDOW_SIZE, SH - 1); y++) {
+            for (int x = Math.max(tx - HALF_TARGET_WINDOW_SIZE, 0);
+                 x <= Math.min(tx + HALF_TARGET_WINDOW_SIZE, SW - 1); x++) {
+                final double val = image[y * SW + x];
+                if (val == NO_DATA) {
+                    return NO_DATA;
+                }
+                mean += val;
+                ++numPixels;
+            }
+        }
+        return mean / numPixels;
+    }
+
+    /**
+     * The threshold of the background ring, as AdaptiveThresholdingOp computed it before the summed-area tables.
+     */
+    private static double computeBackgroundThreshold(final double[] image, final int tx, final int ty,
+                                                     final double t) {
+        double sum = 0.0;
+        int numPixels = 0;
+        final double[] dataArray = new double[SW * SH];
+        for (int y = Math.max(ty - HALF_BACKGROUND_WINDOW_SIZE, 0);
+             y <= Math.min(ty + HALF_BACKGROUND_WINDOW_SIZE, SH - 1); y++) {
+            final boolean yGtrHalfGuard = Math.abs(y - ty) > HALF_GUARD_WINDOW_SIZE;
+            for (int x = Math.max(tx - HALF_BACKGROUND_WINDOW_SIZE, 0);
+                 x <= Math.min(tx + HALF_BACKGROUND_WINDOW_SIZE, SW - 1); x++) {
+                if (yGtrHalfGuard || Math.abs(x - tx) > HALF_GUARD_WINDOW_SIZE) {
+                    final double val = image[y * SW + x];
+                    if (val == NO_DATA) {
+                        return Double.MAX_VALUE;
+                    }
+                    sum += val;
+                    dataArray[numPixels++] = val;
+                }
+            }
+        }
+        final double mean = sum / numPixels;
+        double std = 0.0;
+        for (int i = 0; i < numPixels; ++i) {
+            final double tmp = dataArray[i] - mean;
+            std += tmp * tmp;
+        }
+        return mean + Math.sqrt(std / numPixels) * t;
+    }
+
+    /**
+     * Compare the statistics of the table with the direct ones for the pixels of [x0, x1] x [y0, y1].
+     */
+    private static void compare(final double[] image, final AdaptiveThresholdingOp.SummedAreaTable sat,
+                                final int x0, final int y0, final int x1, final int y1) {
+        int numTargets = 0, numRings = 0;
+        for (int ty = y0; ty <= y1; ty++) {
+            for (int tx = x0; tx <= x1; tx++) {
+                final int txMin = Math.max(tx - HALF_TARGET_WINDOW_SIZE, 0);
+                final int txMax = Math.min(tx + HALF_TARGET_WINDOW_SIZE, SW - 1);
+                final int tyMin = Math.max(ty - HALF_TARGET_WINDOW_SIZE, 0);
+                final int tyMax = Math.min(ty + HALF_TARGET_WINDOW_SIZE, SH - 1);
+
+                final double expectedMean = computeTargetMean(image, tx, ty);
+                if (expectedMean == NO_DATA) {
+                    assertTrue(sat.isNoData(tx, ty) || sat.noDataCount(txMin, tyMin, txMax, tyMax) > 0);
+                } else {
+                    assertEquals(0, sat.noDataCount(txMin, tyMin, txMax, tyMax));
+                    assertEquals(expectedMean, sat.mean(txMin, tyMin, txMax, tyMax), 1e-9);
+                    ++numTargets;
+                }
+
+                final int bxMin = Math.max(tx - HALF_BACKGROUND_WINDOW_SIZE, 0);
+                final int bxMax = Math.min(tx + HALF_BACKGROUND_WINDOW_SIZE, SW - 1);
+                final int byMin = Math.max(ty - HALF_BACKGROUND_WINDOW_SIZE, 0);
+                final int byMax = Math.min(ty + HALF_BACKGROUND_WINDOW_SIZE, SH - 1);
+                final int gxMin = Math.max(tx - HALF_GUARD_WINDOW_SIZE, bxMin);
+                final int gxMax = Math.min(tx + HALF_GUARD_WINDOW_SIZE, bxMax);
+                final int gyMin = Math.max(ty - HALF_GUARD_WINDOW_SIZE, byMin);
+                final int gyMax = Math.min(ty + HALF_GUARD_WINDOW_SIZE, byMax);
+
+                // the mean alone with t = 0, then the mean plus t times the standard deviation
+                final double[] ts = {0.0, T};
+                for (double t : ts) {
+                    final double expected = computeBackgroundThreshold(image, tx, ty, t);
+                    final double actual = sat.ringThreshold(bxMin, byMin, bxMax, byMax, gxMin, gyMin, gxMax, gyMax, t);
+                    if (expected == Double.MAX_VALUE) {
+                        assertEquals(Double.MAX_VALUE, actual, 0.0);
+                    } else {
+                        assertEquals(expected, actual, 1e-6);
+                        ++numRings;
+                    }
+                }
+            }
+        }
+        // both valid and no-data windows were compared
+        assertTrue(numTargets > 0 && numTargets < (x1 - x0 + 1) * (y1 - y0 + 1));
+        assertTrue(numRings > 0 && numRings < 2 * (x1 - x0 + 1) * (y1 - y0 + 1));
+    }
+
+    @Test
+    public void testWholeImage() {
+        // the image in a larger data buffer, as a tile of a bigger raster
+        final double[] image = createImage();
+        final int bufferStride = SW + 5;
+        final int offset = 3 * bufferStride + 2;
+        final double[] buffer = new double[(SH + 4) * bufferStride];
+        for (int y = 0; y < SH; y++) {
+            System.arraycopy(image, y * SW, buffer, offset + y * bufferStride, SW);
+        }
+        final AdaptiveThresholdingOp.SummedAreaTable sat = new AdaptiveThresholdingOp.SummedAreaTable(
+                ProductData.createInstance(buffer), offset, bufferStride, 0, 0, SW, SH, NO_DATA);
+
+        compare(image, sat, 0, 0, SW - 1, SH - 1);
+    }
+
+    @Test
+    public void testTileAtImageCorner() {
+        // a source tile at the bottom right corner of the image, for the target pixels whose windows it covers
+        final double[] image = createImage();
+        final int minX = 10;
+        final int minY = 8;
+        final AdaptiveThresholdingOp.SummedAreaTable sat = new AdaptiveThresholdingOp.SummedAreaTable(
+                ProductData.createInstance(image), minY * SW + minX, SW, minX, minY, SW - minX, SH - minY, NO_DATA);
+
+        compare(image, sat, minX + HALF_BACKGROUND_WINDOW_SIZE, minY + HALF_BACKGROUND_WINDOW_SIZE, SW - 1, SH - 1);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.fex.gpf.oceantools;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for WindSpectrumEstimator
+ */
+public class TestWindSpectrumEstimator {
+
+    /**
+     * Power spectrum of a sub-window with complex row and column FFTs, as WindFieldEstimationOp computed it before
+     * WindSpectrumEstimator.
+     */
+    private static void perform2DFFT(final double[][] srcImage, final int xMin, final int xMax,
+                                     final int yMin, final int yMax, final double[][] spec) {
+
+        final int rowFFTSize = xMax - xMin + 1;
+        final int colFFTSize = yMax - yMin + 1;
+        final DoubleFFT_1D row_fft = new DoubleFFT_1D(rowFFTSize);
+        final double[][] complexDataI = new double[colFFTSize][rowFFTSize];
+        final double[][] complexDataQ = new double[colFFTSize][rowFFTSize];
+        final double[] rowArray = new double[2 * rowFFTSize];
+        for (int y = yMin; y <= yMax; y++) {
+            int k = 0;
+            for (int x = xMin; x <= xMax; x++) {
+                rowArray[k++] = srcImage[y][x];
+                rowArray[k++] = 0.0;
+            }
+            row_fft.complexForward(rowArray);
+            for (int c = 0; c < rowFFTSize; c++) {
+                complexDataI[y - yMin][c] = rowArray[c + c];
+                complexDataQ[y - yMin][c] = rowArray[c + c + 1];
+            }
+        }
+
+        final DoubleFFT_1D col_fft = new DoubleFFT_1D(colFFTSize);
+        final double[] colArray = new double[2 * colFFTSize];
+        for (int x = xMin; x <= xMax; x++) {
+            int k = 0;
+            for (int y = yMin; y <= yMax; y++) {
+                colArray[k++] = complexDataI[y - yMin][x - xMin];
+                colArray[k++] = complexDataQ[y - yMin][x - xMin];
+            }
+            col_fft.complexForward(colArray);
+            for (int r = 0; r < colFFTSize; r++) {
+                complexDataI[r][x - xMin] = colArray[r + r];
+                complexDataQ[r][x - xMin] = colArray[r + r + 1];
+            }
+        }
+
+        // spectrum magnitude with fftshift
+        final int secondHalfColFFTSize = colFFTSize / 2;
+        final int firstHalfColFFTSize = colFFTSize - secondHalfColFFTSize;
+        final int secondHalfRowFFTSize = rowFFTSize / 2;
+        final int firstHalfRowFFTSize = rowFFTSize - secondHalfRowFFTSize;
+        for (int r = 0; r < colFFTSize; r++) {
+            final int rr = r < firstHalfColFFTSize ? r + secondHalfColFFTSize : r - firstHalfColFFTSize;
+            for (int c = 0; c < rowFFTSize; c++) {
+                final int cc = c < firstHalfRowFFTSize ? c + secondHalfRowFFTSize : c - firstHalfRowFFTSize;
+                spec[rr][cc] = complexDataI[r][c] * complexDataI[r][c] + complexDataQ[r][c] * complexDataQ[r][c];
+            }
+        }
+    }
+
+    private static double[][] computeReferenceSpectrum(final double[][] image, final int windowSize,
+                                                       final int fftSize) {
+        final int offset = windowSize - fftSize;
+        final int[][] corners = {{0, 0}, {0, offset}, {offset, 0}, {offset, offset}};
+        final double[][] spec = new double[fftSize][fftSize];
+        final double[][] subSpec = new double[fftSize][fftSize];
+        for (int[] corner : corners) {
+            perform2DFFT(image, corner[0], corner[0] + fftSize - 1, corner[1], corner[1] + fftSize - 1, subSpec);
+            for (int r = 0; r < fftSize; r++) {
+                for (int c = 0; c < fftSize; c++) {
+                    spec[r][c] += subSpec[r][c] / 4.0;
+                }
+            }
+        }
+        return spec;
+    }
+
+    private static void testSpectrum(final int windowSize, final int fftSize) {
+        final Random random = new Random(windowSize);
+        final double[] image = new double[windowSize * windowSize];
+        final double[][] image2D = new double[windowSize][windowSize];
+        for (int r = 0; r < windowSize; r++) {
+            for (int c = 0; c < windowSize; c++) {
+                // a wave pattern with noise, as a DC removed imagette
+                final double v = 1.0 + 0.5 * Math.sin(0.7 * r + 0.3 * c) + 0.2 * random.nextGaussian();
+                image[r * windowSize + c] = v;
+                image2D[r][c] = v;
+            }
+        }
+
+        final double[][] expected = computeReferenceSpectrum(image2D, windowSize, fftSize);
+
+        // the estimator is reused, the second spectrum must not depend on the first one
+        final WindSpectrumEstimator estimator = new WindSpectrumEstimator(fftSize);
+        final double[] spec = new double[fftSize * fftSize];
+        for (int pass = 0; pass < 2; pass++) {
+            estimator.computeSpectrum(image, windowSize, spec);
+
+            for (int r = 0; r < fftSize; r++) {
+                for (int c = 0; c < fftSize; c++) {
+                    final double tolerance = 1e-9 * Math.max(1.0, Math.abs(expected[r][c]));
+                    assertEquals(expected[r][c], spec[r * fftSize + c], tolerance);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOddFFTSize() {
+        // the FFT size of WindFieldEstimationOp is odd
+        testSpectrum(30, 21);
+    }
+
+    @Test
+    public void testEvenFFTSize() {
+        testSpectrum(24, 16);
+    }
+}
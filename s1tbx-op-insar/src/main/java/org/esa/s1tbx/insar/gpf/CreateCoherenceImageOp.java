@@ -116,7 +116,7 @@ public class CreateCoherenceImageOp extends Operator {
             isTOPSARBurstProduct = validator.isTOPSARBurstProduct();
 
             if (isTOPSARBurstProduct) {
-                su = new Sentinel1Utils(sourceProduct);
+                su = Sentinel1Utils.getInstance(sourceProduct);
                 subSwath = su.getSubSwath();
                 numSubSwaths = su.getNumOfSubSwath();
                 subSwathIndex = 1; // subSwathIndex is always 1 because of split product
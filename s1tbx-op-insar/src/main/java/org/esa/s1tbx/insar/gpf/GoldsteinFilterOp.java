@@ -16,7 +16,6 @@
 package org.esa.s1tbx.insar.gpf;
 
 import com.bc.ceres.core.ProgressMonitor;
-import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
 import org.apache.commons.math3.util.FastMath;
 import org.esa.snap.datamodel.Unit;
 import org.esa.snap.framework.datamodel.Band;
@@ -34,6 +33,7 @@ import org.esa.snap.gpf.OperatorUtils;
 import org.esa.snap.gpf.ReaderUtils;
 import org.esa.snap.gpf.TileIndex;
 import org.esa.snap.util.ProductUtils;
+import org.jlinda.core.filtering.SpectralBlock;
 
 import java.awt.Rectangle;
 import java.util.Map;
@@ -69,6 +69,7 @@ public class GoldsteinFilterOp extends Operator {
     private int halfFFTSize;
     private int windowSize;
     private int halfWindowSize;
+    private double[] weights; // triangular weights of the sliding window for the overlap-add
 
     /**
      * Initializes this operator and sets the one and only target product.
@@ -92,6 +93,11 @@ public class GoldsteinFilterOp extends Operator {
             windowSize = Integer.parseInt(windowSizeString);
             halfWindowSize = windowSize / 2;
 
+            weights = new double[FFTSize];
+            for (int i = 0; i < FFTSize; i++) {
+                weights[i] = 1 - Math.abs(i - halfFFTSize + 0.5) / halfFFTSize;
+            }
+
             sourceImageWidth = sourceProduct.getSceneRasterWidth();
             sourceImageHeight = sourceProduct.getSceneRasterHeight();
 
@@ -235,35 +241,36 @@ public class GoldsteinFilterOp extends Operator {
             final TileIndex srcIndex = new TileIndex(iBandRaster);
             final double iNoDataValue = iBand.getNoDataValue();
 
-            // perform filtering with a sliding window
-            final double[][] I = new double[FFTSize][FFTSize];
-            final double[][] Q = new double[FFTSize][FFTSize];
-            final double[][] specI = new double[FFTSize][FFTSize];
-            final double[][] specQ = new double[FFTSize][FFTSize];
-            final double[][] pwrSpec = new double[FFTSize][FFTSize];
-            final double[][] fltSpec = new double[FFTSize][FFTSize];
+            // perform filtering with a sliding window, the buffers are reused by all windows of the tile
+            final SpectralBlock block = new SpectralBlock(FFTSize);
+            final double[] pwrSpec = new double[FFTSize * FFTSize];
+            final double[] rowSum = new double[FFTSize * FFTSize];
+            final double[] fltSpec = new double[FFTSize * FFTSize];
             final int stepSize = FFTSize / 4;
             final int yMax = FastMath.min(sy0 + sh - FFTSize, sourceImageHeight - FFTSize);
             final int xMax = FastMath.min(sx0 + sw - FFTSize, sourceImageWidth - FFTSize);
             for (int y = sy0; y <= yMax; y += stepSize) {
                 for (int x = sx0; x <= xMax; x += stepSize) {
 
-                    double val = iBandData.getElemDoubleAt(iBandRaster.getDataBufferIndex(x, y));
+                    srcIndex.calculateStride(y);
+                    double val = iBandData.getElemDoubleAt(srcIndex.getIndex(x));
                     if(val == iNoDataValue) {
                         continue;
                     }
 
-                    getComplexImagettes(x, y, iBandData, qBandData, srcIndex, I, Q);
+                    getComplexImagette(x, y, iBandData, qBandData, srcIndex, block);
 
-                    perform2DFFT(I, Q, specI, specQ);
+                    block.forward();
 
-                    getPowerSpectrum(specI, specQ, pwrSpec);
+                    block.getMagnitude(pwrSpec);
 
-                    getFilteredPowerSpectrum(pwrSpec, fltSpec, alpha, halfWindowSize);
+                    getFilteredPowerSpectrum(pwrSpec, rowSum, fltSpec, FFTSize, alpha, halfWindowSize);
 
-                    performInverse2DFFT(specI, specQ, fltSpec, I, Q);
+                    block.multiply(fltSpec);
 
-                    updateFilteredBands(x0, y0, w, h, x, y, I, Q, iBandFiltered, qBandFiltered);
+                    block.inverse(false);
+
+                    updateFilteredBands(x0, y0, w, h, x, y, block.getData(), iBandFiltered, qBandFiltered);
                 }
             }
 
@@ -300,151 +307,80 @@ public class GoldsteinFilterOp extends Operator {
     /**
      * Get source image data for given sliding window
      *
-     * @param x           The x coordinate of the upper left pixel in the sliding window
-     * @param y           The y coordinate of the upper left pixel in the sliding window
+     * @param x         The x coordinate of the upper left pixel in the sliding window
+     * @param y         The y coordinate of the upper left pixel in the sliding window
      * @param iBandData The source tile for I band
      * @param qBandData The source tile for Q band
-     * @param I           Real parts of the retrieved data
-     * @param Q           Imaginary parts of the retrieved data
+     * @param srcIndex  The source tile index
+     * @param block     The block receiving the Q band as real and the I band as imaginary parts
      */
-    private void getComplexImagettes(final int x, final int y,
-                                     final ProductData iBandData, final ProductData qBandData,
-                                     final TileIndex srcIndex,
-                                     final double[][] I, final double[][] Q) {
-        int index;
+    private void getComplexImagette(final int x, final int y,
+                                    final ProductData iBandData, final ProductData qBandData,
+                                    final TileIndex srcIndex, final SpectralBlock block) {
+        final double[] data = block.getData();
+        int index, k = 0;
         final int maxY = y + FFTSize;
         final int maxX = x + FFTSize;
         for (int yy = y; yy < maxY; yy++) {
             srcIndex.calculateStride(yy);
-            final int yidx = yy - y;
             for (int xx = x; xx < maxX; xx++) {
                 index = srcIndex.getIndex(xx);
-                I[yidx][xx - x] = iBandData.getElemDoubleAt(index);
-                Q[yidx][xx - x] = qBandData.getElemDoubleAt(index);
-            }
-        }
-    }
-
-    private static void perform2DFFT(final double[][] I, final double[][] Q,
-                                     final double[][] specI, final double[][] specQ) {
-
-        final int rowMax = I.length;
-        final int colMax = I[0].length;
-
-        // perform 1-D FFT to each row
-        final int rowFFTSize = colMax;
-        final int colFFTSize = rowMax;
-        final DoubleFFT_1D row_fft = new DoubleFFT_1D(rowFFTSize);
-        final double[][] complexDataI = new double[colFFTSize][rowFFTSize];
-        final double[][] complexDataQ = new double[colFFTSize][rowFFTSize];
-        final double[] rowArray = new double[2 * rowFFTSize];
-        for (int r = 0; r < rowMax; r++) {
-            int k = 0;
-            for (int c = 0; c < colMax; c++) {
-                rowArray[k++] = Q[r][c];
-                rowArray[k++] = I[r][c];
-            }
-            row_fft.complexForward(rowArray);
-            for (int c = 0; c < rowFFTSize; c++) {
-                complexDataQ[r][c] = rowArray[c + c];
-                complexDataI[r][c] = rowArray[c + c + 1];
-            }
-        }
-
-        // perform 1-D FFT to each column
-        final DoubleFFT_1D col_fft = new DoubleFFT_1D(colFFTSize);
-        final double[] colArray = new double[2 * colFFTSize];
-        for (int c = 0; c < colMax; c++) {
-            int k = 0;
-            for (int r = 0; r < rowMax; r++) {
-                colArray[k++] = complexDataQ[r][c];
-                colArray[k++] = complexDataI[r][c];
-            }
-            col_fft.complexForward(colArray);
-            for (int r = 0; r < colFFTSize; r++) {
-                specQ[r][c] = colArray[r + r];
-                specI[r][c] = colArray[r + r + 1];
+                data[k++] = qBandData.getElemDoubleAt(index);
+                data[k++] = iBandData.getElemDoubleAt(index);
             }
         }
     }
 
-    private static void getPowerSpectrum(final double[][] specI, final double[][] specQ, final double[][] pwrSpec) {
-
-        final int rowMax = specI.length;
-        final int colMax = specI[0].length;
-
-        for (int r = 0; r < rowMax; r++) {
-            for (int c = 0; c < colMax; c++) {
-                pwrSpec[r][c] = Math.sqrt(specI[r][c] * specI[r][c] + specQ[r][c] * specQ[r][c]);
+    /**
+     * Smooth the power spectrum with a moving average and apply the filter exponent. The average is computed
+     * as a running sum along the rows followed by a running sum along the columns.
+     *
+     * @param pwrSpec        The power spectrum.
+     * @param rowSum         Buffer for the row sums.
+     * @param fltSpec        The filter.
+     * @param size           The FFT size.
+     * @param alpha          The filter exponent.
+     * @param halfWindowSize The half size of the moving average window.
+     */
+    private static void getFilteredPowerSpectrum(final double[] pwrSpec, final double[] rowSum, final double[] fltSpec,
+                                                 final int size, final double alpha, final int halfWindowSize) {
+
+        for (int r = 0; r < size; r++) {
+            final int offset = r * size;
+            double sum = 0;
+            for (int i = 0; i < halfWindowSize; i++) {
+                sum += pwrSpec[offset + i];
             }
-        }
-    }
-
-    private static void getFilteredPowerSpectrum(
-            final double[][] pwrSpec, final double[][] fltSpec, final double alpha, final int halfWindowSize) {
-
-        final int rowMax = pwrSpec.length;
-        final int colMax = pwrSpec[0].length;
-
-        for (int r = 0; r < rowMax; r++) {
-            final int jMin = Math.max(0, r - halfWindowSize);
-            final int jMax = Math.min(rowMax - 1, r + halfWindowSize);
-            for (int c = 0; c < colMax; c++) {
-                double sum = 0;
-                int k = 0;
-                final int iMin = Math.max(0, c - halfWindowSize);
-                final int iMax = Math.min(colMax - 1, c + halfWindowSize);
-                for (int j = jMin; j <= jMax; j++) {
-                    for (int i = iMin; i <= iMax; i++) {
-                        sum += pwrSpec[j][i];
-                        k++;
-                    }
+            for (int c = 0; c < size; c++) {
+                if (c + halfWindowSize < size) {
+                    sum += pwrSpec[offset + c + halfWindowSize];
                 }
-                fltSpec[r][c] = Math.pow(sum / k, alpha);
-            }
-        }
-    }
-
-    private static void performInverse2DFFT(final double[][] specI, final double[][] specQ, final double[][] fltSpec,
-                                            final double[][] I, final double[][] Q) {
-
-        final int rowMax = I.length;
-        final int colMax = I[0].length;
-
-        final int rowFFTSize = colMax;
-        final int colFFTSize = rowMax;
-        final double[][] complexDataI = new double[colFFTSize][rowFFTSize];
-        final double[][] complexDataQ = new double[colFFTSize][rowFFTSize];
-
-        // perform 1-D FFT to each column
-        final DoubleFFT_1D col_fft = new DoubleFFT_1D(colFFTSize);
-        final double[] colArray = new double[2 * colFFTSize];
-        for (int c = 0; c < colMax; c++) {
-            int k = 0;
-            for (int r = 0; r < rowMax; r++) {
-                colArray[k++] = specQ[r][c] * fltSpec[r][c];
-                colArray[k++] = specI[r][c] * fltSpec[r][c];
-            }
-            col_fft.complexInverse(colArray, false);
-            for (int r = 0; r < colFFTSize; r++) {
-                complexDataQ[r][c] = colArray[r + r];
-                complexDataI[r][c] = colArray[r + r + 1];
+                if (c - halfWindowSize - 1 >= 0) {
+                    sum -= pwrSpec[offset + c - halfWindowSize - 1];
+                }
+                rowSum[offset + c] = sum;
             }
         }
 
-        // perform 1-D FFT to each row
-        final DoubleFFT_1D row_fft = new DoubleFFT_1D(rowFFTSize);
-        final double[] rowArray = new double[2 * rowFFTSize];
-        for (int r = 0; r < rowMax; r++) {
-            int k = 0;
-            for (int c = 0; c < colMax; c++) {
-                rowArray[k++] = complexDataQ[r][c];
-                rowArray[k++] = complexDataI[r][c];
+        for (int c = 0; c < size; c++) {
+            final int iMin = Math.max(0, c - halfWindowSize);
+            final int iMax = Math.min(size - 1, c + halfWindowSize);
+            final int numCols = iMax - iMin + 1;
+            double sum = 0;
+            for (int j = 0; j < halfWindowSize; j++) {
+                sum += rowSum[j * size + c];
             }
-            row_fft.complexInverse(rowArray, false);
-            for (int c = 0; c < rowFFTSize; c++) {
-                Q[r][c] = rowArray[c + c];
-                I[r][c] = rowArray[c + c + 1];
+            for (int r = 0; r < size; r++) {
+                if (r + halfWindowSize < size) {
+                    sum += rowSum[(r + halfWindowSize) * size + c];
+                }
+                if (r - halfWindowSize - 1 >= 0) {
+                    sum -= rowSum[(r - halfWindowSize - 1) * size + c];
+                }
+                final int jMin = Math.max(0, r - halfWindowSize);
+                final int jMax = Math.min(size - 1, r + halfWindowSize);
+                final int k = (jMax - jMin + 1) * numCols;
+                fltSpec[r * size + c] = Math.pow(sum / k, alpha);
             }
         }
     }
@@ -456,13 +392,12 @@ public class GoldsteinFilterOp extends Operator {
      * @param h             The height of current tile.
      * @param x             The x coordinate of the pixel on the upper left corner of the sliding window.
      * @param y             The y coordinate of the pixel on the upper left corner of the sliding window.
-     * @param I             Imaginary part of the filtered imagette.
-     * @param Q             Real part of the filtered imagette.
+     * @param data          The filtered imagette, interleaved Q (real) and I (imaginary) parts.
      * @param iBandFiltered Buffer holding imaginary part of the filtered image.
      * @param qBandFiltered Buffer holding real part of the filtered image.
      */
     private void updateFilteredBands(final int x0, final int y0, final int w, final int h,
-                                     final int x, final int y, final double[][] I, final double[][] Q,
+                                     final int x, final int y, final double[] data,
                                      final double[] iBandFiltered, final double[] qBandFiltered) {
 
         final int xSt = FastMath.max(x, x0);
@@ -472,15 +407,13 @@ public class GoldsteinFilterOp extends Operator {
         for (int yy = ySt; yy < yEd; yy++) {
             final int yi = yy - y;
             final int yw = (yy - y0) * w;
-            final double weightY = (1 - Math.abs(yy - y - halfFFTSize + 0.5) / halfFFTSize);
-            for (int xx = xSt; xx < xEd; xx++) {
-
-                //final double weight = getTriangularWeight(x, y, xx, yy);
-                final double weight = (1 - Math.abs(xx - x - halfFFTSize + 0.5) / halfFFTSize) * weightY;
-
-                final int k = yw + (xx - x0);
-                iBandFiltered[k] += I[yi][xx - x] * weight;
-                qBandFiltered[k] += Q[yi][xx - x] * weight;
+            final double weightY = weights[yi];
+            int d = 2 * (yi * FFTSize + xSt - x);
+            int k = yw + (xSt - x0);
+            for (int xx = xSt; xx < xEd; xx++, k++, d += 2) {
+                final double weight = weights[xx - x] * weightY;
+                qBandFiltered[k] += data[d] * weight;
+                iBandFiltered[k] += data[d + 1] * weight;
             }
         }
     }
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf;
+
+import org.esa.snap.framework.datamodel.ProductData;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable accumulator of the first and second order moments of a stack of bands.
+ * <p/>
+ * Each tile is reduced with a two-pass centred scheme held in memory, and partial results are combined with the
+ * pairwise update of Chan et al., so the accumulation is numerically stable and independent of the order in which
+ * tiles are merged. This makes it suitable for a parallel reduction over the tiles of an image where every tile is
+ * read only once. Per band extrema are collected in the same pass.
+ */
+public final class MomentsAccumulator {
+
+    private final int numBands;
+    private long count = 0;
+    private final double[] mean;
+    private final double[] coMoment;    // packed lower triangle of sum((vi - mean_i) * (vj - mean_j))
+    private final double[] min;
+    private final double[] max;
+
+    public MomentsAccumulator(final int numBands) {
+        this.numBands = numBands;
+        this.mean = new double[numBands];
+        this.coMoment = new double[numBands * (numBands + 1) / 2];
+        this.min = new double[numBands];
+        this.max = new double[numBands];
+        Arrays.fill(min, Double.MAX_VALUE);
+        Arrays.fill(max, -Double.MAX_VALUE);
+    }
+
+    /**
+     * Accumulate the samples of one tile.
+     *
+     * @param bandsRawSamples    The raw data for all bands for the tile.
+     * @param meanBandRawSamples The raw data of an image to be subtracted from every band, may be null.
+     */
+    public void accumulate(final ProductData[] bandsRawSamples, final ProductData meanBandRawSamples) {
+
+        final int n = bandsRawSamples[0].getNumElems();
+        if (n == 0) {
+            return;
+        }
+
+        final double[] v = new double[numBands];
+        final double[] tileMean = new double[numBands];
+        final double[] tileMin = new double[numBands];
+        final double[] tileMax = new double[numBands];
+        Arrays.fill(tileMin, Double.MAX_VALUE);
+        Arrays.fill(tileMax, -Double.MAX_VALUE);
+
+        for (int k = 0; k < n; k++) {
+            getSamples(bandsRawSamples, meanBandRawSamples, k, v);
+            for (int i = 0; i < numBands; i++) {
+                tileMean[i] += v[i];
+                if (v[i] < tileMin[i]) {
+                    tileMin[i] = v[i];
+                }
+                if (v[i] > tileMax[i]) {
+                    tileMax[i] = v[i];
+                }
+            }
+        }
+        for (int i = 0; i < numBands; i++) {
+            tileMean[i] /= n;
+        }
+
+        final double[] tileCoMoment = new double[coMoment.length];
+        for (int k = 0; k < n; k++) {
+            getSamples(bandsRawSamples, meanBandRawSamples, k, v);
+            for (int i = 0; i < numBands; i++) {
+                v[i] -= tileMean[i];
+            }
+            int idx = 0;
+            for (int i = 0; i < numBands; i++) {
+                final double vi = v[i];
+                for (int j = 0; j <= i; j++) {
+                    tileCoMoment[idx++] += vi * v[j];
+                }
+            }
+        }
+
+        merge(n, tileMean, tileCoMoment, tileMin, tileMax);
+    }
+
+    private void getSamples(final ProductData[] bandsRawSamples, final ProductData meanBandRawSamples,
+                            final int k, final double[] v) {
+        final double vm = meanBandRawSamples == null ? 0.0 : meanBandRawSamples.getElemDoubleAt(k);
+        for (int i = 0; i < numBands; i++) {
+            v[i] = bandsRawSamples[i].getElemDoubleAt(k) - vm;
+        }
+    }
+
+    /**
+     * Merge the moments of another accumulator into this one.
+     *
+     * @param other The accumulator to be merged, it is not modified.
+     */
+    public void merge(final MomentsAccumulator other) {
+        if (other.numBands != numBands) {
+            throw new IllegalArgumentException("Number of bands differ: " + other.numBands + " != " + numBands);
+        }
+        merge(other.count, other.mean, other.coMoment, other.min, other.max);
+    }
+
+    private void merge(final long otherCount, final double[] otherMean, final double[] otherCoMoment,
+                       final double[] otherMin, final double[] otherMax) {
+
+        if (otherCount == 0) {
+            return;
+        }
+
+        final long total = count + otherCount;
+        final double f = (double) count * otherCount / total;
+        final double w = (double) otherCount / total;
+
+        final double[] delta = new double[numBands];
+        for (int i = 0; i < numBands; i++) {
+            delta[i] = otherMean[i] - mean[i];
+        }
+
+        int idx = 0;
+        for (int i = 0; i < numBands; i++) {
+            for (int j = 0; j <= i; j++) {
+                coMoment[idx] += otherCoMoment[idx] + delta[i] * delta[j] * f;
+                ++idx;
+            }
+        }
+
+        for (int i = 0; i < numBands; i++) {
+            mean[i] += delta[i] * w;
+            if (otherMin[i] < min[i]) {
+                min[i] = otherMin[i];
+            }
+            if (otherMax[i] > max[i]) {
+                max[i] = otherMax[i];
+            }
+        }
+        count = total;
+    }
+
+    public int getNumBands() {
+        return numBands;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean(final int band) {
+        return mean[band];
+    }
+
+    public double getMin(final int band) {
+        return min[band];
+    }
+
+    public double getMax(final int band) {
+        return max[band];
+    }
+
+    /**
+     * Get the population covariance matrix, i.e. normalised by the number of samples.
+     *
+     * @return The covariance matrix.
+     */
+    public double[][] getCovariance() {
+        final double[][] cov = new double[numBands][numBands];
+        if (count == 0) {
+            return cov;
+        }
+        int idx = 0;
+        for (int i = 0; i < numBands; i++) {
+            for (int j = 0; j <= i; j++) {
+                cov[i][j] = coMoment[idx++] / count;
+                cov[j][i] = cov[i][j];
+            }
+        }
+        return cov;
+    }
+}
@@ -31,7 +31,6 @@ import org.esa.snap.framework.gpf.annotations.Parameter;
 import org.esa.snap.framework.gpf.annotations.SourceProduct;
 import org.esa.snap.framework.gpf.annotations.TargetProduct;
 import org.esa.snap.gpf.StatusProgressMonitor;
-import org.esa.snap.gpf.ThreadManager;
 import org.esa.snap.gpf.TileIndex;
 import org.esa.snap.util.ProductUtils;
 import org.esa.snap.util.ResourceUtils;
@@ -46,6 +45,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * The operator performs principle component analysis for user selected master/slave pairs.
@@ -83,12 +84,8 @@ public class PCAOp extends Operator {
     private Boolean subtractMeanImage = false;
 
     private boolean statsCalculated = false;
-    private int numOfPixels = 0;        // total number of pixel values
     private int numOfSourceBands = 0;   // number of user selected bands
-    private double[] sum = null;        // summation of pixel values for each band
-    private double[][] sumCross = null; // summation of the dot product of each band and the master band
-    private double[] mean = null;       // mean of pixel values for each band
-    private double[][] meanCross = null;// mean of the dot product of each band and the master band
+    private MomentsAccumulator moments = null; // means and covariance of the user selected bands
 
     public static final String EIGENVALUE_THRESHOLD = "Eigenvalue Threshold";
     public static final String NUMBER_EIGENVALUES = "Number of Eigenvalues";
@@ -131,34 +128,11 @@ public class PCAOp extends Operator {
             createTargetProduct();
 
             addSelectedBands();
-
-            setInitialValues();
         } catch (Throwable e) {
             throw new OperatorException(e);
         }
     }
 
-    /**
-     * Set initial values to some internal variables.
-     */
-    private void setInitialValues() {
-
-        mean = new double[numOfSourceBands];
-        meanCross = new double[numOfSourceBands][numOfSourceBands];
-        sum = new double[numOfSourceBands];
-        sumCross = new double[numOfSourceBands][numOfSourceBands];
-        for (int i = 0; i < numOfSourceBands; i++) {
-            sum[i] = 0.0;
-            mean[i] = 0.0;
-            for (int j = 0; j < numOfSourceBands; j++) {
-                sumCross[i][j] = 0.0;
-                meanCross[i][j] = 0.0;
-            }
-        }
-
-        numOfPixels = sourceProduct.getSceneRasterWidth() * sourceProduct.getSceneRasterHeight();
-    }
-
     /**
      * Create target product.
      */
@@ -378,55 +352,13 @@ public class PCAOp extends Operator {
     private void processStatistics(final Rectangle[] tileRectangles) {
         final StatusProgressMonitor status = new StatusProgressMonitor(tileRectangles.length,
                 "Computing Statistics... ");
-        int tileCnt = 0;
-
-        final ThreadManager threadManager = new ThreadManager();
-
+        final ForkJoinPool pool = new ForkJoinPool();
         try {
-            for (final Rectangle rectangle : tileRectangles) {
-
-                Thread worker = new Thread() {
-                    final ProductData[] bandsRawSamples = new ProductData[numOfSourceBands];
-                    final double[] tileSum = new double[numOfSourceBands];
-                    final double[][] tileSumCross = new double[numOfSourceBands][numOfSourceBands];
-
-                    @Override
-                    public void run() {
-                        for (int i = 0; i < numOfSourceBands; i++) {
-                            bandsRawSamples[i] =
-                                    getSourceTile(sourceProduct.getBand(sourceBandNames[i]), rectangle).getRawSamples();
-                        }
-
-                        if (subtractMeanImage) {
-
-                            final ProductData meanBandRawSamples =
-                                    getSourceTile(sourceProduct.getBand(meanImageBandName), rectangle).getRawSamples();
-
-                            computeTileStatisticsWithMeanImageSubstract(numOfSourceBands,
-                                    bandsRawSamples, meanBandRawSamples, tileSum, tileSumCross);
-
-                        } else {
-
-                            computeTileStatisticsWithoutMeanImageSubstract(numOfSourceBands,
-                                    bandsRawSamples, tileSum, tileSumCross);
-                        }
-
-                        synchronized (sum) {
-                            computeImageStatistics(tileSum, tileSumCross);
-                        }
-                    }
-                };
-                threadManager.add(worker);
-
-                status.worked(tileCnt++);
-            }
-            threadManager.finish();
-
-            completeStatistics();
-
+            moments = pool.invoke(new StatisticsTask(tileRectangles, 0, tileRectangles.length, status));
         } catch (Throwable e) {
             throw new OperatorException(e);
         } finally {
+            pool.shutdown();
             status.done();
         }
     }
@@ -434,203 +366,125 @@ public class PCAOp extends Operator {
     private void processMin(final Rectangle[] tileRectangles) {
         final StatusProgressMonitor status = new StatusProgressMonitor(tileRectangles.length,
                 "Computing Min... ");
-        int tileCnt = 0;
-
-        final ThreadManager threadManager = new ThreadManager();
-
+        final ForkJoinPool pool = new ForkJoinPool();
         try {
-            initializeMin();
-
-            for (final Rectangle rectangle : tileRectangles) {
-                Thread worker = new Thread() {
-                    final double[] tileMinPCA = new double[numOfSourceBands];
-                    final ProductData[] bandsRawSamples = new ProductData[numOfSourceBands];
-
-                    @Override
-                    public void run() {
-                        for (int i = 0; i < numOfSourceBands; i++) {
-                            bandsRawSamples[i] =
-                                    getSourceTile(sourceProduct.getBand(sourceBandNames[i]), rectangle).getRawSamples();
-                        }
-                        final int n = bandsRawSamples[0].getNumElems();
-
-                        Arrays.fill(tileMinPCA, Double.MAX_VALUE);
-
-                        for (int i = 0; i < numPCA; i++) {
-                            for (int k = 0; k < n; k++) {
-                                double vPCA = 0.0;
-                                for (int j = 0; j < numOfSourceBands; j++) {
-                                    vPCA += bandsRawSamples[j].getElemDoubleAt(k) * eigenVectorMatrices[j][i];
-                                }
-                                if (vPCA < tileMinPCA[i])
-                                    tileMinPCA[i] = vPCA;
-                            }
-                        }
-
-                        synchronized (minPCA) {
-                            computePCAMin(tileMinPCA);
-                        }
-                    }
-                };
-                threadManager.add(worker);
-
-                status.worked(tileCnt++);
-            }
-
-            threadManager.finish();
+            computeEigenDecompositionOfCovarianceMatrix();
 
+            minPCA = pool.invoke(new MinTask(tileRectangles, 0, tileRectangles.length, status));
         } catch (Throwable e) {
             throw new OperatorException(e);
         } finally {
+            pool.shutdown();
             status.done();
         }
     }
 
-    /**
-     * Compute summation and cross-summation for all bands for a given tile.
-     *
-     * @param numOfSourceBands numnber of bands
-     * @param bandsRawSamples  The raw data for all bands for the given tile.
-     * @param tileSum          The summation for all bands for the given tile.
-     * @param tileSumCross     The cross-summation for all bands for the given tile.
-     */
-    private static void computeTileStatisticsWithoutMeanImageSubstract(final int numOfSourceBands,
-                                                                       final ProductData[] bandsRawSamples, final double[] tileSum, final double[][] tileSumCross) {
-
-        Arrays.fill(tileSum, 0.0);
-        final int n = bandsRawSamples[0].getNumElems();
-
-        double vi, vj;
+    private ProductData[] getBandsRawSamples(final Rectangle rectangle) {
+        final ProductData[] bandsRawSamples = new ProductData[numOfSourceBands];
         for (int i = 0; i < numOfSourceBands; i++) {
-            Arrays.fill(tileSumCross[i], 0.0);
-
-            for (int j = 0; j <= i; j++) {
-
-                //System.out.println("i = " + i + ", j = " + j);
-                if (j < i) {
-
-                    for (int k = 0; k < n; k++) {
-                        vi = bandsRawSamples[i].getElemDoubleAt(k);
-                        vj = bandsRawSamples[j].getElemDoubleAt(k);
-                        tileSumCross[i][j] += vi * vj;
-                    }
-
-                } else { // j == i
-
-                    for (int k = 0; k < n; k++) {
-                        vi = bandsRawSamples[i].getElemDoubleAt(k);
-                        tileSum[i] += vi;
-                        tileSumCross[i][j] += vi * vi;
-                    }
-                }
-            }
+            bandsRawSamples[i] =
+                    getSourceTile(sourceProduct.getBand(sourceBandNames[i]), rectangle).getRawSamples();
         }
+        return bandsRawSamples;
     }
 
     /**
-     * Compute summation and cross-summation for all bands for a given tile with mean image substracted.
-     *
-     * @param numOfSourceBands   numnber of bands
-     * @param bandsRawSamples    The raw data for all bands for the given tile.
-     * @param meanBandRawSamples The raw data for the band of mean image for the given tile.
-     * @param tileSum            The summation for all bands for the given tile.
-     * @param tileSumCross       The cross-summation for all bands for the given tile.
+     * Reduces the moments of a range of tiles by splitting it in halves. Partial results are merged up the tree,
+     * so no shared state is updated by the workers.
      */
-    private static void computeTileStatisticsWithMeanImageSubstract(
-            final int numOfSourceBands,
-            final ProductData[] bandsRawSamples, final ProductData meanBandRawSamples,
-            final double[] tileSum, final double[][] tileSumCross) {
-
-        Arrays.fill(tileSum, 0.0);
-        final int n = bandsRawSamples[0].getNumElems();
-
-        double vi, vj, vm;
-        for (int i = 0; i < numOfSourceBands; i++) {
-            Arrays.fill(tileSumCross[i], 0.0);
-
-            for (int j = 0; j <= i; j++) {
-
-                //System.out.println("i = " + i + ", j = " + j);
-                if (j < i) {
+    private final class StatisticsTask extends RecursiveTask<MomentsAccumulator> {
+
+        private final Rectangle[] tileRectangles;
+        private final int start, end;
+        private final StatusProgressMonitor status;
+
+        StatisticsTask(final Rectangle[] tileRectangles, final int start, final int end,
+                       final StatusProgressMonitor status) {
+            this.tileRectangles = tileRectangles;
+            this.start = start;
+            this.end = end;
+            this.status = status;
+        }
 
-                    for (int k = 0; k < n; k++) {
-                        vm = meanBandRawSamples.getElemDoubleAt(k);
-                        vi = bandsRawSamples[i].getElemDoubleAt(k) - vm;
-                        vj = bandsRawSamples[j].getElemDoubleAt(k) - vm;
-                        tileSumCross[i][j] += vi * vj;
-                    }
+        @Override
+        protected MomentsAccumulator compute() {
+            if (end - start > 1) {
+                final int mid = (start + end) >>> 1;
+                final StatisticsTask left = new StatisticsTask(tileRectangles, start, mid, status);
+                left.fork();
+                final MomentsAccumulator result =
+                        new StatisticsTask(tileRectangles, mid, end, status).compute();
+                result.merge(left.join());
+                return result;
+            }
 
-                } else { // j == i
+            final MomentsAccumulator result = new MomentsAccumulator(numOfSourceBands);
+            if (end > start) {
+                final Rectangle rectangle = tileRectangles[start];
+                final ProductData meanBandRawSamples = subtractMeanImage ?
+                        getSourceTile(sourceProduct.getBand(meanImageBandName), rectangle).getRawSamples() : null;
 
-                    for (int k = 0; k < n; k++) {
-                        vm = meanBandRawSamples.getElemDoubleAt(k);
-                        vi = bandsRawSamples[i].getElemDoubleAt(k) - vm;
-                        tileSum[i] += vi;
-                        tileSumCross[i][j] += vi * vi;
-                    }
-                }
+                result.accumulate(getBandsRawSamples(rectangle), meanBandRawSamples);
+                status.workedOne();
             }
+            return result;
         }
     }
 
     /**
-     * Compute summation and cross-summation for the whole image.
-     *
-     * @param tileSum      The summation computed for each tile.
-     * @param tileSumCross The cross-summation computed for each tile.
+     * Reduces the minimum values of all PCA images over a range of tiles.
      */
-    private void computeImageStatistics(final double[] tileSum, final double[][] tileSumCross) {
-
-        for (int i = 0; i < numOfSourceBands; i++) {
-            for (int j = 0; j <= i; j++) {
-                if (j < i) {
-                    sumCross[i][j] += tileSumCross[i][j];
-                } else { // j == i
-                    sum[i] += tileSum[i];
-                    sumCross[i][j] += tileSumCross[i][j];
-                }
-            }
+    private final class MinTask extends RecursiveTask<double[]> {
+
+        private final Rectangle[] tileRectangles;
+        private final int start, end;
+        private final StatusProgressMonitor status;
+
+        MinTask(final Rectangle[] tileRectangles, final int start, final int end,
+                final StatusProgressMonitor status) {
+            this.tileRectangles = tileRectangles;
+            this.start = start;
+            this.end = end;
+            this.status = status;
         }
-    }
 
-    private void completeStatistics() {
-        for (int i = 0; i < numOfSourceBands; i++) {
-            mean[i] = sum[i] / numOfPixels;
-            for (int j = 0; j <= i; j++) {
-                meanCross[i][j] = sumCross[i][j] / numOfPixels;
-                if (j != i) {
-                    meanCross[j][i] = meanCross[i][j];
+        @Override
+        protected double[] compute() {
+            if (end - start > 1) {
+                final int mid = (start + end) >>> 1;
+                final MinTask left = new MinTask(tileRectangles, start, mid, status);
+                left.fork();
+                final double[] result = new MinTask(tileRectangles, mid, end, status).compute();
+                final double[] leftResult = left.join();
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = Math.min(result[i], leftResult[i]);
                 }
+                return result;
             }
-        }
-    }
-
-    /////////////
-    // Min
-
-    /**
-     * Set initial values to some internal variables.
-     */
-    private void initializeMin() {
-
-        minPCA = new double[numOfSourceBands];
-        for (int i = 0; i < numOfSourceBands; i++) {
-            minPCA[i] = Double.MAX_VALUE;
-        }
 
-        computeEigenDecompositionOfCovarianceMatrix();
-    }
+            final double[] tileMinPCA = new double[numOfSourceBands];
+            Arrays.fill(tileMinPCA, Double.MAX_VALUE);
+            if (end > start) {
+                final ProductData[] bandsRawSamples = getBandsRawSamples(tileRectangles[start]);
+                final int n = bandsRawSamples[0].getNumElems();
+                final double[] v = new double[numOfSourceBands];
 
-    /**
-     * Compute minimum values for all PCA images.
-     *
-     * @param tileMinPCA The minimum values for all PCA images for a given tile.
-     */
-    private void computePCAMin(final double[] tileMinPCA) {
-        for (int i = 0; i < numPCA; i++) {
-            if (tileMinPCA[i] < minPCA[i]) {
-                minPCA[i] = tileMinPCA[i];
+                for (int k = 0; k < n; k++) {
+                    for (int j = 0; j < numOfSourceBands; j++) {
+                        v[j] = bandsRawSamples[j].getElemDoubleAt(k);
+                    }
+                    for (int i = 0; i < numPCA; i++) {
+                        double vPCA = 0.0;
+                        for (int j = 0; j < numOfSourceBands; j++) {
+                            vPCA += v[j] * eigenVectorMatrices[j][i];
+                        }
+                        if (vPCA < tileMinPCA[i])
+                            tileMinPCA[i] = vPCA;
+                    }
+                }
+                status.workedOne();
             }
+            return tileMinPCA;
         }
     }
 
@@ -642,12 +496,7 @@ public class PCAOp extends Operator {
         eigenVectorMatrices = new double[numOfSourceBands][numOfSourceBands];
         eigenValues = new double[numOfSourceBands];
 
-        final double[][] cov = new double[numOfSourceBands][numOfSourceBands];
-        for (int i = 0; i < numOfSourceBands; i++) {
-            for (int j = 0; j < numOfSourceBands; j++) {
-                cov[i][j] = meanCross[i][j] - mean[i] * mean[j];
-            }
-        }
+        final double[][] cov = moments.getCovariance();
 
         final Matrix Cov = new Matrix(cov);
         final SingularValueDecomposition Svd = Cov.svd(); // Cov = USV'
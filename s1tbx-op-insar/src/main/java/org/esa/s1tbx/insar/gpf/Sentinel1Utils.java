@@ -34,6 +34,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class Sentinel1Utils {
 
@@ -46,8 +48,7 @@ public final class Sentinel1Utils {
     private SARGeocoding.Orbit orbit = null;
     private String[] polarizations = null;
     private String[] subSwathNames = null;
-    private boolean isDopplerCentroidAvailable = false;
-    private boolean isRangeDependDopplerRateAvailable = false;
+    private final Geometry geometry;
 
     public double firstLineUTC = 0.0; // in days
     public double lastLineUTC = 0.0; // in days
@@ -65,12 +66,33 @@ public final class Sentinel1Utils {
     public AbstractMetadata.SRGRCoefficientList[] srgrConvParams = null;
     public final static DateFormat sentinelDateFormat = ProductData.UTC.createDateFormat("yyyy-MM-dd_HH:mm:ss");
 
+    // geometry of the products seen by getInstance, released with the product
+    private static final Map<Product, Geometry> geometryCache = new WeakHashMap<>();
+
+    // parsed calibration and noise vectors, keyed by their metadata element
+    private static final Map<MetadataElement, CalibrationVector[][]> calibrationVectorCache = new WeakHashMap<>();
+    private static final Map<MetadataElement, NoiseVector[]> noiseVectorCache = new WeakHashMap<>();
+
+    /**
+     * Create a Sentinel1Utils with its own copy of the product geometry.
+     * Use this constructor if the sub-swath information is going to be modified.
+     */
     public Sentinel1Utils(final Product sourceProduct) throws Exception {
+        this(sourceProduct, null);
+    }
+
+    private Sentinel1Utils(final Product sourceProduct, final Geometry sharedGeometry) throws Exception {
 
         this.sourceProduct = sourceProduct;
 
         getMetadataRoot();
 
+        if (sharedGeometry != null) {
+            this.geometry = sharedGeometry;
+            setFromGeometry();
+            return;
+        }
+
         getAbstractedMetadata();
 
         getProductAcquisitionMode();
@@ -82,6 +104,61 @@ public final class Sentinel1Utils {
         getSubSwathParameters();
 
         this.nearRangeOnLeft = (subSwath[0].incidenceAngle[0][0] < subSwath[0].incidenceAngle[0][1]);
+
+        this.geometry = new Geometry(this);
+    }
+
+    /**
+     * Get a Sentinel1Utils for the product. The metadata of a product is read only once and the resulting
+     * sub-swath information, orbit and Doppler quantities are shared by all instances returned for the same product,
+     * eg, by the operators of a graph reading the same source product. The shared sub-swath information must not be
+     * modified; use the constructor to get a private copy instead.
+     *
+     * @param product the Sentinel-1 product
+     * @return the Sentinel1Utils
+     * @throws Exception The exceptions.
+     */
+    public static Sentinel1Utils getInstance(final Product product) throws Exception {
+
+        Geometry geometry;
+        synchronized (geometryCache) {
+            geometry = geometryCache.get(product);
+        }
+        if (geometry != null) {
+            return new Sentinel1Utils(product, geometry);
+        }
+
+        final Sentinel1Utils su = new Sentinel1Utils(product);
+        synchronized (geometryCache) {
+            geometry = geometryCache.get(product);
+            if (geometry == null) {
+                geometryCache.put(product, su.geometry);
+                return su;
+            }
+        }
+        return new Sentinel1Utils(product, geometry);
+    }
+
+    private void setFromGeometry() {
+
+        this.numOfSubSwath = geometry.numOfSubSwath;
+        this.acquisitionMode = geometry.acquisitionMode;
+        this.subSwath = geometry.subSwath;
+        this.orbit = geometry.orbit;
+        this.polarizations = geometry.polarizations;
+        this.subSwathNames = geometry.subSwathNames;
+        this.firstLineUTC = geometry.firstLineUTC;
+        this.lastLineUTC = geometry.lastLineUTC;
+        this.lineTimeInterval = geometry.lineTimeInterval;
+        this.nearEdgeSlantRange = geometry.nearEdgeSlantRange;
+        this.wavelength = geometry.wavelength;
+        this.rangeSpacing = geometry.rangeSpacing;
+        this.azimuthSpacing = geometry.azimuthSpacing;
+        this.sourceImageWidth = geometry.sourceImageWidth;
+        this.sourceImageHeight = geometry.sourceImageHeight;
+        this.nearRangeOnLeft = geometry.nearRangeOnLeft;
+        this.srgrFlag = geometry.srgrFlag;
+        this.srgrConvParams = geometry.srgrConvParams;
     }
 
     private void getMetadataRoot() {
@@ -577,7 +654,7 @@ public final class Sentinel1Utils {
                 }
             }
         }
-        isRangeDependDopplerRateAvailable = true;
+        geometry.isRangeDependDopplerRateAvailable = true;
     }
 
     private AzimuthFmRate[] getAzimuthFmRateList(final String subSwathName) {
@@ -620,13 +697,25 @@ public final class Sentinel1Utils {
      */
     public void computeDopplerRate() {
 
-        if (orbit == null) {
-            getProductOrbit();
-        }
+        synchronized (geometry) {
+            if (geometry.isDopplerRateAvailable) {
+                return;
+            }
 
-        if (!isRangeDependDopplerRateAvailable) {
-            computeRangeDependentDopplerRate();
+            if (orbit == null) {
+                getProductOrbit();
+            }
+
+            if (!geometry.isRangeDependDopplerRateAvailable) {
+                computeRangeDependentDopplerRate();
+            }
+
+            computeDopplerRateValues();
+            geometry.isDopplerRateAvailable = true;
         }
+    }
+
+    private void computeDopplerRateValues() {
 
         final double waveLength = Constants.lightSpeed / subSwath[0].radarFrequency;
         for (int s = 0; s < numOfSubSwath; s++) {
@@ -650,13 +739,25 @@ public final class Sentinel1Utils {
      */
     public void computeReferenceTime() {
 
-        if (!isDopplerCentroidAvailable) {
-            computeDopplerCentroid();
-        }
+        synchronized (geometry) {
+            if (geometry.isReferenceTimeAvailable) {
+                return;
+            }
+
+            if (!geometry.isDopplerCentroidAvailable) {
+                computeDopplerCentroid();
+            }
 
-        if (!isRangeDependDopplerRateAvailable) {
-            computeRangeDependentDopplerRate();
+            if (!geometry.isRangeDependDopplerRateAvailable) {
+                computeRangeDependentDopplerRate();
+            }
+
+            computeReferenceTimeValues();
+            geometry.isReferenceTimeAvailable = true;
         }
+    }
+
+    private void computeReferenceTimeValues() {
 
         for (int s = 0; s < numOfSubSwath; s++) {
             subSwath[s].referenceTime = new double[subSwath[s].numOfBursts][subSwath[s].samplesPerBurst];
@@ -697,7 +798,7 @@ public final class Sentinel1Utils {
             }
         }
 
-        isDopplerCentroidAvailable = true;
+        geometry.isDopplerCentroidAvailable = true;
     }
 
     private DCPolynomial[] getDCEstimateList(final String subSwathName) {
@@ -802,9 +903,24 @@ public final class Sentinel1Utils {
         return calibration.getElement("calibrationVectorList");
     }
 
+    /**
+     * Get a calibration vector of a sub-swath. The returned array is shared and must not be modified.
+     */
     public float[] getCalibrationVector(
             final int subSwathIndex, final String polarization, final int vectorIndex, final String vectorName) {
 
+        final String key = subSwathIndex + "_" + polarization + '_' + vectorIndex + '_' + vectorName;
+        float[] vectorArray = (float[]) geometry.calibrationArrays.get(key);
+        if (vectorArray == null) {
+            vectorArray = readCalibrationVector(subSwathIndex, polarization, vectorIndex, vectorName);
+            geometry.calibrationArrays.put(key, vectorArray);
+        }
+        return vectorArray;
+    }
+
+    private float[] readCalibrationVector(
+            final int subSwathIndex, final String polarization, final int vectorIndex, final String vectorName) {
+
         final MetadataElement calibrationVectorListElem = getCalibrationVectorList(subSwathIndex, polarization);
         final MetadataElement[] list = calibrationVectorListElem.getElements();
         final MetadataElement vectorElem = list[vectorIndex].getElement(vectorName);
@@ -816,9 +932,24 @@ public final class Sentinel1Utils {
         return vectorArray;
     }
 
+    /**
+     * Get the pixels of a calibration vector of a sub-swath. The returned array is shared and must not be modified.
+     */
     public int[] getCalibrationPixel(
             final int subSwathIndex, final String polarization, final int vectorIndex) {
 
+        final String key = subSwathIndex + "_" + polarization + '_' + vectorIndex + "_pixel";
+        int[] pixelArray = (int[]) geometry.calibrationArrays.get(key);
+        if (pixelArray == null) {
+            pixelArray = readCalibrationPixel(subSwathIndex, polarization, vectorIndex);
+            geometry.calibrationArrays.put(key, pixelArray);
+        }
+        return pixelArray;
+    }
+
+    private int[] readCalibrationPixel(
+            final int subSwathIndex, final String polarization, final int vectorIndex) {
+
         final MetadataElement calibrationVectorListElem = getCalibrationVectorList(subSwathIndex, polarization);
         final MetadataElement[] list = calibrationVectorListElem.getElements();
         final MetadataElement pixelElem = list[vectorIndex].getElement("pixel");
@@ -833,6 +964,22 @@ public final class Sentinel1Utils {
     //todo: This function is currently used by Sentinel1RemoveThermalNoiseOp and should be replaced later by the function above.
     public static NoiseVector[] getNoiseVector(final MetadataElement noiseVectorListElem) {
 
+        synchronized (noiseVectorCache) {
+            final NoiseVector[] noiseVectors = noiseVectorCache.get(noiseVectorListElem);
+            if (noiseVectors != null) {
+                return noiseVectors;
+            }
+        }
+
+        final NoiseVector[] noiseVectors = readNoiseVector(noiseVectorListElem);
+        synchronized (noiseVectorCache) {
+            noiseVectorCache.put(noiseVectorListElem, noiseVectors);
+        }
+        return noiseVectors;
+    }
+
+    private static NoiseVector[] readNoiseVector(final MetadataElement noiseVectorListElem) {
+
         final MetadataElement[] list = noiseVectorListElem.getElements();
 
         final List<NoiseVector> noiseVectorList = new ArrayList<>(5);
@@ -863,6 +1010,36 @@ public final class Sentinel1Utils {
                                                            final boolean outputGammaBand,
                                                            final boolean outputDNBand) {
 
+        // one entry per combination of requested vectors
+        final int selection = (outputSigmaBand ? 1 : 0) | (outputBetaBand ? 2 : 0) |
+                (outputGammaBand ? 4 : 0) | (outputDNBand ? 8 : 0);
+
+        synchronized (calibrationVectorCache) {
+            final CalibrationVector[][] vectors = calibrationVectorCache.get(calibrationVectorListElem);
+            if (vectors != null && vectors[selection] != null) {
+                return vectors[selection];
+            }
+        }
+
+        final CalibrationVector[] calibrationVectors = readCalibrationVector(calibrationVectorListElem,
+                outputSigmaBand, outputBetaBand, outputGammaBand, outputDNBand);
+        synchronized (calibrationVectorCache) {
+            CalibrationVector[][] vectors = calibrationVectorCache.get(calibrationVectorListElem);
+            if (vectors == null) {
+                vectors = new CalibrationVector[16][];
+                calibrationVectorCache.put(calibrationVectorListElem, vectors);
+            }
+            vectors[selection] = calibrationVectors;
+        }
+        return calibrationVectors;
+    }
+
+    private static CalibrationVector[] readCalibrationVector(final MetadataElement calibrationVectorListElem,
+                                                             final boolean outputSigmaBand,
+                                                             final boolean outputBetaBand,
+                                                             final boolean outputGammaBand,
+                                                             final boolean outputDNBand) {
+
         final MetadataElement[] list = calibrationVectorListElem.getElements();
 
         final List<CalibrationVector> calibrationVectorList = new ArrayList<>(5);
@@ -1323,6 +1500,61 @@ public final class Sentinel1Utils {
     }
 
 
+    /**
+     * Product geometry read from the metadata. It does not reference the product or its metadata, so that it can
+     * be cached for the lifetime of the product. The lazily computed Doppler quantities are guarded by the
+     * geometry itself.
+     */
+    private static final class Geometry {
+
+        final int numOfSubSwath;
+        final String acquisitionMode;
+        final SubSwathInfo[] subSwath;
+        final SARGeocoding.Orbit orbit;
+        final String[] polarizations;
+        final String[] subSwathNames;
+        final double firstLineUTC;
+        final double lastLineUTC;
+        final double lineTimeInterval;
+        final double nearEdgeSlantRange;
+        final double wavelength;
+        final double rangeSpacing;
+        final double azimuthSpacing;
+        final int sourceImageWidth;
+        final int sourceImageHeight;
+        final boolean nearRangeOnLeft;
+        final boolean srgrFlag;
+        final AbstractMetadata.SRGRCoefficientList[] srgrConvParams;
+
+        boolean isRangeDependDopplerRateAvailable = false;
+        boolean isDopplerCentroidAvailable = false;
+        boolean isDopplerRateAvailable = false;
+        boolean isReferenceTimeAvailable = false;
+
+        final Map<String, Object> calibrationArrays = new ConcurrentHashMap<>();
+
+        Geometry(final Sentinel1Utils su) {
+            this.numOfSubSwath = su.numOfSubSwath;
+            this.acquisitionMode = su.acquisitionMode;
+            this.subSwath = su.subSwath;
+            this.orbit = su.orbit;
+            this.polarizations = su.polarizations;
+            this.subSwathNames = su.subSwathNames;
+            this.firstLineUTC = su.firstLineUTC;
+            this.lastLineUTC = su.lastLineUTC;
+            this.lineTimeInterval = su.lineTimeInterval;
+            this.nearEdgeSlantRange = su.nearEdgeSlantRange;
+            this.wavelength = su.wavelength;
+            this.rangeSpacing = su.rangeSpacing;
+            this.azimuthSpacing = su.azimuthSpacing;
+            this.sourceImageWidth = su.sourceImageWidth;
+            this.sourceImageHeight = su.sourceImageHeight;
+            this.nearRangeOnLeft = su.nearRangeOnLeft;
+            this.srgrFlag = su.srgrFlag;
+            this.srgrConvParams = su.srgrConvParams;
+        }
+    }
+
     public static class SubSwathInfo {
 
         // subswath info
@@ -16,6 +16,7 @@
 package org.esa.s1tbx.insar.gpf;
 
 import com.bc.ceres.core.ProgressMonitor;
+import org.esa.s1tbx.commons.io.AsyncProductWriter;
 import org.esa.snap.datamodel.AbstractMetadata;
 import org.esa.snap.framework.dataio.ProductIO;
 import org.esa.snap.framework.dataio.ProductSubsetBuilder;
@@ -72,6 +73,8 @@ public class StackSplitWriter extends Operator implements Output {
 
     private final Map<Band, SubsetInfo> bandMap = new HashMap<>();
 
+    private final AsyncProductWriter.MemoryLimit memoryLimit = AsyncProductWriter.MemoryLimit.createDefault();
+
     public StackSplitWriter() {
         setRequiresAllBands(true);
     }
@@ -164,6 +167,7 @@ public class StackSplitWriter extends Operator implements Output {
         subsetInfo.productWriter.setFormatName(formatName);
         subsetInfo.productWriter.setIncrementalMode(false);
         subsetInfo.subsetProduct.setProductWriter(subsetInfo.productWriter);
+        subsetInfo.asyncWriter = new AsyncProductWriter(productName, subsetInfo.productWriter, memoryLimit);
         bandMap.put(targetProduct.getBand(bandNames[0]), subsetInfo);
     }
 
@@ -174,12 +178,8 @@ public class StackSplitWriter extends Operator implements Output {
             if(subsetInfo == null)
                 return;
 
-            subsetInfo.productWriter.writeProductNodes(subsetInfo.subsetProduct, subsetInfo.file);
-
             final Rectangle trgRect = subsetInfo.subsetBuilder.getSubsetDef().getRegion();
-            if (!subsetInfo.written) {
-                writeTile(subsetInfo, trgRect);
-            }
+            writeTile(subsetInfo, trgRect);
         } catch (Exception e) {
             if (e instanceof OperatorException) {
                 throw (OperatorException) e;
@@ -189,30 +189,53 @@ public class StackSplitWriter extends Operator implements Output {
         }
     }
 
-    private synchronized void writeTile(final SubsetInfo info, final Rectangle trgRect)
-            throws IOException {
-        if (info.written) return;
+    /**
+     * Queue the bands of a subset to its own writer thread. Only the subset is locked, so the
+     * bands of the other products are computed and written concurrently.
+     */
+    private void writeTile(final SubsetInfo info, final Rectangle trgRect) throws IOException {
+        synchronized (info) {
+            if (info.written) return;
+
+            info.productWriter.writeProductNodes(info.subsetProduct, info.file);
+
+            for (Band trgBand : info.subsetProduct.getBands()) {
+                final String oldBandName = info.newBandNamingMap.get(trgBand.getName());
+                final Tile sourceTile = getSourceTile(sourceProduct.getBand(oldBandName), trgRect);
+                final ProductData rawSamples = sourceTile.getRawSamples();
+
+                info.asyncWriter.writeBandRasterData(trgBand,
+                        0, 0, trgBand.getSceneRasterWidth(), trgBand.getSceneRasterHeight(), rawSamples);
+            }
+            info.written = true;
+        }
 
-        for(Band trgBand : info.subsetProduct.getBands()) {
-            final String oldBandName = info.newBandNamingMap.get(trgBand.getName());
-            final Tile sourceTile = getSourceTile(sourceProduct.getBand(oldBandName), trgRect);
-            final ProductData rawSamples = sourceTile.getRawSamples();
+        // the last product to be queued waits for all writers, so that write errors reach the graph
+        if (allWritten()) {
+            for (SubsetInfo subsetInfo : bandMap.values()) {
+                subsetInfo.asyncWriter.flush();
+            }
+        }
+    }
 
-            //final String newBandName = StackUtils.getBandNameWithoutDate(bandName);
-            info.productWriter.writeBandRasterData(trgBand,
-                    0, 0, trgBand.getSceneRasterWidth(), trgBand.getSceneRasterHeight(), rawSamples, ProgressMonitor.NULL);
+    private boolean allWritten() {
+        for (SubsetInfo info : bandMap.values()) {
+            synchronized (info) {
+                if (!info.written) {
+                    return false;
+                }
+            }
         }
-        info.written = true;
+        return true;
     }
 
     @Override
     public void dispose() {
-        try {
-            for (Band band : bandMap.keySet()) {
-                SubsetInfo info = bandMap.get(band);
-                info.productWriter.close();
+        for (SubsetInfo info : bandMap.values()) {
+            try {
+                info.asyncWriter.close();
+            } catch (IOException ignore) {
             }
-        } catch (IOException ignore) {
         }
         super.dispose();
     }
@@ -222,6 +245,7 @@ public class StackSplitWriter extends Operator implements Output {
         ProductSubsetBuilder subsetBuilder;
         File file;
         ProductWriter productWriter;
+        AsyncProductWriter asyncWriter;
         boolean written = false;
         final Map<String, String> newBandNamingMap = new HashMap<>();
     }
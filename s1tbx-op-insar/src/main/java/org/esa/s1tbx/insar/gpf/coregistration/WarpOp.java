@@ -43,6 +43,7 @@ import org.esa.snap.gpf.StackUtils;
 import org.esa.snap.util.ProductUtils;
 import org.esa.snap.util.ResourceUtils;
 import org.esa.snap.util.StringUtils;
+import org.jlinda.core.coregistration.ComplexResampler;
 import org.jlinda.core.coregistration.SimpleLUT;
 
 import javax.media.jai.Interpolation;
@@ -118,6 +119,7 @@ public class WarpOp extends Operator {
 
     private Interpolation interp = null;
     private InterpolationTable interpTable = null;
+    private ComplexResampler complexResampler = null;
 
     @Parameter(description = "Show the Residuals file in a text viewer", defaultValue = "false", label = "Show Residuals")
     private Boolean openResidualsFile = false;
@@ -141,6 +143,7 @@ public class WarpOp extends Operator {
 
     private final Map<Band, Band> sourceRasterMap = new HashMap<>(10);
     private final Map<Band, Band> complexSrcMap = new HashMap<>(10);
+    private final Map<Band, Band> complexTrgMap = new HashMap<>(10);
     private final Map<Band, WarpData> warpDataMap = new HashMap<>(10);
 
     private String processedSlaveBand;
@@ -330,6 +333,7 @@ public class WarpOp extends Operator {
                 sourceRasterMap.put(targetBandQ, srcBandQ);
 
                 complexSrcMap.put(srcBandQ, srcBand);
+                complexTrgMap.put(targetBand, targetBandQ);
                 String suffix = "";
                 if(excludeMaster) { // multi-output without master
                     String pol = OperatorUtils.getPolarizationFromBandName(srcBand.getName());
@@ -374,21 +378,17 @@ public class WarpOp extends Operator {
     }
 
     /**
-     * Called by the framework in order to compute a tile for the given target band.
+     * Called by the framework in order to compute a tile stack for the given target bands.
      * <p>The default implementation throws a runtime exception with the message "not implemented".</p>
      *
-     * @param targetBand The target band.
-     * @param targetTile The current tile associated with the target band to be computed.
-     * @param pm         A progress monitor which should be used to determine computation cancelation requests.
+     * @param targetTileMap   The target tiles associated with all target bands to be computed.
+     * @param targetRectangle The rectangle of target tile.
+     * @param pm              A progress monitor which should be used to determine computation cancelation requests.
      * @throws org.esa.snap.framework.gpf.OperatorException If an error occurs during computation of the target raster.
      */
     @Override
-    public void computeTile(Band targetBand, Tile targetTile, ProgressMonitor pm) throws OperatorException {
-        final Rectangle targetRectangle = targetTile.getRectangle();
-        final int x0 = targetRectangle.x;
-        final int y0 = targetRectangle.y;
-        final int w = targetRectangle.width;
-        final int h = targetRectangle.height;
+    public void computeTileStack(Map<Band, Tile> targetTileMap, Rectangle targetRectangle, ProgressMonitor pm)
+            throws OperatorException {
         //System.out.println("WARPOperator: x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h);
 
         try {
@@ -396,37 +396,96 @@ public class WarpOp extends Operator {
                 getWarpData(targetRectangle);
             }
 
-            final Band srcBand = sourceRasterMap.get(targetBand);
-            if (srcBand == null)
-                return;
-            Band realSrcBand = complexSrcMap.get(srcBand);
-            if (realSrcBand == null)
-                realSrcBand = srcBand;
+            for (Map.Entry<Band, Tile> entry : targetTileMap.entrySet()) {
+                if (pm.isCanceled())
+                    return;
 
-            // create source image
-            final Tile sourceRaster = getSourceTile(srcBand, targetRectangle);
+                final Band targetBand = entry.getKey();
+                final Band srcBand = sourceRasterMap.get(targetBand);
+                if (srcBand == null)
+                    continue;
 
-            if (pm.isCanceled())
-                return;
+                if (complexResampler != null) {
+                    final Band targetBandQ = complexTrgMap.get(targetBand);
+                    if (targetBandQ != null) {
+                        computeComplexTile(srcBand, sourceRasterMap.get(targetBandQ),
+                                entry.getValue(), targetTileMap.get(targetBandQ), targetRectangle);
+                        continue;
+                    }
+                    if (complexSrcMap.containsKey(srcBand)) {
+                        continue; // Q band, resampled together with its I band
+                    }
+                }
 
-            final WarpData warpData = warpDataMap.get(realSrcBand);
-            if (warpData.notEnoughGCPs)
-                return;
+                computeWarpedTile(srcBand, entry.getValue(), targetRectangle);
+            }
+        } catch (Throwable e) {
+            OperatorUtils.catchOperatorException(getId(), e);
+        } finally {
+            pm.done();
+        }
+    }
+
+    private void computeWarpedTile(final Band srcBand, final Tile targetTile, final Rectangle targetRectangle) {
+        final int x0 = targetRectangle.x;
+        final int y0 = targetRectangle.y;
+        final int w = targetRectangle.width;
+        final int h = targetRectangle.height;
 
-            final RenderedImage srcImage = sourceRaster.getRasterDataNode().getSourceImage();
+        Band realSrcBand = complexSrcMap.get(srcBand);
+        if (realSrcBand == null)
+            realSrcBand = srcBand;
 
-            // get warped image
-            final RenderedOp warpedImage = createWarpImage(warpData.jaiWarp, srcImage);
+        // create source image
+        final Tile sourceRaster = getSourceTile(srcBand, targetRectangle);
 
-            // copy warped image data to target
-            final float[] dataArray = warpedImage.getData(targetRectangle).getSamples(x0, y0, w, h, 0, (float[]) null);
+        final WarpData warpData = warpDataMap.get(realSrcBand);
+        if (warpData.notEnoughGCPs)
+            return;
 
-            targetTile.setRawSamples(ProductData.createInstance(dataArray));
+        final RenderedImage srcImage = sourceRaster.getRasterDataNode().getSourceImage();
 
-        } catch (Throwable e) {
-            OperatorUtils.catchOperatorException(getId(), e);
-        } finally {
-            pm.done();
+        // get warped image
+        final RenderedOp warpedImage = createWarpImage(warpData.jaiWarp, srcImage);
+
+        // copy warped image data to target
+        final float[] dataArray = warpedImage.getData(targetRectangle).getSamples(x0, y0, w, h, 0, (float[]) null);
+
+        targetTile.setRawSamples(ProductData.createInstance(dataArray));
+    }
+
+    /**
+     * Resample the I and Q bands of a slave together. The warp is evaluated once per target pixel and the
+     * same kernel weights are applied to both channels.
+     */
+    private void computeComplexTile(final Band srcBandI, final Band srcBandQ, final Tile targetTileI,
+                                    final Tile targetTileQ, final Rectangle targetRectangle) {
+
+        final WarpData warpData = warpDataMap.get(srcBandI);
+        if (warpData.notEnoughGCPs)
+            return;
+
+        final int n = targetRectangle.width * targetRectangle.height;
+        final double[] srcX = new double[n];
+        final double[] srcY = new double[n];
+        ComplexResampler.warpRect(warpData.xCoef, warpData.yCoef, targetRectangle.x, targetRectangle.y,
+                targetRectangle.width, targetRectangle.height, srcX, srcY);
+
+        final int srcWidth = srcBandI.getSceneRasterWidth();
+        final int srcHeight = srcBandI.getSceneRasterHeight();
+        final Rectangle srcRect = complexResampler.getSourceRectangle(srcX, srcY, n, srcWidth, srcHeight);
+
+        final float[] trgI = new float[n];
+        final float[] trgQ = new float[n];
+        if (!srcRect.isEmpty()) {
+            final float[] srcI = getSourceTile(srcBandI, srcRect).getSamplesFloat();
+            final float[] srcQ = getSourceTile(srcBandQ, srcRect).getSamplesFloat();
+            complexResampler.resample(srcI, srcQ, srcRect, srcWidth, srcHeight, srcX, srcY, n, trgI, trgQ);
+        }
+
+        targetTileI.setRawSamples(ProductData.createInstance(trgI));
+        if (targetTileQ != null) {
+            targetTileQ.setRawSamples(ProductData.createInstance(trgQ));
         }
     }
 
@@ -731,12 +790,15 @@ public class WarpOp extends Operator {
             lutArrayFloats[i++] = (float) lutElement;
         }
 
-        // construct interpolation table for JAI resampling
+        // construct interpolation table for JAI resampling of bands without an I/Q pair
         final int subsampleBits = 7;
         final int precisionBits = 32;
         int padding = kernelLength / 2 - 1;
 
         interpTable = new InterpolationTable(padding, kernelLength, subsampleBits, precisionBits, lutArrayFloats);
+
+        // I and Q are resampled together with the same LUT kernel
+        complexResampler = new ComplexResampler(lut);
     }
 
     /**
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf;
+
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for MomentsAccumulator.
+ */
+public class TestMomentsAccumulator {
+
+    @Test
+    public void testMergedTilesMatchDirectComputation() {
+        final int numBands = 3;
+        final int numTiles = 5;
+        final int tileSize = 100;
+        final Random random = new Random(42);
+
+        final double[][] all = new double[numBands][numTiles * tileSize];
+        final MomentsAccumulator merged = new MomentsAccumulator(numBands);
+        for (int t = 0; t < numTiles; t++) {
+            final ProductData[] tile = new ProductData[numBands];
+            for (int b = 0; b < numBands; b++) {
+                final double[] values = new double[tileSize];
+                for (int k = 0; k < tileSize; k++) {
+                    // large offset to exercise the numerical stability
+                    values[k] = 1.0e6 + (b + 1) * random.nextGaussian() + t;
+                    all[b][t * tileSize + k] = values[k];
+                }
+                tile[b] = ProductData.createInstance(values);
+            }
+            final MomentsAccumulator tileMoments = new MomentsAccumulator(numBands);
+            tileMoments.accumulate(tile, null);
+            merged.merge(tileMoments);
+        }
+
+        final int n = numTiles * tileSize;
+        assertEquals(n, merged.getCount());
+
+        final double[] mean = new double[numBands];
+        for (int b = 0; b < numBands; b++) {
+            for (int k = 0; k < n; k++) {
+                mean[b] += all[b][k];
+            }
+            mean[b] /= n;
+            assertEquals(mean[b], merged.getMean(b), 1e-8);
+        }
+
+        final double[][] cov = merged.getCovariance();
+        for (int i = 0; i < numBands; i++) {
+            double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+            for (int k = 0; k < n; k++) {
+                min = Math.min(min, all[i][k]);
+                max = Math.max(max, all[i][k]);
+            }
+            assertEquals(min, merged.getMin(i), 0.0);
+            assertEquals(max, merged.getMax(i), 0.0);
+
+            for (int j = 0; j < numBands; j++) {
+                double c = 0.0;
+                for (int k = 0; k < n; k++) {
+                    c += (all[i][k] - mean[i]) * (all[j][k] - mean[j]);
+                }
+                assertEquals(c / n, cov[i][j], 1e-8);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.insar.gpf;
+
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.util.TestUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for the geometry shared by Sentinel1Utils.getInstance
+ */
+public class TestSentinel1Utils {
+
+    static {
+        TestUtils.initTestEnvironment();
+    }
+
+    private final static String inputPath =
+            "P:\\s1tbx\\s1tbx\\Data\\testData\\input\\S1A_IW_SLC__1SDV_20140821T165547_20140821T165614_002041_001FC1_8601_split_orb.dim";
+
+    private Product sourceProduct = null;
+
+    @Before
+    public void setUp() throws Exception {
+        final File inputFile = new File(inputPath);
+        if (!inputFile.exists()) {
+            TestUtils.skipTest(this, inputFile + " not found");
+            return;
+        }
+        sourceProduct = TestUtils.readSourceProduct(inputFile);
+    }
+
+    @Test
+    public void testSharedGeometry() throws Exception {
+        if (sourceProduct == null)
+            return;
+
+        // two operators of a graph initialised at the same time on the same source product
+        final Sentinel1Utils[] instances = new Sentinel1Utils[2];
+        final Throwable[] errors = new Throwable[2];
+        final Thread[] threads = new Thread[2];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        final Sentinel1Utils su = Sentinel1Utils.getInstance(sourceProduct);
+                        su.computeDopplerRate();
+                        su.computeReferenceTime();
+                        instances[index] = su;
+                    } catch (Throwable e) {
+                        errors[index] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(errors[0]);
+        assertNull(errors[1]);
+
+        final Sentinel1Utils.SubSwathInfo[] subSwath = instances[0].getSubSwath();
+        assertTrue(instances[1].getSubSwath() == subSwath);
+        assertTrue(instances[1].getOrbit() == instances[0].getOrbit());
+        assertTrue(Sentinel1Utils.getInstance(sourceProduct).getSubSwath() == subSwath);
+
+        // the Doppler quantities were computed once
+        for (int s = 0; s < subSwath.length; s++) {
+            assertTrue(subSwath[s].dopplerRate != null);
+            assertTrue(subSwath[s].referenceTime != null);
+        }
+        final double[][] dopplerRate = subSwath[0].dopplerRate;
+        instances[1].computeDopplerRate();
+        assertTrue(subSwath[0].dopplerRate == dopplerRate);
+
+        // the constructor gives a private copy
+        assertFalse(new Sentinel1Utils(sourceProduct).getSubSwath() == subSwath);
+    }
+
+    @Test
+    public void testLazyDopplerRate() throws Exception {
+        if (sourceProduct == null)
+            return;
+
+        final Sentinel1Utils shared = Sentinel1Utils.getInstance(sourceProduct);
+        shared.computeDopplerRate();
+        shared.computeReferenceTime();
+
+        final Sentinel1Utils uncached = new Sentinel1Utils(sourceProduct);
+        uncached.computeDopplerRate();
+        uncached.computeReferenceTime();
+
+        final Sentinel1Utils.SubSwathInfo[] expected = uncached.getSubSwath();
+        final Sentinel1Utils.SubSwathInfo[] actual = shared.getSubSwath();
+        assertEquals(expected.length, actual.length);
+        for (int s = 0; s < expected.length; s++) {
+            compare(expected[s].rangeDependDopplerRate, actual[s].rangeDependDopplerRate);
+            compare(expected[s].dopplerRate, actual[s].dopplerRate);
+            compare(expected[s].dopplerCentroid, actual[s].dopplerCentroid);
+            compare(expected[s].referenceTime, actual[s].referenceTime);
+        }
+    }
+
+    private static void compare(final double[][] expected, final double[][] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int b = 0; b < expected.length; b++) {
+            assertEquals(expected[b].length, actual[b].length);
+            for (int i = 0; i < expected[b].length; i++) {
+                assertEquals(expected[b][i], actual[b][i], 0.0);
+            }
+        }
+    }
+}
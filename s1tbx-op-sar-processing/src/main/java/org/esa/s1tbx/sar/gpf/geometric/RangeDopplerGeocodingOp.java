@@ -20,6 +20,8 @@ import org.esa.s1tbx.calibration.gpf.support.CalibrationFactory;
 import org.esa.s1tbx.calibration.gpf.support.Calibrator;
 import org.esa.s1tbx.calibration.gpf.CalibrationOp;
 import org.esa.s1tbx.calibration.gpf.Sentinel1Calibrator;
+import org.esa.s1tbx.commons.profiling.TileProfiler;
+import org.esa.s1tbx.commons.profiling.TileTimer;
 import org.esa.s1tbx.insar.gpf.geometric.SARGeocoding;
 import org.esa.s1tbx.insar.gpf.geometric.SARUtils;
 import org.esa.snap.dem.dataio.DEMFactory;
@@ -809,8 +811,10 @@ public class RangeDopplerGeocodingOp extends Operator {
     @Override
     public void computeTileStack(Map<Band, Tile> targetTiles, Rectangle targetRectangle, ProgressMonitor pm) throws OperatorException {
 
+        final TileTimer timer = TileProfiler.startTile(this);
         try {
             processingStarted = true;
+            final long demStart = timer.start();
             try {
                 if (!isElevationModelAvailable) {
                     getElevationModel();
@@ -834,6 +838,7 @@ public class RangeDopplerGeocodingOp extends Operator {
                 final boolean valid = DEMFactory.getLocalDEM(
                         dem, demNoDataValue, demResamplingMethod, tileGeoRef, x0, y0, w, h, sourceProduct,
                         nodataValueAtSea, localDEM);
+                timer.stop(TileProfiler.Stage.DEM, demStart);
                 if (!valid && nodataValueAtSea)
                     return;
             }
@@ -932,10 +937,12 @@ public class RangeDopplerGeocodingOp extends Operator {
 
                     GeoUtils.geo2xyzWGS84(lat, lon, alt, earthPoint);
 
+                    final long orbitStart = timer.startSampled(TileProfiler.Stage.ORBIT);
                     double zeroDopplerTime = SARGeocoding.getEarthPointZeroDopplerTime(firstLineUTC,
                             lineTimeInterval, wavelength, earthPoint, orbit.sensorPosition, orbit.sensorVelocity);
 
                     if (Double.compare(zeroDopplerTime, SARGeocoding.NonValidZeroDopplerTime) == 0) {
+                        timer.stopSampled(TileProfiler.Stage.ORBIT, orbitStart);
                         if (saveDEM) {
                             demBuffer.setElemDoubleAt(index, demNoDataValue);
                         }
@@ -949,6 +956,7 @@ public class RangeDopplerGeocodingOp extends Operator {
                         zeroDopplerTime += slantRange / Constants.lightSpeedInMetersPerDay;
                         slantRange = SARGeocoding.computeSlantRange(zeroDopplerTime, orbit, earthPoint, sensorPos);
                     }
+                    timer.stopSampled(TileProfiler.Stage.ORBIT, orbitStart);
 
                     double rangeIndex = SARGeocoding.computeRangeIndex(srgrFlag, sourceImageWidth, firstLineUTC, lastLineUTC,
                             rangeSpacing, zeroDopplerTime, slantRange, nearEdgeSlantRange, srgrConvParams);
@@ -1016,7 +1024,7 @@ public class RangeDopplerGeocodingOp extends Operator {
 
                         for (TileData tileData : trgTiles) {
                             int[] subSwathIndex = {INVALID_SUB_SWATH_INDEX};
-                            double v = getPixelValue(azimuthIndex, rangeIndex, tileData, subSwathIndex);
+                            double v = getPixelValue(azimuthIndex, rangeIndex, tileData, subSwathIndex, timer);
 
                             if (v != tileData.noDataValue && tileData.applyRadiometricNormalization) {
                                 if (localIncidenceAngles[1] != SARGeocoding.NonValidIncidenceAngle) {
@@ -1039,6 +1047,8 @@ public class RangeDopplerGeocodingOp extends Operator {
         } catch (Throwable e) {
             orthoDataProduced = true; //to prevent multiple error messages
             OperatorUtils.catchOperatorException(getId(), e);
+        } finally {
+            timer.finish();
         }
     }
 
@@ -1060,10 +1070,11 @@ public class RangeDopplerGeocodingOp extends Operator {
      * @param rangeIndex    The range index for pixel in source image.
      * @param tileData      The source tile information.
      * @param subSwathIndex The subSwath index.
+     * @param timer         The profiling timer of the tile.
      * @return The pixel value.
      */
     private double getPixelValue(final double azimuthIndex, final double rangeIndex,
-                                 final TileData tileData, final int[] subSwathIndex) {
+                                 final TileData tileData, final int[] subSwathIndex, final TileTimer timer) {
 
         try {
             final int x0 = (int) (rangeIndex + 0.5);
@@ -1103,8 +1114,11 @@ public class RangeDopplerGeocodingOp extends Operator {
             }
 
             final Band[] srcBands = targetBandNameToSourceBand.get(tileData.bandName);
-            tileData.imgResamplingRaster.set(rangeIndex, azimuthIndex, getSourceTile(srcBands[0], srcRect),
-                    srcBands.length > 1 ? getSourceTile(srcBands[1], srcRect) : null);
+            final long sourceStart = timer.startSampled(TileProfiler.Stage.SOURCE_TILE);
+            final Tile sourceTile = getSourceTile(srcBands[0], srcRect);
+            final Tile sourceTile2 = srcBands.length > 1 ? getSourceTile(srcBands[1], srcRect) : null;
+            timer.stopSampled(TileProfiler.Stage.SOURCE_TILE, sourceStart);
+            tileData.imgResamplingRaster.set(rangeIndex, azimuthIndex, sourceTile, sourceTile2);
 
             imgResampling.computeIndex(rangeIndex + 0.5, azimuthIndex + 0.5,
                     sourceImageWidth, sourceImageHeight, tileData.imgResamplingIndex);
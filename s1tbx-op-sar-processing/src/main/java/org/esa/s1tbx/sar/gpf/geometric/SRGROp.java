@@ -40,6 +40,7 @@ import org.esa.snap.framework.gpf.annotations.SourceProduct;
 import org.esa.snap.framework.gpf.annotations.TargetProduct;
 import org.esa.snap.gpf.InputProductValidator;
 import org.esa.snap.gpf.OperatorUtils;
+import org.esa.snap.gpf.TileIndex;
 import org.esa.snap.util.Maths;
 import org.esa.snap.util.ProductUtils;
 
@@ -92,10 +93,15 @@ public class SRGROp extends Operator {
     private int targetImageWidth;
     private int targetImageHeight;
 
-    private enum Interpolation {NEAREST_NEIGHBOR, LINEAR, CUBIC, CUBIC2, SINC}
+    enum Interpolation {NEAREST_NEIGHBOR, LINEAR, CUBIC, CUBIC2, SINC}
 
     private Interpolation interpMethod = Interpolation.LINEAR;
 
+    // resampling kernel of each ground range column: source columns and weights of its taps, column by column
+    private int kernelSize;
+    private int[] kernelPixels;
+    private double[] kernelWeights;
+
     private static final String nearestNeighbourStr = "Nearest-neighbor interpolation";
     private static final String linearStr = "Linear interpolation";
     private static final String cubicStr = "Cubic interpolation";
@@ -167,6 +173,8 @@ public class SRGROp extends Operator {
                     break;
             }
 
+            initResamplingKernels();
+
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException(getId(), e);
         }
@@ -222,71 +230,32 @@ public class SRGROp extends Operator {
 
             // compute ground range image pixel values
             final Band sourceBand = sourceProduct.getBand(targetBand.getName());
-            final Unit.UnitType bandUnit = Unit.getUnitType(sourceBand);
+            final boolean isIntensity = Unit.getUnitType(sourceBand) == Unit.UnitType.INTENSITY;
             final Rectangle sourceTileRectangle = getSourceRectangle(tx0, ty0, tw, th);
             final Tile sourceRaster = getSourceTile(sourceBand, sourceTileRectangle);
 
             final ProductData trgData = targetTile.getDataBuffer();
             final ProductData srcData = sourceRaster.getDataBuffer();
-
-            int p0 = 0, p1 = 0, p2 = 0, p3 = 0, p4 = 0;
-            double v0 = 0.0, v1 = 0.0, v2 = 0.0, v3 = 0.0, v4 = 0.0, v = 0.0;
-            double mu = 0.0;
-
-            for (int x = tx0; x < tx0 + tw; x++) {
-                final double p = getSlantRangePixelPosition((double) x);
-                if (interpMethod.equals(Interpolation.NEAREST_NEIGHBOR)) {
-                    p0 = Math.min((int) (p + 0.5), sourceImageWidth - 1);
-                } else if (interpMethod.equals(Interpolation.LINEAR)) {
-                    p0 = Math.min((int) p, sourceImageWidth - 2);
-                    p1 = p0 + 1;
-                    mu = p - p0;
-                } else if (interpMethod.equals(Interpolation.CUBIC) || interpMethod.equals(Interpolation.CUBIC2)) {
-                    p1 = Math.min((int) p, sourceImageWidth - 1);
-                    p0 = Math.max(p1 - 1, 0);
-                    p2 = Math.min(p1 + 1, sourceImageWidth - 1);
-                    p3 = Math.min(p1 + 2, sourceImageWidth - 1);
-                    mu = Math.min(p - p1, 1.0);
-                } else if (interpMethod.equals(Interpolation.SINC)) {
-                    p2 = Math.min((int) (p + 0.5), sourceImageWidth - 1);
-                    p0 = Math.max(p2 - 2, 0);
-                    p1 = Math.max(p2 - 1, 0);
-                    p3 = Math.min(p2 + 1, sourceImageWidth - 1);
-                    p4 = Math.min(p2 + 2, sourceImageWidth - 1);
-                    mu = p - p2;
-                }
-
-                for (int y = ty0; y < ty0 + th; y++) {
-                    if (interpMethod.equals(Interpolation.NEAREST_NEIGHBOR)) {
-                        v = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p0, y));
-                    } else if (interpMethod.equals(Interpolation.LINEAR)) {
-                        v0 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p0, y));
-                        v1 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p1, y));
-                        v = Maths.interpolationLinear(v0, v1, mu);
-                    } else if (interpMethod.equals(Interpolation.CUBIC)) {
-                        v0 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p0, y));
-                        v1 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p1, y));
-                        v2 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p2, y));
-                        v3 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p3, y));
-                        v = Maths.interpolationCubic(v0, v1, v2, v3, mu);
-                    } else if (interpMethod.equals(Interpolation.CUBIC2)) {
-                        v0 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p0, y));
-                        v1 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p1, y));
-                        v2 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p2, y));
-                        v3 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p3, y));
-                        v = Maths.interpolationCubic2(v0, v1, v2, v3, mu);
-                    } else if (interpMethod.equals(Interpolation.SINC)) {
-                        v0 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p0, y));
-                        v1 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p1, y));
-                        v2 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p2, y));
-                        v3 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p3, y));
-                        v4 = srcData.getElemDoubleAt(sourceRaster.getDataBufferIndex(p4, y));
-                        v = Maths.interpolationSinc(v0, v1, v2, v3, v4, mu);
+            final TileIndex srcIndex = new TileIndex(sourceRaster);
+            final TileIndex trgIndex = new TileIndex(targetTile);
+
+            final int maxX = tx0 + tw;
+            final int maxY = ty0 + th;
+            double v;
+            int k;
+            for (int y = ty0; y < maxY; y++) {
+                srcIndex.calculateStride(y);
+                trgIndex.calculateStride(y);
+                for (int x = tx0; x < maxX; x++) {
+                    k = x * kernelSize;
+                    v = 0.0;
+                    for (int i = 0; i < kernelSize; i++, k++) {
+                        v += kernelWeights[k] * srcData.getElemDoubleAt(srcIndex.getIndex(kernelPixels[k]));
                     }
-                    if (bandUnit == Unit.UnitType.INTENSITY) {
+                    if (isIntensity) {
                         v = Math.max(v, 0.0);
                     }
-                    trgData.setElemDoubleAt(targetTile.getDataBufferIndex(x, y), v);
+                    trgData.setElemDoubleAt(trgIndex.getIndex(x), v);
                 }
             }
         } catch (Throwable e) {
@@ -296,11 +265,128 @@ public class SRGROp extends Operator {
         }
     }
 
+    /**
+     * Get the source rectangle covering the taps of the resampling kernels of a target tile.
+     */
     private Rectangle getSourceRectangle(final int tx0, final int ty0, final int tw, final int th) {
-        final int xMin = (int) (getSlantRangePixelPosition((double) Math.max(tx0 - 2, 0)));
-        final int xMax = (int) getSlantRangePixelPosition((double) tx0 + tw + 2);
-        final int sw = Math.min(xMax - xMin + 1, sourceImageWidth);
-        return new Rectangle(xMin, ty0, sw, th);
+        int xMin = sourceImageWidth - 1;
+        int xMax = 0;
+        for (int k = tx0 * kernelSize; k < (tx0 + tw) * kernelSize; k++) {
+            xMin = Math.min(xMin, kernelPixels[k]);
+            xMax = Math.max(xMax, kernelPixels[k]);
+        }
+        return new Rectangle(xMin, ty0, xMax - xMin + 1, th);
+    }
+
+    /**
+     * Compute the resampling kernels of the ground range columns of the target image.
+     */
+    private void initResamplingKernels() {
+
+        final double[] slantRangePixelPositions = new double[targetImageWidth];
+        for (int x = 0; x < targetImageWidth; x++) {
+            slantRangePixelPositions[x] = getSlantRangePixelPosition((double) x);
+        }
+
+        kernelSize = getKernelSize(interpMethod);
+        kernelPixels = new int[targetImageWidth * kernelSize];
+        kernelWeights = new double[targetImageWidth * kernelSize];
+        computeResamplingKernels(interpMethod, slantRangePixelPositions, sourceImageWidth, kernelPixels, kernelWeights);
+    }
+
+    /**
+     * Get the number of taps of the resampling kernel of an interpolation method.
+     */
+    static int getKernelSize(final Interpolation interpMethod) {
+        switch (interpMethod) {
+            case NEAREST_NEIGHBOR:
+                return 1;
+            case LINEAR:
+                return 2;
+            case CUBIC:
+            case CUBIC2:
+                return 4;
+            default: // SINC
+                return 5;
+        }
+    }
+
+    /**
+     * Compute the source columns and weights of the resampling kernel of each ground range column.
+     * <p>The interpolation methods are linear in the samples, so the weight of each tap is the value interpolated
+     * from a unit sample at that tap.</p>
+     *
+     * @param interpMethod             The interpolation method.
+     * @param slantRangePixelPositions The slant range pixel position of each ground range column.
+     * @param sourceImageWidth         The width of the slant range image.
+     * @param kernelPixels             The source columns of the taps, column by column.
+     * @param kernelWeights            The weights of the taps, column by column.
+     */
+    static void computeResamplingKernels(final Interpolation interpMethod, final double[] slantRangePixelPositions,
+                                         final int sourceImageWidth, final int[] kernelPixels,
+                                         final double[] kernelWeights) {
+
+        final int kernelSize = getKernelSize(interpMethod);
+        final double[] unit = new double[kernelSize];
+        for (int x = 0; x < slantRangePixelPositions.length; x++) {
+            final double p = slantRangePixelPositions[x];
+            final int k = x * kernelSize;
+            double mu = 0.0;
+            switch (interpMethod) {
+                case NEAREST_NEIGHBOR:
+                    kernelPixels[k] = Math.min((int) (p + 0.5), sourceImageWidth - 1);
+                    break;
+                case LINEAR:
+                    kernelPixels[k] = Math.min((int) p, sourceImageWidth - 2);
+                    kernelPixels[k + 1] = kernelPixels[k] + 1;
+                    mu = p - kernelPixels[k];
+                    break;
+                case CUBIC:
+                case CUBIC2: {
+                    final int p1 = Math.min((int) p, sourceImageWidth - 1);
+                    kernelPixels[k] = Math.max(p1 - 1, 0);
+                    kernelPixels[k + 1] = p1;
+                    kernelPixels[k + 2] = Math.min(p1 + 1, sourceImageWidth - 1);
+                    kernelPixels[k + 3] = Math.min(p1 + 2, sourceImageWidth - 1);
+                    mu = Math.min(p - p1, 1.0);
+                    break;
+                }
+                default: { // SINC
+                    final int p2 = Math.min((int) (p + 0.5), sourceImageWidth - 1);
+                    kernelPixels[k] = Math.max(p2 - 2, 0);
+                    kernelPixels[k + 1] = Math.max(p2 - 1, 0);
+                    kernelPixels[k + 2] = p2;
+                    kernelPixels[k + 3] = Math.min(p2 + 1, sourceImageWidth - 1);
+                    kernelPixels[k + 4] = Math.min(p2 + 2, sourceImageWidth - 1);
+                    mu = p - p2;
+                    break;
+                }
+            }
+
+            for (int i = 0; i < kernelSize; i++) {
+                unit[i] = 1.0;
+                kernelWeights[k + i] = interpolate(interpMethod, unit, mu);
+                unit[i] = 0.0;
+            }
+        }
+    }
+
+    /**
+     * Interpolate the samples of a kernel with the selected interpolation method.
+     */
+    static double interpolate(final Interpolation interpMethod, final double[] v, final double mu) {
+        switch (interpMethod) {
+            case NEAREST_NEIGHBOR:
+                return v[0];
+            case LINEAR:
+                return Maths.interpolationLinear(v[0], v[1], mu);
+            case CUBIC:
+                return Maths.interpolationCubic(v[0], v[1], v[2], v[3], mu);
+            case CUBIC2:
+                return Maths.interpolationCubic2(v[0], v[1], v[2], v[3], mu);
+            default: // SINC
+                return Maths.interpolationSinc(v[0], v[1], v[2], v[3], v[4], mu);
+        }
     }
 
     /**
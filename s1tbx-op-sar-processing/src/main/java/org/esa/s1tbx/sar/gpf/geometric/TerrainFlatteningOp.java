@@ -17,6 +17,8 @@ package org.esa.s1tbx.sar.gpf.geometric;
 
 import com.bc.ceres.core.ProgressMonitor;
 import org.apache.commons.math3.util.FastMath;
+import org.esa.s1tbx.commons.profiling.TileProfiler;
+import org.esa.s1tbx.commons.profiling.TileTimer;
 import org.esa.s1tbx.insar.gpf.geometric.SARGeocoding;
 import org.esa.s1tbx.insar.gpf.geometric.SARUtils;
 import org.esa.snap.dem.dataio.DEMFactory;
@@ -379,9 +381,12 @@ public final class TerrainFlatteningOp extends Operator {
     public void computeTileStack(Map<Band, Tile> targetTiles, Rectangle targetRectangle, ProgressMonitor pm)
             throws OperatorException {
 
+        final TileTimer timer = TileProfiler.startTile(this);
         try {
             if (!isElevationModelAvailable) {
+                final long demStart = timer.start();
                 getElevationModel();
+                timer.stop(TileProfiler.Stage.DEM, demStart);
             }
 
             if (!overlapComputed) {
@@ -395,15 +400,17 @@ public final class TerrainFlatteningOp extends Operator {
             final double[][] simulatedImage = new double[h][w];
             // System.out.println("x0 = " + x0 + ", y0 = " + y0 + ", w = " + w + ", h = " + h);
 
-            final boolean validSimulation = generateSimulatedImage(x0, y0, w, h, simulatedImage);
+            final boolean validSimulation = generateSimulatedImage(x0, y0, w, h, simulatedImage, timer);
             if (!validSimulation) {
                 return;
             }
 
-            outputNormalizedImage(x0, y0, w, h, simulatedImage, targetTiles, targetRectangle);
+            outputNormalizedImage(x0, y0, w, h, simulatedImage, targetTiles, targetRectangle, timer);
 
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException(getId(), e);
+        } finally {
+            timer.finish();
         }
     }
 
@@ -415,10 +422,11 @@ public final class TerrainFlatteningOp extends Operator {
      * @param w              Width of given tile.
      * @param h              Height of given tile.
      * @param simulatedImage The simulated image.
+     * @param timer          The profiling timer of the tile.
      * @return Boolean flag indicating if the simulation is successful.
      */
     private boolean generateSimulatedImage(
-            final int x0, final int y0, final int w, final int h, double[][] simulatedImage) {
+            final int x0, final int y0, final int w, final int h, double[][] simulatedImage, final TileTimer timer) {
 
         try {
             int ymin = 0;
@@ -432,7 +440,9 @@ public final class TerrainFlatteningOp extends Operator {
             }
 
             final TerrainData terrainData = new TerrainData(w, ymax - ymin);
+            final long demStart = timer.start();
             final boolean valid = getLocalDEM(x0, ymin, w, ymax - ymin, terrainData);
+            timer.stop(TileProfiler.Stage.DEM, demStart);
             if (!valid) {
                 return false;
             }
@@ -460,6 +470,7 @@ public final class TerrainFlatteningOp extends Operator {
 
                     GeoUtils.geo2xyzWGS84(terrainData.latPixels[yy][xx], terrainData.lonPixels[yy][xx], alt, earthPoint);
 
+                    final long orbitStart = timer.startSampled(TileProfiler.Stage.ORBIT);
                     double zeroDopplerTime = SARGeocoding.getEarthPointZeroDopplerTime(
                             firstLineUTC, lineTimeInterval, wavelength, earthPoint,
                             orbit.sensorPosition, orbit.sensorVelocity);
@@ -472,6 +483,7 @@ public final class TerrainFlatteningOp extends Operator {
                         slantRange = SARGeocoding.computeSlantRange(
                                 zeroDopplerTime, orbit, earthPoint, sensorPos);
                     }
+                    timer.stopSampled(TileProfiler.Stage.ORBIT, orbitStart);
 
                     azimuthIndex[i] = (zeroDopplerTime - firstLineUTC) / lineTimeInterval;
 
@@ -544,10 +556,11 @@ public final class TerrainFlatteningOp extends Operator {
      * @param simulatedImage  The simulated image.
      * @param targetTiles     The current tiles to be computed for each target band.
      * @param targetRectangle The area in pixel coordinates to be computed.
+     * @param timer           The profiling timer of the tile.
      */
     private void outputNormalizedImage(final int x0, final int y0, final int w, final int h,
                                        final double[][] simulatedImage, final Map<Band, Tile> targetTiles,
-                                       final Rectangle targetRectangle) {
+                                       final Rectangle targetRectangle, final TileTimer timer) {
 
         for (Band tgtBand:targetBands) {
             final Tile targetTile = targetTiles.get(tgtBand);
@@ -560,7 +573,9 @@ public final class TerrainFlatteningOp extends Operator {
             ProductData sourceData = null;
             if (!unit.contains("Ratio")) {
                 srcBand = targetBandToSourceBandMap.get(tgtBand);
+                final long sourceStart = timer.start();
                 sourceTile = getSourceTile(srcBand, targetRectangle);
+                timer.stop(TileProfiler.Stage.SOURCE_TILE, sourceStart);
                 sourceData = sourceTile.getDataBuffer();
             }
 
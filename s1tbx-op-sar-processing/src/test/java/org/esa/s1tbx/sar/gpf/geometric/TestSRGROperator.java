@@ -28,11 +28,14 @@ import org.esa.snap.framework.datamodel.TiePointGrid;
 import org.esa.snap.framework.gpf.OperatorSpi;
 import org.esa.snap.gpf.OperatorUtils;
 import org.esa.snap.gpf.TestProcessor;
+import org.esa.snap.util.Maths;
 import org.esa.snap.util.TestUtils;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Random;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -95,6 +98,85 @@ public class TestSRGROperator {
     }
 
 
+    /**
+     * Interpolate a row at a slant range pixel position, as SRGROp.computeTile did before the resampling kernels.
+     */
+    private static double interpolatePerPixel(final SRGROp.Interpolation interpMethod, final double[] row,
+                                              final double p) {
+        final int sourceImageWidth = row.length;
+        switch (interpMethod) {
+            case NEAREST_NEIGHBOR:
+                return row[Math.min((int) (p + 0.5), sourceImageWidth - 1)];
+            case LINEAR: {
+                final int p0 = Math.min((int) p, sourceImageWidth - 2);
+                return Maths.interpolationLinear(row[p0], row[p0 + 1], p - p0);
+            }
+            case CUBIC:
+            case CUBIC2: {
+                final int p1 = Math.min((int) p, sourceImageWidth - 1);
+                final int p0 = Math.max(p1 - 1, 0);
+                final int p2 = Math.min(p1 + 1, sourceImageWidth - 1);
+                final int p3 = Math.min(p1 + 2, sourceImageWidth - 1);
+                final double mu = Math.min(p - p1, 1.0);
+                if (interpMethod == SRGROp.Interpolation.CUBIC) {
+                    return Maths.interpolationCubic(row[p0], row[p1], row[p2], row[p3], mu);
+                }
+                return Maths.interpolationCubic2(row[p0], row[p1], row[p2], row[p3], mu);
+            }
+            default: { // SINC
+                final int p2 = Math.min((int) (p + 0.5), sourceImageWidth - 1);
+                final int p0 = Math.max(p2 - 2, 0);
+                final int p1 = Math.max(p2 - 1, 0);
+                final int p3 = Math.min(p2 + 1, sourceImageWidth - 1);
+                final int p4 = Math.min(p2 + 2, sourceImageWidth - 1);
+                return Maths.interpolationSinc(row[p0], row[p1], row[p2], row[p3], row[p4], p - p2);
+            }
+        }
+    }
+
+    /**
+     * Tests the precomputed resampling kernels against the per-pixel interpolation on random rows.
+     */
+    @Test
+    public void testResamplingKernels() {
+        final Random random = new Random(5);
+        final int sourceImageWidth = 40;
+
+        // random positions over the row, then positions in the last two columns where the taps are clamped
+        final double[] positions = new double[60];
+        for (int x = 0; x < 50; x++) {
+            positions[x] = (sourceImageWidth - 1) * random.nextDouble();
+        }
+        final double[] edgePositions = {0.0, 0.3, sourceImageWidth - 2.6, sourceImageWidth - 2.0,
+                sourceImageWidth - 1.7, sourceImageWidth - 1.5, sourceImageWidth - 1.2, sourceImageWidth - 1.0001,
+                sourceImageWidth - 1.0, sourceImageWidth - 0.8};
+        System.arraycopy(edgePositions, 0, positions, 50, edgePositions.length);
+
+        for (SRGROp.Interpolation interpMethod : SRGROp.Interpolation.values()) {
+            final int kernelSize = SRGROp.getKernelSize(interpMethod);
+            final int[] kernelPixels = new int[positions.length * kernelSize];
+            final double[] kernelWeights = new double[positions.length * kernelSize];
+            SRGROp.computeResamplingKernels(interpMethod, positions, sourceImageWidth, kernelPixels, kernelWeights);
+
+            for (int n = 0; n < 10; n++) {
+                final double[] row = new double[sourceImageWidth];
+                for (int i = 0; i < sourceImageWidth; i++) {
+                    row[i] = 1000.0 * random.nextDouble();
+                }
+
+                for (int x = 0; x < positions.length; x++) {
+                    double v = 0.0;
+                    for (int k = x * kernelSize; k < (x + 1) * kernelSize; k++) {
+                        assertTrue(kernelPixels[k] >= 0 && kernelPixels[k] < sourceImageWidth);
+                        v += kernelWeights[k] * row[kernelPixels[k]];
+                    }
+                    final double expected = interpolatePerPixel(interpMethod, row, positions[x]);
+                    assertEquals(interpMethod + " at " + positions[x], expected, v, 1e-9 * Math.abs(expected) + 1e-9);
+                }
+            }
+        }
+    }
+
     /**
      * Creates a 4-by-16 test product as shown below:
      * 1  2  3  4  5  6  7  8  9 10 11 12 13 14 15 16
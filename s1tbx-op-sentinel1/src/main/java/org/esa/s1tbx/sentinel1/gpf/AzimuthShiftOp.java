@@ -108,7 +108,7 @@ public class AzimuthShiftOp extends Operator {
             cHalfWindowWidth = cWindowWidth / 2;
             cHalfWindowHeight = cWindowHeight / 2;
 
-            su = new Sentinel1Utils(sourceProduct);
+            su = Sentinel1Utils.getInstance(sourceProduct);
             su.computeDopplerRate();
             subSwath = su.getSubSwath();
 
@@ -16,10 +16,9 @@
 package org.esa.s1tbx.sentinel1.gpf;
 
 import com.bc.ceres.core.ProgressMonitor;
-import com.vividsolutions.jts.geom.Coordinate;
-import com.vividsolutions.jts.geom.Geometry;
-import com.vividsolutions.jts.geom.GeometryFactory;
 import org.apache.commons.math3.util.FastMath;
+import org.esa.s1tbx.commons.profiling.TileProfiler;
+import org.esa.s1tbx.commons.profiling.TileTimer;
 import org.esa.s1tbx.insar.gpf.geometric.SARGeocoding;
 import org.esa.s1tbx.insar.gpf.Sentinel1Utils;
 import org.esa.snap.dem.dataio.DEMFactory;
@@ -53,25 +52,24 @@ import org.esa.snap.framework.gpf.annotations.TargetProduct;
 import org.esa.snap.gpf.OperatorUtils;
 import org.esa.snap.gpf.ReaderUtils;
 import org.esa.snap.gpf.StackUtils;
+import org.esa.snap.gpf.ThreadManager;
 import org.esa.snap.gpf.TileIndex;
 import org.esa.snap.util.ProductUtils;
 import org.esa.snap.util.StringUtils;
-import org.jlinda.core.delaunay.FastDelaunayTriangulator;
-import org.jlinda.core.delaunay.Triangle;
-import org.jlinda.core.delaunay.TriangulationException;
+import org.jlinda.core.utils.TriangleUtils;
 
 import java.awt.*;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Map;
 
 /**
  * "Backgeocoding" + "Coregistration" processing blocks in The Sentinel-1 TOPS InSAR processing chain.
  * Burst co-registration is performed using orbits and DEM.
+ * The first source product is the master, all following source products are slaves. The DEM radar-coding
+ * into master geometry and its triangulation are computed once per tile and shared by all slaves.
  */
 @OperatorMetadata(alias = "Back-Geocoding",
         category = "SAR Processing/Coregistration/S-1 TOPS Coregistration",
@@ -126,12 +124,10 @@ public final class BackGeocodingOp extends Operator {
     private Resampling selectedResampling = null;
 
     private Product masterProduct = null;
-    private Product slaveProduct = null;
+    private SlaveData[] slaveData = null;
 
     private Sentinel1Utils mSU = null;
-    private Sentinel1Utils sSU = null;
     private Sentinel1Utils.SubSwathInfo[] mSubSwath = null;
-    private Sentinel1Utils.SubSwathInfo[] sSubSwath = null;
 
     private int numOfSubSwath = 0;
     private String acquisitionMode = null;
@@ -141,16 +137,13 @@ public final class BackGeocodingOp extends Operator {
     private double noDataValue = 0.0;
 
 	private int subSwathIndex = 0;
-    private int burstOffset = 0;
-    private boolean burstOffsetComputed = false;
     private String swathIndexStr = null;
     private String subSwathName = null;
     private String polarization = null;
 
     private SARGeocoding.Orbit mOrbit = null;
-    private SARGeocoding.Orbit sOrbit = null;
 
-    private final double invalidIndex = -9999.0;
+    private static final double invalidIndex = -9999.0;
 
     /**
      * Default constructor. The graph processing framework
@@ -182,46 +175,44 @@ public final class BackGeocodingOp extends Operator {
             checkSourceProductValidity();
 
             masterProduct = sourceProduct[0];
-            slaveProduct = sourceProduct[1];
-
-            mSU = new Sentinel1Utils(masterProduct);
-            sSU = new Sentinel1Utils(slaveProduct);
-            sSU.computeDopplerRate();
-            sSU.computeReferenceTime();
 
+            mSU = Sentinel1Utils.getInstance(masterProduct);
             mOrbit = mSU.getOrbit();
-            sOrbit = sSU.getOrbit();
-            /*
-            outputToFile("c:\\output\\mSensorPosition.dat", mOrbit.sensorPosition);
-            outputToFile("c:\\output\\mSensorVelocity.dat", mOrbit.sensorVelocity);
-            outputToFile("c:\\output\\sSensorPosition.dat", sOrbit.sensorPosition);
-            outputToFile("c:\\output\\sSensorVelocity.dat", sOrbit.sensorVelocity);
-            */
             mSubSwath = mSU.getSubSwath();
-            sSubSwath = sSU.getSubSwath();
-			
+
 			final String[] mSubSwathNames = mSU.getSubSwathNames();
-			final String[] sSubSwathNames = sSU.getSubSwathNames();
-			if (mSubSwathNames.length != 1 || sSubSwathNames.length != 1) {
+			if (mSubSwathNames.length != 1) {
                 throw new OperatorException("Split product is expected.");
             }
-			
-			if (!mSubSwathNames[0].equals(sSubSwathNames[0])) {
-				throw new OperatorException("Same sub-swath is expected.");
-			}
 
 			subSwathName = mSubSwathNames[0];
 			subSwathIndex = 1; // subSwathIndex is always 1 because of split product
             swathIndexStr = mSubSwathNames[0].substring(2);
 
             final String[] mPolarizations = mSU.getPolarizations();
-			final String[] sPolarizations = sSU.getPolarizations();
-			if (!StringUtils.containsIgnoreCase(sPolarizations, mPolarizations[0])) {
-				throw new OperatorException("Same polarization is expected.");
-			}
-
 			polarization = mPolarizations[0];
 
+            // all slaves of the stack share the master geometry computed for each tile
+            slaveData = new SlaveData[sourceProduct.length - 1];
+            for (int i = 0; i < slaveData.length; i++) {
+                final SlaveData slave = new SlaveData(sourceProduct[i + 1], i + 1);
+
+                final String[] sSubSwathNames = slave.su.getSubSwathNames();
+                if (sSubSwathNames.length != 1) {
+                    throw new OperatorException("Split product is expected.");
+                }
+
+                if (!mSubSwathNames[0].equals(sSubSwathNames[0])) {
+                    throw new OperatorException("Same sub-swath is expected.");
+                }
+
+                final String[] sPolarizations = slave.su.getPolarizations();
+                if (!StringUtils.containsIgnoreCase(sPolarizations, polarization)) {
+                    throw new OperatorException("Same polarization is expected.");
+                }
+                slaveData[i] = slave;
+            }
+
             if (externalDEMFile == null) {
                 DEMFactory.checkIfDEMInstalled(demName);
             }
@@ -265,29 +256,40 @@ public final class BackGeocodingOp extends Operator {
      */
     private void checkSourceProductValidity() throws OperatorException {
 
-        if (sourceProduct.length != 2) {
-            throw new OperatorException("Please select two source products");
+        if (sourceProduct.length < 2) {
+            throw new OperatorException("Please select at least two source products");
         }
 
-        MetadataElement mAbsRoot = AbstractMetadata.getAbstractedMetadata(sourceProduct[0]);
-        MetadataElement sAbsRoot = AbstractMetadata.getAbstractedMetadata(sourceProduct[1]);
-
+        final MetadataElement mAbsRoot = AbstractMetadata.getAbstractedMetadata(sourceProduct[0]);
         final String mMission = mAbsRoot.getAttributeString(AbstractMetadata.MISSION);
-        final String sMission = sAbsRoot.getAttributeString(AbstractMetadata.MISSION);
-        if (!mMission.startsWith("SENTINEL-1") || !sMission.startsWith("SENTINEL-1")) {
+        final String mProductType = mAbsRoot.getAttributeString(AbstractMetadata.PRODUCT_TYPE);
+        final String mAcquisitionMode = mAbsRoot.getAttributeString(AbstractMetadata.ACQUISITION_MODE);
+
+        if (!mMission.startsWith("SENTINEL-1")) {
             throw new OperatorException("Source product has invalid mission for Sentinel1 product");
         }
 
-        final String mProductType = mAbsRoot.getAttributeString(AbstractMetadata.PRODUCT_TYPE);
-        final String sProductType = sAbsRoot.getAttributeString(AbstractMetadata.PRODUCT_TYPE);
-        if (!mProductType.equals("SLC") || !sProductType.equals("SLC")) {
+        if (!mProductType.equals("SLC")) {
             throw new OperatorException("Source product should be SLC product");
         }
 
-        final String mAcquisitionMode = mAbsRoot.getAttributeString(AbstractMetadata.ACQUISITION_MODE);
-        final String sAcquisitionMode = sAbsRoot.getAttributeString(AbstractMetadata.ACQUISITION_MODE);
-        if (!mAcquisitionMode.equals(sAcquisitionMode)) {
-            throw new OperatorException("Source products should have the same acquisition modes");
+        for (int i = 1; i < sourceProduct.length; i++) {
+            final MetadataElement sAbsRoot = AbstractMetadata.getAbstractedMetadata(sourceProduct[i]);
+
+            final String sMission = sAbsRoot.getAttributeString(AbstractMetadata.MISSION);
+            if (!sMission.startsWith("SENTINEL-1")) {
+                throw new OperatorException("Source product has invalid mission for Sentinel1 product");
+            }
+
+            final String sProductType = sAbsRoot.getAttributeString(AbstractMetadata.PRODUCT_TYPE);
+            if (!sProductType.equals("SLC")) {
+                throw new OperatorException("Source product should be SLC product");
+            }
+
+            final String sAcquisitionMode = sAbsRoot.getAttributeString(AbstractMetadata.ACQUISITION_MODE);
+            if (!mAcquisitionMode.equals(sAcquisitionMode)) {
+                throw new OperatorException("Source products should have the same acquisition modes");
+            }
         }
         acquisitionMode = mAcquisitionMode;
     }
@@ -321,26 +323,30 @@ public final class BackGeocodingOp extends Operator {
         final int masterBandWidth = masterBand.getSceneRasterWidth();
         final int masterBandHeight = masterBand.getSceneRasterHeight();
 
-        final String[] slaveBandNames = slaveProduct.getBandNames();
-        final String slvSuffix = "_slv1" + StackUtils.getBandTimeStamp(slaveProduct);
-        for (String bandName:slaveBandNames) {
-            final Band srcBand = slaveProduct.getBand(bandName);
-            if (srcBand instanceof VirtualBand) {
-                continue;
-            }
-            final Band targetBand = new Band(
-                    bandName + slvSuffix,
-                    ProductData.TYPE_FLOAT32,
-                    masterBandWidth,
-                    masterBandHeight);
-
-            targetBand.setUnit(srcBand.getUnit());
-            targetBand.setDescription(srcBand.getDescription());
-            targetProduct.addBand(targetBand);
-
-            if(targetBand.getUnit().equals(Unit.IMAGINARY)) {
-                int idx = targetProduct.getBandIndex(targetBand.getName());
-                ReaderUtils.createVirtualIntensityBand(targetProduct, targetProduct.getBandAt(idx-1), targetBand, slvSuffix);
+        for (SlaveData slave : slaveData) {
+            final String[] slaveBandNames = slave.product.getBandNames();
+            for (String bandName : slaveBandNames) {
+                final Band srcBand = slave.product.getBand(bandName);
+                if (srcBand instanceof VirtualBand) {
+                    continue;
+                }
+                final Band targetBand = new Band(
+                        bandName + slave.suffix,
+                        ProductData.TYPE_FLOAT32,
+                        masterBandWidth,
+                        masterBandHeight);
+
+                targetBand.setUnit(srcBand.getUnit());
+                targetBand.setDescription(srcBand.getDescription());
+                targetProduct.addBand(targetBand);
+
+                if (targetBand.getUnit().equals(Unit.IMAGINARY)) {
+                    int idx = targetProduct.getBandIndex(targetBand.getName());
+                    ReaderUtils.createVirtualIntensityBand(
+                            targetProduct, targetProduct.getBandAt(idx - 1), targetBand, slave.suffix);
+                    slave.tgtBandI = targetProduct.getBandAt(idx - 1);
+                    slave.tgtBandQ = targetBand;
+                }
             }
         }
 
@@ -355,47 +361,54 @@ public final class BackGeocodingOp extends Operator {
         ProductUtils.copyProductNodes(masterProduct, targetProduct);
         copySlaveMetadata();
 
-        if (outputRangeAzimuthOffset) {
-            final Band azOffsetBand = new Band(
-                    "azOffset",
-                    ProductData.TYPE_FLOAT32,
-                    masterBandWidth,
-                    masterBandHeight);
-
-            azOffsetBand.setUnit("Index");
-            targetProduct.addBand(azOffsetBand);
-
-            final Band rgOffsetBand = new Band(
-                    "rgOffset",
-                    ProductData.TYPE_FLOAT32,
-                    masterBandWidth,
-                    masterBandHeight);
-
-            rgOffsetBand.setUnit("Index");
-            targetProduct.addBand(rgOffsetBand);
-        }
+        // band names only carry the slave suffix when more than one slave is processed
+        for (SlaveData slave : slaveData) {
+            final String suffix = slaveData.length > 1 ? slave.suffix : "";
+
+            if (outputRangeAzimuthOffset) {
+                slave.tgtAzOffsetBand = new Band(
+                        "azOffset" + suffix,
+                        ProductData.TYPE_FLOAT32,
+                        masterBandWidth,
+                        masterBandHeight);
+
+                slave.tgtAzOffsetBand.setUnit("Index");
+                targetProduct.addBand(slave.tgtAzOffsetBand);
 
-        if (outputDerampDemodPhase) {
-            final Band phaseBand = new Band(
-                    "derampDemodPhase",
-                    ProductData.TYPE_FLOAT32,
-                    masterBandWidth,
-                    masterBandHeight);
+                slave.tgtRgOffsetBand = new Band(
+                        "rgOffset" + suffix,
+                        ProductData.TYPE_FLOAT32,
+                        masterBandWidth,
+                        masterBandHeight);
 
-            phaseBand.setUnit("radian");
-            targetProduct.addBand(phaseBand);
+                slave.tgtRgOffsetBand.setUnit("Index");
+                targetProduct.addBand(slave.tgtRgOffsetBand);
+            }
+
+            if (outputDerampDemodPhase) {
+                slave.tgtPhaseBand = new Band(
+                        "derampDemodPhase" + suffix,
+                        ProductData.TYPE_FLOAT32,
+                        masterBandWidth,
+                        masterBandHeight);
+
+                slave.tgtPhaseBand.setUnit("radian");
+                targetProduct.addBand(slave.tgtPhaseBand);
+            }
         }
     }
 
     private void copySlaveMetadata() {
 
         final MetadataElement targetSlaveMetadataRoot = AbstractMetadata.getSlaveMetadata(targetProduct.getMetadataRoot());
-        final MetadataElement slvAbsMetadata = AbstractMetadata.getAbstractedMetadata(slaveProduct);
-        if (slvAbsMetadata != null) {
-            final String timeStamp = StackUtils.getBandTimeStamp(slaveProduct);
-            final MetadataElement targetSlaveMetadata = new MetadataElement(slaveProduct.getName() + timeStamp);
-            targetSlaveMetadataRoot.addElement(targetSlaveMetadata);
-            ProductUtils.copyMetadata(slvAbsMetadata, targetSlaveMetadata);
+        for (SlaveData slave : slaveData) {
+            final MetadataElement slvAbsMetadata = AbstractMetadata.getAbstractedMetadata(slave.product);
+            if (slvAbsMetadata != null) {
+                final String timeStamp = StackUtils.getBandTimeStamp(slave.product);
+                final MetadataElement targetSlaveMetadata = new MetadataElement(slave.product.getName() + timeStamp);
+                targetSlaveMetadataRoot.addElement(targetSlaveMetadata);
+                ProductUtils.copyMetadata(slvAbsMetadata, targetSlaveMetadata);
+            }
         }
     }
 
@@ -408,12 +421,14 @@ public final class BackGeocodingOp extends Operator {
         AbstractMetadata.setAttribute(absTgt, AbstractMetadata.coregistered_stack, 1);
 
         final MetadataElement inputElem = ProductInformation.getInputProducts(targetProduct);
-        final MetadataElement slvInputElem = ProductInformation.getInputProducts(slaveProduct);
-        final MetadataAttribute[] slvInputProductAttrbList = slvInputElem.getAttributes();
-        for (MetadataAttribute attrib : slvInputProductAttrbList) {
-            final MetadataAttribute inputAttrb = AbstractMetadata.addAbstractedAttribute(
-                    inputElem, "InputProduct", ProductData.TYPE_ASCII, "", "");
-            inputAttrb.getData().setElems(attrib.getData().getElemString());
+        for (SlaveData slave : slaveData) {
+            final MetadataElement slvInputElem = ProductInformation.getInputProducts(slave.product);
+            final MetadataAttribute[] slvInputProductAttrbList = slvInputElem.getAttributes();
+            for (MetadataAttribute attrib : slvInputProductAttrbList) {
+                final MetadataAttribute inputAttrb = AbstractMetadata.addAbstractedAttribute(
+                        inputElem, "InputProduct", ProductData.TYPE_ASCII, "", "");
+                inputAttrb.getData().setElems(attrib.getData().getElemString());
+            }
         }
     }
 
@@ -432,6 +447,7 @@ public final class BackGeocodingOp extends Operator {
      public void computeTileStack(Map<Band, Tile> targetTileMap, Rectangle targetRectangle, ProgressMonitor pm)
              throws OperatorException {
 
+        final TileTimer timer = TileProfiler.startTile(this);
         try {
             final int tx0 = targetRectangle.x;
             final int ty0 = targetRectangle.y;
@@ -441,15 +457,24 @@ public final class BackGeocodingOp extends Operator {
             //System.out.println("tx0 = " + tx0 + ", ty0 = " + ty0 + ", tw = " + tw + ", th = " + th);
 
             if (!isElevationModelAvailable) {
-                if (mSU.getPolarizations().length != 1 || sSU.getPolarizations().length != 1) {
+                if (mSU.getPolarizations().length != 1) {
                     throw new OperatorException("Split product with one polarization is expected.");
                 }
+                for (SlaveData slave : slaveData) {
+                    if (slave.su.getPolarizations().length != 1) {
+                        throw new OperatorException("Split product with one polarization is expected.");
+                    }
+                }
 
+                final long demStart = timer.start();
                 getElevationModel();
+                timer.stop(TileProfiler.Stage.DEM, demStart);
             }
 
-            if (!burstOffsetComputed) {
-                computeBurstOffset();
+            for (SlaveData slave : slaveData) {
+                if (!slave.burstOffsetComputed) {
+                    computeBurstOffset(slave);
+                }
             }
 
             for (int burstIndex = 0; burstIndex < mSubSwath[subSwathIndex - 1].numOfBursts; burstIndex++) {
@@ -470,13 +495,33 @@ public final class BackGeocodingOp extends Operator {
                 double[] extendedAmount = {0.0, 0.0, 0.0, 0.0};
                 computeExtendedAmount(ntx0, nty0, ntw, nth, extendedAmount);
 
-                computePartialTile(subSwathIndex, burstIndex, ntx0, nty0, ntw, nth, targetTileMap,
-                        extendedAmount, pm);
+                final MasterGeometry masterGeometry = computeMasterGeometry(
+                        subSwathIndex, burstIndex, ntx0, nty0, ntw, nth, extendedAmount, timer);
+
+                if (masterGeometry == null) {
+                    continue;
+                }
+
+                if (slaveData.length == 1) {
+                    computePartialTile(slaveData[0], subSwathIndex, burstIndex, masterGeometry, targetTileMap, timer);
+                    continue;
+                }
+
+                checkForCancellation();
+                final int mBurstIndex = burstIndex;
+                computeInParallel(slaveData.length, new PartialTileTask() {
+                    @Override
+                    public void compute(final int slaveIndex) throws Exception {
+                        computePartialTile(slaveData[slaveIndex], subSwathIndex, mBurstIndex, masterGeometry,
+                                targetTileMap, timer);
+                    }
+                });
             }
 
         } catch (Throwable e) {
             OperatorUtils.catchOperatorException(getId(), e);
         } finally {
+            timer.finish();
             pm.done();
         }
     }
@@ -512,9 +557,9 @@ public final class BackGeocodingOp extends Operator {
         isElevationModelAvailable = true;
     }
 
-    private synchronized void computeBurstOffset() throws Exception {
+    private synchronized void computeBurstOffset(final SlaveData slave) throws Exception {
 
-        if (burstOffsetComputed) return;
+        if (slave.burstOffsetComputed) return;
         try {
             final int h = mSubSwath[subSwathIndex - 1].latitude.length;
             final int w = mSubSwath[subSwathIndex - 1].latitude[0].length;
@@ -529,7 +574,7 @@ public final class BackGeocodingOp extends Operator {
                     }
                     GeoUtils.geo2xyzWGS84(lat, lon, alt, earthPoint);
                     final BurstIndices mBurstIndices = getBurstIndices(subSwathIndex, mSU, mOrbit, earthPoint);
-                    final BurstIndices sBurstIndices = getBurstIndices(subSwathIndex, sSU, sOrbit, earthPoint);
+                    final BurstIndices sBurstIndices = getBurstIndices(subSwathIndex, slave.su, slave.orbit, earthPoint);
                     if (mBurstIndices == null || sBurstIndices == null ||
                             (mBurstIndices.firstBurstIndex == -1 && mBurstIndices.secondBurstIndex == -1) ||
                             (sBurstIndices.firstBurstIndex == -1 && sBurstIndices.secondBurstIndex == -1 )) {
@@ -537,21 +582,21 @@ public final class BackGeocodingOp extends Operator {
                     }
 
                     if (mBurstIndices.inUpperPartOfFirstBurst == sBurstIndices.inUpperPartOfFirstBurst) {
-                        burstOffset = sBurstIndices.firstBurstIndex - mBurstIndices.firstBurstIndex;
+                        slave.burstOffset = sBurstIndices.firstBurstIndex - mBurstIndices.firstBurstIndex;
                     } else if (sBurstIndices.secondBurstIndex != -1 &&
                             mBurstIndices.inUpperPartOfFirstBurst == sBurstIndices.inUpperPartOfSecondBurst) {
-                        burstOffset = sBurstIndices.secondBurstIndex - mBurstIndices.firstBurstIndex;
+                        slave.burstOffset = sBurstIndices.secondBurstIndex - mBurstIndices.firstBurstIndex;
                     } else if (mBurstIndices.secondBurstIndex != -1 &&
                             mBurstIndices.inUpperPartOfSecondBurst == sBurstIndices.inUpperPartOfFirstBurst) {
-                        burstOffset = sBurstIndices.firstBurstIndex - mBurstIndices.secondBurstIndex;
+                        slave.burstOffset = sBurstIndices.firstBurstIndex - mBurstIndices.secondBurstIndex;
                     } else if (mBurstIndices.secondBurstIndex != -1 && sBurstIndices.secondBurstIndex != -1 &&
                             mBurstIndices.inUpperPartOfSecondBurst == sBurstIndices.inUpperPartOfSecondBurst) {
-                        burstOffset = sBurstIndices.secondBurstIndex - mBurstIndices.secondBurstIndex;
+                        slave.burstOffset = sBurstIndices.secondBurstIndex - mBurstIndices.secondBurstIndex;
                     } else {
                         continue;
                     }
 
-                    burstOffsetComputed = true;
+                    slave.burstOffsetComputed = true;
                     return;
                 }
             }
@@ -689,50 +734,81 @@ public final class BackGeocodingOp extends Operator {
                 (y - burstIndex * subSwath.linesPerBurst) * subSwath.azimuthTimeInterval;
     }
 
+    /**
+     * Run a task for each slave, one thread per slave. A failure of any task is rethrown on the calling thread
+     * once all the tasks have finished.
+     *
+     * @param numSlaves The number of slaves.
+     * @param task      The task.
+     * @throws Throwable The first failure of a task, in slave order.
+     */
+    static void computeInParallel(final int numSlaves, final PartialTileTask task) throws Throwable {
+
+        final ThreadManager threadManager = new ThreadManager();
+        final SlaveWorker[] workers = new SlaveWorker[numSlaves];
+        for (int i = 0; i < numSlaves; i++) {
+            workers[i] = new SlaveWorker(i, task);
+            threadManager.add(workers[i]);
+        }
+        threadManager.finish();
+
+        for (SlaveWorker worker : workers) {
+            if (worker.error != null) {
+                throw worker.error;
+            }
+        }
+    }
+
     private double getSlantRangeTime(final int x) {
         return mSubSwath[subSwathIndex - 1].slrTimeToFirstPixel + x * mSU.rangeSpacing / Constants.lightSpeed;
     }
 
-    private void computePartialTile(final int subSwathIndex, final int mBurstIndex,
-                                    final int x0, final int y0, final int w, final int h,
-                                    final Map<Band, Tile> targetTileMap,
-                                    final double[] extendedAmount,
-                                    ProgressMonitor pm)
+    private void computePartialTile(final SlaveData slave, final int subSwathIndex, final int mBurstIndex,
+                                    final MasterGeometry masterGeometry, final Map<Band, Tile> targetTileMap,
+                                    final TileTimer timer)
             throws Exception {
 
-        final int sBurstIndex = mBurstIndex + burstOffset;
-        if (sBurstIndex < 0 || sBurstIndex >= sSubSwath[subSwathIndex - 1].numOfBursts) {
+        final int sBurstIndex = mBurstIndex + slave.burstOffset;
+        if (sBurstIndex < 0 || sBurstIndex >= slave.subSwath[subSwathIndex - 1].numOfBursts) {
             return;
         }
 
-        final PixelPos[][] slavePixPos = computeSlavePixPos(
-                subSwathIndex, mBurstIndex, sBurstIndex, x0, y0, w, h, extendedAmount, pm);
+        final long orbitStart = timer.start();
+        final PixelPos[][] slavePixPos = computeSlavePixPos(slave, subSwathIndex, sBurstIndex, masterGeometry);
+        timer.stop(TileProfiler.Stage.ORBIT, orbitStart);
 
         if (slavePixPos == null) {
             return;
         }
 
+        final int x0 = masterGeometry.x0;
+        final int y0 = masterGeometry.y0;
+        final int w = masterGeometry.w;
+        final int h = masterGeometry.h;
+
         if (outputRangeAzimuthOffset) {
-            outputRangeAzimuthOffsets(x0, y0, w, h, targetTileMap, slavePixPos, subSwathIndex, mBurstIndex, sBurstIndex);
+            outputRangeAzimuthOffsets(slave, x0, y0, w, h, targetTileMap, slavePixPos);
         }
 
         final int margin = selectedResampling.getKernelSize();
-        final Rectangle sourceRectangle = getBoundingBox(slavePixPos, margin, subSwathIndex, sBurstIndex);
+        final Rectangle sourceRectangle = getBoundingBox(slave, slavePixPos, margin, subSwathIndex, sBurstIndex);
 
         if (sourceRectangle == null) {
             return;
         }
 
-        final double[][] derampDemodPhase = computeDerampDemodPhase(subSwathIndex, sBurstIndex, sourceRectangle);
+        final double[][] derampDemodPhase = computeDerampDemodPhase(slave, subSwathIndex, sBurstIndex, sourceRectangle);
 
         if (derampDemodPhase == null) {
             return;
         }
 
-        final Band slaveBandI = getBand(slaveProduct, "i_", swathIndexStr, polarization);
-        final Band slaveBandQ = getBand(slaveProduct, "q_", swathIndexStr, polarization);
+        final Band slaveBandI = getBand(slave.product, "i_", swathIndexStr, polarization);
+        final Band slaveBandQ = getBand(slave.product, "q_", swathIndexStr, polarization);
+        final long sourceStart = timer.start();
         final Tile slaveTileI = getSourceTile(slaveBandI, sourceRectangle);
         final Tile slaveTileQ = getSourceTile(slaveBandQ, sourceRectangle);
+        timer.stop(TileProfiler.Stage.SOURCE_TILE, sourceStart);
 
         if (slaveTileI == null || slaveTileQ == null) {
             return;
@@ -743,13 +819,17 @@ public final class BackGeocodingOp extends Operator {
 
         performDerampDemod(slaveTileI, slaveTileQ, sourceRectangle, derampDemodPhase, derampDemodI, derampDemodQ);
 
-        performInterpolation(x0, y0, w, h, sourceRectangle, slaveTileI, slaveTileQ, targetTileMap, derampDemodPhase,
-                derampDemodI, derampDemodQ, slavePixPos, subSwathIndex, sBurstIndex);
+        performInterpolation(slave, x0, y0, w, h, sourceRectangle, slaveTileI, slaveTileQ, targetTileMap,
+                derampDemodPhase, derampDemodI, derampDemodQ, slavePixPos, subSwathIndex, sBurstIndex);
     }
 
-    private PixelPos[][] computeSlavePixPos(final int subSwathIndex, final int mBurstIndex, final int sBurstIndex,
-                                            final int x0, final int y0, final int w, final int h,
-                                            final double[] extendedAmount, ProgressMonitor pm)
+    /**
+     * Radar-code the DEM points covering the given master tile into master geometry and triangulate them.
+     * The result only depends on the master and is shared by all slaves of the stack.
+     */
+    private MasterGeometry computeMasterGeometry(final int subSwathIndex, final int mBurstIndex,
+                                                 final int x0, final int y0, final int w, final int h,
+                                                 final double[] extendedAmount, final TileTimer timer)
             throws Exception {
 
         try {
@@ -786,84 +866,160 @@ public final class BackGeocodingOp extends Operator {
             // get its lat/lon and its azimuth/range indices in target image;
             final int numLines = latMinIdx - latMaxIdx;
             final int numPixels = lonMaxIdx - lonMinIdx;
-            double[][] masterAz = new double[numLines][numPixels];
-            double[][] masterRg = new double[numLines][numPixels];
-            double[][] slaveAz = new double[numLines][numPixels];
-            double[][] slaveRg = new double[numLines][numPixels];
-            double[][] lat = new double[numLines][numPixels];
-            double[][] lon = new double[numLines][numPixels];
+            if (numLines <= 0 || numPixels <= 0) {
+                return null;
+            }
+
+            final MasterGeometry geometry = new MasterGeometry(x0, y0, w, h, numLines, numPixels);
+            final double[] masterAz = new double[numLines*numPixels];
+            final double[] masterRg = new double[numLines*numPixels];
+            final double[] lat = new double[numLines*numPixels];
+            final double[] lon = new double[numLines*numPixels];
+            final double[] alt = new double[numLines*numPixels];
             final PositionData posData = new PositionData();
             final PixelPos pix = new PixelPos();
 
-            boolean noValidSlavePixPos = true;
+            // read the DEM points first and radar-code them after, so the profiler can tell the two apart
+            final long demStart = timer.start();
             for (int l = 0; l < numLines; l++) {
                 for (int p = 0; p < numPixels; p++) {
+                    final int k = l*numPixels + p;
 
                     pix.setLocation(lonMinIdx + p, latMaxIdx + l);
                     GeoPos gp = dem.getGeoPos(pix);
-                    lat[l][p] = gp.lat;
-                    lon[l][p] = gp.lon;
-                    final double alt = dem.getElevation(gp);
+                    lat[k] = gp.lat;
+                    lon[k] = gp.lon;
+                    alt[k] = dem.getElevation(gp);
+                }
+            }
+            timer.stop(TileProfiler.Stage.DEM, demStart);
 
-                    if (alt != demNoDataValue) {
-                        GeoUtils.geo2xyzWGS84(gp.lat, gp.lon, alt, posData.earthPoint);
-                        if(getPosition(subSwathIndex, mBurstIndex, mSU, mOrbit, posData)) {
+            final long orbitStart = timer.start();
+            boolean noValidMasterPixPos = true;
+            for (int l = 0; l < numLines; l++) {
+                for (int p = 0; p < numPixels; p++) {
+                    final int k = l*numPixels + p;
 
-                            masterAz[l][p] = posData.azimuthIndex;
-                            masterRg[l][p] = posData.rangeIndex;
-                            if (getPosition(subSwathIndex, sBurstIndex, sSU, sOrbit, posData)) {
+                    if (alt[k] != demNoDataValue) {
+                        GeoUtils.geo2xyzWGS84(lat[k], lon[k], alt[k], posData.earthPoint);
+                        if(getPosition(subSwathIndex, mBurstIndex, mSU, mOrbit, posData)) {
 
-                                slaveAz[l][p] = posData.azimuthIndex;
-                                slaveRg[l][p] = posData.rangeIndex;
-                                noValidSlavePixPos = false;
-                                continue;
-                            }
+                            masterAz[k] = posData.azimuthIndex;
+                            masterRg[k] = posData.rangeIndex;
+                            geometry.earthPoint[3*k] = posData.earthPoint.x;
+                            geometry.earthPoint[3*k + 1] = posData.earthPoint.y;
+                            geometry.earthPoint[3*k + 2] = posData.earthPoint.z;
+                            geometry.validNode[k] = true;
+                            noValidMasterPixPos = false;
+                            continue;
                         }
                     }
 
-                    masterAz[l][p] = invalidIndex;
-                    masterRg[l][p] = invalidIndex;
+                    masterAz[k] = invalidIndex;
+                    masterRg[k] = invalidIndex;
                 }
             }
+            timer.stop(TileProfiler.Stage.ORBIT, orbitStart);
 
-            if (noValidSlavePixPos) {
+            if (noValidMasterPixPos) {
                 return null;
             }
 
-            // Compute azimuth/range offsets for pixels in target tile using Delaunay interpolation
+            // Locate every pixel of the target tile in the triangulation of the DEM lattice
             final org.jlinda.core.Window tileWindow = new org.jlinda.core.Window(y0, y0 + h - 1, x0, x0 + w - 1);
 
             //final double rgAzRatio = computeRangeAzimuthSpacingRatio(w, h, latLonMinMax);
             final double rgAzRatio = mSU.rangeSpacing / mSU.azimuthSpacing;
 
-            final double[][] latArray = new double[(int)tileWindow.lines()][(int)tileWindow.pixels()];
-            final double[][] lonArray = new double[(int)tileWindow.lines()][(int)tileWindow.pixels()];
-            final double[][] azArray = new double[(int)tileWindow.lines()][(int)tileWindow.pixels()];
-            final double[][] rgArray = new double[(int)tileWindow.lines()][(int)tileWindow.pixels()];
-            for (double[] data : azArray) {
-                Arrays.fill(data, invalidIndex);
+            if (!TriangleUtils.gridDataWeights(
+                    masterAz, masterRg, numLines, numPixels, tileWindow, rgAzRatio, 1, 1, invalidIndex, 0,
+                    geometry.vertices, geometry.weights)) {
+                return null;
+            }
+
+            final long maskStart = timer.start();
+            boolean allElementsAreNull = true;
+            for (int k = 0; k < w*h; k++) {
+                if (geometry.vertices[3*k] < 0) {
+                    continue;
+                }
+
+                if (maskOutAreaWithoutElevation) {
+                    final double tileLat = geometry.interpolate(k, lat);
+                    final double tileLon = geometry.interpolate(k, lon);
+                    if (dem.getElevation(new GeoPos(tileLat, tileLon)) == demNoDataValue) {
+                        geometry.vertices[3*k] = -1;
+                        continue;
+                    }
+                }
+                allElementsAreNull = false;
+            }
+            if (maskOutAreaWithoutElevation) {
+                timer.stop(TileProfiler.Stage.DEM, maskStart);
+            }
+
+            if (allElementsAreNull) {
+                return null;
             }
-            for (double[] data : rgArray) {
-                Arrays.fill(data, invalidIndex);
+
+            return geometry;
+
+        } catch (Throwable e) {
+            OperatorUtils.catchOperatorException("computeMasterGeometry", e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Project the DEM points of the shared master geometry into the slave burst and interpolate the slave
+     * pixel positions for the target tile.
+     */
+    private PixelPos[][] computeSlavePixPos(final SlaveData slave, final int subSwathIndex, final int sBurstIndex,
+                                            final MasterGeometry geometry)
+            throws Exception {
+
+        try {
+            final int numNodes = geometry.validNode.length;
+            final double[] slaveAz = new double[numNodes];
+            final double[] slaveRg = new double[numNodes];
+            final PositionData posData = new PositionData();
+
+            boolean noValidSlavePixPos = true;
+            for (int k = 0; k < numNodes; k++) {
+                if (geometry.validNode[k]) {
+                    posData.earthPoint.set(
+                            geometry.earthPoint[3*k], geometry.earthPoint[3*k + 1], geometry.earthPoint[3*k + 2]);
+
+                    if (getPosition(subSwathIndex, sBurstIndex, slave.su, slave.orbit, posData)) {
+                        slaveAz[k] = posData.azimuthIndex;
+                        slaveRg[k] = posData.rangeIndex;
+                        noValidSlavePixPos = false;
+                        continue;
+                    }
+                }
+
+                slaveAz[k] = invalidIndex;
+                slaveRg[k] = invalidIndex;
             }
 
-            TriangleUtils.gridDataLinear(
-                    masterAz, masterRg, slaveAz, slaveRg, lat, lon, azArray, rgArray, latArray, lonArray,
-                    tileWindow, rgAzRatio, 1, 1, invalidIndex, 0);
+            if (noValidSlavePixPos) {
+                return null;
+            }
 
+            final int w = geometry.w;
+            final int h = geometry.h;
             boolean allElementsAreNull = true;
             final PixelPos[][] slavePixelPos = new PixelPos[h][w];
 
-            double alt = 0;
             for(int yy = 0; yy < h; yy++) {
                 for (int xx = 0; xx < w; xx++) {
-                    if(maskOutAreaWithoutElevation) {
-                        alt = dem.getElevation(new GeoPos(latArray[yy][xx], lonArray[yy][xx]));
-                    }
-                    if (rgArray[yy][xx] == invalidIndex || azArray[yy][xx] == invalidIndex || (maskOutAreaWithoutElevation && alt == demNoDataValue)) {
+                    final int k = yy*w + xx;
+                    if (!geometry.isCovered(k, slaveAz)) {
                         slavePixelPos[yy][xx] = null;
                     } else {
-                        slavePixelPos[yy][xx] = new PixelPos(rgArray[yy][xx], azArray[yy][xx]);
+                        slavePixelPos[yy][xx] = new PixelPos(
+                                geometry.interpolate(k, slaveRg), geometry.interpolate(k, slaveAz));
                         allElementsAreNull = false;
                     }
                 }
@@ -989,13 +1145,14 @@ public final class BackGeocodingOp extends Operator {
     /**
      * Get the source rectangle in slave image that contains all the given pixels.
      */
-    private Rectangle getBoundingBox(
-            final PixelPos[][] slavePixPos, final int margin, final int subSwathIndex, final int sBurstIndex) {
+    private static Rectangle getBoundingBox(final SlaveData slave, final PixelPos[][] slavePixPos, final int margin,
+                                            final int subSwathIndex, final int sBurstIndex) {
 
-        final int firstLineIndex = sBurstIndex*sSubSwath[subSwathIndex - 1].linesPerBurst;
-        final int lastLineIndex = firstLineIndex + sSubSwath[subSwathIndex - 1].linesPerBurst - 1;
+        final Sentinel1Utils.SubSwathInfo sSubSwath = slave.subSwath[subSwathIndex - 1];
+        final int firstLineIndex = sBurstIndex*sSubSwath.linesPerBurst;
+        final int lastLineIndex = firstLineIndex + sSubSwath.linesPerBurst - 1;
         final int firstPixelIndex = 0;
-        final int lastPixelIndex = sSubSwath[subSwathIndex - 1].samplesPerBurst - 1;
+        final int lastPixelIndex = sSubSwath.samplesPerBurst - 1;
 
         int minX = Integer.MAX_VALUE;
         int maxX = -Integer.MAX_VALUE;
@@ -1038,13 +1195,14 @@ public final class BackGeocodingOp extends Operator {
 
     /**
      * Compute combined deramp and demodulation phase for area in slave image defined by rectangle.
+     * @param slave The slave product
      * @param subSwathIndex Sub-swath index
      * @param sBurstIndex Burst index
      * @param rectangle Rectangle that defines the area in slave image
      * @return The combined deramp and demodulation phase
      */
-    private double[][] computeDerampDemodPhase(
-            final int subSwathIndex, final int sBurstIndex, final Rectangle rectangle) {
+    private static double[][] computeDerampDemodPhase(
+            final SlaveData slave, final int subSwathIndex, final int sBurstIndex, final Rectangle rectangle) {
 
         try {
             final int x0 = rectangle.x;
@@ -1054,6 +1212,7 @@ public final class BackGeocodingOp extends Operator {
             final int xMax = x0 + w;
             final int yMax = y0 + h;
             final int s = subSwathIndex - 1;
+            final Sentinel1Utils.SubSwathInfo[] sSubSwath = slave.subSwath;
 
             final double[][] phase = new double[h][w];
             final int firstLineInBurst = sBurstIndex*sSubSwath[s].linesPerBurst;
@@ -1110,7 +1269,7 @@ public final class BackGeocodingOp extends Operator {
         }
     }
 
-    private void performInterpolation(final int x0, final int y0, final int w, final int h,
+    private void performInterpolation(final SlaveData slave, final int x0, final int y0, final int w, final int h,
                                       final Rectangle sourceRectangle, final Tile slaveTileI, final Tile slaveTileQ,
                                       final Map<Band, Tile> targetTileMap, final double[][] derampDemodPhase,
                                       final double[][] derampDemodI, final double[][] derampDemodQ,
@@ -1121,20 +1280,9 @@ public final class BackGeocodingOp extends Operator {
             final ResamplingRaster resamplingRasterQ = new ResamplingRaster(slaveTileQ, derampDemodQ);
             final ResamplingRaster resamplingRasterPhase = new ResamplingRaster(slaveTileI, derampDemodPhase);
 
-            final Band[] targetBands = targetProduct.getBands();
-            Band iBand = null;
-            Band qBand = null;
-            Band phaseBand = null;
-            for (Band band : targetBands) {
-                final String bandName = band.getName();
-                if (bandName.contains("i_") && bandName.contains("_slv")) {
-                    iBand = band;
-                } else if (bandName.contains("q_") && bandName.contains("_slv")) {
-                    qBand = band;
-                } else if (bandName.contains("derampDemodPhase")) {
-                    phaseBand = band;
-                }
-            }
+            final Band iBand = slave.tgtBandI;
+            final Band qBand = slave.tgtBandQ;
+            final Band phaseBand = slave.tgtPhaseBand;
 
             if (iBand == null || qBand == null) {
                 return;
@@ -1172,7 +1320,7 @@ public final class BackGeocodingOp extends Operator {
                         continue;
                     }
 
-                    if (isSlavePixPosValid(slavePixelPos, subswathIndex, sBurstIndex)) {
+                    if (isSlavePixPosValid(slave, slavePixelPos, subswathIndex, sBurstIndex)) {
 
                         selectedResampling.computeIndex(
                                 slavePixelPos.x - sourceRectangle.x, slavePixelPos.y - sourceRectangle.y,
@@ -1227,27 +1375,25 @@ public final class BackGeocodingOp extends Operator {
         return null;
     }
 
-    private boolean isSlavePixPosValid(final PixelPos slavePixPos, final int subswathIndex, final int sBurstIndex) {
+    private static boolean isSlavePixPosValid(final SlaveData slave, final PixelPos slavePixPos,
+                                              final int subswathIndex, final int sBurstIndex) {
+        final int linesPerBurst = slave.subSwath[subswathIndex - 1].linesPerBurst;
         return (slavePixPos != null &&
-                slavePixPos.y >= sSubSwath[subswathIndex - 1].linesPerBurst*sBurstIndex &&
-                slavePixPos.y < sSubSwath[subswathIndex - 1].linesPerBurst*(sBurstIndex+1));
+                slavePixPos.y >= linesPerBurst*sBurstIndex &&
+                slavePixPos.y < linesPerBurst*(sBurstIndex+1));
     }
 
-    private void outputRangeAzimuthOffsets(final int x0, final int y0, final int w, final int h,
-                                           final Map<Band, Tile> targetTileMap, final PixelPos[][] slavePixPos,
-                                           final int subSwathIndex, final int mBurstIndex, final int sBurstIndex) {
+    private void outputRangeAzimuthOffsets(final SlaveData slave, final int x0, final int y0, final int w, final int h,
+                                           final Map<Band, Tile> targetTileMap, final PixelPos[][] slavePixPos) {
 
         try {
-            final Band azOffsetBand = targetProduct.getBand("azOffset");
-            final Band rgOffsetBand = targetProduct.getBand("rgOffset");
+            final Band azOffsetBand = slave.tgtAzOffsetBand;
+            final Band rgOffsetBand = slave.tgtRgOffsetBand;
 
             if (azOffsetBand == null || rgOffsetBand == null) {
                 return;
             }
 
-            Sentinel1Utils.SubSwathInfo mSubSwath = mSU.getSubSwath()[subSwathIndex - 1];
-            Sentinel1Utils.SubSwathInfo sSubSwath = sSU.getSubSwath()[subSwathIndex - 1];
-
             final Tile tgtTileAzOffset = targetTileMap.get(azOffsetBand);
             final Tile tgtTileRgOffset = targetTileMap.get(rgOffsetBand);
             final ProductData tgtBufferAzOffset = tgtTileAzOffset.getDataBuffer();
@@ -1300,6 +1446,108 @@ public final class BackGeocodingOp extends Operator {
         double rangeIndex;
     }
 
+    /**
+     * DEM points of a master tile radar-coded into master geometry, and the location of every tile pixel
+     * in their triangulation. It is computed once per tile and burst and shared by all slaves.
+     */
+    private static class MasterGeometry {
+        final int x0, y0, w, h;
+        final boolean[] validNode;
+        final double[] earthPoint;
+        final int[] vertices;
+        final double[] weights;
+
+        MasterGeometry(final int x0, final int y0, final int w, final int h,
+                       final int numLines, final int numPixels) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.w = w;
+            this.h = h;
+            this.validNode = new boolean[numLines*numPixels];
+            this.earthPoint = new double[3*numLines*numPixels];
+            this.vertices = new int[3*w*h];
+            this.weights = new double[2*w*h];
+        }
+
+        /**
+         * @return true if tile pixel k lies in a triangle whose vertices all have valid node values.
+         */
+        boolean isCovered(final int k, final double[] nodeValues) {
+            final int vA = vertices[3*k];
+            return vA >= 0 &&
+                    nodeValues[vA] != invalidIndex &&
+                    nodeValues[vertices[3*k + 1]] != invalidIndex &&
+                    nodeValues[vertices[3*k + 2]] != invalidIndex;
+        }
+
+        double interpolate(final int k, final double[] nodeValues) {
+            final double zA = nodeValues[vertices[3*k]];
+            return zA + weights[2*k] * (nodeValues[vertices[3*k + 1]] - zA) +
+                    weights[2*k + 1] * (nodeValues[vertices[3*k + 2]] - zA);
+        }
+    }
+
+    /**
+     * Per-slave state of the stack.
+     */
+    private static class SlaveData {
+        final Product product;
+        final Sentinel1Utils su;
+        final Sentinel1Utils.SubSwathInfo[] subSwath;
+        final SARGeocoding.Orbit orbit;
+        final String suffix;
+
+        int burstOffset = 0;
+        boolean burstOffsetComputed = false;
+
+        Band tgtBandI = null;
+        Band tgtBandQ = null;
+        Band tgtPhaseBand = null;
+        Band tgtAzOffsetBand = null;
+        Band tgtRgOffsetBand = null;
+
+        SlaveData(final Product product, final int slaveIndex) throws Exception {
+            this.product = product;
+            this.su = Sentinel1Utils.getInstance(product);
+            su.computeDopplerRate();
+            su.computeReferenceTime();
+            this.subSwath = su.getSubSwath();
+            this.orbit = su.getOrbit();
+            this.suffix = "_slv" + slaveIndex + StackUtils.getBandTimeStamp(product);
+        }
+    }
+
+    /**
+     * The part of a target tile computed for one slave.
+     */
+    interface PartialTileTask {
+        void compute(final int slaveIndex) throws Exception;
+    }
+
+    /**
+     * Computes the part of a target tile of one slave and keeps its failure for the calling thread.
+     */
+    private static final class SlaveWorker extends Thread {
+
+        private final int slaveIndex;
+        private final PartialTileTask task;
+        Throwable error = null;
+
+        SlaveWorker(final int slaveIndex, final PartialTileTask task) {
+            this.slaveIndex = slaveIndex;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.compute(slaveIndex);
+            } catch (Throwable e) {
+                error = e;
+            }
+        }
+    }
+
     private static class ResamplingRaster implements Resampling.Raster {
 
         private final Tile tile;
@@ -1358,236 +1606,6 @@ public final class BackGeocodingOp extends Operator {
         }
     }
 
-    private static class TriangleUtils {
-
-        public static void gridDataLinear(final double[][] x_in, final double[][] y_in,
-                                          final double[][] z1_in, final double[][] z2_in,
-                                          final double[][] z3_in, final double[][] z4_in,
-                                          final double[][] z1_out, final double[][] z2_out,
-                                          final double[][] z3_out, final double[][] z4_out,
-                                          final org.jlinda.core.Window window, final double xyRatio,
-                                          final int xScale, final int yScale, final double invalidIndex,
-                                          final int offset)
-                throws Exception {
-
-            final FastDelaunayTriangulator FDT = triangulate(x_in, y_in, xyRatio, invalidIndex);
-
-            if (FDT == null) {
-                return;
-            }
-
-            interpolate(xyRatio, window, xScale, yScale, offset, invalidIndex, FDT,
-                    z1_in, z2_in, z3_in, z4_in, z1_out, z2_out, z3_out, z4_out);
-        }
-
-        private static FastDelaunayTriangulator triangulate(final double[][] x_in, final double[][] y_in,
-                                                            final double xyRatio, final double invalidIndex)
-                throws Exception {
-
-            java.util.List<Geometry> list = new ArrayList<>();
-            GeometryFactory gf = new GeometryFactory();
-            for (int i = 0; i < x_in.length; i++) {
-                for (int j = 0; j < x_in[0].length; j++) {
-                    if (x_in[i][j] == invalidIndex || y_in[i][j] == invalidIndex) {
-                        continue;
-                    }
-                    list.add(gf.createPoint(new Coordinate(x_in[i][j], y_in[i][j] * xyRatio, i*x_in[0].length + j)));
-                }
-            }
-
-            if (list.size() < 3) {
-                return null;
-            }
-
-            FastDelaunayTriangulator FDT = new FastDelaunayTriangulator();
-            try {
-                FDT.triangulate(list.iterator());
-            } catch (TriangulationException te) {
-                te.printStackTrace();
-            }
-
-            return FDT;
-        }
-
-        private static void interpolate(final double xyRatio, final org.jlinda.core.Window tileWindow,
-                                        final double xScale, final double yScale, final double offset,
-                                        final double invalidIndex, FastDelaunayTriangulator FDT,
-                                        final double[][] z1_in, final double[][] z2_in,
-                                        final double[][] z3_in, final double[][] z4_in,
-                                        final double[][] z1_out, final double[][] z2_out,
-                                        final double[][] z3_out, final double[][] z4_out) {
-
-            final double x_min = tileWindow.linelo;
-            final double y_min = tileWindow.pixlo;
-
-            int i, j; // counters
-            long i_min, i_max, j_min, j_max; // minimas/maximas
-            double xp, yp;
-            double xkj, ykj, xlj, ylj;
-            double f; // function
-            double a, b, c;
-            double zj, zk, zl, zkj, zlj;
-
-            // containers for xy coordinates of Triangles: p1-p2-p3-p1
-            double[] vx = new double[4];
-            double[] vy = new double[4];
-            double[] vz = new double[3];
-            double[] abc1 = new double[3];
-            double[] abc2 = new double[3];
-            double[] abc3 = new double[3];
-            double[] abc4 = new double[3];
-
-            // declare demRadarCode_phase
-            final int nx = (int) tileWindow.lines();
-            final int ny = (int) tileWindow.pixels();
-
-            // interpolate: loop over triangles
-            for (Triangle triangle : FDT.triangles) {
-
-                // store triangle coordinates in local variables
-                vx[0] = vx[3] = triangle.getA().x;
-                vy[0] = vy[3] = triangle.getA().y / xyRatio;
-
-                vx[1] = triangle.getB().x;
-                vy[1] = triangle.getB().y / xyRatio;
-
-                vx[2] = triangle.getC().x;
-                vy[2] = triangle.getC().y / xyRatio;
-
-                // skip invalid indices
-                if (vx[0] == invalidIndex || vx[1] == invalidIndex || vx[2] == invalidIndex ||
-                    vy[0] == invalidIndex || vy[1] == invalidIndex || vy[2] == invalidIndex) {
-                    continue;
-                }
-
-                // Compute grid indices the current triangle may cover
-                xp = Math.min(Math.min(vx[0], vx[1]), vx[2]);
-                i_min = coordToIndex(xp, x_min, xScale, offset);
-
-                xp = Math.max(Math.max(vx[0], vx[1]), vx[2]);
-                i_max = coordToIndex(xp, x_min, xScale, offset);
-
-                yp = Math.min(Math.min(vy[0], vy[1]), vy[2]);
-                j_min = coordToIndex(yp, y_min, yScale, offset);
-
-                yp = Math.max(Math.max(vy[0], vy[1]), vy[2]);
-                j_max = coordToIndex(yp, y_min, yScale, offset);
-
-                // skip triangle that is above or below the region
-                if ((i_max < 0) || (i_min >= nx)) {
-                    continue;
-                }
-
-                // skip triangle that is on the left or right of the region
-                if ((j_max < 0) || (j_min >= ny)) {
-                    continue;
-                }
-
-                // triangle covers the upper or lower boundary
-                if (i_min < 0) {
-                    i_min = 0;
-                }
-
-                if (i_max >= nx) {
-                    i_max = nx - 1;
-                }
-
-                // triangle covers left or right boundary
-                if (j_min < 0) {
-                    j_min = 0;
-                }
-
-                if (j_max >= ny) {
-                    j_max = ny - 1;
-                }
-
-                // compute plane defined by the three vertices of the triangle: z = ax + by + c
-                xkj = vx[1] - vx[0];
-                ykj = vy[1] - vy[0];
-                xlj = vx[2] - vx[0];
-                ylj = vy[2] - vy[0];
-
-                f = 1.0 / (xkj * ylj - ykj * xlj);
-
-                vz[0] = triangle.getA().z;
-                vz[1] = triangle.getB().z;
-                vz[2] = triangle.getC().z;
-
-                abc1 = getABC(vx, vy, vz, z1_in, f, xkj, ykj, xlj, ylj);
-                abc2 = getABC(vx, vy, vz, z2_in, f, xkj, ykj, xlj, ylj);
-                abc3 = getABC(vx, vy, vz, z3_in, f, xkj, ykj, xlj, ylj);
-                abc4 = getABC(vx, vy, vz, z4_in, f, xkj, ykj, xlj, ylj);
-
-                for (i = (int) i_min; i <= i_max; i++) {
-                    xp = indexToCoord(i, x_min, xScale, offset);
-                    for (j = (int) j_min; j <= j_max; j++) {
-                        yp = indexToCoord(j, y_min, yScale, offset);
-
-                        if (!pointInTriangle(vx, vy, xp, yp)) {
-                            continue;
-                        }
-
-                        z1_out[i][j] = abc1[0] * xp + abc1[1] * yp + abc1[2];
-                        z2_out[i][j] = abc2[0] * xp + abc2[1] * yp + abc2[2];
-                        z3_out[i][j] = abc3[0] * xp + abc3[1] * yp + abc3[2];
-                        z4_out[i][j] = abc4[0] * xp + abc4[1] * yp + abc4[2];
-                    }
-                }
-            }
-        }
-
-        private static double[] getABC(
-                final double[] vx, final double[] vy, final double[] vz, final double[][] z_in,
-                final double f, final double  xkj, final double ykj, final double xlj, final double ylj) {
-
-            final int i0 = (int)(vz[0]/z_in[0].length);
-            final int j0 = (int)(vz[0] - i0*z_in[0].length);
-            final double zj = z_in[i0][j0];
-
-            final int i1 = (int)(vz[1]/z_in[1].length);
-            final int j1 = (int)(vz[1] - i1*z_in[1].length);
-            final double zk = z_in[i1][j1];
-
-            final int i2 = (int)(vz[2]/z_in[2].length);
-            final int j2 = (int)(vz[2] - i2*z_in[2].length);
-            final double zl = z_in[i2][j2];
-
-            final double zkj = zk - zj;
-            final double zlj = zl - zj;
-
-            final double[] abc = new double[3];
-            abc[0] = -f * (ykj * zlj - zkj * ylj);
-            abc[1] = -f * (zkj * xlj - xkj * zlj);
-            abc[2] = -abc[0] * vx[1] - abc[1] * vy[1] + zk;
-
-            return abc;
-        }
-
-        private static boolean pointInTriangle(double[] xt, double[] yt, double x, double y) {
-            int iRet0 = ((xt[2] - xt[0]) * (y - yt[0])) > ((x - xt[0]) * (yt[2] - yt[0])) ? 1 : -1;
-            int iRet1 = ((xt[0] - xt[1]) * (y - yt[1])) > ((x - xt[1]) * (yt[0] - yt[1])) ? 1 : -1;
-            int iRet2 = ((xt[1] - xt[2]) * (y - yt[2])) > ((x - xt[2]) * (yt[1] - yt[2])) ? 1 : -1;
-
-            return (iRet0 > 0 && iRet1 > 0 && iRet2 > 0) || (iRet0 < 0 && iRet1 < 0 && iRet2 < 0);
-        }
-
-        private static long coordToIndex(final double coord, final double coord0, final double deltaCoord, final double offset) {
-            return irint((((coord - coord0) / (deltaCoord)) - offset));
-        }
-
-        private static double indexToCoord(final long idx, final double coord0, final double deltaCoord, final double offset) {
-            return (coord0 + idx * deltaCoord + offset);
-        }
-
-        private static long irint(final double coord) {
-            return ((long) rint(coord));
-        }
-
-        private static double rint(final double coord) {
-            return Math.floor(coord + 0.5);
-        }
-    }
-
     private static class BurstIndices {
         int firstBurstIndex = -1;
         int secondBurstIndex = -1;
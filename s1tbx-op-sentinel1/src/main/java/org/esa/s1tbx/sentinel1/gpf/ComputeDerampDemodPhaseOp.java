@@ -137,7 +137,7 @@ public final class ComputeDerampDemodPhaseOp extends Operator {
         try {
             checkSourceProductValidity();
 
-            su = new Sentinel1Utils(sourceProduct);
+            su = Sentinel1Utils.getInstance(sourceProduct);
             su.computeDopplerRate();
             su.computeReferenceTime();
             subSwath = su.getSubSwath();
@@ -102,7 +102,7 @@ public final class ComputeDerampedAzimuthSpectrumOp extends Operator {
 
             checkSourceProductValidity();
 
-            su = new Sentinel1Utils(sourceProduct);
+            su = Sentinel1Utils.getInstance(sourceProduct);
             su.computeDopplerRate();
             su.computeReferenceTime();
             subSwath = su.getSubSwath();
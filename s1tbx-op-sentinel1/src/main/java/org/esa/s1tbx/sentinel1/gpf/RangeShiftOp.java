@@ -119,7 +119,7 @@ public class RangeShiftOp extends Operator {
             upSamplingFactor = Integer.parseInt(interpFactor);
             gcpTolerance = 1.0 / upSamplingFactor;
 
-            su = new Sentinel1Utils(sourceProduct);
+            su = Sentinel1Utils.getInstance(sourceProduct);
             subSwath = su.getSubSwath();
 
             subSwathNames = su.getSubSwathNames();
@@ -51,7 +51,6 @@ import org.esa.snap.framework.gpf.annotations.TargetProduct;
 import org.esa.snap.gpf.InputProductValidator;
 import org.esa.snap.gpf.OperatorUtils;
 import org.esa.snap.gpf.ReaderUtils;
-import org.esa.snap.gpf.TileIndex;
 import org.esa.snap.util.ProductUtils;
 
 import java.awt.Dimension;
@@ -141,7 +140,7 @@ public final class SliceAssemblyOp extends Operator {
             absRoot = AbstractMetadata.getAbstractedMetadata(sliceProducts[0]);
 
             if (selectedPolarisations == null || selectedPolarisations.length == 0) {
-                final Sentinel1Utils su = new Sentinel1Utils(sliceProducts[0]);
+                final Sentinel1Utils su = Sentinel1Utils.getInstance(sliceProducts[0]);
                 selectedPolarisations = su.getPolarizations();
             }
 
@@ -605,14 +604,111 @@ public final class SliceAssemblyOp extends Operator {
         // 8th row: line = 32;  pixels = 	0	6	12	18	24	29
         // 9th row: line = 36;  pixels = 	0	6	12	18	24	29
 
-        int geoGridLen = 0;
-        final ArrayList<MetadataElement[]> geoGrids = new ArrayList<>();
-        int i = 0;
+        final List<MetadataElement[]> geoGrids = new ArrayList<>();
         for (Product product : sliceProducts) {
-            MetadataElement[] geoGrid = getGeoGridForSwath(product, swath);
+            geoGrids.add(getGeoGridForSwath(product, swath));
+        }
+
+        // the lines of the points of a slice are offset by the heights of the slices before it
+        final int[] lineOffsets = new int[sliceProducts.length];
+        for (int j = 1; j < sliceProducts.length; j++) {
+            lineOffsets[j] = lineOffsets[j - 1] + sliceSwathImageDimMap.get(sliceProducts[j - 1]).get(swath)[0];
+        }
+
+        final GeolocationGrid geoGrid = concatenateGeolocationGrids(geoGrids, lineOffsets);
+        final int newGridWidth = geoGrid.width;
+        final int newGridHeight = geoGrid.height;
+        final float[] newLatList = new float[newGridWidth * newGridHeight];
+        final float[] newLonList = new float[newGridWidth * newGridHeight];
+        final float[] newIncList = new float[newGridWidth * newGridHeight];
+        final float[] newElevList = new float[newGridWidth * newGridHeight];
+        final float[] newslrtList = new float[newGridWidth * newGridHeight];
+
+        final int[] dim = swathAssembledImageDimMap.get(swath);
+        final int sceneRasterWidth = dim[1];
+        final int sceneRasterHeight = dim[0];
+
+        //System.out.println("swath = " + swath + " width = " + sceneRasterWidth + " height = " + sceneRasterHeight);
+
+        final double subSamplingX = (double) sceneRasterWidth / (newGridWidth - 1);
+        final double subSamplingY = (double) sceneRasterHeight / (newGridHeight - 1);
+
+        // the five point lists of the swath share its grid, so the interpolation weights of each tie point are
+        // found once and applied to all of them
+        getListsInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, geoGrid.width, geoGrid.height,
+                geoGrid.x, geoGrid.y, geoGrid.lists, newGridWidth, newGridHeight, subSamplingX, subSamplingY,
+                new float[][]{newLatList, newLonList, newIncList, newElevList, newslrtList});
+
+        final String prefix = swath.equals("") ? swath : swath + "_";
+
+        final TiePointGrid latGrid = new TiePointGrid(prefix + OperatorUtils.TPG_LATITUDE,
+                newGridWidth, newGridHeight, 0.5f, 0.5f, subSamplingX, subSamplingY, newLatList);
+        latGrid.setUnit(Unit.DEGREES);
+        targetProduct.addTiePointGrid(latGrid);
+
+        final TiePointGrid lonGrid = new TiePointGrid(prefix +OperatorUtils.TPG_LONGITUDE,
+                newGridWidth, newGridHeight, 0.5f, 0.5f, subSamplingX, subSamplingY, newLonList, TiePointGrid.DISCONT_AT_180);
+        lonGrid.setUnit(Unit.DEGREES);
+        targetProduct.addTiePointGrid(lonGrid);
+
+        final TiePointGrid incidentAngleGrid = new TiePointGrid(prefix + OperatorUtils.TPG_INCIDENT_ANGLE,
+                newGridWidth, newGridHeight, 0.5f, 0.5f, subSamplingX, subSamplingY, newIncList);
+        incidentAngleGrid.setUnit(Unit.DEGREES);
+        targetProduct.addTiePointGrid(incidentAngleGrid);
+
+        final TiePointGrid elevAngleGrid = new TiePointGrid(prefix + OperatorUtils.TPG_ELEVATION_ANGLE,
+                newGridWidth, newGridHeight, 0.5f, 0.5f, subSamplingX, subSamplingY, newElevList);
+        elevAngleGrid.setUnit(Unit.DEGREES);
+        targetProduct.addTiePointGrid(elevAngleGrid);
+
+        final TiePointGrid slantRangeGrid = new TiePointGrid(prefix + OperatorUtils.TPG_SLANT_RANGE_TIME,
+                newGridWidth, newGridHeight, 0.5f, 0.5f, subSamplingX, subSamplingY, newslrtList);
+        slantRangeGrid.setUnit(Unit.NANOSECONDS);
+        targetProduct.addTiePointGrid(slantRangeGrid);
+
+        if (!swath.equals("")) {
+            // This is for SLC
+            final TiePointGeoCoding tpGeoCoding = new TiePointGeoCoding(latGrid, lonGrid, Datum.WGS_84);
+            swathGeocodingMap.put(swath, tpGeoCoding);
+        }
+
+        //System.out.println("SliceAssemblyOp.createTiePointGrids: DONE " + swath);
+    }
+
+    /**
+     * Geolocation grid points of a swath, concatenated over the slices.
+     */
+    static final class GeolocationGrid {
+        final int width;
+        final int height;
+        final int[] x;
+        final int[] y;
+        // latitude, longitude, incidence angle, elevation angle and slant range time in ns
+        final double[][] lists;
+
+        private GeolocationGrid(final int width, final int height, final int[] x, final int[] y,
+                                final double[][] lists) {
+            this.width = width;
+            this.height = height;
+            this.x = x;
+            this.y = y;
+            this.lists = lists;
+        }
+    }
+
+    /**
+     * Concatenate the geolocation grid points of the slices of a swath.
+     *
+     * @param geoGrids    The geolocation grid points of each slice, line by line.
+     * @param lineOffsets The first line of each slice in the assembled image.
+     * @return The concatenated grid.
+     */
+    static GeolocationGrid concatenateGeolocationGrids(final List<MetadataElement[]> geoGrids,
+                                                       final int[] lineOffsets) {
+
+        int geoGridLen = 0;
+        for (MetadataElement[] geoGrid : geoGrids) {
             geoGridLen += geoGrid.length;
-            geoGrids.add(i, geoGrid);
-            i++;
         }
 
         //System.out.println("geoGridLen = " + geoGridLen);
@@ -625,24 +721,21 @@ public final class SliceAssemblyOp extends Operator {
         final int[] x = new int[geoGridLen];
         final int[] y = new int[geoGridLen];
 
-        final int[] gridWidths = new int[sliceProducts.length];
-        final int[] gridHeights = new int[sliceProducts.length];
+        final int[] gridWidths = new int[geoGrids.size()];
+        final int[] gridHeights = new int[geoGrids.size()];
 
-        for (int j = 0; j < sliceProducts.length; j++) {
+        for (int j = 0; j < geoGrids.size(); j++) {
             gridWidths[j] = 0;
             gridHeights[j] = 0;
         }
 
         int gridHeight = 0;
 
-        i = 0;
+        int i = 0;
         int ptsInPrvSlices = 0;
-        int heightOffset = 0;
-        for (int j = 0; j < sliceProducts.length; j++) {
+        for (int j = 0; j < geoGrids.size(); j++) {
 
-            if (j > 0) {
-                heightOffset += sliceSwathImageDimMap.get(sliceProducts[j-1]).get(swath)[0];
-            }
+            final int heightOffset = lineOffsets[j];
 
             final MetadataElement[] geoGrid = geoGrids.get(j);
 
@@ -685,75 +778,12 @@ public final class SliceAssemblyOp extends Operator {
 
         //System.out.println("gridWidth = " + gridWidth + " gridHeight = " + gridHeight);
 
-        final int newGridWidth = gridWidth;
-        final int newGridHeight = gridHeight;
-        if (geoGridLen != (newGridWidth * newGridHeight)) {
+        if (geoGridLen != (gridWidth * gridHeight)) {
             throw new OperatorException("wrong number of geolocation grid points");
         }
-        final float[] newLatList = new float[newGridWidth * newGridHeight];
-        final float[] newLonList = new float[newGridWidth * newGridHeight];
-        final float[] newIncList = new float[newGridWidth * newGridHeight];
-        final float[] newElevList = new float[newGridWidth * newGridHeight];
-        final float[] newslrtList = new float[newGridWidth * newGridHeight];
-
-        final int[] dim = swathAssembledImageDimMap.get(swath);
-        final int sceneRasterWidth = dim[1];
-        final int sceneRasterHeight = dim[0];
-
-        //System.out.println("swath = " + swath + " width = " + sceneRasterWidth + " height = " + sceneRasterHeight);
-
-        final double subSamplingX = (double) sceneRasterWidth / (newGridWidth - 1);
-        final double subSamplingY = (double) sceneRasterHeight / (newGridHeight - 1);
-
-        getListInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, gridWidth, gridHeight, x, y, latList,
-                newGridWidth, newGridHeight, subSamplingX, subSamplingY, newLatList);
-
-        getListInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, gridWidth, gridHeight, x, y, lngList,
-                newGridWidth, newGridHeight, subSamplingX, subSamplingY, newLonList);
-
-        getListInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, gridWidth, gridHeight, x, y, incidenceAngleList,
-                newGridWidth, newGridHeight, subSamplingX, subSamplingY, newIncList);
-
-        getListInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, gridWidth, gridHeight, x, y, elevAngleList,
-                newGridWidth, newGridHeight, subSamplingX, subSamplingY, newElevList);
-
-        getListInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight, gridWidth, gridHeight, x, y, rangeTimeList,
-                newGridWidth, newGridHeight, subSamplingX, subSamplingY, newslrtList);
-
-        final String prefix = swath.equals("") ? swath : swath + "_";
-
-        final TiePointGrid latGrid = new TiePointGrid(prefix + OperatorUtils.TPG_LATITUDE,
-                newGridWidth, newGridHeight, 0.5f, 0.5f, subSamplingX, subSamplingY, newLatList);
-        latGrid.setUnit(Unit.DEGREES);
-        targetProduct.addTiePointGrid(latGrid);
-
-        final TiePointGrid lonGrid = new TiePointGrid(prefix +OperatorUtils.TPG_LONGITUDE,
-                newGridWidth, newGridHeight, 0.5f, 0.5f, subSamplingX, subSamplingY, newLonList, TiePointGrid.DISCONT_AT_180);
-        lonGrid.setUnit(Unit.DEGREES);
-        targetProduct.addTiePointGrid(lonGrid);
-
-        final TiePointGrid incidentAngleGrid = new TiePointGrid(prefix + OperatorUtils.TPG_INCIDENT_ANGLE,
-                newGridWidth, newGridHeight, 0.5f, 0.5f, subSamplingX, subSamplingY, newIncList);
-        incidentAngleGrid.setUnit(Unit.DEGREES);
-        targetProduct.addTiePointGrid(incidentAngleGrid);
-
-        final TiePointGrid elevAngleGrid = new TiePointGrid(prefix + OperatorUtils.TPG_ELEVATION_ANGLE,
-                newGridWidth, newGridHeight, 0.5f, 0.5f, subSamplingX, subSamplingY, newElevList);
-        elevAngleGrid.setUnit(Unit.DEGREES);
-        targetProduct.addTiePointGrid(elevAngleGrid);
-
-        final TiePointGrid slantRangeGrid = new TiePointGrid(prefix + OperatorUtils.TPG_SLANT_RANGE_TIME,
-                newGridWidth, newGridHeight, 0.5f, 0.5f, subSamplingX, subSamplingY, newslrtList);
-        slantRangeGrid.setUnit(Unit.NANOSECONDS);
-        targetProduct.addTiePointGrid(slantRangeGrid);
-
-        if (!swath.equals("")) {
-            // This is for SLC
-            final TiePointGeoCoding tpGeoCoding = new TiePointGeoCoding(latGrid, lonGrid, Datum.WGS_84);
-            swathGeocodingMap.put(swath, tpGeoCoding);
-        }
 
-        //System.out.println("SliceAssemblyOp.createTiePointGrids: DONE " + swath);
+        return new GeolocationGrid(gridWidth, gridHeight, x, y,
+                new double[][]{latList, lngList, incidenceAngleList, elevAngleList, rangeTimeList});
     }
 
     private void createLatLonTiePointGridsForSLC() {
@@ -1620,43 +1650,22 @@ public final class SliceAssemblyOp extends Operator {
             final BandLines[] lines = bandLineMap.get(targetBand);
             final ProductData trgData = targetTile.getDataBuffer();
 
-            final TileIndex trgIndex = new TileIndex(targetTile);
-            final Rectangle srcRect = new Rectangle();
-
             //System.out.println("Do band = " + targetBand.getName() + ": tx0 = " + tx0 + " ty0 = " + ty0 + " maxX = " + maxX + " maxY = " + maxY);
 
-            BandLines line = lines[0];
-            for(int y=ty0; y < maxY; ++y) {
-
-                //boolean validLine = false;
-                for (BandLines l : lines) {
-                    if (y >= l.start && y < l.end) {
-                        line = l;
-                        //validLine = true;
-                        break;
-                    }
+            // one source tile for each slice overlapping the target tile
+            for (BandLines line : lines) {
+                final Rectangle srcRect = getSliceRectangle(targetTileRectangle, line.start, line.end,
+                        line.band.getRasterWidth());
+                if (srcRect == null) {
+                    continue;
                 }
-                //if (!validLine) {
-                //    // should never get here
-                //    throw new OperatorException("line " + y + " not found in slice products");
-                //}
-                //if (tx0 > line.band.getRasterWidth() - 1) {
-                //    return;
-                //}
-
-                final int yy = y-line.start;
-                srcRect.setBounds(targetTileRectangle.x, yy, targetTileRectangle.width, 1);
 
                 try {
                     final Tile sourceRaster = getSourceTile(line.band, srcRect);
-                    final ProductData srcData = sourceRaster.getDataBuffer();
-                    final TileIndex srcIndex = new TileIndex(sourceRaster);
-                    trgIndex.calculateStride(y);
-                    srcIndex.calculateStride(yy);
-
-                    for (int x = tx0; x < maxX; ++x) {
-                        trgData.setElemDoubleAt(trgIndex.getIndex(x), srcData.getElemDoubleAt(srcIndex.getIndex(x)));
-                    }
+                    copyRows(sourceRaster.getDataBuffer(), sourceRaster.getDataBufferIndex(srcRect.x, srcRect.y),
+                            sourceRaster.getScanlineStride(), trgData,
+                            targetTile.getDataBufferIndex(srcRect.x, srcRect.y + line.start),
+                            targetTile.getScanlineStride(), srcRect.width, srcRect.height);
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
@@ -1668,6 +1677,57 @@ public final class SliceAssemblyOp extends Operator {
         }
     }
 
+    /**
+     * Get the part of a slice that overlaps a target tile.
+     *
+     * @param targetTileRectangle The target tile rectangle.
+     * @param start               The first line of the slice in the assembled image.
+     * @param end                 The line after the last line of the slice in the assembled image.
+     * @param sliceWidth          The raster width of the slice.
+     * @return The overlapping rectangle in slice coordinates, or null if the slice does not overlap the tile.
+     */
+    static Rectangle getSliceRectangle(final Rectangle targetTileRectangle, final int start, final int end,
+                                       final int sliceWidth) {
+        final int tx0 = targetTileRectangle.x;
+        final int y0 = Math.max(targetTileRectangle.y, start);
+        final int y1 = Math.min(targetTileRectangle.y + targetTileRectangle.height, end);
+        final int x1 = Math.min(tx0 + targetTileRectangle.width, sliceWidth);
+        if (y0 >= y1 || tx0 >= x1) {
+            return null;
+        }
+        return new Rectangle(tx0, y0 - start, x1 - tx0, y1 - y0);
+    }
+
+    /**
+     * Copy rows of samples between data buffers, as one block per row when the data types match.
+     *
+     * @param srcData   The source data buffer.
+     * @param srcIndex0 The index of the first sample in the source buffer.
+     * @param srcStride The distance between rows in the source buffer.
+     * @param trgData   The target data buffer.
+     * @param trgIndex0 The index of the first sample in the target buffer.
+     * @param trgStride The distance between rows in the target buffer.
+     * @param w         The number of samples per row.
+     * @param h         The number of rows.
+     */
+    static void copyRows(final ProductData srcData, final int srcIndex0, final int srcStride,
+                         final ProductData trgData, final int trgIndex0, final int trgStride,
+                         final int w, final int h) {
+
+        final boolean blockCopy = srcData.getType() == trgData.getType();
+        for (int r = 0; r < h; ++r) {
+            final int srcIndex = srcIndex0 + r * srcStride;
+            final int trgIndex = trgIndex0 + r * trgStride;
+            if (blockCopy) {
+                System.arraycopy(srcData.getElems(), srcIndex, trgData.getElems(), trgIndex, w);
+            } else {
+                for (int x = 0; x < w; ++x) {
+                    trgData.setElemDoubleAt(trgIndex + x, srcData.getElemDoubleAt(srcIndex + x));
+                }
+            }
+        }
+    }
+
     private static class BandLines {
         final int start;
         final int end;
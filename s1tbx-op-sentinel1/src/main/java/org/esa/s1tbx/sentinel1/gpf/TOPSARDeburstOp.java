@@ -119,7 +119,7 @@ public final class TOPSARDeburstOp extends Operator {
 
             getAcquisitionMode();
 
-            su = new Sentinel1Utils(sourceProduct);
+            su = Sentinel1Utils.getInstance(sourceProduct);
             subSwath = su.getSubSwath();
             numOfSubSwath = su.getNumOfSubSwath();
 
@@ -96,7 +96,7 @@ public final class TOPSARSplitOp extends Operator {
                 subswath = acquisitionMode + '1';
             }
 
-            su = new Sentinel1Utils(sourceProduct);
+            su = Sentinel1Utils.getInstance(sourceProduct);
             subSwathInfo = su.getSubSwath();
             for (int i = 0; i < subSwathInfo.length; i++) {
                 if (subSwathInfo[i].subSwathName.contains(subswath)) {
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.sentinel1.gpf;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for the per-slave workers of BackGeocodingOp
+ */
+public class TestBackGeocodingWorkers {
+
+    @Test
+    public void testAllSlavesComputed() throws Throwable {
+        final AtomicInteger computed = new AtomicInteger();
+        BackGeocodingOp.computeInParallel(4, new BackGeocodingOp.PartialTileTask() {
+            @Override
+            public void compute(final int slaveIndex) throws Exception {
+                computed.incrementAndGet();
+            }
+        });
+        assertEquals(4, computed.get());
+    }
+
+    @Test
+    public void testFailingSlaveIsRethrown() {
+        final AtomicInteger computed = new AtomicInteger();
+        final Exception failure = new IllegalStateException("slave 2 failed");
+        Throwable caught = null;
+        try {
+            BackGeocodingOp.computeInParallel(4, new BackGeocodingOp.PartialTileTask() {
+                @Override
+                public void compute(final int slaveIndex) throws Exception {
+                    if (slaveIndex == 2) {
+                        throw failure;
+                    }
+                    computed.incrementAndGet();
+                }
+            });
+        } catch (Throwable e) {
+            caught = e;
+        }
+        assertTrue(caught == failure);
+        // the other slaves are still computed
+        assertEquals(3, computed.get());
+    }
+}
@@ -15,13 +15,19 @@
  */
 package org.esa.s1tbx.sentinel1.gpf;
 
+import org.esa.snap.framework.datamodel.MetadataElement;
 import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
 import org.esa.snap.framework.gpf.OperatorSpi;
 import org.esa.s1tbx.TestData;
 import org.esa.snap.util.TestUtils;
+import org.esa.s1tbx.dataio.sentinel1.Sentinel1Level1Directory;
 import org.junit.Test;
 
+import java.awt.Rectangle;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -125,4 +131,161 @@ public class TestSliceAssemblyOp {
         TestUtils.verifyProduct(targetProduct, true, true, true);
     }
 
+    // two synthetic slices, the second one shorter and narrower than the first
+    private static final int SLICE1_WIDTH = 12, SLICE1_HEIGHT = 7;
+    private static final int SLICE2_WIDTH = 9, SLICE2_HEIGHT = 5;
+    private static final int[] GRID_PIXELS = {0, 4, 8, 11};
+
+    private static short sample(final int slice, final int x, final int y) {
+        return (short) (1000 * slice + 100 * y + x);
+    }
+
+    private static short[] createSliceData(final int slice, final int width, final int height) {
+        final short[] data = new short[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                data[y * width + x] = sample(slice, x, y);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Copy the slices into a target tile as SliceAssemblyOp.computeTile does, with the whole slice as source tile.
+     */
+    private static void assemble(final Rectangle targetRect, final ProductData trgData) {
+        final int[] starts = {0, SLICE1_HEIGHT};
+        final int[] widths = {SLICE1_WIDTH, SLICE2_WIDTH};
+        final int[] heights = {SLICE1_HEIGHT, SLICE2_HEIGHT};
+        for (int s = 0; s < 2; s++) {
+            final Rectangle srcRect = SliceAssemblyOp.getSliceRectangle(targetRect, starts[s],
+                    starts[s] + heights[s], widths[s]);
+            assertNotNull(srcRect);
+            final ProductData srcData = ProductData.createInstance(createSliceData(s + 1, widths[s], heights[s]));
+            SliceAssemblyOp.copyRows(srcData, srcRect.y * widths[s] + srcRect.x, widths[s], trgData,
+                    (srcRect.y + starts[s] - targetRect.y) * targetRect.width + srcRect.x - targetRect.x,
+                    targetRect.width, srcRect.width, srcRect.height);
+        }
+    }
+
+    private static void checkAssembledTile(final Rectangle targetRect, final ProductData trgData) {
+        for (int y = targetRect.y; y < targetRect.y + targetRect.height; y++) {
+            for (int x = targetRect.x; x < targetRect.x + targetRect.width; x++) {
+                final int index = (y - targetRect.y) * targetRect.width + x - targetRect.x;
+                final double expected;
+                if (y < SLICE1_HEIGHT) {
+                    expected = sample(1, x, y);
+                } else if (x < SLICE2_WIDTH) {
+                    expected = sample(2, x, y - SLICE1_HEIGHT);
+                } else {
+                    expected = 0; // beyond the end of the narrower slice
+                }
+                assertEquals("x = " + x + " y = " + y, expected, trgData.getElemDoubleAt(index), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testSliceRectangle() {
+        final Rectangle targetRect = new Rectangle(2, 4, 8, 6);
+        assertEquals(new Rectangle(2, 4, 8, 3), SliceAssemblyOp.getSliceRectangle(targetRect, 0, 7, 12));
+        assertEquals(new Rectangle(2, 0, 7, 3), SliceAssemblyOp.getSliceRectangle(targetRect, 7, 12, 9));
+        assertNull(SliceAssemblyOp.getSliceRectangle(targetRect, 10, 15, 12));
+        assertNull(SliceAssemblyOp.getSliceRectangle(targetRect, 0, 4, 12));
+        assertNull(SliceAssemblyOp.getSliceRectangle(targetRect, 0, 7, 2));
+    }
+
+    @Test
+    public void testCopyRowsAcrossSliceBoundary() {
+        // a tile over the last lines of the first slice and the first lines of the second one
+        final Rectangle targetRect = new Rectangle(2, 4, 8, 6);
+        final ProductData trgData = ProductData.createInstance(ProductData.TYPE_INT16,
+                targetRect.width * targetRect.height);
+        assemble(targetRect, trgData);
+        checkAssembledTile(targetRect, trgData);
+    }
+
+    @Test
+    public void testCopyRowsToOtherDataType() {
+        final Rectangle targetRect = new Rectangle(1, 5, 10, 4);
+        final ProductData trgData = ProductData.createInstance(ProductData.TYPE_FLOAT32,
+                targetRect.width * targetRect.height);
+        assemble(targetRect, trgData);
+        checkAssembledTile(targetRect, trgData);
+    }
+
+    private static double latitude(final double x, final double y) {
+        return 45.0 + 0.01 * y + 0.002 * x;
+    }
+
+    private static double slantRangeTime(final double x) {
+        return 5.0e-3 + 1.0e-9 * x; // in s
+    }
+
+    private static MetadataElement[] createGeoGrid(final int[] lines, final int lineOffset) {
+        final MetadataElement[] points = new MetadataElement[lines.length * GRID_PIXELS.length];
+        int i = 0;
+        for (int line : lines) {
+            for (int pixel : GRID_PIXELS) {
+                final MetadataElement point = new MetadataElement("geolocationGridPoint");
+                point.setAttributeDouble("latitude", latitude(pixel, line + lineOffset));
+                point.setAttributeDouble("longitude", 10.0);
+                point.setAttributeDouble("incidenceAngle", 30.0);
+                point.setAttributeDouble("elevationAngle", 27.0);
+                point.setAttributeDouble("slantRangeTime", slantRangeTime(pixel));
+                point.setAttributeDouble("pixel", pixel);
+                point.setAttributeDouble("line", line);
+                points[i++] = point;
+            }
+        }
+        return points;
+    }
+
+    @Test
+    public void testMergedTiePointGrids() {
+        final int[] lines1 = {0, 3, 6};
+        final int[] lines2 = {0, 2, 4};
+        final List<MetadataElement[]> geoGrids = new ArrayList<>();
+        geoGrids.add(createGeoGrid(lines1, 0));
+        geoGrids.add(createGeoGrid(lines2, SLICE1_HEIGHT));
+
+        final SliceAssemblyOp.GeolocationGrid grid =
+                SliceAssemblyOp.concatenateGeolocationGrids(geoGrids, new int[]{0, SLICE1_HEIGHT});
+        assertEquals(GRID_PIXELS.length, grid.width);
+        assertEquals(lines1.length + lines2.length, grid.height);
+        final int[] expectedLines = {0, 3, 6, 7, 9, 11};
+        for (int r = 0; r < grid.height; r++) {
+            for (int c = 0; c < grid.width; c++) {
+                final int i = r * grid.width + c;
+                assertEquals(GRID_PIXELS[c], grid.x[i]);
+                assertEquals(expectedLines[r], grid.y[i]);
+                assertEquals(latitude(GRID_PIXELS[c], expectedLines[r]), grid.lists[0][i], 0.0);
+                assertEquals(slantRangeTime(GRID_PIXELS[c]) * 1.0e9, grid.lists[4][i], 1.0e-6);
+            }
+        }
+
+        // tie points every half line of the assembled image, so that some fall between the two slices
+        final int sceneRasterWidth = SLICE1_WIDTH;
+        final int sceneRasterHeight = SLICE1_HEIGHT + SLICE2_HEIGHT;
+        final int newGridWidth = 4;
+        final int newGridHeight = 2 * sceneRasterHeight - 1;
+        final double subSamplingX = (sceneRasterWidth - 1) / (double) (newGridWidth - 1);
+        final double subSamplingY = 0.5;
+        final float[][] newLists = new float[grid.lists.length][newGridWidth * newGridHeight];
+        Sentinel1Level1Directory.getListsInEvenlySpacedGrid(sceneRasterWidth, sceneRasterHeight,
+                grid.width, grid.height, grid.x, grid.y, grid.lists, newGridWidth, newGridHeight,
+                subSamplingX, subSamplingY, newLists);
+
+        for (int r = 0; r < newGridHeight; r++) {
+            for (int c = 0; c < newGridWidth; c++) {
+                final int k = r * newGridWidth + c;
+                final double x = c * subSamplingX;
+                assertEquals(latitude(x, r * subSamplingY), newLists[0][k], 1.0e-4);
+                assertEquals(10.0, newLists[1][k], 1.0e-4);
+                assertEquals(30.0, newLists[2][k], 1.0e-4);
+                assertEquals(27.0, newLists[3][k], 1.0e-4);
+                assertEquals(slantRangeTime(x) * 1.0e9, newLists[4][k], 1.0);
+            }
+        }
+    }
 }
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.utilities.gpf;
+
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.util.math.Histogram;
+import org.jdom2.Element;
+
+/**
+ * Streaming statistics of the samples of a band: the number of samples, minimum, maximum, the first four raw
+ * moments and a histogram, accumulated in a single pass. Statistics of parts of the band accumulated in parallel
+ * are merged.
+ * <p/>
+ * The histogram is kept at a fine resolution, with a power of two bin width and bins aligned to multiples of the
+ * width, so it can be filled before the minimum and maximum are known. When a sample falls outside of the binned
+ * range the bin width is doubled, which adds pairs of bins and is exact, and fine histograms are merged exactly in
+ * the same way. Histograms with any number of bins between the minimum and the maximum are derived from the fine
+ * histogram, whose bins are at most 1/4096 of the value range wide, so a sample can only be counted in the
+ * neighbouring bin when it lies within a small fraction of a bin width of a bin edge.
+ */
+public final class BandStatistics {
+
+    static final int NUM_FINE_BINS = 8192;
+
+    private long numPixels = 0;
+    private long count = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double sum = 0, sum2 = 0, sum3 = 0, sum4 = 0;
+
+    private long[] bins = null;
+    private double binStart = 0;
+    private double binWidth = 0;
+    private double quantileError = 0;
+
+    /**
+     * Add the samples of a tile.
+     *
+     * @param data            the samples
+     * @param noDataValue     the no data value of the band
+     * @param noDataValueUsed true if samples equal to the no data value are to be skipped
+     */
+    public void accumulate(final ProductData data, final double noDataValue, final boolean noDataValueUsed) {
+        final int n = data.getNumElems();
+        for (int i = 0; i < n; ++i) {
+            add(data.getElemDoubleAt(i), noDataValue, noDataValueUsed);
+        }
+        numPixels += n;
+    }
+
+    /**
+     * Add the first n samples of an array.
+     */
+    public void accumulate(final double[] samples, final int n, final double noDataValue, final boolean noDataValueUsed) {
+        for (int i = 0; i < n; ++i) {
+            add(samples[i], noDataValue, noDataValueUsed);
+        }
+        numPixels += n;
+    }
+
+    private void add(final double v, final double noDataValue, final boolean noDataValueUsed) {
+        if ((noDataValueUsed && v == noDataValue) || Double.isNaN(v) || Double.isInfinite(v)) {
+            return;
+        }
+
+        int i = bins == null ? -1 : (int) Math.floor((v - binStart) / binWidth);
+        if (i < 0 || i >= NUM_FINE_BINS) {
+            ensureRange(v, v, 0);
+            i = Math.min((int) Math.floor((v - binStart) / binWidth), NUM_FINE_BINS - 1);
+        }
+        ++bins[i];
+
+        if (v < min)
+            min = v;
+        if (v > max)
+            max = v;
+        final double v2 = v * v;
+        sum += v;
+        sum2 += v2;
+        sum3 += v2 * v;
+        sum4 += v2 * v2;
+        ++count;
+    }
+
+    /**
+     * Widen the fine histogram to cover lo to hi and the samples binned so far, with a bin width of at least
+     * minWidth.
+     */
+    private void ensureRange(final double lo, final double hi, final double minWidth) {
+
+        final double rangeLo = count > 0 ? Math.min(lo, min) : lo;
+        final double rangeHi = count > 0 ? Math.max(hi, max) : hi;
+
+        double width;
+        if (bins == null) {
+            final double span = rangeHi - rangeLo;
+            if (span > 0) {
+                width = Math.scalb(1.0, Math.getExponent(span / NUM_FINE_BINS));
+            } else if (rangeLo != 0) {
+                width = Math.scalb(1.0, Math.getExponent(rangeLo) - 20);
+            } else {
+                width = Math.scalb(1.0, -30);
+            }
+        } else {
+            width = binWidth;
+        }
+        while (width < minWidth) {
+            width *= 2;
+        }
+
+        double start = Math.floor(rangeLo / width) * width;
+        while (rangeHi >= start + NUM_FINE_BINS * width) {
+            width *= 2;
+            start = Math.floor(rangeLo / width) * width;
+        }
+
+        if (bins != null && width == binWidth && start == binStart) {
+            return;
+        }
+
+        final long[] newBins = new long[NUM_FINE_BINS];
+        if (bins != null) {
+            for (int i = 0; i < NUM_FINE_BINS; ++i) {
+                if (bins[i] != 0) {
+                    newBins[(int) Math.floor((binStart + i * binWidth - start) / width)] += bins[i];
+                }
+            }
+        }
+        bins = newBins;
+        binStart = start;
+        binWidth = width;
+    }
+
+    /**
+     * Add statistics of another part of the band. May be called concurrently.
+     */
+    public synchronized void merge(final BandStatistics other) {
+        numPixels += other.numPixels;
+        quantileError = Math.max(quantileError, other.quantileError);
+        if (other.count == 0) {
+            return;
+        }
+
+        ensureRange(other.min, other.max, other.binWidth);
+        for (int i = 0; i < NUM_FINE_BINS; ++i) {
+            if (other.bins[i] != 0) {
+                bins[(int) Math.floor((other.binStart + i * other.binWidth - binStart) / binWidth)] += other.bins[i];
+            }
+        }
+
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sum += other.sum;
+        sum2 += other.sum2;
+        sum3 += other.sum3;
+        sum4 += other.sum4;
+        count += other.count;
+    }
+
+    /**
+     * @return the number of pixels visited, including no data pixels
+     */
+    public long getNumPixels() {
+        return numPixels;
+    }
+
+    /**
+     * @return the number of valid samples
+     */
+    public long getSampleCount() {
+        return count;
+    }
+
+    public double getMinimum() {
+        return min;
+    }
+
+    public double getMaximum() {
+        return max;
+    }
+
+    public double getMean() {
+        return sum / count;
+    }
+
+    public double getStandardDeviation() {
+        final double mean = sum / count;
+        return Math.sqrt(Math.max(sum2 / count - mean * mean, 0.0));
+    }
+
+    /**
+     * @param order 1 to 4
+     * @return the mean of the samples to the power of order
+     */
+    public double getMoment(final int order) {
+        switch (order) {
+            case 1:
+                return sum / count;
+            case 2:
+                return sum2 / count;
+            case 3:
+                return sum3 / count;
+            case 4:
+                return sum4 / count;
+            default:
+                throw new IllegalArgumentException("order " + order + " not supported");
+        }
+    }
+
+    /**
+     * @return the bound on the error of the cumulative distribution of the histogram due to sub-sampling, 0 for
+     * statistics of all pixels
+     */
+    public double getQuantileError() {
+        return quantileError;
+    }
+
+    void setQuantileError(final double quantileError) {
+        this.quantileError = quantileError;
+    }
+
+    /**
+     * @param numBins the number of bins
+     * @return the histogram between the minimum and the maximum
+     */
+    public Histogram getHistogram(final int numBins) {
+        final int[] counts = new int[numBins];
+        if (count > 0) {
+            final double range = max - min;
+            for (int i = 0; i < NUM_FINE_BINS; ++i) {
+                if (bins[i] == 0) {
+                    continue;
+                }
+                final double centre = Math.min(Math.max(binStart + (i + 0.5) * binWidth, min), max);
+                final int k = range > 0 ? Math.min((int) ((centre - min) / range * numBins), numBins - 1) : 0;
+                counts[k] = (int) Math.min((long) counts[k] + bins[i], Integer.MAX_VALUE);
+            }
+        }
+        return new Histogram(counts, min, max);
+    }
+
+    Element toElement() {
+        final Element elem = new Element("statistics");
+        elem.setAttribute("numPixels", String.valueOf(numPixels));
+        elem.setAttribute("count", String.valueOf(count));
+        elem.setAttribute("quantileError", String.valueOf(quantileError));
+        if (count > 0) {
+            elem.setAttribute("min", String.valueOf(min));
+            elem.setAttribute("max", String.valueOf(max));
+            elem.setAttribute("sum", String.valueOf(sum));
+            elem.setAttribute("sum2", String.valueOf(sum2));
+            elem.setAttribute("sum3", String.valueOf(sum3));
+            elem.setAttribute("sum4", String.valueOf(sum4));
+            elem.setAttribute("binStart", String.valueOf(binStart));
+            elem.setAttribute("binWidth", String.valueOf(binWidth));
+
+            // non-empty bins only, as index:count pairs
+            final StringBuilder text = new StringBuilder();
+            for (int i = 0; i < NUM_FINE_BINS; ++i) {
+                if (bins[i] != 0) {
+                    if (text.length() > 0) {
+                        text.append(' ');
+                    }
+                    text.append(i).append(':').append(bins[i]);
+                }
+            }
+            elem.setText(text.toString());
+        }
+        return elem;
+    }
+
+    static BandStatistics fromElement(final Element elem) {
+        final BandStatistics stats = new BandStatistics();
+        stats.numPixels = Long.parseLong(elem.getAttributeValue("numPixels"));
+        stats.count = Long.parseLong(elem.getAttributeValue("count"));
+        stats.quantileError = Double.parseDouble(elem.getAttributeValue("quantileError"));
+        if (stats.count > 0) {
+            stats.min = Double.parseDouble(elem.getAttributeValue("min"));
+            stats.max = Double.parseDouble(elem.getAttributeValue("max"));
+            stats.sum = Double.parseDouble(elem.getAttributeValue("sum"));
+            stats.sum2 = Double.parseDouble(elem.getAttributeValue("sum2"));
+            stats.sum3 = Double.parseDouble(elem.getAttributeValue("sum3"));
+            stats.sum4 = Double.parseDouble(elem.getAttributeValue("sum4"));
+            stats.binStart = Double.parseDouble(elem.getAttributeValue("binStart"));
+            stats.binWidth = Double.parseDouble(elem.getAttributeValue("binWidth"));
+            stats.bins = new long[NUM_FINE_BINS];
+            for (String pair : elem.getTextTrim().split(" ")) {
+                final int sep = pair.indexOf(':');
+                stats.bins[Integer.parseInt(pair.substring(0, sep))] = Long.parseLong(pair.substring(sep + 1));
+            }
+        }
+        return stats;
+    }
+}
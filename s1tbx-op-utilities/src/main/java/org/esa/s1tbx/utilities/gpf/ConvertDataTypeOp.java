@@ -19,7 +19,6 @@ import com.bc.ceres.core.ProgressMonitor;
 import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.Product;
 import org.esa.snap.framework.datamodel.ProductData;
-import org.esa.snap.framework.datamodel.Stx;
 import org.esa.snap.framework.gpf.Operator;
 import org.esa.snap.framework.gpf.OperatorException;
 import org.esa.snap.framework.gpf.OperatorSpi;
@@ -33,6 +32,8 @@ import org.esa.snap.util.ProductUtils;
 import org.esa.snap.util.math.Histogram;
 import org.esa.snap.util.math.Range;
 
+import java.util.Map;
+
 /**
  * Format-Change
  */
@@ -82,6 +83,15 @@ public class ConvertDataTypeOp extends Operator {
 
     private ScalingType targetScaling = ScalingType.LINEAR_CLIPPED;
 
+    @Parameter(description = "Estimate the scaling range from a sub-sampled image", defaultValue = "false",
+            label = "Approximate Statistics")
+    private boolean approximateStatistics = false;
+
+    // bound on the error of the cumulative distribution of the approximate statistics
+    private static final double APPROXIMATE_QUANTILE_ERROR = 0.005;
+
+    private Map<String, BandStatistics> bandStatistics = null;
+
     /**
      * Initializes this operator and sets the one and only target product.
      * <p>The target product can be either defined by a field of type {@link org.esa.snap.framework.datamodel.Product} annotated with the
@@ -160,17 +170,23 @@ public class ConvertDataTypeOp extends Operator {
             final Band sourceBand = sourceProduct.getBand(targetBand.getName());
             final Tile srcTile = getSourceTile(sourceBand, targetTile.getRectangle());
 
-            final Stx stx = sourceBand.getStx();
-            double origMin = stx.getMinimum();
-            double origMax = stx.getMaximum();
             ScalingType scaling = verifyScaling(targetScaling, dataType);
 
             final double newMin = getMin(dataType);
             final double newMax = getMax(dataType);
             final double newRange = newMax - newMin;
 
-            if (origMax <= newMax && origMin >= newMin && sourceBand.getDataType() < ProductData.TYPE_FLOAT32)
-                scaling = ScalingType.NONE;
+            // truncating a band within the target range is the same as not scaling, so the statistics are not needed
+            BandStatistics stats = null;
+            double origMin = 0, origMax = 0;
+            if (scaling != ScalingType.NONE && scaling != ScalingType.TRUNC) {
+                stats = getBandStatistics().get(sourceBand.getName());
+                origMin = stats.getMinimum();
+                origMax = stats.getMaximum();
+
+                if (origMax <= newMax && origMin >= newMin && sourceBand.getDataType() < ProductData.TYPE_FLOAT32)
+                    scaling = ScalingType.NONE;
+            }
 
             final ProductData srcData = srcTile.getRawSamples();
             final ProductData dstData = targetTile.getRawSamples();
@@ -179,7 +195,7 @@ public class ConvertDataTypeOp extends Operator {
             final double destNoDataValue = targetBand.getNoDataValue();
 
             if (scaling == ScalingType.LINEAR_PEAK_CLIPPED) {
-                final Histogram histogram = new Histogram(stx.getHistogramBins(), origMin, origMax);
+                final Histogram histogram = stats.getHistogram(StatisticsService.DEFAULT_NUM_BINS);
                 final int[] bitCounts = histogram.getBinCounts();
                 double rightPct = 0.025;
                 for (int i = bitCounts.length - 1; i > 0; --i) {
@@ -192,7 +208,7 @@ public class ConvertDataTypeOp extends Operator {
                 origMin = autoStretchRange.getMin();
                 origMax = autoStretchRange.getMax();
             } else if (scaling == ScalingType.LINEAR_CLIPPED) {
-                final Histogram histogram = new Histogram(stx.getHistogramBins(), origMin, origMax);
+                final Histogram histogram = stats.getHistogram(StatisticsService.DEFAULT_NUM_BINS);
                 final Range autoStretchRange = histogram.findRangeFor95Percent();
                 origMin = autoStretchRange.getMin();
                 origMax = autoStretchRange.getMax();
@@ -228,6 +244,19 @@ public class ConvertDataTypeOp extends Operator {
         }
     }
 
+    /**
+     * The statistics of all selected source bands, computed in one pass on first use or read from the statistics
+     * saved with the source product.
+     */
+    private synchronized Map<String, BandStatistics> getBandStatistics() {
+        if (bandStatistics == null) {
+            final Band[] sourceBands = OperatorUtils.getSourceBands(sourceProduct, sourceBandNames, false);
+            bandStatistics = StatisticsService.getStatistics(sourceProduct, sourceBands,
+                    approximateStatistics ? APPROXIMATE_QUANTILE_ERROR : 0.0, ProgressMonitor.NULL);
+        }
+        return bandStatistics;
+    }
+
     private static double getMin(final int dataType) {
         switch (dataType) {
             case ProductData.TYPE_INT8:
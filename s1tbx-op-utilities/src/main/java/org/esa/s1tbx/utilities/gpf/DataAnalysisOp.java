@@ -72,11 +72,7 @@ public class DataAnalysisOp extends Operator {
     private boolean sampleTypeIsComplex;
     private int numOfBands;
     private int numOfPixels; // total number of pixel values
-    private double[] min;    // min of all pixel values for each band
-    private double[] max;    // max of all pixel values for each band
-    private double[] sum;    // summation of all pixel values for each band
-    private double[] sum2;   // summation of all pixel value squares for each band
-    private double[] sum4;   // summation of all pixel value to the power of 4 for each band
+    private BandStatistics[] stats; // min, max and moments of all pixel values for each band
     private double[] mean;   // mean for each band
     private double[] coefVar;// coefficient of variation for each band
     private double[] std;    // standard deviation for each band
@@ -138,21 +134,13 @@ public class DataAnalysisOp extends Operator {
      */
     void setInitialValues() {
 
-        min = new double[numOfBands];
-        max = new double[numOfBands];
+        stats = new BandStatistics[numOfBands];
         mean = new double[numOfBands];
         coefVar = new double[numOfBands];
         std = new double[numOfBands];
         enl = new double[numOfBands];
-        sum = new double[numOfBands];
-        sum2 = new double[numOfBands];
-        sum4 = new double[numOfBands];
         for (int i = 0; i < numOfBands; i++) {
-            min[i] = Double.MAX_VALUE;
-            max[i] = 0.0;
-            sum[i] = 0.0;
-            sum2[i] = 0.0;
-            sum4[i] = 0.0;
+            stats[i] = new BandStatistics();
         }
 
         numOfPixels = sourceProduct.getSceneRasterWidth() * sourceProduct.getSceneRasterHeight();
@@ -204,23 +192,11 @@ public class DataAnalysisOp extends Operator {
         final ProductData rawSamples1 = sourceRaster1.getRawSamples();
 
         final int idx = statisticsBandIndex.get(targetBand.getName());
-        final int n = rawSamples1.getNumElems();
-        double v, v2;
-        for (int i = 0; i < n; i++) {
 
-            if (sampleTypeIsComplex) {
-                // todo
-            }
-            v = rawSamples1.getElemDoubleAt(i);
-            if (v > max[idx])
-                max[idx] = v;
-            if (v < min[idx])
-                min[idx] = v;
-            v2 = v * v;
-            sum[idx] += v;
-            sum2[idx] += v2;
-            sum4[idx] += v2 * v2;
-        }
+        // accumulate the tile on its own and merge, as tiles of a band are computed concurrently
+        final BandStatistics tileStats = new BandStatistics();
+        tileStats.accumulate(rawSamples1, 0.0, false);
+        stats[idx].merge(tileStats);
 
         // copy source data to target
         targetTile.setRawSamples(rawSamples1);
@@ -248,14 +224,21 @@ public class DataAnalysisOp extends Operator {
         for (String bandName : statisticsBandIndex.keySet()) {
 
             final int bandIdx = statisticsBandIndex.get(bandName);
-            final double m = sum[bandIdx] / numOfPixels;
-            final double m2 = sum2[bandIdx] / numOfPixels;
-            final double m4 = sum4[bandIdx] / numOfPixels;
+            final BandStatistics bandStats = stats[bandIdx];
+            final double m = bandStats.getMoment(1);
+            final double m2 = bandStats.getMoment(2);
+            final double m4 = bandStats.getMoment(4);
 
             mean[bandIdx] = m;
             std[bandIdx] = Math.sqrt(m2 - m * m);
             coefVar[bandIdx] = Math.sqrt(m4 - m2 * m2) / m2;
             enl[bandIdx] = m2 * m2 / (m4 - m2 * m2);
+
+            // raw sample statistics of the whole band are those of the geophysical image when unscaled
+            final Band band = sourceProduct.getBand(bandName);
+            if (!band.isScalingApplied() && !band.isNoDataValueUsed()) {
+                StatisticsService.saveStatistics(sourceProduct, band, bandStats);
+            }
         }
     }
 
@@ -277,9 +260,9 @@ public class DataAnalysisOp extends Operator {
                 p.println("Band: " + bandName);
                 p.format("Total pixels = %d", numOfPixels);
                 p.println();
-                p.format("Min = %8.3f", min[bandIdx]);
+                p.format("Min = %8.3f", stats[bandIdx].getMinimum());
                 p.println();
-                p.format("Max = %15.3f", max[bandIdx]);
+                p.format("Max = %15.3f", stats[bandIdx].getMaximum());
                 p.println();
                 //p.format("Sum = %15.3f", sum[bandIdx]);
                 //p.println();
@@ -328,11 +311,11 @@ public class DataAnalysisOp extends Operator {
     }
 
     public double getMin(int bandIdx) {
-        return min[bandIdx];
+        return stats[bandIdx].getMinimum();
     }
 
     public double getMax(int bandIdx) {
-        return max[bandIdx];
+        return stats[bandIdx].getMaximum();
     }
 
     public double getMean(int bandIdx) {
@@ -46,6 +46,7 @@ import org.esa.snap.util.ProductUtils;
 import java.awt.Rectangle;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Oversample
@@ -105,6 +106,9 @@ public class OversamplingOp extends Operator {
     private double[] dopplerCentroidFreq; // Doppler centroid frequencies for all columns in a range line
     private double widthRatioByHeightRatio;
 
+    // FFT plans by length, shared by the tiles of the operator
+    private final Map<Integer, DoubleFFT_1D> fftPlans = new ConcurrentHashMap<>();
+
     private static final double nsTOs = Constants.oneBillionth; // ns to s
     private static final String CEOS = "CEOS";
     private static final String ENVISAT = "ENVISAT";
@@ -560,69 +564,39 @@ public class OversamplingOp extends Operator {
 
         final OverlapInfo overlapInfo = new OverlapInfo();
         final Rectangle sourceTileRectangle = getSourceTileRectangle(targetTileRectangle, overlapInfo);
-        final int sx0 = sourceTileRectangle.x;
-        final int sy0 = sourceTileRectangle.y;
         final int sourceTileWidth = sourceTileRectangle.width;
         final int sourceTileHeight = sourceTileRectangle.height;
 
         final int overSampledSourceTileWidth = (int) (widthRatio * sourceTileWidth + 0.5);
         final int overSampledSourceTileHeight = (int) (heightRatio * sourceTileHeight + 0.5);
 
-        final double[][] tmpI = new double[overSampledSourceTileHeight][sourceTileWidth];
-        final double[][] tmpQ = new double[overSampledSourceTileHeight][sourceTileWidth];
-
         final Band srcBand = sourceProduct.getBand(targetBandName);
         final Tile srcRaster = getSourceTile(srcBand, sourceTileRectangle);
         final ProductData srcData = srcRaster.getDataBuffer();
 
-        final double[] rowArray = new double[sourceTileWidth * 2];
-
-        // perform 1-D FFT on each row
-        final DoubleFFT_1D src_row_fft = new DoubleFFT_1D(sourceTileWidth);
-        for (int y = 0; y < sourceTileHeight; y++) {
-            getRowData(sy0 + y, sx0, sourceTileWidth, srcData, srcRaster, rowArray);
-            src_row_fft.complexForward(rowArray);
-            for (int x = 0; x < sourceTileWidth; x++) {
-                tmpI[y][x] = rowArray[2 * x];
-                tmpQ[y][x] = rowArray[2 * x + 1];
-            }
-        }
-
-        final int d = (int) (sourceTileHeight / 2 + 0.5);
+        final SpectralOversampler oversampler = new SpectralOversampler(sourceTileWidth, sourceTileHeight,
+                overSampledSourceTileWidth, overSampledSourceTileHeight, fftPlans);
 
-        final double[] colArray = new double[2 * sourceTileHeight];
-        final double[] zeroPaddedColSpec = new double[2 * overSampledSourceTileHeight];
+        getSourceData(sourceTileRectangle, srcData, null, srcRaster, oversampler);
 
-        // perform 1-D FFT, zero padding and IFFT on each column
-        final DoubleFFT_1D src_col_fft = new DoubleFFT_1D(sourceTileHeight);
-        final DoubleFFT_1D tgt_col_fft = new DoubleFFT_1D(overSampledSourceTileHeight);
-        for (int x = 0; x < sourceTileWidth; x++) {
-            getColData(x, sourceTileHeight, colArray, tmpI, tmpQ);
-            src_col_fft.complexForward(colArray);
-            paddingZeros(colArray, sourceTileHeight, overSampledSourceTileHeight, d, zeroPaddedColSpec);
-            tgt_col_fft.complexInverse(zeroPaddedColSpec, true);
-            saveOverSampledCol(zeroPaddedColSpec, x, overSampledSourceTileHeight, tmpI, tmpQ);
-        }
+        // perform 1-D FFT on each row, 1-D FFT, zero padding and IFFT on each column
+        oversampler.forwardRows();
 
-        final double[] tgtRow = new double[overSampledSourceTileWidth * 2];
+        final int[] d = new int[sourceTileWidth];
+        Arrays.fill(d, sourceTileHeight / 2);
+        oversampler.oversampleColumns(d);
 
         // perform 1-D IFFT on each row
-        final DoubleFFT_1D tgt_row_fft = new DoubleFFT_1D(overSampledSourceTileWidth);
-        int ySt = 0;
-        if (overlapInfo.topOverlapped) {
-            ySt = (int) (heightRatio * overlapInfo.numOfLinesOnTop);
-        }
-        int xSt = 0;
-        if (overlapInfo.leftOverlapped) {
-            xSt = (int) (widthRatio * overlapInfo.numOfLinesOnLeft);
-        }
-
-        for (int y = 0; y < targetTileHeight; y++) {
-            getRowData(y + ySt, sourceTileWidth, overSampledSourceTileWidth, tgtRow, tmpI, tmpQ);
-            tgt_row_fft.complexInverse(tgtRow, true);
-            saveOverSampledComplexImage(tgtRow, ty0 + y, tx0, targetTileWidth, xSt,
-                    widthRatioByHeightRatio, tgtData, targetTile);
-        }
+        final int ySt = overlapInfo.topOverlapped ? (int) (heightRatio * overlapInfo.numOfLinesOnTop) : 0;
+        final int xSt = overlapInfo.leftOverlapped ? (int) (widthRatio * overlapInfo.numOfLinesOnLeft) : 0;
+
+        oversampler.inverseRows(ySt, targetTileHeight, new SpectralOversampler.RowConsumer() {
+            @Override
+            public void consume(final int y, final double[] tgtRow) {
+                saveOverSampledComplexImage(tgtRow, ty0 + y, tx0, targetTileWidth, xSt,
+                        widthRatioByHeightRatio, tgtData, targetTile);
+            }
+        });
     }
 
     private Rectangle getSourceTileRectangle(Rectangle targetTileRectangle, OverlapInfo overlapInfo) {
@@ -684,16 +658,12 @@ public class OversamplingOp extends Operator {
         final OverlapInfo overlapInfo = new OverlapInfo();
         final Rectangle sourceTileRectangle = getSourceTileRectangle(targetTileRectangle, overlapInfo);
         final int sx0 = sourceTileRectangle.x;
-        final int sy0 = sourceTileRectangle.y;
         final int sourceTileWidth = sourceTileRectangle.width;
         final int sourceTileHeight = sourceTileRectangle.height;
 
         final int overSampledSourceTileWidth = (int) (widthRatio * sourceTileWidth + 0.5);
         final int overSampledSourceTileHeight = (int) (heightRatio * sourceTileHeight + 0.5);
 
-        final double[][] tmpI = new double[overSampledSourceTileHeight][sourceTileWidth];
-        final double[][] tmpQ = new double[overSampledSourceTileHeight][sourceTileWidth];
-
         final Band iBand = sourceProduct.getBand(iBandName);
         final Band qBand = sourceProduct.getBand(qBandName);
 
@@ -703,136 +673,60 @@ public class OversamplingOp extends Operator {
         final ProductData iSrcData = iRaster.getDataBuffer();
         final ProductData qSrcData = qRaster.getDataBuffer();
 
-        final double[] rowArray = new double[sourceTileWidth * 2];
+        final SpectralOversampler oversampler = new SpectralOversampler(sourceTileWidth, sourceTileHeight,
+                overSampledSourceTileWidth, overSampledSourceTileHeight, fftPlans);
 
-        // perform 1-D FFT on each row
-        final DoubleFFT_1D src_row_fft = new DoubleFFT_1D(sourceTileWidth);
-        for (int y = 0; y < sourceTileHeight; y++) {
-            getRowData(sy0 + y, sx0, sourceTileWidth, iSrcData, qSrcData, iRaster, rowArray);
-            src_row_fft.complexForward(rowArray);
-            for (int x = 0; x < sourceTileWidth; x++) {
-                tmpI[y][x] = rowArray[2 * x];
-                tmpQ[y][x] = rowArray[2 * x + 1];
-            }
-        }
+        getSourceData(sourceTileRectangle, iSrcData, qSrcData, iRaster, oversampler);
 
-        final double[] colArray = new double[2 * sourceTileHeight];
-        final double[] zeroPaddedColSpec = new double[2 * overSampledSourceTileHeight];
+        // perform 1-D FFT on each row
+        oversampler.forwardRows();
 
+        // perform 1-D FFT, zero padding around the Doppler centroid and IFFT on each column
         final int halfHeight = sourceTileHeight / 2;
         final double heightByPRF = sourceTileHeight / prf;
-
-        // perform 1-D FFT, zero padding and IFFT on each column
-        final DoubleFFT_1D src_col_fft = new DoubleFFT_1D(sourceTileHeight);
-        final DoubleFFT_1D tgt_col_fft = new DoubleFFT_1D(overSampledSourceTileHeight);
+        final int[] d = new int[sourceTileWidth];
         for (int x = 0; x < sourceTileWidth; x++) {
-            getColData(x, sourceTileHeight, colArray, tmpI, tmpQ);
-            src_col_fft.complexForward(colArray);
-
             final int idxFdc = (int) (dopplerCentroidFreq[sx0 + x] * heightByPRF + 0.5);
-            final int d = (idxFdc + halfHeight) % sourceTileHeight;
-
-            paddingZeros(colArray, sourceTileHeight, overSampledSourceTileHeight, d, zeroPaddedColSpec);
-            tgt_col_fft.complexInverse(zeroPaddedColSpec, true);
-            saveOverSampledCol(zeroPaddedColSpec, x, overSampledSourceTileHeight, tmpI, tmpQ);
+            d[x] = (idxFdc + halfHeight) % sourceTileHeight;
         }
-
-        final double[] tgtRow = new double[overSampledSourceTileWidth * 2];
+        oversampler.oversampleColumns(d);
 
         // zero padding and perform 1-D IFFT on each row
-        final DoubleFFT_1D tgt_row_fft = new DoubleFFT_1D(overSampledSourceTileWidth);
-        int ySt = 0;
-        if (overlapInfo.topOverlapped) {
-            ySt = (int) (heightRatio * overlapInfo.numOfLinesOnTop);
-        }
-        int xSt = 0;
-        if (overlapInfo.leftOverlapped) {
-            xSt = (int) (widthRatio * overlapInfo.numOfLinesOnLeft);
-        }
-
-        for (int y = 0; y < targetTileHeight; y++) {
-            getRowData(y + ySt, sourceTileWidth, overSampledSourceTileWidth, tgtRow, tmpI, tmpQ);
-            tgt_row_fft.complexInverse(tgtRow, true);
-            saveOverSampledComplexImage(tgtRow, ty0 + y, tx0, targetTileWidth, xSt, widthRatioByHeightRatio,
-                    iTgtData, qTgtData, iTargetTile);
-        }
-    }
-
-    private static void getRowData(final int sy, final int sx0, final int sw,
-                                   final ProductData srcData, final Tile srcRaster,
-                                   final double[] array) {
-
-        int k = 0;
-        final int length = sx0 + sw;
-        for (int sx = sx0; sx < length; ++sx) {
-            array[k++] = srcData.getElemDoubleAt(srcRaster.getDataBufferIndex(sx, sy));
-            array[k++] = 0.0;
-        }
-    }
-
-    private static void getRowData(final int sy, final int sx0, final int sw,
-                                   final ProductData iData, final ProductData qData,
-                                   final Tile iRaster, final double[] array) {
-
-        int index;
-        int k = 0;
-        final int length = sx0 + sw;
-        for (int sx = sx0; sx < length; ++sx) {
-            index = iRaster.getDataBufferIndex(sx, sy);
-            array[k++] = iData.getElemDoubleAt(index);
-            array[k++] = qData.getElemDoubleAt(index);
-        }
-    }
-
-    private static void getColData(final int x, final int sourceTileHeight, final double[] array,
-                                   final double[][] tmpI, final double[][] tmpQ) {
-
-        int k = 0;
-        for (int y = 0; y < sourceTileHeight; ++y) {
-            array[k++] = tmpI[y][x];
-            array[k++] = tmpQ[y][x];
-        }
-    }
-
-    private static void paddingZeros(final double[] colSpec, final int sourceTileHeight, final int targetTileHeight,
-                                     final int d, final double[] array) {
-
-        Arrays.fill(array, 0.0);
-        final int s1 = 0;
-        final int s2 = d * 2;
-        final int S1 = 0;
-        final int S2 = 2 * (targetTileHeight - sourceTileHeight + d);
-        System.arraycopy(colSpec, s1, array, S1, s2);
-        System.arraycopy(colSpec, s2, array, S2, (sourceTileHeight - d) * 2);
-    }
-
-    private static void saveOverSampledCol(final double[] overSampledCol, final int x, final int targetTileHeight,
-                                           final double[][] tmpI, final double[][] tmpQ) {
-
-        int k = 0;
-        for (int y = 0; y < targetTileHeight; ++y) {
-            tmpI[y][x] = overSampledCol[k++];
-            tmpQ[y][x] = overSampledCol[k++];
-        }
+        final int ySt = overlapInfo.topOverlapped ? (int) (heightRatio * overlapInfo.numOfLinesOnTop) : 0;
+        final int xSt = overlapInfo.leftOverlapped ? (int) (widthRatio * overlapInfo.numOfLinesOnLeft) : 0;
+
+        oversampler.inverseRows(ySt, targetTileHeight, new SpectralOversampler.RowConsumer() {
+            @Override
+            public void consume(final int y, final double[] tgtRow) {
+                saveOverSampledComplexImage(tgtRow, ty0 + y, tx0, targetTileWidth, xSt, widthRatioByHeightRatio,
+                        iTgtData, qTgtData, iTargetTile);
+            }
+        });
     }
 
-    private static void getRowData(final int y, final int sourceTileWidth, final int targetTileWidth, final double[] array,
-                                   final double[][] tmpI, final double[][] tmpQ) {
-
-        Arrays.fill(array, 0.0);
-
-        final int firstHalfSourceTileWidth = (int) (sourceTileWidth / 2 + 0.5);
-        int k = 0;
-        for (int x = 0; x < firstHalfSourceTileWidth; ++x) {
-            array[k++] = tmpI[y][x];
-            array[k++] = tmpQ[y][x];
-        }
+    /**
+     * Copy the source tile into the rows of the oversampler, as complex samples.
+     *
+     * @param qData the imaginary part, null for a real image
+     */
+    private static void getSourceData(final Rectangle sourceTileRectangle, final ProductData iData,
+                                      final ProductData qData, final Tile srcRaster,
+                                      final SpectralOversampler oversampler) {
 
-        final int secondHalfSourceTileWidth = sourceTileWidth - firstHalfSourceTileWidth;
-        k = 2 * (targetTileWidth - secondHalfSourceTileWidth);
-        for (int x = firstHalfSourceTileWidth; x < sourceTileWidth; ++x) {
-            array[k++] = tmpI[y][x];
-            array[k++] = tmpQ[y][x];
+        final double[] array = oversampler.getData();
+        final int stride = oversampler.getStride();
+        final int sx0 = sourceTileRectangle.x;
+        final int sy0 = sourceTileRectangle.y;
+        final int sw = sourceTileRectangle.width;
+        final int sh = sourceTileRectangle.height;
+
+        for (int y = 0; y < sh; ++y) {
+            final int index0 = srcRaster.getDataBufferIndex(sx0, sy0 + y);
+            int k = y * stride;
+            for (int x = 0; x < sw; ++x) {
+                array[k++] = iData.getElemDoubleAt(index0 + x);
+                array[k++] = qData == null ? 0.0 : qData.getElemDoubleAt(index0 + x);
+            }
         }
     }
 
@@ -840,12 +734,12 @@ public class OversamplingOp extends Operator {
                                                     final int tw, final int xSt, final double widthRatioByHeightRatio,
                                                     final ProductData tgtData, final Tile targetTile) {
 
+        final int index0 = targetTile.getDataBufferIndex(tx0, ty);
         int k = xSt * 2;
-        for (int tx = tx0; tx < tx0 + tw; ++tx) {
+        for (int x = 0; x < tw; ++x) {
             final double i = overSampledRow[k++];
             final double q = overSampledRow[k++];
-            tgtData.setElemDoubleAt(targetTile.getDataBufferIndex(tx, ty),
-                    widthRatioByHeightRatio * Math.sqrt(i * i + q * q));
+            tgtData.setElemDoubleAt(index0 + x, widthRatioByHeightRatio * Math.sqrt(i * i + q * q));
         }
     }
 
@@ -853,11 +747,11 @@ public class OversamplingOp extends Operator {
                                                     final int tw, final int xSt, final double widthRatioByHeightRatio,
                                                     final ProductData iData, final ProductData qData, final Tile iTargetTile) {
 
+        final int index0 = iTargetTile.getDataBufferIndex(tx0, ty);
         int k = xSt * 2;
-        for (int tx = tx0; tx < tx0 + tw; ++tx) {
-            final int index = iTargetTile.getDataBufferIndex(tx, ty);
-            iData.setElemDoubleAt(index, widthRatioByHeightRatio * overSampledRow[k++]);
-            qData.setElemDoubleAt(index, widthRatioByHeightRatio * overSampledRow[k++]);
+        for (int x = 0; x < tw; ++x) {
+            iData.setElemDoubleAt(index0 + x, widthRatioByHeightRatio * overSampledRow[k++]);
+            qData.setElemDoubleAt(index0 + x, widthRatioByHeightRatio * overSampledRow[k++]);
         }
     }
 
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.utilities.gpf;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+
+import java.util.Map;
+
+/**
+ * Fourier domain oversampling of a block of complex data.
+ * <p/>
+ * The block is held in a single interleaved complex buffer of oversampled height by source width. Rows are
+ * transformed in place, columns are transformed in groups to keep the memory access local, and the zero padded
+ * spectrum of an output row is only assembled for the rows that are requested. The block is processed on the calling
+ * thread, tiles are already computed in parallel by GPF. FFT plans are taken from a map held by the caller, so they
+ * are shared by the tiles of an operator and released with it.
+ */
+final class SpectralOversampler {
+
+    private static final int COLUMN_GROUP = 8;
+
+    // JTransforms plans only hold read-only tables after construction and can be shared between threads
+    private final Map<Integer, DoubleFFT_1D> fftPlans;
+
+    private final int srcWidth;
+    private final int srcHeight;
+    private final int trgWidth;
+    private final int trgHeight;
+    private final int stride;
+    private final double[] data;
+
+    /**
+     * @param srcWidth  width of the source block
+     * @param srcHeight height of the source block
+     * @param trgWidth  oversampled width
+     * @param trgHeight oversampled height
+     * @param fftPlans  FFT plans by length, a concurrent map shared by the oversamplers of an operator
+     */
+    SpectralOversampler(final int srcWidth, final int srcHeight, final int trgWidth, final int trgHeight,
+                        final Map<Integer, DoubleFFT_1D> fftPlans) {
+        this.srcWidth = srcWidth;
+        this.srcHeight = srcHeight;
+        this.trgWidth = trgWidth;
+        this.trgHeight = trgHeight;
+        this.stride = 2 * srcWidth;
+        this.data = new double[trgHeight * stride];
+        this.fftPlans = fftPlans;
+    }
+
+    /**
+     * @return the block buffer. The first source height rows are to be filled with the source samples,
+     * interleaved real and imaginary parts, {@link #getStride()} values per row.
+     */
+    double[] getData() {
+        return data;
+    }
+
+    int getStride() {
+        return stride;
+    }
+
+    private DoubleFFT_1D getPlan(final int n) {
+        DoubleFFT_1D plan = fftPlans.get(n);
+        if (plan == null) {
+            plan = new DoubleFFT_1D(n);
+            fftPlans.put(n, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Forward transform of all source rows, in place.
+     */
+    void forwardRows() {
+        final DoubleFFT_1D rowFFT = getPlan(srcWidth);
+        for (int y = 0; y < srcHeight; y++) {
+            rowFFT.complexForward(data, y * stride);
+        }
+    }
+
+    /**
+     * Oversample all columns: forward transform, insert zeros into the spectrum and inverse transform.
+     *
+     * @param splitIndex for each column, the spectrum index at which the zeros are inserted
+     */
+    void oversampleColumns(final int[] splitIndex) {
+        final DoubleFFT_1D srcColFFT = getPlan(srcHeight);
+        final DoubleFFT_1D trgColFFT = getPlan(trgHeight);
+        final int numGroups = (srcWidth + COLUMN_GROUP - 1) / COLUMN_GROUP;
+
+        final int colLength = 2 * srcHeight;
+        final int paddedLength = 2 * trgHeight;
+        final double[] cols = new double[COLUMN_GROUP * colLength];
+        final double[] padded = new double[COLUMN_GROUP * paddedLength];
+
+        for (int g = 0; g < numGroups; g++) {
+            final int x0 = g * COLUMN_GROUP;
+            final int n = Math.min(COLUMN_GROUP, srcWidth - x0);
+
+            // gather the columns of the group, reading n complex values per row
+            for (int y = 0; y < srcHeight; y++) {
+                int k = y * stride + 2 * x0;
+                for (int c = 0; c < n; c++) {
+                    cols[c * colLength + 2 * y] = data[k++];
+                    cols[c * colLength + 2 * y + 1] = data[k++];
+                }
+            }
+
+            for (int c = 0; c < n; c++) {
+                final int colOffset = c * colLength;
+                final int padOffset = c * paddedLength;
+                srcColFFT.complexForward(cols, colOffset);
+
+                final int d = splitIndex[x0 + c];
+                final int gapEnd = 2 * (trgHeight - srcHeight + d);
+                System.arraycopy(cols, colOffset, padded, padOffset, 2 * d);
+                for (int i = padOffset + 2 * d; i < padOffset + gapEnd; i++) {
+                    padded[i] = 0.0;
+                }
+                System.arraycopy(cols, colOffset + 2 * d, padded, padOffset + gapEnd, 2 * (srcHeight - d));
+
+                trgColFFT.complexInverse(padded, padOffset, true);
+            }
+
+            // scatter back, all oversampled rows
+            for (int y = 0; y < trgHeight; y++) {
+                int k = y * stride + 2 * x0;
+                for (int c = 0; c < n; c++) {
+                    data[k++] = padded[c * paddedLength + 2 * y];
+                    data[k++] = padded[c * paddedLength + 2 * y + 1];
+                }
+            }
+        }
+    }
+
+    /**
+     * Oversample and inverse transform one row of the block.
+     *
+     * @param y   the oversampled row
+     * @param row output, 2 * oversampled width values
+     */
+    void inverseRow(final int y, final double[] row) {
+        final int firstHalf = srcWidth / 2;
+        final int secondHalf = srcWidth - firstHalf;
+        final int secondStart = 2 * (trgWidth - secondHalf);
+        final int offset = y * stride;
+
+        System.arraycopy(data, offset, row, 0, 2 * firstHalf);
+        for (int i = 2 * firstHalf; i < secondStart; i++) {
+            row[i] = 0.0;
+        }
+        System.arraycopy(data, offset + 2 * firstHalf, row, secondStart, 2 * secondHalf);
+
+        getPlan(trgWidth).complexInverse(row, true);
+    }
+
+    /**
+     * Inverse transform the given oversampled rows and hand them to a consumer.
+     *
+     * @param y0       first oversampled row
+     * @param numRows  number of rows
+     * @param consumer receives each row
+     */
+    void inverseRows(final int y0, final int numRows, final RowConsumer consumer) {
+        final double[] row = new double[2 * trgWidth];
+        for (int i = 0; i < numRows; i++) {
+            inverseRow(y0 + i, row);
+            consumer.consume(i, row);
+        }
+    }
+
+    interface RowConsumer {
+        /**
+         * @param i   row index relative to the first requested row
+         * @param row interleaved complex samples of the oversampled row
+         */
+        void consume(int i, double[] row);
+    }
+}
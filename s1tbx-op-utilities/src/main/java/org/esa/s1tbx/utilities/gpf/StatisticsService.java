@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.utilities.gpf;
+
+import com.bc.ceres.core.ProgressMonitor;
+import com.bc.ceres.glevel.MultiLevelImage;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.dataop.downloadable.XMLSupport;
+import org.esa.snap.framework.gpf.OperatorException;
+import org.esa.snap.util.io.FileUtils;
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Statistics of the bands of a product, computed for all bands in one parallel sweep over the tiles of the band
+ * images.
+ * <p/>
+ * Statistics may be approximated from a lower resolution level of the band images, choosing the coarsest level with
+ * enough samples to bound the error of the cumulative distribution, and so of any histogram quantile, by the given
+ * value with 99% confidence (Dvoretzky-Kiefer-Wolfowitz inequality). The minimum and maximum are then those of the
+ * samples read.
+ * <p/>
+ * Results are saved next to the product file and reused while the product file, the valid mask expression of the
+ * band and, for products with a data file per band such as DIMAP, the data file of the band are unchanged.
+ */
+public final class StatisticsService {
+
+    public static final int DEFAULT_NUM_BINS = 512;
+
+    private static final String FILE_SUFFIX = ".stats.xml";
+    private static final String DATA_DIR_SUFFIX = ".data";
+    private static final String DATA_FILE_EXTENSION = ".img";
+    private static final double CONFIDENCE = 0.99;
+    private static final int TILE_SIZE = 512;
+
+    private StatisticsService() {
+    }
+
+    /**
+     * Get the statistics of bands of a product, from the statistics saved with the product or else computed.
+     *
+     * @param product       the product
+     * @param bands         bands of the product
+     * @param quantileError bound on the error of the cumulative distribution when sub-sampling, 0 for exact
+     *                      statistics of all pixels
+     * @param pm            progress monitor
+     * @return the statistics by band name
+     */
+    public static Map<String, BandStatistics> getStatistics(final Product product, final Band[] bands,
+                                                            final double quantileError, final ProgressMonitor pm) {
+
+        final Map<String, BandStatistics> statistics = load(product);
+
+        final List<Band> missing = new ArrayList<>(bands.length);
+        for (Band band : bands) {
+            final BandStatistics stats = statistics.get(band.getName());
+            if (stats == null || stats.getQuantileError() > quantileError) {
+                missing.add(band);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            statistics.putAll(compute(missing.toArray(new Band[missing.size()]), quantileError, pm));
+            save(product, statistics);
+        }
+        return statistics;
+    }
+
+    /**
+     * Compute the statistics of bands in one sweep over all tiles of all bands.
+     *
+     * @param bands         the bands
+     * @param quantileError bound on the error of the cumulative distribution when sub-sampling, 0 for exact
+     *                      statistics of all pixels
+     * @param pm            progress monitor
+     * @return the statistics by band name
+     */
+    public static Map<String, BandStatistics> compute(final Band[] bands, final double quantileError,
+                                                      final ProgressMonitor pm) {
+
+        final Map<String, BandStatistics> statistics = new LinkedHashMap<>();
+        final List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (final Band band : bands) {
+            final MultiLevelImage multiLevelImage = band.getGeophysicalImage();
+            final int level = getLevel(multiLevelImage, quantileError);
+            final RenderedImage image = multiLevelImage.getImage(level);
+            final double noDataValue = band.getGeophysicalNoDataValue();
+            final boolean noDataValueUsed = band.isNoDataValueUsed();
+            final RenderedImage validMaskImage = band.getValidMaskExpression() != null ?
+                    band.getValidMaskImage().getImage(level) : null;
+
+            final BandStatistics bandStatistics = new BandStatistics();
+            if (level > 0) {
+                bandStatistics.setQuantileError(getQuantileError((long) image.getWidth() * image.getHeight()));
+            }
+            statistics.put(band.getName(), bandStatistics);
+
+            for (int y = image.getMinY(); y < image.getMinY() + image.getHeight(); y += TILE_SIZE) {
+                for (int x = image.getMinX(); x < image.getMinX() + image.getWidth(); x += TILE_SIZE) {
+                    final Rectangle rect = new Rectangle(x, y,
+                            Math.min(TILE_SIZE, image.getMinX() + image.getWidth() - x),
+                            Math.min(TILE_SIZE, image.getMinY() + image.getHeight() - y));
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            final Raster raster = image.getData(rect);
+                            final double[] samples = raster.getSamples(rect.x, rect.y, rect.width, rect.height,
+                                    0, (double[]) null);
+                            if (validMaskImage != null) {
+                                // invalid pixels are left out as NaN but still counted
+                                final int[] valid = validMaskImage.getData(rect).getSamples(rect.x, rect.y,
+                                        rect.width, rect.height, 0, (int[]) null);
+                                for (int i = 0; i < samples.length; i++) {
+                                    if (valid[i] == 0) {
+                                        samples[i] = Double.NaN;
+                                    }
+                                }
+                            }
+                            final BandStatistics tileStatistics = new BandStatistics();
+                            tileStatistics.accumulate(samples, samples.length, noDataValue, noDataValueUsed);
+                            bandStatistics.merge(tileStatistics);
+                            return null;
+                        }
+                    });
+                }
+            }
+        }
+
+        pm.beginTask("Computing statistics...", tasks.size());
+        final List<Future<Void>> futures = new ArrayList<>(tasks.size());
+        for (Callable<Void> task : tasks) {
+            futures.add(ForkJoinPool.commonPool().submit(task));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                if (pm.isCanceled()) {
+                    for (Future<Void> f : futures) {
+                        f.cancel(false);
+                    }
+                    throw new OperatorException("Statistics computation cancelled");
+                }
+                future.get();
+                pm.worked(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperatorException(e);
+        } catch (ExecutionException e) {
+            throw new OperatorException(e.getCause());
+        } finally {
+            pm.done();
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the coarsest level of the image with enough samples for the quantile error, 0 for exact statistics
+     */
+    private static int getLevel(final MultiLevelImage image, final double quantileError) {
+        if (quantileError <= 0) {
+            return 0;
+        }
+        final long minSamples = (long) Math.ceil(Math.log(2.0 / (1.0 - CONFIDENCE)) /
+                (2.0 * quantileError * quantileError));
+        final int levelCount = image.getModel().getLevelCount();
+        int level = 0;
+        while (level + 1 < levelCount) {
+            final RenderedImage next = image.getImage(level + 1);
+            if ((long) next.getWidth() * next.getHeight() < minSamples) {
+                break;
+            }
+            ++level;
+        }
+        return level;
+    }
+
+    /**
+     * @return the error bound of the cumulative distribution of n random samples
+     */
+    private static double getQuantileError(final long n) {
+        return Math.sqrt(Math.log(2.0 / (1.0 - CONFIDENCE)) / (2.0 * n));
+    }
+
+    private static File getStatisticsFile(final Product product) {
+        final File productFile = product.getFileLocation();
+        if (productFile == null || !productFile.isFile()) {
+            return null;
+        }
+        return new File(productFile.getParentFile(), productFile.getName() + FILE_SUFFIX);
+    }
+
+    /**
+     * Get the state of a band the statistics depend on besides the product file: its valid mask expression, which
+     * includes the valid pixel expression and the no-data value, and the modification time and length of its data
+     * file. Product formats such as DIMAP write the data of a band to its own file, which changes without the
+     * product file.
+     *
+     * @return the attribute values by attribute name, empty values for a missing expression or data file
+     */
+    private static Map<String, String> getBandKey(final Product product, final Band band) {
+        final Map<String, String> key = new LinkedHashMap<>();
+        final String validMaskExpression = band.getValidMaskExpression();
+        key.put("validMaskExpression", validMaskExpression == null ? "" : validMaskExpression);
+
+        final File productFile = product.getFileLocation();
+        final File dataFile = new File(new File(productFile.getParentFile(),
+                FileUtils.getFilenameWithoutExtension(productFile) + DATA_DIR_SUFFIX),
+                band.getName() + DATA_FILE_EXTENSION);
+        final boolean hasDataFile = dataFile.isFile();
+        key.put("dataModified", hasDataFile ? String.valueOf(dataFile.lastModified()) : "");
+        key.put("dataLength", hasDataFile ? String.valueOf(dataFile.length()) : "");
+        return key;
+    }
+
+    /**
+     * @return the saved statistics by band name, empty if there are none or the product file has changed since,
+     * without the bands whose valid mask expression or data file have changed since
+     */
+    private static Map<String, BandStatistics> load(final Product product) {
+        final Map<String, BandStatistics> statistics = new HashMap<>();
+        final File file = getStatisticsFile(product);
+        if (file == null || !file.exists()) {
+            return statistics;
+        }
+
+        final Document doc;
+        try {
+            doc = XMLSupport.LoadXML(file.getAbsolutePath());
+        } catch (IOException e) {
+            return statistics;
+        }
+
+        final Element root = doc.getRootElement();
+        final File productFile = product.getFileLocation();
+        if (!String.valueOf(productFile.lastModified()).equals(root.getAttributeValue("productModified")) ||
+                !String.valueOf(productFile.length()).equals(root.getAttributeValue("productLength"))) {
+            return statistics;
+        }
+
+        for (Element bandElem : root.getChildren("band")) {
+            final String bandName = bandElem.getAttributeValue("name");
+            final Band band = product.getBand(bandName);
+            final Element statsElem = bandElem.getChild("statistics");
+            if (band == null || statsElem == null) {
+                continue;
+            }
+            boolean unchanged = true;
+            for (Map.Entry<String, String> entry : getBandKey(product, band).entrySet()) {
+                if (!entry.getValue().equals(bandElem.getAttributeValue(entry.getKey()))) {
+                    unchanged = false;
+                    break;
+                }
+            }
+            if (!unchanged) {
+                continue;
+            }
+            try {
+                final BandStatistics stats = BandStatistics.fromElement(statsElem);
+                if (stats.getNumPixels() == (long) band.getSceneRasterWidth() * band.getSceneRasterHeight() ||
+                        stats.getQuantileError() > 0) {
+                    statistics.put(bandName, stats);
+                }
+            } catch (RuntimeException e) {
+                // ignore statistics that can not be read, they are computed again
+            }
+        }
+        return statistics;
+    }
+
+    private static void save(final Product product, final Map<String, BandStatistics> statistics) {
+        final File file = getStatisticsFile(product);
+        if (file == null || !file.getParentFile().canWrite()) {
+            return;
+        }
+
+        final File productFile = product.getFileLocation();
+        final Element root = new Element("Statistics");
+        root.setAttribute("productModified", String.valueOf(productFile.lastModified()));
+        root.setAttribute("productLength", String.valueOf(productFile.length()));
+        final Document doc = new Document(root);
+
+        for (Map.Entry<String, BandStatistics> entry : statistics.entrySet()) {
+            final Band band = product.getBand(entry.getKey());
+            if (band == null) {
+                continue;
+            }
+            final Element bandElem = new Element("band");
+            bandElem.setAttribute("name", entry.getKey());
+            for (Map.Entry<String, String> keyEntry : getBandKey(product, band).entrySet()) {
+                bandElem.setAttribute(keyEntry.getKey(), keyEntry.getValue());
+            }
+            bandElem.addContent(entry.getValue().toElement());
+            root.addContent(bandElem);
+        }
+        XMLSupport.SaveXML(doc, file.getAbsolutePath());
+    }
+
+    /**
+     * Save the statistics of a band computed elsewhere with the product, when they cover the whole band and the
+     * band has no valid mask.
+     *
+     * @param product the product
+     * @param band    a band of the product
+     * @param stats   statistics of all pixels of the band
+     */
+    public static void saveStatistics(final Product product, final Band band, final BandStatistics stats) {
+        if (stats.getNumPixels() != (long) band.getSceneRasterWidth() * band.getSceneRasterHeight() ||
+                band.getValidMaskExpression() != null) {
+            return;
+        }
+        synchronized (StatisticsService.class) {
+            final Map<String, BandStatistics> statistics = load(product);
+            statistics.put(band.getName(), stats);
+            save(product, statistics);
+        }
+    }
+}
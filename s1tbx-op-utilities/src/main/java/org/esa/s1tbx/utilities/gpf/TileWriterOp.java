@@ -17,6 +17,7 @@ package org.esa.s1tbx.utilities.gpf;
 
 import com.bc.ceres.core.ProgressMonitor;
 import com.bc.ceres.glevel.MultiLevelImage;
+import org.esa.s1tbx.commons.io.AsyncProductWriter;
 import org.esa.snap.dataio.dimap.DimapProductWriter;
 import org.esa.snap.framework.dataio.ProductIO;
 import org.esa.snap.framework.dataio.ProductSubsetBuilder;
@@ -88,6 +89,8 @@ public class TileWriterOp extends Operator implements Output {
 
     private SubsetInfo[] subsetInfo = null;
 
+    private final AsyncProductWriter.MemoryLimit memoryLimit = AsyncProductWriter.MemoryLimit.createDefault();
+
     public TileWriterOp() {
         setRequiresAllBands(true);
     }
@@ -135,6 +138,8 @@ public class TileWriterOp extends Operator implements Output {
                     subsetInfo[n].productWriter.setIncrementalMode(false);
                     subsetInfo[n].productWriter.setFormatName(formatName);
                     subsetInfo[n].product.setProductWriter(subsetInfo[n].productWriter);
+                    subsetInfo[n].asyncWriter = new AsyncProductWriter(subsetInfo[n].file.getName(),
+                            subsetInfo[n].productWriter, memoryLimit);
 
                     final Band[] bands = subsetInfo[n].product.getBands();
                     for (Band b : bands) {
@@ -169,7 +174,7 @@ public class TileWriterOp extends Operator implements Output {
             for (SubsetInfo info : subsetInfo) {
                 final Rectangle trgRect = info.subsetBuilder.getSubsetDef().getRegion();
                 if (rect.intersects(trgRect)) {
-                    writeTile(info, targetBand.getName(), trgRect);
+                    writeTile(info, targetBand.getName(), rect.intersection(trgRect));
                 }
             }
             markTileDone(targetBand, targetTile);
@@ -182,15 +187,20 @@ public class TileWriterOp extends Operator implements Output {
         }
     }
 
-    private synchronized void writeTile(final SubsetInfo info, final String bandName, final Rectangle trgRect)
+    /**
+     * Queue the part of a target tile falling into a subset. Each subset file has its own writer thread,
+     * so tiles of different files are written concurrently.
+     */
+    private void writeTile(final SubsetInfo info, final String bandName, final Rectangle rect)
             throws IOException {
 
-        final Tile sourceTile = getSourceTile(sourceProduct.getBand(bandName), trgRect);
+        final Tile sourceTile = getSourceTile(sourceProduct.getBand(bandName), rect);
         final ProductData rawSamples = sourceTile.getRawSamples();
 
+        final Rectangle subsetRect = info.subsetBuilder.getSubsetDef().getRegion();
         final Band trgBand = info.product.getBand(bandName);
-        info.productWriter.writeBandRasterData(trgBand,
-                0, 0, trgBand.getSceneRasterWidth(), trgBand.getSceneRasterHeight(), rawSamples, ProgressMonitor.NULL);
+        info.asyncWriter.writeBandRasterData(trgBand, rect.x - subsetRect.x, rect.y - subsetRect.y,
+                rect.width, rect.height, rawSamples);
     }
 
     private void markTileDone(Band targetBand, Tile targetTile) throws IOException {
@@ -207,6 +217,7 @@ public class TileWriterOp extends Operator implements Output {
         if (done) {
             // If we get here all tiles are written
             for (SubsetInfo info : subsetInfo) {
+                info.asyncWriter.flush();
                 if (info.productWriter instanceof DimapProductWriter) {
                     // if we can update the header (only DIMAP) rewrite it!
                     synchronized (info.productWriter) {
@@ -244,11 +255,13 @@ public class TileWriterOp extends Operator implements Output {
 
     @Override
     public void dispose() {
-        try {
+        if (subsetInfo != null) {
             for (SubsetInfo info : subsetInfo) {
-                info.productWriter.close();
+                try {
+                    info.asyncWriter.close();
+                } catch (IOException ignore) {
+                }
             }
-        } catch (IOException ignore) {
         }
         todoLists.clear();
         super.dispose();
@@ -259,6 +272,7 @@ public class TileWriterOp extends Operator implements Output {
         ProductSubsetBuilder subsetBuilder;
         File file;
         ProductWriter productWriter;
+        AsyncProductWriter asyncWriter;
     }
 
     public static class Spi extends OperatorSpi {
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.gpf;
+
+import org.esa.s1tbx.utilities.gpf.BandStatistics;
+import org.esa.snap.util.math.Histogram;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for BandStatistics.
+ */
+public class TestBandStatistics {
+
+    @Test
+    public void testMergedTilesMatchOnePass() {
+        final Random random = new Random(1234);
+        final double[] samples = new double[10000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = i % 97 == 0 ? -1.0 : 50.0 + 20.0 * random.nextGaussian();
+        }
+
+        final BandStatistics whole = new BandStatistics();
+        whole.accumulate(samples, samples.length, -1.0, true);
+
+        // tiles with increasingly wider ranges, so the fine histogram is widened while merging
+        final BandStatistics merged = new BandStatistics();
+        final int[] tileEnds = {10, 100, 1000, 10000};
+        int start = 0;
+        for (int end : tileEnds) {
+            final double[] tile = new double[end - start];
+            System.arraycopy(samples, start, tile, 0, tile.length);
+            final BandStatistics tileStats = new BandStatistics();
+            tileStats.accumulate(tile, tile.length, -1.0, true);
+            merged.merge(tileStats);
+            start = end;
+        }
+
+        assertEquals(samples.length, merged.getNumPixels());
+        assertEquals(whole.getSampleCount(), merged.getSampleCount());
+        assertEquals(whole.getMinimum(), merged.getMinimum(), 0.0);
+        assertEquals(whole.getMaximum(), merged.getMaximum(), 0.0);
+        assertEquals(whole.getMean(), merged.getMean(), 1e-9);
+        assertEquals(whole.getStandardDeviation(), merged.getStandardDeviation(), 1e-9);
+
+        final int numBins = 64;
+        final int[] expected = new int[numBins];
+        final int[] nearEdge = new int[numBins];
+        final double min = whole.getMinimum();
+        final double max = whole.getMaximum();
+        final double edgeDistance = (max - min) / 4096;
+        for (double v : samples) {
+            if (v != -1.0) {
+                final double pos = (v - min) / (max - min) * numBins;
+                final int k = Math.min((int) pos, numBins - 1);
+                expected[k]++;
+                // samples within a fine bin width of an edge may fall in the neighbouring bin
+                final double toLower = (pos - k) * (max - min) / numBins;
+                final double toUpper = (k + 1 - pos) * (max - min) / numBins;
+                if (toLower < edgeDistance && k > 0) {
+                    nearEdge[k]++;
+                    nearEdge[k - 1]++;
+                }
+                if (toUpper < edgeDistance && k < numBins - 1) {
+                    nearEdge[k]++;
+                    nearEdge[k + 1]++;
+                }
+            }
+        }
+
+        final Histogram wholeHistogram = whole.getHistogram(numBins);
+        final Histogram mergedHistogram = merged.getHistogram(numBins);
+        int total = 0;
+        for (int k = 0; k < numBins; k++) {
+            assertEquals(wholeHistogram.getBinCounts()[k], mergedHistogram.getBinCounts()[k]);
+            assertEquals(expected[k], mergedHistogram.getBinCounts()[k], nearEdge[k]);
+            total += mergedHistogram.getBinCounts()[k];
+        }
+        assertEquals(merged.getSampleCount(), total);
+    }
+
+    @Test
+    public void testConstantBand() {
+        final double[] samples = {3.0, 3.0, 3.0, Double.NaN};
+        final BandStatistics stats = new BandStatistics();
+        stats.accumulate(samples, samples.length, 0.0, false);
+
+        assertEquals(3, stats.getSampleCount());
+        assertEquals(3.0, stats.getMinimum(), 0.0);
+        assertEquals(3.0, stats.getMaximum(), 0.0);
+        assertEquals(0.0, stats.getStandardDeviation(), 0.0);
+        assertEquals(3, stats.getHistogram(16).getBinCounts()[0]);
+    }
+}
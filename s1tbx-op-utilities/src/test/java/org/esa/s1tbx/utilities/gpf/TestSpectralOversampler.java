@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.s1tbx.utilities.gpf;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for SpectralOversampler: the oversampled rows must be bit-identical to those of the per-tile
+ * oversampling of OversamplingOp it replaces.
+ */
+public class TestSpectralOversampler {
+
+    /**
+     * The oversampling of a tile by OversamplingOp before SpectralOversampler.
+     *
+     * @param srcI       real part of the source tile
+     * @param srcQ       imaginary part of the source tile, null for a real image
+     * @param splitIndex for each column, the spectrum index at which the zeros are inserted
+     * @return the inverse transformed oversampled rows
+     */
+    private static double[][] oversamplePerTile(final double[][] srcI, final double[][] srcQ,
+                                                final int[] splitIndex, final int trgWidth, final int trgHeight) {
+        final int srcHeight = srcI.length;
+        final int srcWidth = srcI[0].length;
+        final double[][] tmpI = new double[trgHeight][srcWidth];
+        final double[][] tmpQ = new double[trgHeight][srcWidth];
+
+        // perform 1-D FFT on each row
+        final double[] rowArray = new double[srcWidth * 2];
+        final DoubleFFT_1D src_row_fft = new DoubleFFT_1D(srcWidth);
+        for (int y = 0; y < srcHeight; y++) {
+            int k = 0;
+            for (int x = 0; x < srcWidth; ++x) {
+                rowArray[k++] = srcI[y][x];
+                rowArray[k++] = srcQ == null ? 0.0 : srcQ[y][x];
+            }
+            src_row_fft.complexForward(rowArray);
+            for (int x = 0; x < srcWidth; x++) {
+                tmpI[y][x] = rowArray[2 * x];
+                tmpQ[y][x] = rowArray[2 * x + 1];
+            }
+        }
+
+        // perform 1-D FFT, zero padding and IFFT on each column
+        final double[] colArray = new double[2 * srcHeight];
+        final double[] zeroPaddedColSpec = new double[2 * trgHeight];
+        final DoubleFFT_1D src_col_fft = new DoubleFFT_1D(srcHeight);
+        final DoubleFFT_1D tgt_col_fft = new DoubleFFT_1D(trgHeight);
+        for (int x = 0; x < srcWidth; x++) {
+            int k = 0;
+            for (int y = 0; y < srcHeight; ++y) {
+                colArray[k++] = tmpI[y][x];
+                colArray[k++] = tmpQ[y][x];
+            }
+            src_col_fft.complexForward(colArray);
+
+            final int d = splitIndex[x];
+            Arrays.fill(zeroPaddedColSpec, 0.0);
+            System.arraycopy(colArray, 0, zeroPaddedColSpec, 0, d * 2);
+            System.arraycopy(colArray, d * 2, zeroPaddedColSpec, 2 * (trgHeight - srcHeight + d),
+                             (srcHeight - d) * 2);
+            tgt_col_fft.complexInverse(zeroPaddedColSpec, true);
+
+            k = 0;
+            for (int y = 0; y < trgHeight; ++y) {
+                tmpI[y][x] = zeroPaddedColSpec[k++];
+                tmpQ[y][x] = zeroPaddedColSpec[k++];
+            }
+        }
+
+        // zero padding and perform 1-D IFFT on each row
+        final double[][] rows = new double[trgHeight][2 * trgWidth];
+        final DoubleFFT_1D tgt_row_fft = new DoubleFFT_1D(trgWidth);
+        final int firstHalfSourceTileWidth = (int) (srcWidth / 2 + 0.5);
+        final int secondHalfSourceTileWidth = srcWidth - firstHalfSourceTileWidth;
+        for (int y = 0; y < trgHeight; y++) {
+            final double[] array = rows[y];
+            int k = 0;
+            for (int x = 0; x < firstHalfSourceTileWidth; ++x) {
+                array[k++] = tmpI[y][x];
+                array[k++] = tmpQ[y][x];
+            }
+            k = 2 * (trgWidth - secondHalfSourceTileWidth);
+            for (int x = firstHalfSourceTileWidth; x < srcWidth; ++x) {
+                array[k++] = tmpI[y][x];
+                array[k++] = tmpQ[y][x];
+            }
+            tgt_row_fft.complexInverse(array, true);
+        }
+        return rows;
+    }
+
+    private static void compare(final int srcWidth, final int srcHeight, final int trgWidth, final int trgHeight,
+                                final boolean complex, final int[] splitIndex, final Map<Integer, DoubleFFT_1D> plans) {
+        final Random random = new Random(srcWidth * 1000 + srcHeight);
+        final double[][] srcI = new double[srcHeight][srcWidth];
+        final double[][] srcQ = complex ? new double[srcHeight][srcWidth] : null;
+        for (int y = 0; y < srcHeight; y++) {
+            for (int x = 0; x < srcWidth; x++) {
+                srcI[y][x] = 200.0 * random.nextDouble() - 100.0;
+                if (complex) {
+                    srcQ[y][x] = 200.0 * random.nextDouble() - 100.0;
+                }
+            }
+        }
+
+        final double[][] expected = oversamplePerTile(srcI, srcQ, splitIndex, trgWidth, trgHeight);
+
+        final SpectralOversampler oversampler = new SpectralOversampler(srcWidth, srcHeight, trgWidth, trgHeight,
+                                                                        plans);
+        final double[] data = oversampler.getData();
+        final int stride = oversampler.getStride();
+        for (int y = 0; y < srcHeight; y++) {
+            int k = y * stride;
+            for (int x = 0; x < srcWidth; x++) {
+                data[k++] = srcI[y][x];
+                data[k++] = complex ? srcQ[y][x] : 0.0;
+            }
+        }
+        oversampler.forwardRows();
+        oversampler.oversampleColumns(splitIndex);
+
+        // the rows requested by a tile with an overlap on top
+        final int y0 = trgHeight / 4;
+        final int numRows = trgHeight - y0;
+        final int[] numConsumed = new int[1];
+        oversampler.inverseRows(y0, numRows, new SpectralOversampler.RowConsumer() {
+            @Override
+            public void consume(final int i, final double[] row) {
+                final double[] expectedRow = expected[y0 + i];
+                assertEquals(expectedRow.length, row.length);
+                for (int k = 0; k < row.length; k++) {
+                    assertEquals(expectedRow[k], row[k], 0.0);
+                }
+                ++numConsumed[0];
+            }
+        });
+        assertEquals(numRows, numConsumed[0]);
+    }
+
+    private static int[] getCentredSplitIndex(final int srcWidth, final int srcHeight) {
+        final int[] d = new int[srcWidth];
+        Arrays.fill(d, srcHeight / 2);
+        return d;
+    }
+
+    @Test
+    public void testDetected() {
+        compare(12, 6, 24, 12, false, getCentredSplitIndex(12, 6), new HashMap<Integer, DoubleFFT_1D>());
+    }
+
+    @Test
+    public void testComplexOddSizes() {
+        // odd sizes and a width that is not a multiple of the column group
+        compare(37, 23, 74, 46, true, getCentredSplitIndex(37, 23), new HashMap<Integer, DoubleFFT_1D>());
+        compare(19, 30, 29, 45, true, getCentredSplitIndex(19, 30), new HashMap<Integer, DoubleFFT_1D>());
+    }
+
+    @Test
+    public void testDopplerSplitIndex() {
+        // zeros inserted around a Doppler centroid that varies over the columns, including the ends of the spectrum
+        final int srcWidth = 21;
+        final int srcHeight = 16;
+        final int[] d = new int[srcWidth];
+        for (int x = 0; x < srcWidth; x++) {
+            d[x] = (x * 5) % (srcHeight + 1);
+        }
+        compare(srcWidth, srcHeight, 42, 32, true, d, new HashMap<Integer, DoubleFFT_1D>());
+    }
+
+    @Test
+    public void testSharedPlans() {
+        // tiles of different sizes of an operator share the plans of the lengths they have in common
+        final Map<Integer, DoubleFFT_1D> plans = new HashMap<>();
+        compare(16, 8, 32, 16, true, getCentredSplitIndex(16, 8), plans);
+        assertEquals(3, plans.size());
+        final DoubleFFT_1D plan16 = plans.get(16);
+        compare(8, 16, 16, 32, true, getCentredSplitIndex(8, 16), plans);
+        assertEquals(3, plans.size());
+        assertTrue(plan16 == plans.get(16));
+    }
+}